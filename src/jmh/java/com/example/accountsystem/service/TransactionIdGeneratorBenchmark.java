@@ -0,0 +1,35 @@
+package com.example.accountsystem.service;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * 거래 ID 생성 비용 비교 (기존 UUID vs snowflake)
+ * ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+public class TransactionIdGeneratorBenchmark {
+    private final UuidTransactionIdGenerator uuid = new UuidTransactionIdGenerator();
+    private final SnowflakeTransactionIdGenerator snowflake = new SnowflakeTransactionIdGenerator(1);
+
+    @Benchmark
+    public String uuid() {
+        return uuid.nextId();
+    }
+
+    @Benchmark
+    public String snowflake() {
+        return snowflake.nextId();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String uuid_8threads() {
+        return uuid.nextId();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String snowflake_8threads() {
+        return snowflake.nextId();
+    }
+}
@@ -1,13 +1,19 @@
 package com.example.accountsystem;
 
+import com.example.accountsystem.service.TransactionLedgerExportCommand;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 
 @SpringBootApplication
 public class AccountSystemApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(AccountSystemApplication.class, args);
+        ConfigurableApplicationContext context =
+                SpringApplication.run(AccountSystemApplication.class, args);
+        if (context.getBean(TransactionLedgerExportCommand.class).isExported()) {
+            System.exit(SpringApplication.exit(context));
+        }
     }
 
 }
@@ -7,5 +7,13 @@ import java.lang.annotation.*;
 @Documented
 @Inherited
 public @interface AccountLock {
-    long tryLockTime() default 5000L;
+    /**
+     * 락 정책 프로필 이름 (account-system.lock.profiles.{profile})
+     * 설정에 프로필이 있으면 아래 값보다 우선한다.
+     */
+    String profile() default "";
+
+    long tryLockTime() default 1000L;
+
+    long leaseTime() default 15000L;
 }
@@ -1,5 +1,15 @@
 package com.example.accountsystem.aop;
 
+import java.util.Collections;
+import java.util.List;
+
 public interface AccountLockIdInterface {
     String getAccountNumber();
+
+    /**
+     * 여러 계좌를 함께 잠가야 하는 요청(이체 등)은 재정의한다.
+     */
+    default List<String> getAccountNumbers() {
+        return Collections.singletonList(getAccountNumber());
+    }
 }
@@ -0,0 +1,20 @@
+package com.example.accountsystem.aop;
+
+import java.lang.annotation.*;
+
+/**
+ * Idempotency-Key 헤더가 있는 요청은 같은 키로 다시 들어오면 처음 응답을 그대로 돌려준다.
+ * (IdempotencyAspect, 계좌 락보다 먼저 적용된다)
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+public @interface Idempotent {
+    String HEADER = "Idempotency-Key";
+
+    /**
+     * 키 공간 이름. 엔드포인트가 다르면 같은 키라도 다른 요청으로 본다.
+     */
+    String value();
+}
@@ -0,0 +1,19 @@
+package com.example.accountsystem.aop;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 한 번의 락 획득에 적용할 대기/점유 시간 (ms)
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class LockPolicy {
+    public static final LockPolicy DEFAULT = new LockPolicy("", 1000L, 15000L);
+
+    private final String profile;
+    private final long waitMillis;
+    private final long leaseMillis;
+}
@@ -0,0 +1,36 @@
+package com.example.accountsystem.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 계좌 관련 설정 (account-system.account.*)
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "account-system.account")
+public class AccountProperties {
+    /**
+     * Redis 카운터에서 한 번에 예약해 메모리에서 발급할 계좌번호 개수
+     */
+    private int numberBlockSize = 100;
+    private ListCache listCache = new ListCache();
+
+    /**
+     * 사용자별 계좌 목록(GET /account) 로컬 캐시.
+     * 잔액이 바뀌면 커밋 후 바로 지우지만, 다른 노드에서 바뀐 잔액은 알 수 없으므로
+     * 항목은 maxStaleness 가 지나면 무조건 만료된다. (응답 잔액이 이보다 오래될 수 없음)
+     */
+    @Getter
+    @Setter
+    public static class ListCache {
+        private boolean enabled = true;
+        private long maximumSize = 10_000;
+        private Duration maxStaleness = Duration.ofSeconds(5);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.accountsystem.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 계좌 락 관련 설정 (account-system.lock.*)
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "account-system.lock")
+public class LockProperties {
+    private Local local = new Local();
+    private Map<String, Profile> profiles = new HashMap<>();
+    private Adaptive adaptive = new Adaptive();
+    private Metrics metrics = new Metrics();
+
+    /**
+     * Redis 락 앞단의 JVM 내부 스트라이프 락 설정
+     */
+    @Getter
+    @Setter
+    public static class Local {
+        private boolean enabled = true;
+        private int stripes = 256;
+    }
+
+    /**
+     * 엔드포인트별 락 정책. 비어있는 값은 @AccountLock 값을 따른다.
+     */
+    @Getter
+    @Setter
+    public static class Profile {
+        private Duration waitTime;
+        private Duration leaseTime;
+    }
+
+    /**
+     * 관측된 락 점유 시간에 맞춰 대기 시간을 줄이는 설정
+     */
+    @Getter
+    @Setter
+    public static class Adaptive {
+        private boolean enabled = false;
+        private Duration minWaitTime = Duration.ofMillis(50);
+        private int warmupSamples = 20;
+    }
+
+    /**
+     * 계좌별 경합 통계 설정.
+     * contention-threshold 이상 기다렸거나 실패한 계좌만 최대 tracked-accounts 개까지 기록한다.
+     */
+    @Getter
+    @Setter
+    public static class Metrics {
+        private int trackedAccounts = 10_000;
+        private Duration contentionThreshold = Duration.ofMillis(1);
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.accountsystem.config;
+
+import com.example.accountsystem.type.ExecutionMode;
+import com.example.accountsystem.type.OverflowPolicy;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * 잔액 변경 처리 방식 설정 (account-system.transaction.*)
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "account-system.transaction")
+public class TransactionProperties {
+    /**
+     * LOCK : 요청마다 계좌 락(@AccountLock) 후 처리
+     * PARTITIONED : 계좌번호 해시로 고른 단일 스레드 파티션에서 순차 처리 (락 없음)
+     * SEQUENCED : 링 버퍼로 받아 메모리 잔액을 가진 단일 스레드가 처리 (LedgerSequencer, 락 없음)
+     */
+    private ExecutionMode mode = ExecutionMode.LOCK;
+    /**
+     * 거래 ID 생성 방식 : snowflake (시간순 13자) | uuid (랜덤 32자)
+     */
+    private String idGenerator = "snowflake";
+    /**
+     * snowflake 노드 ID (0 ~ 1023). 비워두면 Redis 카운터로 받는다.
+     */
+    private Integer nodeId;
+    private Partition partition = new Partition();
+    private Worker worker = new Worker();
+    private FailureAudit failureAudit = new FailureAudit();
+    private RecordCache recordCache = new RecordCache();
+    private HotBalance hotBalance = new HotBalance();
+    private Sequencer sequencer = new Sequencer();
+    private EventSourcing eventSourcing = new EventSourcing();
+    private Journal journal = new Journal();
+    private Coalescing coalescing = new Coalescing();
+    private Idempotency idempotency = new Idempotency();
+    private Export export = new Export();
+
+    @Getter
+    @Setter
+    public static class Partition {
+        private int count = Runtime.getRuntime().availableProcessors();
+        private int queueCapacity = 10_000;
+        private Duration timeout = Duration.ofSeconds(5);
+    }
+
+    /**
+     * 비동기 엔드포인트에서 DB 작업을 실행하는 풀.
+     * 락 대기는 이 풀의 스레드를 점유하지 않는다.
+     */
+    @Getter
+    @Setter
+    public static class Worker {
+        private int threads = Runtime.getRuntime().availableProcessors() * 2;
+        private int queueCapacity = 10_000;
+    }
+
+    /**
+     * 실패 거래 기록. 요청 스레드는 큐에 넣기만 하고 백그라운드 스레드가 batchSize 단위로 저장한다.
+     */
+    @Getter
+    @Setter
+    public static class FailureAudit {
+        private int queueCapacity = 10_000;
+        private int batchSize = 500;
+        private Duration flushInterval = Duration.ofMillis(100);
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+        private Duration shutdownTimeout = Duration.ofSeconds(10);
+    }
+
+    /**
+     * 거래 조회 캐시. 거래는 한 번 쓰면 바뀌지 않으므로 TTL 없이 크기로만 내보낸다.
+     * Bloom filter 는 기동 시 DB 의 거래 ID 로 다시 만들고, 그 시점(- safetyMargin) 이전에
+     * 만들어진 snowflake ID 중 filter 에 없는 것은 DB 를 보지 않고 TRANSACTION_NOT_FOUND 로 처리한다.
+     */
+    @Getter
+    @Setter
+    public static class RecordCache {
+        private boolean enabled = true;
+        private long maximumSize = 100_000;
+        private long expectedInsertions = 10_000_000;
+        private double falsePositiveRate = 0.01;
+        private Duration safetyMargin = Duration.ofMinutes(1);
+    }
+
+    /**
+     * HOT 잔액 모드의 원장 반영. flushInterval 마다 계좌별로 batchSize 건씩 DB 에 쓴다.
+     */
+    @Getter
+    @Setter
+    public static class HotBalance {
+        private int batchSize = 500;
+        private Duration flushInterval = Duration.ofMillis(200);
+        private Duration shutdownTimeout = Duration.ofSeconds(10);
+    }
+
+    /**
+     * SEQUENCED 모드의 링 버퍼와 DB 반영. bufferSize 는 2 의 거듭제곱으로 올림한다.
+     * DB 반영이 실패하면 retryBackoff 간격으로 같은 배치를 다시 쓴다. (그동안 파이프라인은 멈춘다)
+     * maxRetries 번 다시 써도 실패하면 그 배치와 이후 명령을 INTERVAL_SERVER_ERROR 로 끝내고
+     * 새 명령을 받지 않는다. (재기동 필요, health DOWN)
+     */
+    @Getter
+    @Setter
+    public static class Sequencer {
+        private int bufferSize = 65_536;
+        private int batchSize = 1_000;
+        private Duration retryBackoff = Duration.ofMillis(100);
+        private int maxRetries = 50;
+        private Duration shutdownTimeout = Duration.ofSeconds(10);
+    }
+
+    /**
+     * SEQUENCED 모드에서 거래 원장을 잔액의 기준으로 삼는다. (LedgerReplayer)
+     * 계좌마다 원장 순번을 붙여 거래를 저장하고 snapshotInterval 건마다 잔액 스냅샷을 남긴다.
+     * 기동 시 replayChunkSize 개 계좌씩 replayThreads 개 스레드로 스냅샷 이후 거래만 재생해
+     * 메모리 잔액을 만들고, Account.balance 가 다르면 원장 값으로 고친다.
+     * 다른 모드로 운영한 뒤 켤 때는 balance_snapshot 을 비우고 시작한다. (원장 밖의 변경은 재생되지 않음)
+     */
+    @Getter
+    @Setter
+    public static class EventSourcing {
+        private boolean enabled = false;
+        private int snapshotInterval = 1_000;
+        private int replayThreads = Runtime.getRuntime().availableProcessors();
+        private int replayChunkSize = 500;
+    }
+
+    /**
+     * 잔액 변경 write-ahead 저널 (BalanceJournal). 커밋 뒤 응답 전에 기록하고
+     * batchSize 건이 모이거나 flushInterval 이 지나면 한 번에 force 한다. (group commit)
+     * writeTimeout 안에 force 되지 않으면 요청은 실패로 응답한다.
+     * recoverOnStartup 이면 기동 시 저널에서 DB 에 없는 거래를 다시 반영한다. (BalanceJournalRecovery)
+     * 한 디렉터리는 한 프로세스만 쓴다.
+     */
+    @Getter
+    @Setter
+    public static class Journal {
+        private boolean enabled = false;
+        private String directory = "journal";
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+        private int batchSize = 256;
+        private Duration flushInterval = Duration.ofMillis(1);
+        private Duration writeTimeout = Duration.ofSeconds(5);
+        private boolean recoverOnStartup = false;
+    }
+
+    /**
+     * LOCK 모드에서 여러 계좌의 잔액 사용/취소를 모아 한 DB 트랜잭션으로 커밋한다. (BalanceMutationCoalescer)
+     * 첫 요청부터 window 동안, 최대 maxBatchSize 건을 모아 writerThreads 개 스레드 중 하나가 반영한다.
+     * 쓰는 스레드가 모두 바쁘면 모으는 스레드가 직접 반영하고, 그동안 쌓인 요청은 다음 배치가 된다.
+     * 락이 필요 없는 계좌(STRIPED, HOT) 는 모으지 않는다.
+     */
+    @Getter
+    @Setter
+    public static class Coalescing {
+        private boolean enabled = false;
+        private Duration window = Duration.ofMillis(2);
+        private int maxBatchSize = 128;
+        private int queueCapacity = 10_000;
+        private int writerThreads = 4;
+        private Duration shutdownTimeout = Duration.ofSeconds(10);
+    }
+
+    /**
+     * 잔액 사용/취소의 Idempotency-Key 응답 저장소 (IdempotencyStore).
+     * 노드 메모리(localMaximumSize 건) 와 Redis 에 ttl 동안 처음 응답을 남긴다.
+     * 처리 중인 키는 inFlightTimeout 동안 Redis 에 표시하고, 다른 노드로 온 같은 키의 요청은
+     * pollInterval 간격으로 결과를 확인하며 waitTimeout 까지 기다린다. (지나면 IDEMPOTENCY_KEY_IN_PROGRESS)
+     */
+    @Getter
+    @Setter
+    public static class Idempotency {
+        private boolean enabled = true;
+        private Duration ttl = Duration.ofHours(24);
+        private long localMaximumSize = 100_000;
+        private Duration inFlightTimeout = Duration.ofSeconds(30);
+        private Duration waitTimeout = Duration.ofSeconds(10);
+        private Duration pollInterval = Duration.ofMillis(50);
+    }
+
+    /**
+     * 거래 원장 내보내기 (TransactionLedgerExporter)
+     * fetchSize : JDBC 커서가 DB 에서 한 번에 가져오는 행 수. 메모리에는 이만큼만 올라간다.
+     */
+    @Getter
+    @Setter
+    public static class Export {
+        private int fetchSize = 1_000;
+    }
+}
@@ -2,20 +2,27 @@ package com.example.accountsystem.controller;
 
 import com.example.accountsystem.domain.Account;
 import com.example.accountsystem.dto.AccountInfo;
+import com.example.accountsystem.dto.ChangeBalanceMode;
 import com.example.accountsystem.dto.CreateAccount;
 import com.example.accountsystem.dto.DeleteAccount;
+import com.example.accountsystem.dto.TransactionHistory;
 import com.example.accountsystem.service.AccountService;
+import com.example.accountsystem.service.BalanceModeService;
+import com.example.accountsystem.service.TransactionService;
+import com.example.accountsystem.type.TransactionResultType;
+import com.example.accountsystem.type.TransactionType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequiredArgsConstructor
 public class AccountController {
     private final AccountService accountService;
+    private final BalanceModeService balanceModeService;
+    private final TransactionService transactionService;
 
     @PostMapping("/account")
     public CreateAccount.Response createAccount(
@@ -41,17 +48,27 @@ public class AccountController {
         );
     }
 
+    /**
+     * 운영자용 : 계좌 잔액을 슬롯으로 분할(STRIPED)하거나 Redis 로 옮기거나(HOT) 다시 DB 단일 잔액으로 되돌림(STANDARD)
+     */
+    @PostMapping("/account/balance-mode")
+    public ChangeBalanceMode.Response changeBalanceMode(
+            @RequestBody @Valid ChangeBalanceMode.Request request
+    ) {
+        return ChangeBalanceMode.Response.from(
+                balanceModeService.changeBalanceMode(
+                        request.getAccountNumber(),
+                        request.getBalanceMode(),
+                        request.getSlotCount()
+                )
+        );
+    }
+
     @GetMapping("/account")
     public List<AccountInfo> getAccountByUserId(
             @RequestParam("user_id") Long userId
     ) {
-        return accountService.getAccountByUserId(userId)
-                .stream().map(accountDto ->
-                        AccountInfo.builder()
-                        .accountNumber(accountDto.getAccountNumber())
-                        .balance(accountDto.getBalance())
-                        .build())
-                .collect(Collectors.toList());
+        return accountService.getAccountByUserId(userId);
     }
 
     @GetMapping("/account/{id}")
@@ -59,4 +76,18 @@ public class AccountController {
             @PathVariable Long id) {
         return accountService.getAccount(id);
     }
+
+    /**
+     * 계좌 거래 내역 (최근 순). 응답의 nextCursor 를 cursor 로 넘기면 다음 페이지를 준다.
+     */
+    @GetMapping("/account/{accountNumber}/transactions")
+    public TransactionHistory getTransactionHistory(
+            @PathVariable String accountNumber,
+            @RequestParam(value = "transaction_type", required = false) TransactionType transactionType,
+            @RequestParam(value = "transaction_result", required = false) TransactionResultType resultType,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return transactionService.getTransactionHistory(
+                accountNumber, transactionType, resultType, cursor, size);
+    }
 }
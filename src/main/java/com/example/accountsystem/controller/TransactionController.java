@@ -1,77 +1,131 @@
 package com.example.accountsystem.controller;
 
 import com.example.accountsystem.aop.AccountLock;
+import com.example.accountsystem.aop.Idempotent;
 import com.example.accountsystem.dto.*;
 import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.service.BalanceMutationCoalescer;
+import com.example.accountsystem.service.BalanceMutationExecutor;
+import com.example.accountsystem.service.FailedTransactionWriter;
+import com.example.accountsystem.service.HotBalanceService;
+import com.example.accountsystem.service.LedgerSequencer;
+import com.example.accountsystem.service.TransactionBatchService;
+import com.example.accountsystem.service.TransactionLedgerExporter;
 import com.example.accountsystem.service.TransactionService;
+import com.example.accountsystem.type.ExportFormat;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static com.example.accountsystem.type.TransactionType.*;
 
 /**
  * 잔액 관련 컨트롤러
- * 1. 잔액 사용
+ * 1. 잔액 사용 (일괄 처리 포함)
  * 2. 잔액 사용 취소
  * 3. 거래 확인
+ * 4. 계좌 이체
+ * 5. 거래 원장 내보내기 (NDJSON/CSV, 응답에 바로 스트리밍)
+ * 잔액 변경(1, 2, 4)은 CompletableFuture 를 반환해 락 대기/DB 작업 동안 서블릿 스레드를 반환한다.
+ * HOT 계좌의 사용/취소는 HotBalanceService 가 Redis 에서 처리한다. (락, DB 트랜잭션 없음)
+ * SEQUENCED 모드에서는 잔액 변경을 모두 LedgerSequencer 에 넘긴다.
+ * 모음 처리(coalescing) 가 켜져 있으면 락이 필요한 계좌의 사용/취소는 BalanceMutationCoalescer 가
+ * 여러 요청을 한 DB 트랜잭션으로 모아 처리한다.
+ * 사용/취소에 Idempotency-Key 헤더가 있으면 같은 키의 재시도는 처음 응답을 그대로 받는다. (IdempotencyAspect)
  */
 @Slf4j
 @RestController
 @RequiredArgsConstructor
 public class TransactionController {
     private final TransactionService transactionService;
+    private final BalanceMutationExecutor balanceMutationExecutor;
+    private final BalanceMutationCoalescer balanceMutationCoalescer;
+    private final TransactionBatchService transactionBatchService;
+    private final FailedTransactionWriter failedTransactionWriter;
+    private final HotBalanceService hotBalanceService;
+    private final LedgerSequencer ledgerSequencer;
+    private final TransactionLedgerExporter transactionLedgerExporter;
 
     @PostMapping("/transaction/use")
-    @AccountLock
-    public UseBalance.Response useBalance(
+    @Idempotent("use")
+    @AccountLock(profile = "use")
+    public CompletableFuture<UseBalance.Response> useBalance(
             @Valid @RequestBody UseBalance.Request request
-    ) throws InterruptedException {
-        try {
-            Thread.sleep(3000L);
-            return UseBalance.Response.from(
-                    transactionService.useBalance(
-                            request.getUserId(),
-                            request.getAccountNumber(),
-                            request.getAmount()
-                    )
-            );
-        } catch (AccountException e) {
-            log.error("Failed to use balance");
-
-            transactionService.saveFailedUseTransaction(
-                    request.getAccountNumber(),
-                    request.getAmount()
-            );
+    ) {
+        return saveFailedTransactionOnError(
+                routeUseBalance(request.getUserId(), request.getAccountNumber(), request.getAmount()),
+                () -> failedTransactionWriter.record(USE,
+                        request.getAccountNumber(),
+                        request.getAmount()
+                )
+        ).thenApply(UseBalance.Response::from);
+    }
 
-            throw e;
-        }
+    /**
+     * 여러 건의 잔액 사용. 항목별 성공/실패를 요청 순서대로 반환한다.
+     */
+    @PostMapping("/transaction/use/batch")
+    public CompletableFuture<UseBalanceBatch.Response> useBalanceBatch(
+            @Valid @RequestBody UseBalanceBatch.Request request
+    ) {
+        return transactionBatchService.useBalances(request.getItems());
     }
 
     @PostMapping("/transaction/cancel")
-    @AccountLock
-    public CancelBalance.Response cancelBalance(
+    @Idempotent("cancel")
+    @AccountLock(profile = "cancel")
+    public CompletableFuture<CancelBalance.Response> cancelBalance(
             @Valid @RequestBody CancelBalance.Request request
     ) {
-        try {
-            return CancelBalance.Response.from(
-                    transactionService.cancelBalance(request.getTransactionId(),
-                            request.getAccountNumber(),
-                            request.getAmount()
-                    )
-            );
-        } catch (AccountException e) {
-            log.error("Failed to use balance");
-
-            transactionService.saveFailedCancelTransaction(
-                    request.getAccountNumber(),
-                    request.getAmount()
-            );
+        return saveFailedTransactionOnError(
+                routeCancelBalance(request.getTransactionId(), request.getAccountNumber(),
+                        request.getAmount()),
+                () -> failedTransactionWriter.record(CANCEL,
+                        request.getAccountNumber(),
+                        request.getAmount()
+                )
+        ).thenApply(CancelBalance.Response::from);
+    }
 
-            throw e;
-        }
+    @PostMapping("/transaction/transfer")
+    @AccountLock(profile = "transfer")
+    public CompletableFuture<TransferBalance.Response> transferBalance(
+            @Valid @RequestBody TransferBalance.Request request
+    ) {
+        return saveFailedTransactionOnError(
+                ledgerSequencer.isEnabled()
+                        ? ledgerSequencer.transferBalance(
+                                request.getUserId(),
+                                request.getFromAccountNumber(),
+                                request.getToAccountNumber(),
+                                request.getAmount())
+                        : balanceMutationExecutor.submit(request.getAccountNumbers(), () ->
+                                transactionService.transferBalance(
+                                        request.getUserId(),
+                                        request.getFromAccountNumber(),
+                                        request.getToAccountNumber(),
+                                        request.getAmount()
+                                )),
+                () -> failedTransactionWriter.record(TRANSFER_OUT,
+                        request.getFromAccountNumber(),
+                        request.getAmount()
+                )
+        ).thenApply(transactionDto -> TransferBalance.Response.from(
+                transactionDto, request.getToAccountNumber()));
     }
 
     @GetMapping ("/transaction/{transactionId}")
@@ -81,4 +135,87 @@ public class TransactionController {
                 transactionService.queryTransaction(transactionId)
         );
     }
+
+    /**
+     * 행을 읽는 대로 응답에 쓴다. (응답 전체를 메모리에 만들지 않는다)
+     * 내보내기 시간이 비동기 요청 타임아웃에 걸리지 않도록 서블릿 스레드에서 동기로 쓴다.
+     */
+    @GetMapping("/transaction/export")
+    public void exportTransactions(
+            @RequestParam(defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(value = "account_number", required = false) String accountNumber,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            HttpServletResponse response
+    ) throws IOException {
+        TransactionExport export = transactionLedgerExporter.prepare(
+                format, accountNumber, from, to);
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"transactions." + format.getExtension() + "\"");
+        transactionLedgerExporter.export(export, new BufferedWriter(
+                new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * SEQUENCED 모드, 모음 처리, 실행기(HOT 계좌는 Redis, 그 외는 DB) 순으로 처리할 곳을 고른다.
+     */
+    private CompletableFuture<TransactionDto> routeUseBalance(
+            Long userId, String accountNumber, Long amount
+    ) {
+        if (ledgerSequencer.isEnabled()) {
+            return ledgerSequencer.useBalance(userId, accountNumber, amount);
+        }
+        if (balanceMutationCoalescer.accepts(accountNumber)) {
+            return balanceMutationCoalescer.useBalance(userId, accountNumber, amount);
+        }
+        return balanceMutationExecutor.submit(accountNumber, () -> {
+            if (hotBalanceService.isHot(accountNumber)) {
+                return hotBalanceService.useBalance(userId, accountNumber, amount);
+            }
+            return transactionService.useBalance(userId, accountNumber, amount);
+        });
+    }
+
+    /**
+     * routeUseBalance 와 같은 순서로 처리할 곳을 고른다.
+     */
+    private CompletableFuture<TransactionDto> routeCancelBalance(
+            String transactionId, String accountNumber, Long amount
+    ) {
+        if (ledgerSequencer.isEnabled()) {
+            return ledgerSequencer.cancelBalance(transactionId, accountNumber, amount);
+        }
+        if (balanceMutationCoalescer.accepts(accountNumber)) {
+            return balanceMutationCoalescer.cancelBalance(transactionId, accountNumber, amount);
+        }
+        return balanceMutationExecutor.submit(accountNumber, () -> {
+            if (hotBalanceService.isHot(accountNumber)) {
+                return hotBalanceService.cancelBalance(transactionId, accountNumber, amount);
+            }
+            return transactionService.cancelBalance(transactionId, accountNumber, amount);
+        });
+    }
+
+    /**
+     * 잔액 변경이 AccountException 으로 실패하면 실패 거래 기록을 큐에 넣는다.
+     * (저장은 FailedTransactionWriter 가 나중에 모아서 한다) 원래 예외는 그대로 전달된다.
+     */
+    private static CompletableFuture<TransactionDto> saveFailedTransactionOnError(
+            CompletableFuture<TransactionDto> future,
+            Runnable recordFailedTransaction
+    ) {
+        return future.whenComplete((transactionDto, e) -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null
+                    ? e.getCause() : e;
+            if (cause instanceof AccountException) {
+                log.error("Failed to change balance ({})",
+                        ((AccountException) cause).getErrorCode());
+                recordFailedTransaction.run();
+            }
+        });
+    }
 }
@@ -2,6 +2,7 @@ package com.example.accountsystem.domain;
 
 import com.example.accountsystem.exception.AccountException;
 import com.example.accountsystem.type.AccountStatus;
+import com.example.accountsystem.type.BalanceMode;
 import com.example.accountsystem.type.ErrorCode;
 import lombok.*;
 import org.springframework.data.annotation.CreatedDate;
@@ -17,8 +18,13 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Builder
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_account_account_user", columnList = "account_user_id"),
+        @Index(name = "idx_account_balance_mode", columnList = "balance_mode")},
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_account_account_number", columnNames = "account_number"))
 public class Account extends BaseEntity {
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private AccountUser accountUser;
     private String accountNumber;
 
@@ -26,9 +32,31 @@ public class Account extends BaseEntity {
     private AccountStatus accountStatus;
     private Long balance;
 
+    @Enumerated(EnumType.STRING)
+    private BalanceMode balanceMode;
+    private Integer balanceSlotCount;
+    /**
+     * HOT 계좌에서 DB 에 반영된 마지막 Redis 원장 seq
+     */
+    private Long hotLedgerSeq;
+
     private LocalDateTime registeredAt;
     private LocalDateTime unRegisteredAt;
 
+    /**
+     * STRIPED 계좌는 잔액을 BalanceSlot 에 나눠 담고 balance 는 0 으로 둔다.
+     */
+    public boolean isStriped() {
+        return balanceMode == BalanceMode.STRIPED;
+    }
+
+    /**
+     * HOT 계좌는 잔액이 Redis 에 있고 balance 는 원장이 반영된 만큼만 따라온다.
+     */
+    public boolean isHot() {
+        return balanceMode == BalanceMode.HOT;
+    }
+
     public void useBalance(Long amount) {
         if (amount > balance) {
             throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
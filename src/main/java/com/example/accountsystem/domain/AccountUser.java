@@ -19,4 +19,9 @@ import java.time.LocalDateTime;
 @Entity
 public class AccountUser extends BaseEntity {
     private String name;
+
+    /**
+     * 지금까지 개설한 계좌 수 (해지 계좌 포함). 계좌 개설 시 조건부 update 로만 증가시킨다.
+     */
+    private int accountCount;
 }
@@ -0,0 +1,28 @@
+package com.example.accountsystem.domain;
+
+import lombok.*;
+
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+/**
+ * 분할 잔액(STRIPED) 계좌의 잔액 조각.
+ * 계좌의 잔액은 모든 슬롯 잔액의 합이다.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(
+        name = "uk_balance_slot_account_slot", columnNames = {"account_id", "slot_index"}))
+public class BalanceSlot extends BaseEntity {
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Account account;
+    private Integer slotIndex;
+    private Long balance;
+}
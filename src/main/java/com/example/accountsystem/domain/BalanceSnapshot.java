@@ -0,0 +1,30 @@
+package com.example.accountsystem.domain;
+
+import lombok.*;
+
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import java.time.LocalDateTime;
+
+/**
+ * 이벤트 소싱(SEQUENCED 모드) 계좌의 잔액 스냅샷. 계좌마다 마지막 하나만 둔다.
+ * 잔액은 balance 에 ledgerSeq 보다 큰 순번의 거래를 차례로 적용한 값이다.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(
+        name = "uk_balance_snapshot_account", columnNames = "account_id"))
+public class BalanceSnapshot extends BaseEntity {
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Account account;
+    private Long balance;
+    private Long ledgerSeq;
+    private LocalDateTime takenAt;
+}
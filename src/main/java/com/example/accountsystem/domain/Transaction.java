@@ -17,18 +17,29 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Builder
 @Entity
+@Table(indexes = @Index(name = "idx_transaction_account_transacted_at_id",
+        columnList = "account_id, transacted_at, id"),
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_transaction_transaction_id",
+                        columnNames = "transaction_id"),
+                @UniqueConstraint(name = "uk_transaction_account_ledger_seq",
+                        columnNames = {"account_id", "ledger_seq"})})
 public class Transaction extends BaseEntity {
     @Enumerated(EnumType.STRING)
     private TransactionType transactionType;
     @Enumerated(EnumType.STRING)
     private TransactionResultType transactionResultType;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Account account;
     private Long amount;
     private Long balanceSnapshot;
 
     private String transactionId;
     private LocalDateTime transactedAt;
+    /**
+     * 이벤트 소싱(SEQUENCED 모드) 계좌의 원장 순번. 계좌마다 1 부터 빈틈없이 증가한다.
+     */
+    private Long ledgerSeq;
 
 }
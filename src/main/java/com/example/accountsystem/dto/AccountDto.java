@@ -1,6 +1,7 @@
 package com.example.accountsystem.dto;
 
 import com.example.accountsystem.domain.Account;
+import com.example.accountsystem.type.BalanceMode;
 import lombok.*;
 
 import java.time.LocalDateTime;
@@ -14,15 +15,26 @@ public class AccountDto {
     private Long userId;
     private String accountNumber;
     private Long balance;
+    private BalanceMode balanceMode;
+    private Integer balanceSlotCount;
 
     private LocalDateTime registeredAt;
     private LocalDateTime unRegisteredAt;
 
     public static AccountDto fromEntity(Account account) {
+        return fromEntity(account, account.getBalance());
+    }
+
+    /**
+     * STRIPED 계좌처럼 balance 컬럼과 실제 잔액이 다른 경우 잔액을 따로 넘긴다.
+     */
+    public static AccountDto fromEntity(Account account, Long balance) {
         return AccountDto.builder()
                 .userId(account.getAccountUser().getId())
                 .accountNumber(account.getAccountNumber())
-                .balance(account.getBalance())
+                .balance(balance)
+                .balanceMode(account.getBalanceMode())
+                .balanceSlotCount(account.getBalanceSlotCount())
                 .registeredAt(account.getRegisteredAt())
                 .unRegisteredAt(account.getUnRegisteredAt())
                 .build();
@@ -0,0 +1,51 @@
+package com.example.accountsystem.dto;
+
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.type.TransactionType;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 한 DB 트랜잭션으로 모아 처리할 잔액 사용/취소 한 건. (BalanceMutationCoalescer)
+ * 취소는 transactionId 에 원거래 ID 를 담는다.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class BalanceMutation {
+    private final TransactionType transactionType;
+    private final Long userId;
+    private final String transactionId;
+    private final String accountNumber;
+    private final Long amount;
+
+    public static BalanceMutation use(Long userId, String accountNumber, Long amount) {
+        return new BalanceMutation(TransactionType.USE, userId, null, accountNumber, amount);
+    }
+
+    public static BalanceMutation cancel(String transactionId, String accountNumber, Long amount) {
+        return new BalanceMutation(TransactionType.CANCEL, null, transactionId, accountNumber, amount);
+    }
+
+    /**
+     * 성공이면 transaction, 실패면 error 를 담는다.
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class Result {
+        private final TransactionDto transaction;
+        private final AccountException error;
+
+        public static Result success(TransactionDto transaction) {
+            return new Result(transaction, null);
+        }
+
+        public static Result failure(AccountException error) {
+            return new Result(null, error);
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.accountsystem.dto;
+
+import com.example.accountsystem.type.BalanceMode;
+import lombok.*;
+
+import javax.validation.constraints.*;
+
+public class ChangeBalanceMode {
+
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    public static class Request {
+        @NotBlank
+        @Size(min = 10, max = 10)
+        private String accountNumber;
+
+        @NotNull
+        private BalanceMode balanceMode;
+
+        @Min(2)
+        @Max(64)
+        private Integer slotCount;
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Response {
+        private String accountNumber;
+        private BalanceMode balanceMode;
+        private Integer balanceSlotCount;
+        private Long balance;
+
+        public static Response from(AccountDto accountDto) {
+            return Response.builder()
+                    .accountNumber(accountDto.getAccountNumber())
+                    .balanceMode(accountDto.getBalanceMode())
+                    .balanceSlotCount(accountDto.getBalanceSlotCount())
+                    .balance(accountDto.getBalance())
+                    .build();
+        }
+    }
+}
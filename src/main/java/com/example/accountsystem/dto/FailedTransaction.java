@@ -0,0 +1,20 @@
+package com.example.accountsystem.dto;
+
+import com.example.accountsystem.type.TransactionType;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 저장 대기 중인 실패(F) 거래. 실패한 시점의 시각을 그대로 거래 시각으로 남긴다.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FailedTransaction {
+    private TransactionType transactionType;
+    private String accountNumber;
+    private Long amount;
+    private LocalDateTime transactedAt;
+}
@@ -0,0 +1,35 @@
+package com.example.accountsystem.dto;
+
+import com.example.accountsystem.type.TransactionType;
+import lombok.*;
+
+/**
+ * 원장 재생용 거래 프로젝션. 엔티티를 만들지 않고 잔액 계산에 필요한 값만 읽는다.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class LedgerEntry {
+    private Long accountId;
+    private Long ledgerSeq;
+    private TransactionType transactionType;
+    private Long amount;
+    private Long balanceSnapshot;
+
+    /**
+     * 계좌별 마지막 순번 (select new LedgerEntry(accountId, max(ledgerSeq)))
+     */
+    public LedgerEntry(Long accountId, Long ledgerSeq) {
+        this.accountId = accountId;
+        this.ledgerSeq = ledgerSeq;
+    }
+
+    /**
+     * @return 이 거래를 적용한 뒤의 잔액
+     */
+    public long applyTo(long balance) {
+        return transactionType.isDebit() ? balance - amount : balance + amount;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.accountsystem.dto;
+
+import com.example.accountsystem.type.ExportFormat;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * 검증이 끝난 거래 원장 내보내기 조건 (TransactionLedgerExporter.prepare)
+ * accountId, from, to 는 null 이면 조건에서 뺀다. 기간은 [from, to) 이다.
+ */
+@Getter
+@Builder
+public class TransactionExport {
+    private final ExportFormat format;
+    private final Long accountId;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+}
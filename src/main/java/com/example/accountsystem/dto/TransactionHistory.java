@@ -0,0 +1,56 @@
+package com.example.accountsystem.dto;
+
+import com.example.accountsystem.exception.AccountException;
+import lombok.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+import static com.example.accountsystem.type.ErrorCode.INVALID_REQUEST;
+
+/**
+ * 계좌 거래 내역 한 페이지 (최근 순). 다음 페이지가 없으면 nextCursor 는 null 이다.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransactionHistory {
+    private String accountNumber;
+    private List<TransactionHistoryItem> items;
+    private String nextCursor;
+
+    /**
+     * 페이지의 마지막 거래 위치 (transactedAt, id). 클라이언트에는 불투명한 문자열로 내보낸다.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Cursor {
+        private final LocalDateTime transactedAt;
+        private final Long id;
+
+        public static Cursor of(TransactionHistoryItem item) {
+            return new Cursor(item.getTransactedAt(), item.getId());
+        }
+
+        public String encode() {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    (transactedAt + "," + id).getBytes(StandardCharsets.UTF_8));
+        }
+
+        public static Cursor decode(String cursor) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor),
+                        StandardCharsets.UTF_8).split(",", 2);
+                return new Cursor(LocalDateTime.parse(parts[0]), Long.valueOf(parts[1]));
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException
+                     | DateTimeParseException e) {
+                throw new AccountException(INVALID_REQUEST);
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.accountsystem.dto;
+
+import com.example.accountsystem.type.TransactionResultType;
+import com.example.accountsystem.type.TransactionType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 거래 내역 조회용 프로젝션. 거래 엔티티와 계좌를 만들지 않고 응답에 필요한 값만 읽는다.
+ * id 는 다음 페이지 커서에만 쓰고 응답에는 내보내지 않는다.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TransactionHistoryItem {
+    @JsonIgnore
+    private Long id;
+    private String transactionId;
+    private TransactionType transactionType;
+    private TransactionResultType transactionResult;
+    private Long amount;
+    private Long balanceSnapshot;
+    private LocalDateTime transactedAt;
+}
@@ -0,0 +1,67 @@
+package com.example.accountsystem.dto;
+
+import com.example.accountsystem.type.ErrorCode;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+public class UseBalanceBatch {
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Request {
+        @NotEmpty
+        @Size(max = 1000)
+        private List<@Valid UseBalance.Request> items;
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Response {
+        private int successCount;
+        private int failureCount;
+        private List<Item> items;
+
+        public static Response from(List<Item> items) {
+            int successCount = (int) items.stream()
+                    .filter(item -> item.getError() == null)
+                    .count();
+            return new Response(successCount, items.size() - successCount, items);
+        }
+    }
+
+    /**
+     * 요청 순서(index)대로 성공이면 result, 실패면 error 를 담는다.
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Item {
+        private Integer index;
+        private UseBalance.Response result;
+        private ErrorResponse error;
+
+        public static Item success(TransactionDto transactionDto) {
+            return Item.builder()
+                    .result(UseBalance.Response.from(transactionDto))
+                    .build();
+        }
+
+        public static Item failure(ErrorCode errorCode) {
+            return Item.builder()
+                    .error(new ErrorResponse(errorCode, errorCode.getDescription()))
+                    .build();
+        }
+    }
+}
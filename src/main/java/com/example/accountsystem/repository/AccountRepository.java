@@ -2,19 +2,70 @@ package com.example.accountsystem.repository;
 
 import com.example.accountsystem.domain.Account;
 import com.example.accountsystem.domain.AccountUser;
+import com.example.accountsystem.dto.AccountInfo;
+import com.example.accountsystem.type.BalanceMode;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface AccountRepository extends JpaRepository<Account, Long> {
-    Optional<Account> findFirstByOrderByIdDesc();
-
-    Integer countByAccountUser(AccountUser accountUser);
+    @Query("select max(a.accountNumber) from Account a")
+    Optional<String> findMaxAccountNumber();
 
     Optional<Account> findByAccountNumber(String AccountNumber);
 
+    @Query("select a.id from Account a where a.accountNumber = ?1")
+    Optional<Long> findIdByAccountNumber(String accountNumber);
+
+    /**
+     * HOT 계좌 원장 반영용. 여러 노드가 같은 계좌의 원장을 동시에 반영하지 않도록 행을 잠근다.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Account a where a.accountNumber = ?1")
+    Optional<Account> findForUpdateByAccountNumber(String accountNumber);
+
+    /**
+     * 계좌 엔티티를 그대로 응답으로 내보낼 때 사용 (사용자까지 join 으로 함께 조회)
+     */
+    @EntityGraph(attributePaths = "accountUser")
+    Optional<Account> findWithAccountUserById(Long id);
+
+    List<Account> findByAccountNumberIn(Collection<String> accountNumbers);
+
     List<Account> findByAccountUser(AccountUser accountUser);
+
+    /**
+     * 계좌 목록 조회용 프로젝션. 엔티티를 만들지 않고 (계좌번호, 잔액) 만 읽는다.
+     * STRIPED 계좌는 balance 컬럼이 0 이고 잔액이 슬롯에 있으므로 슬롯 합계를 더한다.
+     */
+    @Query("select new com.example.accountsystem.dto.AccountInfo(" +
+            "a.accountNumber, a.balance + coalesce(sum(s.balance), 0)) " +
+            "from Account a left join BalanceSlot s on s.account = a " +
+            "where a.accountUser.id = ?1 " +
+            "group by a.id, a.accountNumber, a.balance " +
+            "order by a.id")
+    List<AccountInfo> findAccountInfosByAccountUserId(Long accountUserId);
+
+    /**
+     * SEQUENCED 모드의 잔액 반영용. 잔액은 LedgerBook 이 계산하므로 엔티티를 읽지 않고 덮어쓴다.
+     */
+    @Modifying
+    @Query("update Account a set a.balance = ?2 where a.id = ?1")
+    int updateBalance(Long id, Long balance);
+
+    @Query("select a.accountNumber from Account a where a.balanceMode = ?1")
+    List<String> findAccountNumbersByBalanceMode(BalanceMode balanceMode);
+
+    @Query("select a.id from Account a order by a.id")
+    List<Long> findAllIds();
 }
@@ -2,8 +2,18 @@ package com.example.accountsystem.repository;
 
 import com.example.accountsystem.domain.AccountUser;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface AccountUserRepository extends JpaRepository<AccountUser, Long> {
+    /**
+     * 계좌 수가 max 미만일 때만 1 증가
+     * @return 변경된 행 수 (0 이면 한도 초과)
+     */
+    @Modifying
+    @Query("update AccountUser u set u.accountCount = u.accountCount + 1 " +
+            "where u.id = ?1 and u.accountCount < ?2")
+    int incrementAccountCount(Long id, int max);
 }
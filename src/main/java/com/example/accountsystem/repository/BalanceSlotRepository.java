@@ -0,0 +1,37 @@
+package com.example.accountsystem.repository;
+
+import com.example.accountsystem.domain.Account;
+import com.example.accountsystem.domain.BalanceSlot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+
+@Repository
+public interface BalanceSlotRepository extends JpaRepository<BalanceSlot, Long> {
+    @Modifying
+    @Query("update BalanceSlot s set s.balance = s.balance - :amount " +
+            "where s.account = :account and s.slotIndex = :slotIndex and s.balance >= :amount")
+    int debit(@Param("account") Account account,
+              @Param("slotIndex") Integer slotIndex,
+              @Param("amount") Long amount);
+
+    @Modifying
+    @Query("update BalanceSlot s set s.balance = s.balance + :amount " +
+            "where s.account = :account and s.slotIndex = :slotIndex")
+    int credit(@Param("account") Account account,
+               @Param("slotIndex") Integer slotIndex,
+               @Param("amount") Long amount);
+
+    @Query("select coalesce(sum(s.balance), 0) from BalanceSlot s where s.account = :account")
+    Long sumBalance(@Param("account") Account account);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from BalanceSlot s where s.account = :account order by s.slotIndex")
+    List<BalanceSlot> findAllForUpdate(@Param("account") Account account);
+}
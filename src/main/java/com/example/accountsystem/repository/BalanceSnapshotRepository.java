@@ -0,0 +1,29 @@
+package com.example.accountsystem.repository;
+
+import com.example.accountsystem.domain.BalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+    @Query("select s from BalanceSnapshot s where s.account.id in ?1")
+    List<BalanceSnapshot> findByAccountIds(Collection<Long> accountIds);
+
+    /**
+     * 계좌의 스냅샷을 덮어쓴다. 스냅샷이 없으면 0 을 돌려준다. (엔티티를 읽지 않음)
+     */
+    @Modifying
+    @Query("update BalanceSnapshot s set s.balance = ?2, s.ledgerSeq = ?3, s.takenAt = ?4 " +
+            "where s.account.id = ?1")
+    int updateSnapshot(Long accountId, Long balance, Long ledgerSeq, LocalDateTime takenAt);
+
+    @Modifying
+    @Query("delete from BalanceSnapshot s where s.account.id in ?1")
+    int deleteByAccountIds(Collection<Long> accountIds);
+}
@@ -1,12 +1,102 @@
 package com.example.accountsystem.repository;
 
 import com.example.accountsystem.domain.Transaction;
+import com.example.accountsystem.dto.LedgerEntry;
+import com.example.accountsystem.dto.TransactionHistoryItem;
+import com.example.accountsystem.type.TransactionResultType;
+import com.example.accountsystem.type.TransactionType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
     Optional<Transaction> findByTransactionId(String transactionId);
+
+    boolean existsByTransactionId(String transactionId);
+
+    @Query("select t.transactionId from Transaction t where t.transactionId in ?1")
+    List<String> findTransactionIdsIn(Collection<String> transactionIds);
+
+    /**
+     * 거래와 계좌를 join 으로 함께 조회 (계좌의 사용자는 읽지 않음)
+     */
+    @EntityGraph(attributePaths = "account")
+    Optional<Transaction> findWithAccountByTransactionId(String transactionId);
+
+    /**
+     * 모든 거래 ID 를 스트림으로 읽는다. (트랜잭션 안에서 호출하고 다 읽은 뒤 닫아야 함)
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "10000"))
+    @Query("select t.transactionId from Transaction t")
+    Stream<String> streamAllTransactionIds();
+
+    /**
+     * 계좌들의 스냅샷 이후 거래를 계좌, 원장 순번 순으로 읽는다. (스냅샷이 없는 계좌는 읽지 않음)
+     */
+    @Query("select new com.example.accountsystem.dto.LedgerEntry(" +
+            "t.account.id, t.ledgerSeq, t.transactionType, t.amount, t.balanceSnapshot) " +
+            "from Transaction t, BalanceSnapshot s " +
+            "where s.account = t.account and t.account.id in ?1 and t.ledgerSeq > s.ledgerSeq " +
+            "order by t.account.id, t.ledgerSeq")
+    List<LedgerEntry> findLedgerTails(Collection<Long> accountIds);
+
+    /**
+     * 계좌별 마지막 원장 순번 (원장 거래가 없는 계좌는 빠진다)
+     */
+    @Query("select new com.example.accountsystem.dto.LedgerEntry(t.account.id, max(t.ledgerSeq)) " +
+            "from Transaction t where t.account.id in ?1 and t.ledgerSeq is not null " +
+            "group by t.account.id")
+    List<LedgerEntry> findMaxLedgerSeqs(Collection<Long> accountIds);
+
+    /**
+     * 계좌 거래 내역 첫 페이지 (최근 순). 유형/결과 조건은 null 이면 보지 않는다.
+     * idx_transaction_account_transacted_at_id 를 역순으로 읽으며 pageable 의 크기만큼만 가져온다.
+     */
+    @Query("select new com.example.accountsystem.dto.TransactionHistoryItem(" +
+            "t.id, t.transactionId, t.transactionType, t.transactionResultType, " +
+            "t.amount, t.balanceSnapshot, t.transactedAt) " +
+            "from Transaction t " +
+            "where t.account.id = :accountId " +
+            "and (:transactionType is null or t.transactionType = :transactionType) " +
+            "and (:resultType is null or t.transactionResultType = :resultType) " +
+            "order by t.transactedAt desc, t.id desc")
+    List<TransactionHistoryItem> findHistory(
+            @Param("accountId") Long accountId,
+            @Param("transactionType") TransactionType transactionType,
+            @Param("resultType") TransactionResultType resultType,
+            Pageable pageable);
+
+    /**
+     * 커서 (transactedAt, id) 보다 이전 거래부터 다음 페이지 (keyset).
+     * offset 없이 인덱스에서 커서 위치를 바로 찾으므로 몇 번째 페이지든 같은 비용이다.
+     */
+    @Query("select new com.example.accountsystem.dto.TransactionHistoryItem(" +
+            "t.id, t.transactionId, t.transactionType, t.transactionResultType, " +
+            "t.amount, t.balanceSnapshot, t.transactedAt) " +
+            "from Transaction t " +
+            "where t.account.id = :accountId " +
+            "and (t.transactedAt < :transactedAt " +
+            "or (t.transactedAt = :transactedAt and t.id < :id)) " +
+            "and (:transactionType is null or t.transactionType = :transactionType) " +
+            "and (:resultType is null or t.transactionResultType = :resultType) " +
+            "order by t.transactedAt desc, t.id desc")
+    List<TransactionHistoryItem> findHistoryBefore(
+            @Param("accountId") Long accountId,
+            @Param("transactionType") TransactionType transactionType,
+            @Param("resultType") TransactionResultType resultType,
+            @Param("transactedAt") LocalDateTime transactedAt,
+            @Param("id") Long id,
+            Pageable pageable);
 }
@@ -0,0 +1,78 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.AccountProperties;
+import com.example.accountsystem.dto.AccountInfo;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 사용자별 계좌 목록 캐시 (userId -> AccountInfo 목록)
+ * 계좌 개설/해지, 잔액 변경 시 해당 사용자의 항목을 커밋 후에 지운다.
+ * (커밋 전에 지우면 그 사이 조회가 이전 잔액을 다시 채울 수 있다)
+ * 항목은 maxStaleness 후 만료되므로 다른 노드의 변경도 그 이상 늦게 보이지 않는다.
+ * 적중/실패/축출 통계는 cache.* 메트릭 (cache=account-list) 으로 노출한다.
+ */
+@Component
+public class AccountListCache {
+    static final String CACHE_NAME = "account-list";
+
+    private final boolean enabled;
+    private final Cache<Long, List<AccountInfo>> cache;
+
+    @Autowired
+    public AccountListCache(AccountProperties accountProperties, MeterRegistry meterRegistry) {
+        this(accountProperties, meterRegistry, Ticker.systemTicker());
+    }
+
+    AccountListCache(AccountProperties accountProperties, MeterRegistry meterRegistry,
+                     Ticker ticker) {
+        AccountProperties.ListCache listCache = accountProperties.getListCache();
+        this.enabled = listCache.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(listCache.getMaximumSize())
+                .expireAfterWrite(listCache.getMaxStaleness())
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * 캐시에 없으면 loader 로 읽어 채운다. loader 의 예외(USER_NOT_FOUND 등)는 그대로 전달되고 캐시되지 않는다.
+     */
+    public List<AccountInfo> get(Long userId, Function<Long, List<AccountInfo>> loader) {
+        if (!enabled) {
+            return loader.apply(userId);
+        }
+        return cache.get(userId, loader);
+    }
+
+    /**
+     * 진행 중인 트랜잭션이 있으면 커밋 후에, 없으면 바로 지운다.
+     */
+    public void evictAfterCommit(Long userId) {
+        if (!enabled || userId == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.invalidate(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.invalidate(userId);
+            }
+        });
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.accountsystem.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 계좌별 락 경합 통계
+ * GET /actuator/accountlocks?limit=20 : 대기 시간 합 상위 계좌
+ * GET /actuator/accountlocks/{accountNumber} : 특정 계좌
+ * DELETE /actuator/accountlocks : 통계 초기화
+ */
+@Component
+@Endpoint(id = "accountlocks")
+@RequiredArgsConstructor
+public class AccountLockEndpoint {
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final LockMetrics lockMetrics;
+
+    @ReadOperation
+    public Summary contended(@Nullable Integer limit) {
+        return new Summary(
+                lockMetrics.trackedAccountCount(),
+                lockMetrics.untrackedCount(),
+                lockMetrics.topContended(limit == null ? DEFAULT_LIMIT : limit)
+        );
+    }
+
+    @ReadOperation
+    public LockMetrics.AccountLockStatistics account(@Selector String accountNumber) {
+        return lockMetrics.statisticsOf(accountNumber).orElse(null);
+    }
+
+    @DeleteOperation
+    public void reset() {
+        lockMetrics.reset();
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Summary {
+        private int trackedAccounts;
+        private long untrackedRecords;
+        private List<LockMetrics.AccountLockStatistics> accounts;
+    }
+}
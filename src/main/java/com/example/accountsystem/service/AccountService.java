@@ -3,10 +3,12 @@ package com.example.accountsystem.service;
 import com.example.accountsystem.domain.Account;
 import com.example.accountsystem.domain.AccountUser;
 import com.example.accountsystem.dto.AccountDto;
+import com.example.accountsystem.dto.AccountInfo;
 import com.example.accountsystem.exception.AccountException;
 import com.example.accountsystem.repository.AccountRepository;
 import com.example.accountsystem.repository.AccountUserRepository;
 import com.example.accountsystem.type.AccountStatus;
+import com.example.accountsystem.type.BalanceMode;
 import com.example.accountsystem.type.ErrorCode;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -15,18 +17,27 @@ import javax.transaction.Transactional;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 import static com.example.accountsystem.type.ErrorCode.*;
 
 @Service
 @RequiredArgsConstructor
 public class AccountService {
+    private static final int MAX_ACCOUNT_PER_USER = 10;
+
     private final AccountRepository accountRepository;
     private final AccountUserRepository accountUserRepository;
+    private final BalanceSlotService balanceSlotService;
+    private final AccountNumberAllocator accountNumberAllocator;
+    private final AccountListCache accountListCache;
+    private final BalanceModeRegistry balanceModeRegistry;
+    private final HotBalanceStore hotBalanceStore;
+    private final LedgerSequencer ledgerSequencer;
+    private final BalanceJournal balanceJournal;
 
     /**
      * 사용자 조회 후 계좌번호 생성, 저장, 정보 리턴
+     * 개설과 초기 잔액은 저널에도 남겨 DB 를 잃어도 BalanceJournalRecovery 가 계좌를 다시 만든다.
      * @param userId
      * @param initialBalance
      */
@@ -36,23 +47,29 @@ public class AccountService {
 
         validateCreateAccount(accountUser);
 
-        String newAccountNumber = accountRepository.findFirstByOrderByIdDesc()
-                .map(account -> (Integer.parseInt(account.getAccountNumber())) + 1 + "")
-                .orElse("1000000000");
+        String newAccountNumber = accountNumberAllocator.next();
+        accountListCache.evictAfterCommit(userId);
 
-        return AccountDto.fromEntity(
+        AccountDto accountDto = AccountDto.fromEntity(
                 accountRepository.save(Account.builder()
                         .accountUser(accountUser)
                         .accountStatus(AccountStatus.IN_USE)
+                        .balanceMode(BalanceMode.STANDARD)
                         .accountNumber(newAccountNumber)
                         .balance(initialBalance)
                         .registeredAt(LocalDateTime.now())
                         .build()
         ));
+        balanceJournal.appendAfterCommit(accountDto);
+        return accountDto;
     }
 
+    /**
+     * 한도 확인과 계좌 수 증가를 한 번의 조건부 update 로 처리 (동시 개설에도 10개를 넘지 않음)
+     */
     private void validateCreateAccount(AccountUser accountUser) {
-        if (accountRepository.countByAccountUser(accountUser) >= 10) {
+        if (accountUserRepository.incrementAccountCount(
+                accountUser.getId(), MAX_ACCOUNT_PER_USER) == 0) {
             throw new AccountException(MAX_ACCOUNT_PER_USER_10);
         }
     }
@@ -62,7 +79,7 @@ public class AccountService {
         if (id < 0) {
             throw new RuntimeException("Minus");
         }
-        return accountRepository.findById(id).get();
+        return accountRepository.findWithAccountUserById(id).get();
     }
 
     @Transactional
@@ -77,6 +94,9 @@ public class AccountService {
         account.setUnRegisteredAt(LocalDateTime.now());
 
         accountRepository.save(account);
+        accountListCache.evictAfterCommit(userId);
+        // SEQUENCED 모드에서 메모리에 올린 계좌는 해지 전 상태(IN_USE) 이므로 다시 읽게 한다.
+        ledgerSequencer.refreshAfterCommit(accountNumber);
 
         return AccountDto.fromEntity(account);
     }
@@ -88,20 +108,44 @@ public class AccountService {
         if (account.getAccountStatus() == AccountStatus.UNREGISTERED) {
             throw new AccountException(ACCOUNT_ALREADY_UNREGISTERED);
         }
-        if (account.getBalance() > 0) {
+        if (account.isHot()) {
+            // Redis 잔액을 DB 로 되돌린 뒤(STANDARD 전환) 해지한다.
+            throw new AccountException(BALANCE_MODE_NOT_SUPPORTED);
+        }
+        if (balanceOf(account) > 0) {
             throw new AccountException(BALANCE_NOT_EMPTY);
         }
     }
 
-    @Transactional
-    public List<AccountDto> getAccountByUserId(Long userId) {
-        AccountUser accountUser = getAccountUser(userId);
+    /**
+     * 계좌 목록은 AccountListCache 를 거치고, 없으면 프로젝션 한 번으로 조회한다.
+     * (엔티티/영속성 컨텍스트를 거치지 않음) 계좌가 하나도 없을 때만 사용자 존재 여부를 확인한다.
+     * HOT 계좌의 balance 컬럼은 원장 반영만큼 늦으므로 Redis 잔액으로 바꿔 준다.
+     */
+    public List<AccountInfo> getAccountByUserId(Long userId) {
+        return accountListCache.get(userId, this::loadAccountInfos);
+    }
+
+    private List<AccountInfo> loadAccountInfos(Long userId) {
+        List<AccountInfo> accountInfos =
+                accountRepository.findAccountInfosByAccountUserId(userId);
+        if (accountInfos.isEmpty() && !accountUserRepository.existsById(userId)) {
+            throw new AccountException(USER_NOT_FOUND);
+        }
+        for (AccountInfo accountInfo : accountInfos) {
+            if (balanceModeRegistry.isHot(accountInfo.getAccountNumber())) {
+                hotBalanceStore.getState(accountInfo.getAccountNumber())
+                        .ifPresent(state -> accountInfo.setBalance(state.getBalance()));
+            }
+        }
 
-        List<Account> accounts = accountRepository.findByAccountUser(accountUser);
+        return accountInfos;
+    }
 
-        return accounts.stream()
-                .map(AccountDto::fromEntity)
-                .collect(Collectors.toList());
+    private Long balanceOf(Account account) {
+        return account.isStriped()
+                ? balanceSlotService.sumBalance(account)
+                : account.getBalance();
     }
 
     private AccountUser getAccountUser(Long userId) {
@@ -0,0 +1,488 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.dto.AccountDto;
+import com.example.accountsystem.dto.TransactionDto;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.type.TransactionResultType;
+import com.example.accountsystem.type.TransactionType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static com.example.accountsystem.type.ErrorCode.INTERVAL_SERVER_ERROR;
+
+/**
+ * 잔액 변경(USE/CANCEL, 이체 양쪽) 과 계좌 개설의 write-ahead 저널. 응답하기 전에 디스크에 남긴다.
+ * 1. 세그먼트 파일(journal-{번호}.log, segmentSize) 을 메모리 매핑해 레코드를 이어 쓴다.
+ *    레코드 : [길이 int][CRC32 int][본문] (본문 = 거래 종류, 금액, 잔액, 거래 시각, 계좌번호, 거래 ID)
+ *    계좌 개설 본문 = [ACCOUNT_OPENED][사용자 ID, 초기 잔액, 개설 시각, 계좌번호]
+ *    (DB 가 통째로 사라져도 복구가 계좌부터 다시 만들 수 있도록 한다)
+ *    길이가 0 이거나 CRC 가 맞지 않는 곳이 저널의 끝이다. (쓰다 죽은 레코드는 버린다)
+ * 2. 쓰는 스레드는 락 안에서 버퍼에 복사만 하고, 저널 스레드가 batchSize 건이 모이거나
+ *    첫 레코드 이후 flushInterval 이 지나면 한 번 force(fsync) 해서 그동안 쓴 레코드를 모두 완료한다. (group commit)
+ * 3. DB 커밋 뒤에 기록한다. (롤백된 변경이 저널에 남지 않도록) 커밋했지만 저널에 남기지 못하면
+ *    요청은 실패로 응답한다. 저널은 지우지 않으며 BalanceJournalRecovery 가 DB 에 없는 거래만 다시 반영한다.
+ * journal.appended : 기록한 레코드 수, journal.flush : force 시간, journal.flush.batch : force 한 번에 완료한 요청 수
+ */
+@Slf4j
+@Component
+public class BalanceJournal {
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_BYTES = Integer.BYTES * 2;
+    private static final TransactionType[] TRANSACTION_TYPES = TransactionType.values();
+    /**
+     * 거래 종류(ordinal) 자리에 쓰는 계좌 개설 표시. 기존 레코드와 겹치지 않는다.
+     */
+    private static final byte ACCOUNT_OPENED = -1;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long writeTimeoutMillis;
+    private final Counter appended;
+    private final Timer flushTimer;
+    private final DistributionSummary flushBatch;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushNeeded = lock.newCondition();
+    // lock 으로 보호
+    private final ArrayDeque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private long firstWaiterAt;
+    private int segmentIndex;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private volatile boolean running;
+    private Thread flusher;
+
+    public BalanceJournal(TransactionProperties transactionProperties, MeterRegistry meterRegistry) {
+        TransactionProperties.Journal journal = transactionProperties.getJournal();
+        this.enabled = journal.isEnabled();
+        this.directory = Paths.get(journal.getDirectory());
+        this.segmentSize = (int) Math.min(Integer.MAX_VALUE, journal.getSegmentSize().toBytes());
+        this.batchSize = Math.max(1, journal.getBatchSize());
+        this.flushIntervalNanos = journal.getFlushInterval().toNanos();
+        this.writeTimeoutMillis = journal.getWriteTimeout().toMillis();
+        this.appended = meterRegistry.counter("journal.appended");
+        this.flushTimer = meterRegistry.timer("journal.flush");
+        this.flushBatch = meterRegistry.summary("journal.flush.batch");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 마지막 세그먼트를 열어 저널의 끝부터 이어 쓴다.
+     */
+    @PostConstruct
+    public void open() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments = segments(directory);
+            segmentIndex = segments.isEmpty() ? 0 : indexOf(segments.get(segments.size() - 1));
+            map(segmentIndex);
+            int end = scan(buffer, account -> {
+            }, record -> {
+            });
+            if (end < buffer.capacity() && buffer.getInt(end) != 0) {
+                log.warn("Discarding torn journal record at {} of segment {}", end, segmentIndex);
+                for (int i = end; i < buffer.capacity(); i++) {
+                    buffer.put(i, (byte) 0);
+                }
+                buffer.force();
+            }
+            buffer.position(end);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open journal at " + directory, e);
+        }
+        running = true;
+        flusher = new Thread(this::runFlusher, "balance-journal");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("Balance journal opened at {} (segment {}, position {})",
+                directory, segmentIndex, buffer.position());
+    }
+
+    /**
+     * 남은 레코드를 force 한 뒤 닫는다.
+     */
+    @PreDestroy
+    public void close() {
+        if (!running) {
+            return;
+        }
+        lock.lock();
+        try {
+            running = false;
+            flushNeeded.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("Failed to close journal segment {}", segmentIndex, e);
+        }
+    }
+
+    /**
+     * 레코드를 쓰고, force 되면 완료되는 future 를 돌려준다. (꺼져 있으면 바로 완료)
+     */
+    public CompletableFuture<Void> append(List<TransactionDto> records) {
+        if (!enabled || records.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return appendEncoded(records.stream()
+                .map(BalanceJournal::encode)
+                .collect(Collectors.toList()));
+    }
+
+    private CompletableFuture<Void> appendEncoded(List<byte[]> encoded) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        lock.lock();
+        try {
+            if (!running) {
+                future.completeExceptionally(new IllegalStateException("Journal is closed"));
+                return future;
+            }
+            for (byte[] record : encoded) {
+                write(record);
+            }
+            appended.increment(encoded.size());
+            if (waiters.isEmpty()) {
+                firstWaiterAt = System.nanoTime();
+                flushNeeded.signal();
+            }
+            waiters.add(future);
+            if (waiters.size() >= batchSize) {
+                flushNeeded.signal();
+            }
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+        } finally {
+            lock.unlock();
+        }
+        return future;
+    }
+
+    /**
+     * 바로 기록하고 force 될 때까지 기다린다. (이미 커밋한 거래를 호출하는 쪽에서 남길 때)
+     * 기록하지 못하면 AccountException(INTERVAL_SERVER_ERROR)
+     */
+    public void appendAndAwait(List<TransactionDto> records) {
+        if (enabled) {
+            await(append(records));
+        }
+    }
+
+    /**
+     * 커밋된 뒤 트랜잭션에서 모은 거래를 한 번에 기록하고 force 될 때까지 기다린다.
+     * 트랜잭션 밖이면 바로 기록하고 기다린다. 기록하지 못하면 AccountException(INTERVAL_SERVER_ERROR)
+     */
+    public void appendAfterCommit(TransactionDto transactionDto) {
+        if (enabled) {
+            appendAfterCommit(encode(transactionDto));
+        }
+    }
+
+    /**
+     * 계좌 개설(초기 잔액) 을 거래와 같은 방식으로 커밋 뒤에 기록한다.
+     */
+    public void appendAfterCommit(AccountDto accountDto) {
+        if (enabled) {
+            appendAfterCommit(encode(accountDto));
+        }
+    }
+
+    private void appendAfterCommit(byte[] record) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            await(appendEncoded(List.of(record)));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<byte[]> pending = (List<byte[]>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<byte[]> records = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, records);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    await(appendEncoded(records));
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(BalanceJournal.this);
+                }
+            });
+            pending = records;
+        }
+        pending.add(record);
+    }
+
+    private void await(CompletableFuture<Void> future) {
+        try {
+            future.get(writeTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AccountException(INTERVAL_SERVER_ERROR);
+        } catch (ExecutionException | TimeoutException e) {
+            log.error("Failed to write balance journal", e);
+            throw new AccountException(INTERVAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * lock 안에서 호출한다. 세그먼트가 차면 지금 세그먼트를 force 하고 다음 세그먼트로 넘어간다.
+     */
+    private void write(byte[] record) throws IOException {
+        int size = HEADER_BYTES + record.length;
+        if (size + Integer.BYTES > segmentSize) {
+            throw new IllegalArgumentException("Journal record is larger than a segment : " + size);
+        }
+        if (buffer.remaining() < size + Integer.BYTES) {
+            buffer.force();
+            channel.close();
+            map(++segmentIndex);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        buffer.putInt(record.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(record);
+    }
+
+    private void map(int index) throws IOException {
+        channel = FileChannel.open(directory.resolve(segmentName(index)),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+
+    private void runFlusher() {
+        List<CompletableFuture<Void>> batch = new ArrayList<>(batchSize);
+        while (true) {
+            MappedByteBuffer target;
+            lock.lock();
+            try {
+                while (waiters.isEmpty()) {
+                    if (!running) {
+                        return;
+                    }
+                    flushNeeded.awaitUninterruptibly();
+                }
+                long deadline = firstWaiterAt + flushIntervalNanos;
+                while (running && waiters.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    try {
+                        flushNeeded.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+                batch.addAll(waiters);
+                waiters.clear();
+                target = buffer;
+            } finally {
+                lock.unlock();
+            }
+            flush(target, batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(MappedByteBuffer target, List<CompletableFuture<Void>> batch) {
+        try {
+            flushTimer.record(target::force);
+            flushBatch.record(batch.size());
+            batch.forEach(future -> future.complete(null));
+        } catch (RuntimeException e) {
+            log.error("Failed to force balance journal", e);
+            batch.forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * 저널의 모든 레코드를 세그먼트 순서대로 읽는다. (BalanceJournalRecovery)
+     * 계좌 개설은 accounts, 거래는 transactions 로 넘긴다.
+     */
+    static void read(Path directory, Consumer<AccountDto> accounts,
+                     Consumer<TransactionDto> transactions) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        for (Path segment : segments(directory)) {
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                scan(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()),
+                        accounts, transactions);
+            }
+        }
+    }
+
+    /**
+     * @return 저널의 끝 (마지막 정상 레코드 다음) 위치
+     */
+    private static int scan(ByteBuffer segment, Consumer<AccountDto> accounts,
+                            Consumer<TransactionDto> transactions) {
+        int position = 0;
+        while (position + HEADER_BYTES <= segment.capacity()) {
+            int length = segment.getInt(position);
+            if (length <= 0 || position + HEADER_BYTES + length > segment.capacity()) {
+                break;
+            }
+            byte[] record = new byte[length];
+            ByteBuffer view = segment.duplicate();
+            view.position(position + HEADER_BYTES);
+            view.get(record);
+            CRC32 crc = new CRC32();
+            crc.update(record);
+            if ((int) crc.getValue() != segment.getInt(position + Integer.BYTES)) {
+                break;
+            }
+            if (record[0] == ACCOUNT_OPENED) {
+                accounts.accept(decodeAccount(record));
+            } else {
+                transactions.accept(decode(record));
+            }
+            position += HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    static byte[] encode(TransactionDto transactionDto) {
+        byte[] accountNumber = transactionDto.getAccountNumber().getBytes(StandardCharsets.UTF_8);
+        byte[] transactionId = transactionDto.getTransactionId().getBytes(StandardCharsets.UTF_8);
+        LocalDateTime transactedAt = transactionDto.getTransactedAt();
+        return ByteBuffer.allocate(1 + Long.BYTES * 3 + Integer.BYTES
+                        + Short.BYTES * 2 + accountNumber.length + transactionId.length)
+                .put((byte) transactionDto.getTransactionType().ordinal())
+                .putLong(transactionDto.getAmount())
+                .putLong(transactionDto.getBalanceSnapshot())
+                .putLong(transactedAt.toEpochSecond(ZoneOffset.UTC))
+                .putInt(transactedAt.getNano())
+                .putShort((short) accountNumber.length)
+                .put(accountNumber)
+                .putShort((short) transactionId.length)
+                .put(transactionId)
+                .array();
+    }
+
+    static byte[] encode(AccountDto accountDto) {
+        byte[] accountNumber = accountDto.getAccountNumber().getBytes(StandardCharsets.UTF_8);
+        LocalDateTime registeredAt = accountDto.getRegisteredAt();
+        return ByteBuffer.allocate(1 + Long.BYTES * 3 + Integer.BYTES
+                        + Short.BYTES + accountNumber.length)
+                .put(ACCOUNT_OPENED)
+                .putLong(accountDto.getUserId())
+                .putLong(accountDto.getBalance())
+                .putLong(registeredAt.toEpochSecond(ZoneOffset.UTC))
+                .putInt(registeredAt.getNano())
+                .putShort((short) accountNumber.length)
+                .put(accountNumber)
+                .array();
+    }
+
+    static AccountDto decodeAccount(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        buffer.get();
+        long userId = buffer.getLong();
+        long balance = buffer.getLong();
+        LocalDateTime registeredAt = LocalDateTime.ofEpochSecond(
+                buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+        byte[] accountNumber = new byte[buffer.getShort()];
+        buffer.get(accountNumber);
+        return AccountDto.builder()
+                .userId(userId)
+                .accountNumber(new String(accountNumber, StandardCharsets.UTF_8))
+                .balance(balance)
+                .registeredAt(registeredAt)
+                .build();
+    }
+
+    static TransactionDto decode(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        TransactionType transactionType = TRANSACTION_TYPES[buffer.get()];
+        long amount = buffer.getLong();
+        long balanceSnapshot = buffer.getLong();
+        LocalDateTime transactedAt = LocalDateTime.ofEpochSecond(
+                buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+        byte[] accountNumber = new byte[buffer.getShort()];
+        buffer.get(accountNumber);
+        byte[] transactionId = new byte[buffer.getShort()];
+        buffer.get(transactionId);
+        return TransactionDto.builder()
+                .accountNumber(new String(accountNumber, StandardCharsets.UTF_8))
+                .transactionType(transactionType)
+                .transactionResultType(TransactionResultType.S)
+                .amount(amount)
+                .balanceSnapshot(balanceSnapshot)
+                .transactionId(new String(transactionId, StandardCharsets.UTF_8))
+                .transactedAt(transactedAt)
+                .build();
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static String segmentName(int index) {
+        return String.format("%s%010d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX);
+    }
+
+    private static int indexOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+                name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
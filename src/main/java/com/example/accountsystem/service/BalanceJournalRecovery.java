@@ -0,0 +1,227 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.domain.Account;
+import com.example.accountsystem.domain.AccountUser;
+import com.example.accountsystem.domain.BalanceSlot;
+import com.example.accountsystem.domain.Transaction;
+import com.example.accountsystem.dto.AccountDto;
+import com.example.accountsystem.dto.TransactionDto;
+import com.example.accountsystem.repository.AccountRepository;
+import com.example.accountsystem.repository.AccountUserRepository;
+import com.example.accountsystem.repository.BalanceSlotRepository;
+import com.example.accountsystem.repository.BalanceSnapshotRepository;
+import com.example.accountsystem.repository.TransactionRepository;
+import com.example.accountsystem.type.AccountStatus;
+import com.example.accountsystem.type.BalanceMode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.example.accountsystem.type.TransactionResultType.S;
+
+/**
+ * 장애 뒤 저널(BalanceJournal) 을 DB 에 다시 반영하는 복구 도구.
+ * account-system.transaction.journal.recover-on-startup=true 로 띄우면 다른 기동 작업
+ * (ApplicationReadyEvent) 보다 먼저 실행된다. (ApplicationRunner, 다른 ApplicationRunner 보다도 먼저)
+ * 1. 저널을 CHUNK_SIZE 건씩 읽어 청크마다 한 트랜잭션으로 반영한다.
+ * 2. DB 에 없는 계좌의 개설 레코드는 초기 잔액의 STANDARD 계좌로 다시 만든다. (DB 를 통째로 잃은 경우)
+ *    개설은 그 계좌의 거래보다 먼저 저널에 남으므로 같은 청크나 앞 청크에서 먼저 만들어진다.
+ *    사용자는 다시 만들지 않는다. (마이그레이션으로 들어가는 데이터) 사용자가 없으면 계좌와 거래를 버린다.
+ * 3. 이미 DB 에 있는 거래 ID 는 건너뛰고, 없는 거래만 S 거래로 저장한다. (여러 번 실행해도 같다)
+ * 4. 잔액은 저장한 거래의 증감을 계좌마다 더한다. (DB 는 저널의 앞부분까지 반영된 상태라고 본다)
+ *    STRIPED 계좌는 슬롯 합계에 더해 첫 슬롯에 모으고, HOT 계좌는 balance 에 더한다. (Redis 는 기동 시 DB 로 다시 올린다)
+ * 5. 이벤트 소싱 계좌는 원장 순번이 없는 거래가 생기므로 스냅샷을 지워 다음 재생 때 새 잔액으로 다시 만들게 한다.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class BalanceJournalRecovery implements ApplicationRunner {
+    private static final int CHUNK_SIZE = 1_000;
+
+    private final TransactionProperties transactionProperties;
+    private final AccountRepository accountRepository;
+    private final AccountUserRepository accountUserRepository;
+    private final TransactionRepository transactionRepository;
+    private final BalanceSlotRepository balanceSlotRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        TransactionProperties.Journal journal = transactionProperties.getJournal();
+        if (journal.isEnabled() && journal.isRecoverOnStartup()) {
+            recover();
+        }
+    }
+
+    /**
+     * @return 다시 반영한 거래 수
+     */
+    public int recover() {
+        String directory = transactionProperties.getJournal().getDirectory();
+        List<AccountDto> openings = new ArrayList<>();
+        List<TransactionDto> chunk = new ArrayList<>(CHUNK_SIZE);
+        // 읽은 거래, 다시 반영한 거래, 다시 만든 계좌
+        int[] counts = new int[3];
+        try {
+            BalanceJournal.read(Paths.get(directory), opening -> {
+                openings.add(opening);
+                if (openings.size() + chunk.size() == CHUNK_SIZE) {
+                    recoverChunk(openings, chunk, counts);
+                }
+            }, record -> {
+                chunk.add(record);
+                counts[0]++;
+                if (openings.size() + chunk.size() == CHUNK_SIZE) {
+                    recoverChunk(openings, chunk, counts);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read journal at " + directory, e);
+        }
+        if (!openings.isEmpty() || !chunk.isEmpty()) {
+            recoverChunk(openings, chunk, counts);
+        }
+        log.info("Recovered {} accounts and {} of {} journal records from {}",
+                counts[2], counts[1], counts[0], directory);
+        return counts[1];
+    }
+
+    private void recoverChunk(List<AccountDto> openings, List<TransactionDto> records,
+                              int[] counts) {
+        transactionTemplate.execute(status -> {
+            Map<String, Account> accounts = new HashMap<>();
+            counts[2] += openAccounts(openings, accounts);
+            counts[1] += apply(records, accounts);
+            return null;
+        });
+        openings.clear();
+        records.clear();
+    }
+
+    /**
+     * DB 에 없는 계좌만 만든다.
+     * @param accounts 만든 계좌를 계좌번호로 담는다.
+     * @return 만든 계좌 수
+     */
+    private int openAccounts(List<AccountDto> openings, Map<String, Account> accounts) {
+        if (openings.isEmpty()) {
+            return 0;
+        }
+        Set<String> existing = accountRepository.findByAccountNumberIn(openings.stream()
+                        .map(AccountDto::getAccountNumber)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .map(Account::getAccountNumber)
+                .collect(Collectors.toSet());
+        int opened = 0;
+        for (AccountDto opening : openings) {
+            if (!existing.add(opening.getAccountNumber())) {
+                continue;
+            }
+            Optional<AccountUser> accountUser =
+                    accountUserRepository.findById(opening.getUserId());
+            if (accountUser.isEmpty()) {
+                log.warn("Dropped journaled account {} for unknown userId : {}",
+                        opening.getAccountNumber(), opening.getUserId());
+                continue;
+            }
+            accountUserRepository.incrementAccountCount(opening.getUserId(), Integer.MAX_VALUE);
+            accounts.put(opening.getAccountNumber(), accountRepository.save(Account.builder()
+                    .accountUser(accountUser.get())
+                    .accountStatus(AccountStatus.IN_USE)
+                    .balanceMode(BalanceMode.STANDARD)
+                    .accountNumber(opening.getAccountNumber())
+                    .balance(opening.getBalance())
+                    .registeredAt(opening.getRegisteredAt())
+                    .build()));
+            opened++;
+        }
+        return opened;
+    }
+
+    private int apply(List<TransactionDto> records, Map<String, Account> accounts) {
+        if (records.isEmpty()) {
+            return 0;
+        }
+        Set<String> persisted = new HashSet<>(transactionRepository.findTransactionIdsIn(
+                records.stream().map(TransactionDto::getTransactionId).collect(Collectors.toList())));
+        Set<String> accountNumbers = records.stream()
+                .map(TransactionDto::getAccountNumber)
+                .filter(accountNumber -> !accounts.containsKey(accountNumber))
+                .collect(Collectors.toSet());
+        if (!accountNumbers.isEmpty()) {
+            accountRepository.findByAccountNumberIn(accountNumbers)
+                    .forEach(account -> accounts.put(account.getAccountNumber(), account));
+        }
+
+        List<Transaction> transactions = new ArrayList<>();
+        Map<Account, Long> deltas = new LinkedHashMap<>();
+        for (TransactionDto record : records) {
+            if (!persisted.add(record.getTransactionId())) {
+                continue;
+            }
+            Account account = accounts.get(record.getAccountNumber());
+            if (account == null) {
+                log.warn("Dropped journal record {} for unknown accountNumber : {}",
+                        record.getTransactionId(), record.getAccountNumber());
+                continue;
+            }
+            transactions.add(Transaction.builder()
+                    .transactionType(record.getTransactionType())
+                    .transactionResultType(S)
+                    .account(account)
+                    .amount(record.getAmount())
+                    .balanceSnapshot(record.getBalanceSnapshot())
+                    .transactionId(record.getTransactionId())
+                    .transactedAt(record.getTransactedAt())
+                    .build());
+            deltas.merge(account, record.getTransactionType().isDebit()
+                    ? -record.getAmount() : record.getAmount(), Long::sum);
+        }
+        if (transactions.isEmpty()) {
+            return 0;
+        }
+
+        transactionRepository.saveAll(transactions);
+        deltas.forEach(this::applyDelta);
+        if (transactionProperties.getEventSourcing().isEnabled()) {
+            balanceSnapshotRepository.deleteByAccountIds(deltas.keySet().stream()
+                    .map(Account::getId)
+                    .collect(Collectors.toList()));
+        }
+        return transactions.size();
+    }
+
+    private void applyDelta(Account account, long delta) {
+        if (!account.isStriped()) {
+            account.setBalance(account.getBalance() + delta);
+            return;
+        }
+        List<BalanceSlot> slots = balanceSlotRepository.findAllForUpdate(account);
+        long total = slots.stream().mapToLong(BalanceSlot::getBalance).sum() + delta;
+        for (int i = 0; i < slots.size(); i++) {
+            slots.get(i).setBalance(i == 0 ? total : 0L);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.repository.AccountRepository;
+import com.example.accountsystem.type.BalanceMode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * STANDARD 가 아닌 계좌의 잔액 모드를 노드 메모리에 들고 있는 레지스트리.
+ * 기동 시 DB 에서 읽고, 이후 변경은 Redis 토픽으로 모든 노드에 전파한다.
+ * 락을 잡을지, HOT 계좌를 Redis 로 보낼지 결정하는 데 쓰이고
+ * DB 를 거치는 처리 경로는 Account.balanceMode 를 따른다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BalanceModeRegistry {
+    private static final String TOPIC = "ACBALMODE";
+
+    private final RedissonClient redissonClient;
+    private final AccountRepository accountRepository;
+    private final Map<String, BalanceMode> modes = new ConcurrentHashMap<>();
+    private RTopic topic;
+
+    @PostConstruct
+    public void init() {
+        topic = redissonClient.getTopic(TOPIC, StringCodec.INSTANCE);
+        topic.addListener(String.class, (channel, message) -> apply(message));
+
+        for (BalanceMode balanceMode : BalanceMode.values()) {
+            if (balanceMode != BalanceMode.STANDARD) {
+                accountRepository.findAccountNumbersByBalanceMode(balanceMode)
+                        .forEach(accountNumber -> modes.put(accountNumber, balanceMode));
+            }
+        }
+        log.info("Loaded {} non-standard balance mode accounts", modes.size());
+    }
+
+    public BalanceMode getMode(String accountNumber) {
+        return modes.getOrDefault(accountNumber, BalanceMode.STANDARD);
+    }
+
+    /**
+     * 슬롯 단위 원자적 UPDATE(STRIPED) 나 Redis 스크립트(HOT) 로 처리되어 계좌 락이 필요 없는 계좌인지
+     */
+    public boolean isLockFree(String accountNumber) {
+        return getMode(accountNumber) != BalanceMode.STANDARD;
+    }
+
+    public boolean isHot(String accountNumber) {
+        return getMode(accountNumber) == BalanceMode.HOT;
+    }
+
+    public boolean hasHotAccounts() {
+        return modes.containsValue(BalanceMode.HOT);
+    }
+
+    public List<String> getAccountNumbers(BalanceMode balanceMode) {
+        return modes.entrySet().stream()
+                .filter(entry -> entry.getValue() == balanceMode)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    public void publish(String accountNumber, BalanceMode balanceMode) {
+        update(accountNumber, balanceMode);
+        topic.publish(accountNumber + ":" + balanceMode.name());
+    }
+
+    private void apply(String message) {
+        int separator = message.lastIndexOf(':');
+        update(message.substring(0, separator),
+                BalanceMode.valueOf(message.substring(separator + 1)));
+    }
+
+    private void update(String accountNumber, BalanceMode balanceMode) {
+        if (balanceMode == BalanceMode.STANDARD) {
+            modes.remove(accountNumber);
+        } else {
+            modes.put(accountNumber, balanceMode);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.domain.Account;
+import com.example.accountsystem.domain.BalanceSlot;
+import com.example.accountsystem.dto.AccountDto;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.repository.AccountRepository;
+import com.example.accountsystem.repository.BalanceSlotRepository;
+import com.example.accountsystem.type.AccountStatus;
+import com.example.accountsystem.type.BalanceMode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import static com.example.accountsystem.type.ErrorCode.*;
+
+/**
+ * 계좌 잔액 모드 전환 (운영자용)
+ * STANDARD -> STRIPED : 계좌 락을 잡고 잔액을 N 개 슬롯에 나눈 뒤 모든 노드에 알림
+ * STRIPED -> STANDARD : 먼저 모든 노드가 다시 락을 잡도록 알린 뒤, 슬롯을 잠그고 합쳐서 삭제
+ * STANDARD -> HOT : 계좌 락을 잡고 모드를 바꾼 뒤 DB 잔액을 Redis 에 올리고 모든 노드에 알림
+ *                   (이미 HOT 이면 Redis 가 DB 보다 뒤처졌을 때만 다시 올린다 - 장애 복구용)
+ * HOT -> STANDARD : 먼저 모든 노드에 알린 뒤, Redis 잔액을 내려 증감을 막고 남은 원장을 반영해 DB 로 되돌림
+ * 전환 중에도 요청은 계속 처리된다. (HOT 전환 중의 요청은 ACCOUNT_TRANSACTION_LOCK 으로 재시도)
+ * PARTITIONED 모드의 잔액 변경은 계좌 락 없이 파티션 순서만 믿고 계좌 행 전체를 쓰므로,
+ * 전환도 BalanceMutationExecutor 로 그 계좌의 파티션에서 변경 사이에 실행한다. (먼저 읽은 변경이 덮어쓰지 않게)
+ * SEQUENCED 모드에서는 잔액을 LedgerSequencer 가 메모리에 들고 있으므로 전환하지 않는다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BalanceModeService {
+    public static final int DEFAULT_SLOT_COUNT = 8;
+
+    private final AccountRepository accountRepository;
+    private final BalanceSlotRepository balanceSlotRepository;
+    private final LockService lockService;
+    private final BalanceMutationExecutor balanceMutationExecutor;
+    private final BalanceModeRegistry balanceModeRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final HotBalanceStore hotBalanceStore;
+    private final HotBalancePersister hotBalancePersister;
+    private final LedgerSequencer ledgerSequencer;
+
+    public AccountDto changeBalanceMode(String accountNumber, BalanceMode balanceMode,
+                                        Integer slotCount) {
+        if (ledgerSequencer.isEnabled()) {
+            throw new AccountException(BALANCE_MODE_NOT_SUPPORTED);
+        }
+        if (balanceMode == BalanceMode.STRIPED) {
+            return stripe(accountNumber, slotCount == null ? DEFAULT_SLOT_COUNT : slotCount);
+        }
+        if (balanceMode == BalanceMode.HOT) {
+            return heat(accountNumber);
+        }
+        if (getAccount(accountNumber).isHot()) {
+            return cool(accountNumber);
+        }
+        return unstripe(accountNumber);
+    }
+
+    private AccountDto stripe(String accountNumber, int slotCount) {
+        lockService.lock(accountNumber);
+        try {
+            AccountDto accountDto = balanceMutationExecutor.execute(accountNumber,
+                    () -> transactionTemplate.execute(status -> {
+                        Account account = getAccount(accountNumber);
+                        if (account.getAccountStatus() != AccountStatus.IN_USE) {
+                            throw new AccountException(ACCOUNT_ALREADY_UNREGISTERED);
+                        }
+                        if (account.isStriped()) {
+                            return AccountDto.fromEntity(account,
+                                    balanceSlotRepository.sumBalance(account));
+                        }
+                        if (account.isHot()) {
+                            throw new AccountException(BALANCE_MODE_NOT_SUPPORTED);
+                        }
+
+                        long balance = account.getBalance();
+                        List<BalanceSlot> slots = new ArrayList<>(slotCount);
+                        for (int i = 0; i < slotCount; i++) {
+                            slots.add(BalanceSlot.builder()
+                                    .account(account)
+                                    .slotIndex(i)
+                                    .balance(balance / slotCount + (i < balance % slotCount ? 1 : 0))
+                                    .build());
+                        }
+                        balanceSlotRepository.saveAll(slots);
+
+                        account.setBalance(0L);
+                        account.setBalanceMode(BalanceMode.STRIPED);
+                        account.setBalanceSlotCount(slotCount);
+                        return AccountDto.fromEntity(account, balance);
+                    }));
+
+            balanceModeRegistry.publish(accountNumber, BalanceMode.STRIPED);
+            log.info("Account {} is striped into {} slots", accountNumber, slotCount);
+            return accountDto;
+        } finally {
+            lockService.unlock(accountNumber);
+        }
+    }
+
+    private AccountDto unstripe(String accountNumber) {
+        balanceModeRegistry.publish(accountNumber, BalanceMode.STANDARD);
+
+        lockService.lock(accountNumber);
+        try {
+            return balanceMutationExecutor.execute(accountNumber,
+                    () -> transactionTemplate.execute(status -> {
+                        Account account = getAccount(accountNumber);
+                        if (!account.isStriped()) {
+                            return AccountDto.fromEntity(account);
+                        }
+
+                        // 진행 중인 슬롯 UPDATE 가 끝날 때까지 기다린 뒤 합친다.
+                        List<BalanceSlot> slots = balanceSlotRepository.findAllForUpdate(account);
+                        long balance = slots.stream().mapToLong(BalanceSlot::getBalance).sum();
+                        balanceSlotRepository.deleteAll(slots);
+
+                        account.setBalance(balance);
+                        account.setBalanceMode(BalanceMode.STANDARD);
+                        account.setBalanceSlotCount(null);
+                        log.info("Account {} is merged back to a single balance", accountNumber);
+                        return AccountDto.fromEntity(account);
+                    }));
+        } finally {
+            lockService.unlock(accountNumber);
+        }
+    }
+
+    private AccountDto heat(String accountNumber) {
+        lockService.lock(accountNumber);
+        try {
+            return balanceMutationExecutor.execute(accountNumber, () -> {
+                AccountDto accountDto = transactionTemplate.execute(status -> {
+                    Account account = getAccount(accountNumber);
+                    if (account.getAccountStatus() != AccountStatus.IN_USE) {
+                        throw new AccountException(ACCOUNT_ALREADY_UNREGISTERED);
+                    }
+                    if (account.isStriped()) {
+                        throw new AccountException(BALANCE_MODE_NOT_SUPPORTED);
+                    }
+                    account.setBalanceMode(BalanceMode.HOT);
+                    if (account.getHotLedgerSeq() == null) {
+                        account.setHotLedgerSeq(0L);
+                    }
+                    return AccountDto.fromEntity(account);
+                });
+
+                // 커밋된 뒤에 올려야 롤백된 모드로 Redis 에서 처리되는 일이 없다.
+                hotBalancePersister.reconcile(accountNumber);
+                balanceModeRegistry.publish(accountNumber, BalanceMode.HOT);
+                hotBalanceStore.getState(accountNumber)
+                        .ifPresent(state -> accountDto.setBalance(state.getBalance()));
+                log.info("Account {} balance is moved to Redis", accountNumber);
+                return accountDto;
+            });
+        } finally {
+            lockService.unlock(accountNumber);
+        }
+    }
+
+    private AccountDto cool(String accountNumber) {
+        balanceModeRegistry.publish(accountNumber, BalanceMode.STANDARD);
+
+        lockService.lock(accountNumber);
+        try {
+            return balanceMutationExecutor.execute(accountNumber, () -> {
+                // 이후의 Redis 증감은 실패(NOT_LOADED)하므로 원장이 더 늘지 않는다.
+                Optional<HotBalanceStore.State> state = hotBalanceStore.unload(accountNumber);
+                hotBalancePersister.drain(accountNumber);
+                return transactionTemplate.execute(status -> {
+                    Account account = getAccount(accountNumber);
+                    if (!account.isHot()) {
+                        return AccountDto.fromEntity(account);
+                    }
+                    // seq 가 다르면 Redis 가 DB 보다 뒤로 돌아가 drain 이 원장을 DB 잔액 위에 다시 쌓은 것이므로
+                    // (HotBalancePersister.rebase) DB 잔액을 그대로 쓴다.
+                    state.ifPresent(unloaded -> {
+                        if (!Objects.equals(unloaded.getSeq(), account.getHotLedgerSeq())) {
+                            log.error("Hot ledger of account {} was rebased onto DB ({} / {})",
+                                    accountNumber, account.getHotLedgerSeq(), unloaded.getSeq());
+                            return;
+                        }
+                        account.setBalance(unloaded.getBalance());
+                    });
+                    account.setBalanceMode(BalanceMode.STANDARD);
+                    log.info("Account {} balance is moved back from Redis", accountNumber);
+                    return AccountDto.fromEntity(account);
+                });
+            });
+        } finally {
+            lockService.unlock(accountNumber);
+        }
+    }
+
+    private Account getAccount(String accountNumber) {
+        return accountRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.dto.BalanceMutation;
+import com.example.accountsystem.dto.TransactionDto;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.type.ExecutionMode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static com.example.accountsystem.type.ErrorCode.ACCOUNT_TRANSACTION_LOCK;
+
+/**
+ * 잔액 사용/취소 모음 처리기 (LOCK 모드)
+ * 요청마다 커밋하는 대신, 첫 요청이 들어온 뒤 window 동안 들어온 요청을 계좌와 상관없이
+ * 최대 maxBatchSize 건까지 모아 TransactionService.applyMutations 한 번(한 DB 트랜잭션)으로 반영하고,
+ * 요청마다 받은 future 를 각자의 결과로 완료한다.
+ * 1. 항목별 검증 실패는 그 항목의 future 만 AccountException 으로 실패시킨다.
+ * 2. 배치 트랜잭션이 실패하면 (DB 오류 등, 롤백) 항목마다 따로 다시 반영해 한 항목 때문에 다른 항목이 실패하지 않게 한다.
+ * 3. 저널은 applyMutations 가 커밋하고 돌아온 뒤에 남긴다. 여기서 실패하면 이미 커밋했으므로
+ *    다시 반영하지 않고 배치의 future 를 모두 그 예외로 실패시킨다. (다시 반영하면 두 번 빠진다)
+ * 계좌 락은 LockAopAspect 가 future 가 끝날 때까지 잡고 있으므로 한 계좌는 한 배치에 한 건만 들어간다.
+ * 락이 필요 없는 계좌(STRIPED, HOT) 와 PARTITIONED/SEQUENCED 모드는 모으지 않는다.
+ * transaction.coalesce.batch : 배치 크기, transaction.coalesce.fallback : 따로 다시 반영한 건수
+ */
+@Slf4j
+@Component
+public class BalanceMutationCoalescer {
+    private final TransactionService transactionService;
+    private final BalanceModeRegistry balanceModeRegistry;
+    private final BalanceJournal balanceJournal;
+    private final boolean enabled;
+    private final BlockingQueue<Pending> queue;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final long shutdownTimeoutMillis;
+    private final ThreadPoolExecutor writers;
+    private final DistributionSummary batchSizes;
+    private final Counter fallbacks;
+    private final Thread collector;
+    private volatile boolean running;
+
+    public BalanceMutationCoalescer(TransactionService transactionService,
+                                    BalanceModeRegistry balanceModeRegistry,
+                                    BalanceJournal balanceJournal,
+                                    TransactionProperties transactionProperties,
+                                    MeterRegistry meterRegistry) {
+        TransactionProperties.Coalescing coalescing = transactionProperties.getCoalescing();
+        this.transactionService = transactionService;
+        this.balanceModeRegistry = balanceModeRegistry;
+        this.balanceJournal = balanceJournal;
+        this.enabled = coalescing.isEnabled()
+                && transactionProperties.getMode() == ExecutionMode.LOCK;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, coalescing.getQueueCapacity()));
+        this.windowNanos = coalescing.getWindow().toNanos();
+        this.maxBatchSize = Math.max(1, coalescing.getMaxBatchSize());
+        this.shutdownTimeoutMillis = coalescing.getShutdownTimeout().toMillis();
+        this.writers = newWriters(Math.max(1, coalescing.getWriterThreads()));
+        this.batchSizes = DistributionSummary.builder("transaction.coalesce.batch")
+                .register(meterRegistry);
+        this.fallbacks = Counter.builder("transaction.coalesce.fallback")
+                .register(meterRegistry);
+        meterRegistry.gauge("transaction.coalesce.queue", queue, BlockingQueue::size);
+
+        this.collector = new Thread(this::run, "balance-coalescer");
+        this.collector.setDaemon(true);
+        if (enabled) {
+            this.running = true;
+            this.collector.start();
+        }
+    }
+
+    /**
+     * 이 계좌의 변경을 모아서 처리하는지
+     */
+    public boolean accepts(String accountNumber) {
+        return enabled && !balanceModeRegistry.isLockFree(accountNumber);
+    }
+
+    public CompletableFuture<TransactionDto> useBalance(Long userId, String accountNumber,
+                                                        Long amount) {
+        return submit(BalanceMutation.use(userId, accountNumber, amount));
+    }
+
+    public CompletableFuture<TransactionDto> cancelBalance(String transactionId,
+                                                           String accountNumber, Long amount) {
+        return submit(BalanceMutation.cancel(transactionId, accountNumber, amount));
+    }
+
+    /**
+     * 새 요청을 받지 않고, 큐에 남은 요청을 반영할 때까지 (최대 shutdownTimeout) 기다린다.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        try {
+            if (collector.isAlive()) {
+                collector.join(shutdownTimeoutMillis);
+            }
+            writers.shutdown();
+            writers.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (collector.isAlive() || !writers.isTerminated()) {
+            log.error("Balance coalescer did not finish in {} ms ({} mutations left)",
+                    shutdownTimeoutMillis, queue.size());
+        }
+    }
+
+    private CompletableFuture<TransactionDto> submit(BalanceMutation mutation) {
+        Pending pending = new Pending(mutation);
+        if (!running || !queue.offer(pending)) {
+            log.error("Coalescing queue is full or closed for accountNumber : {}",
+                    mutation.getAccountNumber());
+            pending.future.completeExceptionally(new AccountException(ACCOUNT_TRANSACTION_LOCK));
+        }
+        return pending.future;
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collect(batch, System.nanoTime() + windowNanos);
+                dispatch(new ArrayList<>(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * deadline 까지, 또는 maxBatchSize 가 찰 때까지 모은다.
+     */
+    private void collect(List<Pending> batch, long deadline) throws InterruptedException {
+        while (batch.size() < maxBatchSize) {
+            if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    /**
+     * 쓰는 스레드가 모두 바쁘거나 종료 중이면 모으는 스레드가 직접 반영한다.
+     */
+    private void dispatch(List<Pending> batch) {
+        writers.execute(() -> write(batch));
+    }
+
+    private void write(List<Pending> batch) {
+        batchSizes.record(batch.size());
+        List<BalanceMutation.Result> results;
+        try {
+            results = transactionService.applyMutations(batch.stream()
+                    .map(pending -> pending.mutation)
+                    .collect(Collectors.toList()));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).future.completeExceptionally(e);
+                return;
+            }
+            log.error("Failed to apply {} coalesced mutations, applying them one by one",
+                    batch.size(), e);
+            fallbacks.increment(batch.size());
+            batch.forEach(this::writeAlone);
+            return;
+        }
+        complete(batch, results);
+    }
+
+    private void writeAlone(Pending pending) {
+        List<BalanceMutation.Result> results;
+        try {
+            results = transactionService.applyMutations(List.of(pending.mutation));
+        } catch (RuntimeException e) {
+            pending.future.completeExceptionally(e);
+            return;
+        }
+        complete(List.of(pending), results);
+    }
+
+    /**
+     * 커밋된 배치의 성공 거래를 저널에 남긴 뒤 future 를 완료한다.
+     */
+    private void complete(List<Pending> batch, List<BalanceMutation.Result> results) {
+        try {
+            balanceJournal.appendAndAwait(results.stream()
+                    .filter(BalanceMutation.Result::isSuccess)
+                    .map(BalanceMutation.Result::getTransaction)
+                    .collect(Collectors.toList()));
+        } catch (RuntimeException e) {
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            complete(batch.get(i), results.get(i));
+        }
+    }
+
+    private static void complete(Pending pending, BalanceMutation.Result result) {
+        if (result.isSuccess()) {
+            pending.future.complete(result.getTransaction());
+        } else {
+            pending.future.completeExceptionally(result.getError());
+        }
+    }
+
+    private static ThreadPoolExecutor newWriters(int threads) {
+        AtomicInteger sequence = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "balance-coalescer-writer-" + sequence.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, executor) -> runnable.run());
+    }
+
+    @RequiredArgsConstructor
+    private static class Pending {
+        private final BalanceMutation mutation;
+        private final CompletableFuture<TransactionDto> future = new CompletableFuture<>();
+    }
+}
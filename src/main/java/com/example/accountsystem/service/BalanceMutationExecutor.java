@@ -0,0 +1,304 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.type.ExecutionMode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static com.example.accountsystem.type.ErrorCode.ACCOUNT_TRANSACTION_LOCK;
+import static com.example.accountsystem.type.ErrorCode.INTERVAL_SERVER_ERROR;
+
+/**
+ * 잔액 변경 실행기
+ * LOCK 모드 : 호출 스레드에서 바로 실행 (락은 LockAopAspect 가 담당)
+ * PARTITIONED 모드 : 계좌번호로 고른 단일 스레드 파티션에서 실행.
+ * 같은 계좌의 변경은 항상 같은 스레드에서 순서대로 처리되므로 락이 필요 없다.
+ * (한 노드 안에서만 보장되므로 계좌 단위 라우팅이 되는 배포에서 사용)
+ * 여러 파티션에 걸친 변경(이체)은 관련 파티션을 모두 멈춰 세운 뒤 호출 스레드에서 실행한다.
+ * 파티션 timeout 안에 시작하지 못한 변경은 실행하지 않고 ACCOUNT_TRANSACTION_LOCK 으로 실패하며,
+ * 이미 시작한 변경은 timeout 이 지나도 실패로 응답하지 않고 끝날 때까지 기다린다.
+ * submit 은 같은 규칙으로 실행하되 결과를 CompletableFuture 로 돌려주며,
+ * LOCK 모드에서는 워커 풀에서 실행해 호출(서블릿) 스레드를 붙잡지 않는다.
+ * SEQUENCED 모드의 잔액 변경은 이 실행기를 거치지 않는다. (LedgerSequencer)
+ */
+@Slf4j
+@Component
+public class BalanceMutationExecutor {
+    private final ExecutionMode mode;
+    private final long timeoutMillis;
+    private final ThreadPoolExecutor[] partitions;
+    private final ExecutorService worker;
+
+    public BalanceMutationExecutor(TransactionProperties transactionProperties) {
+        TransactionProperties.Partition partition = transactionProperties.getPartition();
+        this.mode = transactionProperties.getMode();
+        this.timeoutMillis = partition.getTimeout().toMillis();
+        this.partitions = new ThreadPoolExecutor[
+                mode == ExecutionMode.PARTITIONED ? Math.max(1, partition.getCount()) : 0];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = newPartition(i, partition.getQueueCapacity());
+        }
+        TransactionProperties.Worker worker = transactionProperties.getWorker();
+        this.worker = newWorker(Math.max(1, worker.getThreads()), worker.getQueueCapacity());
+    }
+
+    public <T> T execute(String accountNumber, Supplier<T> mutation) {
+        if (mode != ExecutionMode.PARTITIONED) {
+            return mutation.get();
+        }
+
+        ThreadPoolExecutor partition = partitions[partitionIndexOf(accountNumber)];
+        QueuedMutation<T> queued = new QueuedMutation<>(mutation, timeoutMillis);
+        try {
+            partition.execute(queued);
+        } catch (RejectedExecutionException e) {
+            log.error("Partition queue is full for accountNumber : {}", accountNumber);
+            throw new AccountException(ACCOUNT_TRANSACTION_LOCK);
+        }
+
+        try {
+            return queued.result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (abandon(partition, queued)) {
+                log.error("Partition execution timed out for accountNumber : {}", accountNumber);
+                throw new AccountException(ACCOUNT_TRANSACTION_LOCK);
+            }
+            // 이미 시작한 변경은 실패로 응답하지 않고 끝날 때까지 기다린다.
+            return join(queued.result);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(partition, queued);
+            throw new AccountException(INTERVAL_SERVER_ERROR);
+        }
+    }
+
+    public <T> T execute(Collection<String> accountNumbers, Supplier<T> mutation) {
+        if (mode != ExecutionMode.PARTITIONED) {
+            return mutation.get();
+        }
+
+        int[] indexes = accountNumbers.stream()
+                .mapToInt(this::partitionIndexOf)
+                .distinct()
+                .sorted()
+                .toArray();
+        if (indexes.length == 1) {
+            return execute(accountNumbers.iterator().next(), mutation);
+        }
+
+        CountDownLatch parked = new CountDownLatch(indexes.length);
+        CountDownLatch released = new CountDownLatch(1);
+        try {
+            // 파티션 큐에 들어가는 순서가 요청마다 엇갈리면 서로를 기다리게 되므로 한 번에 넣는다.
+            synchronized (this) {
+                for (int index : indexes) {
+                    partitions[index].execute(() -> {
+                        parked.countDown();
+                        awaitRelease(released);
+                    });
+                }
+            }
+            if (!parked.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                log.error("Partition execution timed out for accountNumbers : {}", accountNumbers);
+                throw new AccountException(ACCOUNT_TRANSACTION_LOCK);
+            }
+            return mutation.get();
+        } catch (RejectedExecutionException e) {
+            log.error("Partition queue is full for accountNumbers : {}", accountNumbers);
+            throw new AccountException(ACCOUNT_TRANSACTION_LOCK);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AccountException(INTERVAL_SERVER_ERROR);
+        } finally {
+            released.countDown();
+        }
+    }
+
+    public <T> CompletableFuture<T> submit(String accountNumber, Supplier<T> mutation) {
+        if (mode != ExecutionMode.PARTITIONED) {
+            return supply(worker, accountNumber, mutation);
+        }
+
+        ThreadPoolExecutor partition = partitions[partitionIndexOf(accountNumber)];
+        QueuedMutation<T> queued = new QueuedMutation<>(mutation, timeoutMillis);
+        try {
+            partition.execute(queued);
+        } catch (RejectedExecutionException e) {
+            log.error("Partition queue is full for accountNumber : {}", accountNumber);
+            return CompletableFuture.failedFuture(new AccountException(ACCOUNT_TRANSACTION_LOCK));
+        }
+        // 시작하지 못한 변경만 실패시킨다. 시작한 변경의 future 는 변경이 끝날 때 완료되므로
+        // 락(LockAopAspect) 도 그때까지 풀리지 않는다.
+        CompletableFuture.delayedExecutor(timeoutMillis, TimeUnit.MILLISECONDS)
+                .execute(() -> {
+                    if (abandon(partition, queued)) {
+                        log.error("Partition execution timed out for accountNumber : {}", accountNumber);
+                    }
+                });
+        return queued.result;
+    }
+
+    public <T> CompletableFuture<T> submit(Collection<String> accountNumbers, Supplier<T> mutation) {
+        if (accountNumbers.size() == 1) {
+            return submit(accountNumbers.iterator().next(), mutation);
+        }
+        // 여러 파티션을 멈춰 세우는 동안 기다려야 하므로 워커 스레드에서 실행
+        return supply(worker, accountNumbers, () -> execute(accountNumbers, mutation));
+    }
+
+    public boolean isLockRequired() {
+        return mode == ExecutionMode.LOCK;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor partition : partitions) {
+            partition.shutdown();
+        }
+        worker.shutdown();
+    }
+
+    private int partitionIndexOf(String accountNumber) {
+        return Math.floorMod(accountNumber.hashCode(), partitions.length);
+    }
+
+    private static <T> CompletableFuture<T> supply(
+            Executor executor, Object accountNumbers, Supplier<T> mutation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(mutation.get());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.error("Execution queue is full for accountNumbers : {}", accountNumbers);
+            future.completeExceptionally(new AccountException(ACCOUNT_TRANSACTION_LOCK));
+        }
+        return future;
+    }
+
+    /**
+     * 아직 시작하지 않은 변경을 큐에서 빼고 실행하지 않게 한다.
+     * @return 이미 시작한 변경이면 false (결과를 기다려야 한다)
+     */
+    private static boolean abandon(ThreadPoolExecutor partition, QueuedMutation<?> queued) {
+        if (!queued.abandon()) {
+            return false;
+        }
+        partition.remove(queued);
+        return true;
+    }
+
+    private static <T> T join(CompletableFuture<T> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new AccountException(INTERVAL_SERVER_ERROR);
+        }
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+            return (RuntimeException) e.getCause();
+        }
+        return new AccountException(INTERVAL_SERVER_ERROR);
+    }
+
+    private static void awaitRelease(CountDownLatch released) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                released.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadPoolExecutor newPartition(int index, int queueCapacity) {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "balance-partition-" + index);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    private static ExecutorService newWorker(int threads, int queueCapacity) {
+        AtomicInteger sequence = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "balance-worker-" + sequence.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * 파티션 큐에서 차례를 기다리는 변경.
+     * 기다리는 쪽이 타임아웃으로 포기(abandon)했거나 차례가 왔을 때 기한이 지났으면 실행하지 않는다.
+     * 반대로 일단 시작한 변경은 포기할 수 없다. (실패로 응답한 변경이 나중에 커밋되지 않도록)
+     */
+    private static class QueuedMutation<T> implements Runnable {
+        private static final int PENDING = 0;
+        private static final int STARTED = 1;
+        private static final int ABANDONED = 2;
+
+        private final Supplier<T> mutation;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        QueuedMutation(Supplier<T> mutation, long timeoutMillis) {
+            this.mutation = mutation;
+            this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        }
+
+        @Override
+        public void run() {
+            if (System.nanoTime() - deadline > 0) {
+                abandon();
+            }
+            if (!state.compareAndSet(PENDING, STARTED)) {
+                return;
+            }
+            try {
+                result.complete(mutation.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+        /**
+         * @return 시작 전이라 포기했으면 true
+         */
+        boolean abandon() {
+            if (!state.compareAndSet(PENDING, ABANDONED)) {
+                return false;
+            }
+            result.completeExceptionally(new AccountException(ACCOUNT_TRANSACTION_LOCK));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.domain.Account;
+import com.example.accountsystem.domain.BalanceSlot;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.repository.BalanceSlotRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.example.accountsystem.type.ErrorCode.*;
+
+/**
+ * STRIPED 계좌의 슬롯 단위 잔액 변경
+ * 1. 출금 : 임의의 슬롯부터 잔액이 충분한 슬롯 하나를 조건부 UPDATE 로 차감
+ * 2. 한 슬롯으로 부족하면 전체 슬롯을 잠그고 나눠서 차감
+ * 3. 입금 : 임의의 슬롯 하나에 더함
+ * 모든 변경은 행 단위 원자적 UPDATE 라서 계좌 락(ACLK) 없이 동작한다.
+ */
+@Service
+@RequiredArgsConstructor
+public class BalanceSlotService {
+    private final BalanceSlotRepository balanceSlotRepository;
+
+    /**
+     * @return 차감 후 계좌 전체 잔액
+     */
+    public long debit(Account account, Long amount) {
+        int slotCount = account.getBalanceSlotCount();
+        int start = ThreadLocalRandom.current().nextInt(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            int slotIndex = (start + i) % slotCount;
+            if (balanceSlotRepository.debit(account, slotIndex, amount) == 1) {
+                return balanceSlotRepository.sumBalance(account);
+            }
+        }
+
+        return debitAcrossSlots(account, amount);
+    }
+
+    /**
+     * @return 입금 후 계좌 전체 잔액
+     */
+    public long credit(Account account, Long amount) {
+        if (amount < 0) {
+            throw new AccountException(INVALID_REQUEST);
+        }
+        int slotIndex = ThreadLocalRandom.current().nextInt(account.getBalanceSlotCount());
+        if (balanceSlotRepository.credit(account, slotIndex, amount) == 0) {
+            // 슬롯이 해제되는 중 (STANDARD 로 전환)
+            throw new AccountException(ACCOUNT_TRANSACTION_LOCK);
+        }
+        return balanceSlotRepository.sumBalance(account);
+    }
+
+    public long sumBalance(Account account) {
+        return balanceSlotRepository.sumBalance(account);
+    }
+
+    private long debitAcrossSlots(Account account, Long amount) {
+        List<BalanceSlot> slots = balanceSlotRepository.findAllForUpdate(account);
+        if (slots.isEmpty()) {
+            throw new AccountException(ACCOUNT_TRANSACTION_LOCK);
+        }
+
+        long total = slots.stream().mapToLong(BalanceSlot::getBalance).sum();
+        if (total < amount) {
+            throw new AccountException(AMOUNT_EXCEED_BALANCE);
+        }
+
+        long remaining = amount;
+        for (BalanceSlot slot : slots) {
+            long taken = Math.min(slot.getBalance(), remaining);
+            slot.setBalance(slot.getBalance() - taken);
+            remaining -= taken;
+            if (remaining == 0) {
+                break;
+            }
+        }
+        return total - amount;
+    }
+}
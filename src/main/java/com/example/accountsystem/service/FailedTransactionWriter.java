@@ -0,0 +1,166 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.dto.FailedTransaction;
+import com.example.accountsystem.type.OverflowPolicy;
+import com.example.accountsystem.type.TransactionType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 실패(F) 거래 기록기
+ * 요청 스레드는 실패 거래를 메모리 큐에 넣고 바로 돌아가며 (계좌 락도 바로 풀린다),
+ * 백그라운드 스레드가 batchSize 건씩 모아 TransactionService.saveFailedTransactions 로 저장한다.
+ * 큐가 가득 차면 overflowPolicy 를 따르고, 종료 시 남은 기록을 모두 저장한다.
+ * transaction.failure.audit : 기록 수 (result=written|dropped|error)
+ */
+@Slf4j
+@Component
+public class FailedTransactionWriter {
+    private final TransactionService transactionService;
+    private final BlockingQueue<FailedTransaction> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long shutdownTimeoutMillis;
+    private final OverflowPolicy overflowPolicy;
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter errors;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public FailedTransactionWriter(TransactionService transactionService,
+                                   TransactionProperties transactionProperties,
+                                   MeterRegistry meterRegistry) {
+        TransactionProperties.FailureAudit failureAudit = transactionProperties.getFailureAudit();
+        this.transactionService = transactionService;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, failureAudit.getQueueCapacity()));
+        this.batchSize = Math.max(1, failureAudit.getBatchSize());
+        this.flushIntervalMillis = failureAudit.getFlushInterval().toMillis();
+        this.shutdownTimeoutMillis = failureAudit.getShutdownTimeout().toMillis();
+        this.overflowPolicy = failureAudit.getOverflowPolicy();
+        this.written = counter(meterRegistry, "written");
+        this.dropped = counter(meterRegistry, "dropped");
+        this.errors = counter(meterRegistry, "error");
+        meterRegistry.gauge("transaction.failure.audit.queue", queue, BlockingQueue::size);
+
+        this.writer = new Thread(this::run, "failed-transaction-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public void record(TransactionType transactionType, String accountNumber, Long amount) {
+        offer(new FailedTransaction(transactionType, accountNumber, amount, LocalDateTime.now()));
+    }
+
+    public void record(TransactionType transactionType, String accountNumber,
+                       Collection<Long> amounts) {
+        LocalDateTime transactedAt = LocalDateTime.now();
+        for (Long amount : amounts) {
+            offer(new FailedTransaction(transactionType, accountNumber, amount, transactedAt));
+        }
+    }
+
+    /**
+     * 새 기록을 받지 않고, 큐에 남은 기록을 저장할 때까지 (최대 shutdownTimeout) 기다린다.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        try {
+            writer.join(shutdownTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            log.error("Failed transaction writer did not finish in {} ms ({} records left)",
+                    shutdownTimeoutMillis, queue.size());
+        }
+    }
+
+    private void offer(FailedTransaction failedTransaction) {
+        if (!running) {
+            write(List.of(failedTransaction));
+            return;
+        }
+        if (queue.offer(failedTransaction)) {
+            return;
+        }
+
+        switch (overflowPolicy) {
+            case CALLER_RUNS:
+                write(List.of(failedTransaction));
+                return;
+            case DROP_OLDEST:
+                while (!queue.offer(failedTransaction)) {
+                    drop(queue.poll());
+                }
+                return;
+            case DROP_NEWEST:
+            default:
+                drop(failedTransaction);
+        }
+    }
+
+    private void run() {
+        List<FailedTransaction> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                FailedTransaction first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<FailedTransaction> batch) {
+        try {
+            transactionService.saveFailedTransactions(batch);
+            written.increment(batch.size());
+        } catch (RuntimeException e) {
+            errors.increment(batch.size());
+            log.error("Failed to save {} failed transactions for accountNumbers : {}",
+                    batch.size(), batch.stream()
+                            .map(FailedTransaction::getAccountNumber)
+                            .distinct()
+                            .collect(Collectors.toList()), e);
+        }
+    }
+
+    private void drop(FailedTransaction failedTransaction) {
+        if (failedTransaction == null) {
+            return;
+        }
+        dropped.increment();
+        log.warn("Failed transaction queue is full, dropped {} {} for accountNumber : {}",
+                failedTransaction.getTransactionType(), failedTransaction.getAmount(),
+                failedTransaction.getAccountNumber());
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("transaction.failure.audit")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
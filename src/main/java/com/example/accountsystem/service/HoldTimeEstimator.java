@@ -0,0 +1,31 @@
+package com.example.accountsystem.service;
+
+/**
+ * 락 점유 시간의 평균/편차 추정 (TCP RTO 계산과 같은 EWMA 방식)
+ */
+class HoldTimeEstimator {
+    private long samples;
+    private double smoothedNanos;
+    private double deviationNanos;
+
+    synchronized void record(long holdNanos) {
+        if (samples++ == 0) {
+            smoothedNanos = holdNanos;
+            deviationNanos = holdNanos / 2.0;
+            return;
+        }
+        deviationNanos = 0.75 * deviationNanos + 0.25 * Math.abs(smoothedNanos - holdNanos);
+        smoothedNanos = 0.875 * smoothedNanos + 0.125 * holdNanos;
+    }
+
+    synchronized long samples() {
+        return samples;
+    }
+
+    /**
+     * 대부분의 점유가 이 시간 안에 끝난다고 볼 수 있는 상한 (평균 + 4 * 편차)
+     */
+    synchronized long upperBoundNanos() {
+        return (long) (smoothedNanos + 4 * deviationNanos);
+    }
+}
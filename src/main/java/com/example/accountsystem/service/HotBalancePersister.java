@@ -0,0 +1,334 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.domain.Account;
+import com.example.accountsystem.domain.Transaction;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.repository.AccountRepository;
+import com.example.accountsystem.repository.TransactionRepository;
+import com.example.accountsystem.type.BalanceMode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.example.accountsystem.type.ErrorCode.ACCOUNT_NOT_FOUND;
+import static com.example.accountsystem.type.TransactionResultType.S;
+
+/**
+ * HOT 계좌의 Redis 원장을 DB 에 반영 (write-behind)
+ * 1. flushInterval 마다 HOT 계좌별로 원장 앞쪽 batchSize 건을 읽어
+ *    계좌 행을 잠그고 거래를 saveAll, balance 와 hotLedgerSeq 를 마지막 항목으로 갱신한다.
+ * 2. 커밋 후 반영한 거래의 ID 색인(ACHOTTX:) 과, 반영한 seq 까지의 원장을 지운다.
+ *    지우기 전에 죽어도 hotLedgerSeq 이하는 건너뛰므로 같은 거래가 두 번 저장되지 않는다. hotLedgerSeq 보다 뒤여도 이미 DB 에 있는 거래 ID
+ *    (BalanceJournalRecovery 가 저널에서 먼저 반영한 거래) 는 저장하지 않고 seq 와 잔액만 넘긴다.
+ * 3. 기동 시 (reconcile) 남은 원장을 반영한 뒤 Redis 와 DB 의 seq 를 비교한다.
+ *    Redis 에 잔액이 없거나 seq 가 DB 보다 작으면 (유실, 이전 스냅샷으로 복구) DB 값으로 다시 올리고,
+ *    그렇지 않으면 Redis 가 최신이므로 그대로 둔다.
+ * 4. 실행 중에 Redis 가 비워지거나 이전 스냅샷으로 돌아가면, 잔액 hash 가 없거나
+ *    hotLedgerSeq 이하의 seq 에 DB 에 없는 거래가 붙는다. 이런 항목은 건너뛰지 않고,
+ *    잔액 hash 를 내려 증감을 막은 뒤 (ACCOUNT_TRANSACTION_LOCK) DB 잔액 위에 hotLedgerSeq 다음 seq 로
+ *    다시 쌓아 저장하고 (rebase), 계좌 락을 잡고 reconcile 해 DB 값으로 다시 올린다.
+ * hot.balance.persisted : 반영한 거래 수, hot.balance.reconciled : 기동 시 확인한 계좌 수 (result=kept|reloaded)
+ */
+@Slf4j
+@Component
+public class HotBalancePersister {
+    private static final int REGRESSED = -1;
+
+    private final HotBalanceStore hotBalanceStore;
+    private final BalanceModeRegistry balanceModeRegistry;
+    private final LockService lockService;
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long shutdownTimeoutMillis;
+    private final Counter persisted;
+    private final Counter kept;
+    private final Counter reloaded;
+    private final ScheduledExecutorService scheduler;
+
+    public HotBalancePersister(HotBalanceStore hotBalanceStore,
+                               BalanceModeRegistry balanceModeRegistry,
+                               LockService lockService,
+                               AccountRepository accountRepository,
+                               TransactionRepository transactionRepository,
+                               TransactionTemplate transactionTemplate,
+                               TransactionProperties transactionProperties,
+                               MeterRegistry meterRegistry) {
+        TransactionProperties.HotBalance hotBalance = transactionProperties.getHotBalance();
+        this.hotBalanceStore = hotBalanceStore;
+        this.balanceModeRegistry = balanceModeRegistry;
+        this.lockService = lockService;
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = Math.max(1, hotBalance.getBatchSize());
+        this.flushIntervalMillis = hotBalance.getFlushInterval().toMillis();
+        this.shutdownTimeoutMillis = hotBalance.getShutdownTimeout().toMillis();
+        this.persisted = meterRegistry.counter("hot.balance.persisted");
+        this.kept = meterRegistry.counter("hot.balance.reconciled", "result", "kept");
+        this.reloaded = meterRegistry.counter("hot.balance.reconciled", "result", "reloaded");
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hot-balance-persister");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler.execute(() -> balanceModeRegistry.getAccountNumbers(BalanceMode.HOT)
+                .forEach(this::reconcileQuietly));
+        scheduler.scheduleWithFixedDelay(this::flushAll,
+                flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 남은 원장을 모두 반영한다.
+     */
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                log.warn("Hot balance persister did not stop in {} ms", shutdownTimeoutMillis);
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        for (String accountNumber : balanceModeRegistry.getAccountNumbers(BalanceMode.HOT)) {
+            try {
+                drain(accountNumber);
+            } catch (RuntimeException e) {
+                log.error("Failed to persist hot ledger on shutdown for accountNumber : {}",
+                        accountNumber, e);
+            }
+        }
+    }
+
+    /**
+     * 계좌마다 한 번씩만 반영해 한 계좌가 다른 계좌의 반영을 붙잡지 않게 한다.
+     * Redis 에 잔액이 없거나 원장이 DB 보다 뒤로 돌아갔으면 recover 한다.
+     */
+    void flushAll() {
+        for (String accountNumber : balanceModeRegistry.getAccountNumbers(BalanceMode.HOT)) {
+            try {
+                if (!hotBalanceStore.getState(accountNumber).isPresent()
+                        || flush(accountNumber) == REGRESSED) {
+                    recover(accountNumber);
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to persist hot ledger for accountNumber : {}", accountNumber, e);
+            }
+        }
+    }
+
+    /**
+     * 원장이 빌 때까지 반영 (모드 전환, 종료, 기동 시)
+     */
+    public void drain(String accountNumber) {
+        int flushed;
+        do {
+            flushed = flush(accountNumber);
+            if (flushed == REGRESSED) {
+                rebase(accountNumber);
+                return;
+            }
+            // 가득 찬 배치였으면 더 남았을 수 있다.
+        } while (flushed == batchSize);
+    }
+
+    /**
+     * @return 원장에서 읽은 항목 수, 원장이 DB 보다 뒤로 돌아갔으면 아무것도 반영하지 않고 REGRESSED
+     */
+    synchronized int flush(String accountNumber) {
+        List<HotBalanceStore.LedgerEntry> entries =
+                hotBalanceStore.readLedger(accountNumber, batchSize);
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        Long appliedSeq = transactionTemplate.execute(status -> apply(accountNumber, entries));
+        if (appliedSeq == null) {
+            return REGRESSED;
+        }
+        // 색인을 먼저 지운다. 원장을 지우기 전에 죽으면 다음 반영이 같은 항목을 다시 읽어 색인을 지운다.
+        hotBalanceStore.removeTransactions(entries.stream()
+                .map(HotBalanceStore.LedgerEntry::getTransactionId)
+                .collect(Collectors.toList()));
+        hotBalanceStore.trimLedger(accountNumber, appliedSeq);
+        return entries.size();
+    }
+
+    /**
+     * @return 반영한 마지막 seq, hotLedgerSeq 이하의 seq 에 DB 에 없는 거래가 있으면 null
+     */
+    private Long apply(String accountNumber, List<HotBalanceStore.LedgerEntry> entries) {
+        Account account = accountRepository.findForUpdateByAccountNumber(accountNumber)
+                .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+        long persistedSeq = account.getHotLedgerSeq() == null ? 0L : account.getHotLedgerSeq();
+        Set<String> saved = findSavedTransactionIds(entries);
+        if (entries.stream().anyMatch(entry -> entry.getSeq() <= persistedSeq
+                && !saved.contains(entry.getTransactionId()))) {
+            log.error("Hot ledger of accountNumber : {} is behind the DB (hotLedgerSeq {})",
+                    accountNumber, persistedSeq);
+            return null;
+        }
+
+        long appliedSeq = persistedSeq;
+
+        List<Transaction> transactions = new ArrayList<>(entries.size());
+        for (HotBalanceStore.LedgerEntry entry : entries) {
+            if (entry.getSeq() <= appliedSeq) {
+                continue;
+            }
+            if (entry.getSeq() != appliedSeq + 1) {
+                log.error("Hot ledger gap for accountNumber : {} ({} -> {})",
+                        accountNumber, appliedSeq, entry.getSeq());
+            }
+            account.setBalance(entry.getBalanceAfter());
+            appliedSeq = entry.getSeq();
+            if (!saved.add(entry.getTransactionId())) {
+                continue;
+            }
+            transactions.add(toTransaction(account, entry, entry.getBalanceAfter()));
+        }
+        transactionRepository.saveAll(transactions);
+        account.setHotLedgerSeq(appliedSeq);
+        persisted.increment(transactions.size());
+        return appliedSeq;
+    }
+
+    /**
+     * 원장 전체를 DB 에 없는 거래만 골라 DB 잔액 위에 hotLedgerSeq 다음 seq 로 다시 쌓는다.
+     * 원장의 seq 와 balanceAfter 는 뒤로 돌아간 Redis 잔액 기준이라 쓰지 않는다.
+     * 잔액 hash 를 먼저 내리므로 이후의 증감은 실패하고 원장이 더 늘지 않는다.
+     * Redis 에 다시 올리는 것은 호출한 쪽이 한다. (reconcile, 모드 전환)
+     */
+    private synchronized void rebase(String accountNumber) {
+        hotBalanceStore.unload(accountNumber);
+        List<HotBalanceStore.LedgerEntry> entries =
+                hotBalanceStore.readLedger(accountNumber, Integer.MAX_VALUE);
+        if (entries.isEmpty()) {
+            return;
+        }
+        transactionTemplate.execute(status -> {
+            Account account = accountRepository.findForUpdateByAccountNumber(accountNumber)
+                    .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+            long seq = account.getHotLedgerSeq() == null ? 0L : account.getHotLedgerSeq();
+            long balance = account.getBalance();
+            Set<String> saved = findSavedTransactionIds(entries);
+
+            List<Transaction> transactions = new ArrayList<>(entries.size());
+            for (HotBalanceStore.LedgerEntry entry : entries) {
+                if (!saved.add(entry.getTransactionId())) {
+                    continue;
+                }
+                balance += entry.getTransactionType().isDebit() ? -entry.getAmount() : entry.getAmount();
+                seq++;
+                transactions.add(toTransaction(account, entry, balance));
+            }
+            if (balance < 0) {
+                log.error("Rebased hot balance of accountNumber : {} is negative ({})",
+                        accountNumber, balance);
+            }
+            transactionRepository.saveAll(transactions);
+            account.setBalance(balance);
+            account.setHotLedgerSeq(seq);
+            persisted.increment(transactions.size());
+            log.warn("Rebased {} hot ledger entries of accountNumber : {} onto DB (balance {}, seq {})",
+                    transactions.size(), accountNumber, balance, seq);
+            return seq;
+        });
+        hotBalanceStore.removeTransactions(entries.stream()
+                .map(HotBalanceStore.LedgerEntry::getTransactionId)
+                .collect(Collectors.toList()));
+        hotBalanceStore.trimLedger(accountNumber, entries.get(entries.size() - 1).getSeq());
+    }
+
+    private Set<String> findSavedTransactionIds(List<HotBalanceStore.LedgerEntry> entries) {
+        return new HashSet<>(transactionRepository.findTransactionIdsIn(entries.stream()
+                .map(HotBalanceStore.LedgerEntry::getTransactionId)
+                .collect(Collectors.toList())));
+    }
+
+    private static Transaction toTransaction(Account account, HotBalanceStore.LedgerEntry entry,
+                                             long balanceAfter) {
+        return Transaction.builder()
+                .transactionType(entry.getTransactionType())
+                .transactionResultType(S)
+                .account(account)
+                .amount(entry.getAmount())
+                .balanceSnapshot(balanceAfter)
+                .transactionId(entry.getTransactionId())
+                .transactedAt(entry.getTransactedAt())
+                .build();
+    }
+
+    /**
+     * 남은 원장을 반영한 뒤, Redis 가 DB 보다 뒤처져 있으면 DB 값으로 다시 올린다.
+     * (원장이 DB 보다 뒤로 돌아갔으면 drain 이 rebase 하고 잔액 hash 를 내리므로 항상 다시 올라간다)
+     * @return DB 값으로 다시 올렸으면 true
+     */
+    public boolean reconcile(String accountNumber) {
+        drain(accountNumber);
+        Boolean loaded = transactionTemplate.execute(status -> {
+            Account account = accountRepository.findByAccountNumber(accountNumber)
+                    .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+            if (!account.isHot()) {
+                return false;
+            }
+            long seq = account.getHotLedgerSeq() == null ? 0L : account.getHotLedgerSeq();
+            if (!hotBalanceStore.load(accountNumber, account.getAccountUser().getId(),
+                    account.getBalance(), seq)) {
+                kept.increment();
+                return false;
+            }
+            reloaded.increment();
+            log.warn("Reloaded hot balance of accountNumber : {} from DB (balance {}, seq {})",
+                    accountNumber, account.getBalance(), seq);
+            return true;
+        });
+        return Boolean.TRUE.equals(loaded);
+    }
+
+    /**
+     * 실행 중에 Redis 의 잔액이 없어졌거나 원장이 DB 보다 뒤로 돌아갔을 때.
+     * 모드 전환(BalanceModeService) 과 겹치지 않도록 계좌 락을 잡고 reconcile 한다.
+     */
+    private void recover(String accountNumber) {
+        lockService.lock(accountNumber);
+        try {
+            if (reconcile(accountNumber)) {
+                log.warn("Recovered hot balance of accountNumber : {}", accountNumber);
+            }
+        } finally {
+            lockService.unlock(accountNumber);
+        }
+    }
+
+    private void reconcileQuietly(String accountNumber) {
+        try {
+            reconcile(accountNumber);
+        } catch (RuntimeException e) {
+            log.error("Failed to reconcile hot balance for accountNumber : {}", accountNumber, e);
+        }
+    }
+}
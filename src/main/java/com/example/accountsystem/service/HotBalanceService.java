@@ -0,0 +1,117 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.dto.TransactionDto;
+import com.example.accountsystem.dto.UseBalance;
+import com.example.accountsystem.dto.UseBalanceBatch;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.repository.AccountUserRepository;
+import com.example.accountsystem.type.TransactionType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.accountsystem.type.ErrorCode.*;
+import static com.example.accountsystem.type.TransactionResultType.S;
+import static com.example.accountsystem.type.TransactionType.CANCEL;
+import static com.example.accountsystem.type.TransactionType.USE;
+
+/**
+ * HOT 계좌의 잔액 사용/취소
+ * 계좌 락, DB 조회/갱신 없이 HotBalanceStore 의 Lua 스크립트 한 번으로 잔액을 바꾸고 원장에 남긴다.
+ * 거래는 HotBalancePersister 가 나중에 DB 에 쓰므로, 그 전까지의 조회는 쓴 노드의 TransactionRecordCache 나
+ * (다른 노드, 캐시에서 밀려난 뒤에는) Redis 의 거래 ID 색인(HotBalanceStore.findTransaction) 이 응답한다.
+ * 이 노드가 HOT 으로 알고 있지만 Redis 에 잔액이 없으면 (모드 전환 중) ACCOUNT_TRANSACTION_LOCK 으로 재시도시킨다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HotBalanceService {
+    private final HotBalanceStore hotBalanceStore;
+    private final BalanceModeRegistry balanceModeRegistry;
+    private final AccountUserRepository accountUserRepository;
+    private final TransactionService transactionService;
+    private final TransactionIdGenerator transactionIdGenerator;
+    private final TransactionRecordCache transactionRecordCache;
+    private final AccountListCache accountListCache;
+    private final FailedTransactionWriter failedTransactionWriter;
+    private final BalanceJournal balanceJournal;
+
+    public boolean isHot(String accountNumber) {
+        return balanceModeRegistry.isHot(accountNumber);
+    }
+
+    public TransactionDto useBalance(Long userId, String accountNumber, Long amount) {
+        String transactionId = transactionIdGenerator.nextId();
+        LocalDateTime transactedAt = LocalDateTime.now();
+        HotBalanceStore.MutationResult result = hotBalanceStore.debit(
+                accountNumber, userId, amount, transactionId, USE, transactedAt);
+        switch (result.getStatus()) {
+            case NOT_LOADED:
+                throw new AccountException(ACCOUNT_TRANSACTION_LOCK);
+            case USER_UN_MATCH:
+                throw new AccountException(accountUserRepository.existsById(userId)
+                        ? USER_ACCOUNT_UN_MATCH : USER_NOT_FOUND);
+            case INSUFFICIENT_BALANCE:
+                throw new AccountException(AMOUNT_EXCEED_BALANCE);
+            default:
+                return applied(result, accountNumber, USE, amount, transactionId, transactedAt);
+        }
+    }
+
+    /**
+     * 항목마다 스크립트를 한 번씩 실행한다. 실패한 항목은 FailedTransactionWriter 로 남긴다.
+     */
+    public List<UseBalanceBatch.Item> useBalances(String accountNumber,
+                                                  List<UseBalance.Request> requests) {
+        List<UseBalanceBatch.Item> items = new ArrayList<>(requests.size());
+        for (UseBalance.Request request : requests) {
+            try {
+                items.add(UseBalanceBatch.Item.success(useBalance(
+                        request.getUserId(), accountNumber, request.getAmount())));
+            } catch (AccountException e) {
+                failedTransactionWriter.record(USE, accountNumber, request.getAmount());
+                items.add(UseBalanceBatch.Item.failure(e.getErrorCode()));
+            }
+        }
+        return items;
+    }
+
+    /**
+     * 원거래는 캐시, Redis 거래 색인, DB 순으로 찾는다. (TransactionService.queryTransaction)
+     */
+    public TransactionDto cancelBalance(String transactionId, String accountNumber, Long amount) {
+        TransactionDto original = transactionService.queryTransaction(transactionId);
+        TransactionService.validateCancelBalance(original, accountNumber, amount);
+
+        String cancelTransactionId = transactionIdGenerator.nextId();
+        LocalDateTime transactedAt = LocalDateTime.now();
+        HotBalanceStore.MutationResult result = hotBalanceStore.credit(
+                accountNumber, amount, cancelTransactionId, CANCEL, transactedAt);
+        if (result.getStatus() != HotBalanceStore.MutationStatus.OK) {
+            throw new AccountException(ACCOUNT_TRANSACTION_LOCK);
+        }
+        return applied(result, accountNumber, CANCEL, amount, cancelTransactionId, transactedAt);
+    }
+
+    private TransactionDto applied(HotBalanceStore.MutationResult result, String accountNumber,
+                                   TransactionType transactionType, Long amount,
+                                   String transactionId, LocalDateTime transactedAt) {
+        TransactionDto transactionDto = TransactionDto.builder()
+                .accountNumber(accountNumber)
+                .transactionType(transactionType)
+                .transactionResultType(S)
+                .amount(amount)
+                .balanceSnapshot(result.getBalance())
+                .transactionId(transactionId)
+                .transactedAt(transactedAt)
+                .build();
+        transactionRecordCache.putAfterCommit(transactionDto);
+        accountListCache.evictAfterCommit(result.getUserId());
+        balanceJournal.appendAfterCommit(transactionDto);
+        return transactionDto;
+    }
+}
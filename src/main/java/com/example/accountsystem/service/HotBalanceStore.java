@@ -0,0 +1,295 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.dto.TransactionDto;
+import com.example.accountsystem.type.TransactionType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static com.example.accountsystem.type.TransactionResultType.S;
+
+/**
+ * HOT 계좌의 Redis 잔액과 원장
+ * ACHOT:{계좌번호}        : hash (balance, seq, userId)
+ * ACHOT:{계좌번호}:ledger : 아직 DB 에 쓰지 않은 거래 "seq|transactionId|type|amount|balanceAfter|transactedAt"
+ * 잔액 확인, 증감, 원장 추가를 Lua 스크립트 하나로 처리하므로 계좌 락이 필요 없다.
+ * seq 는 계좌별로 1씩 증가하고, DB 에 반영된 마지막 seq 는 Account.hotLedgerSeq 에 남는다.
+ * 두 키는 같은 hash tag 를 써서 클러스터에서도 같은 슬롯에 놓인다.
+ * ACHOTTX:{거래 ID}       : DB 반영 전 거래의 ID 색인 "계좌번호|transactionId|type|amount|balanceAfter|transactedAt"
+ *                           거래 ID 만으로 (다른 노드에서도) 원거래를 찾기 위한 것으로, 계좌 키와 슬롯이 달라
+ *                           스크립트 밖에서 쓴다. 만료 시간 없이 두고 DB 반영이 커밋된 뒤에만 지우므로
+ *                           반영이 오래 멈춰도 원장에 남은 거래는 찾을 수 있다.
+ *                           (스크립트 성공 후 색인을 쓰기 전에 죽으면 그 거래는 DB 반영 전까지 ID 로 찾을 수 없다)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HotBalanceStore {
+    private static final String KEY_PREFIX = "ACHOT:{";
+    private static final String TRANSACTION_KEY_PREFIX = "ACHOTTX:";
+
+    /**
+     * ARGV : userId (빈 값이면 소유주 확인 안 함), 증감액, transactionId, type, transactedAt
+     * return : {status, balance, userId}
+     */
+    private static final String MUTATE_SCRIPT =
+            "local balance = redis.call('HGET', KEYS[1], 'balance') " +
+            "if not balance then return {1, 0, 0} end " +
+            "local owner = redis.call('HGET', KEYS[1], 'userId') " +
+            "if ARGV[1] ~= '' and ARGV[1] ~= owner then return {2, 0, tonumber(owner)} end " +
+            "local delta = tonumber(ARGV[2]) " +
+            "if tonumber(balance) + delta < 0 then return {3, tonumber(balance), tonumber(owner)} end " +
+            "local after = redis.call('HINCRBY', KEYS[1], 'balance', delta) " +
+            "local seq = redis.call('HINCRBY', KEYS[1], 'seq', 1) " +
+            "redis.call('RPUSH', KEYS[2], string.format('%d|%s|%s|%d|%d|%s', " +
+            "  seq, ARGV[3], ARGV[4], math.abs(delta), after, ARGV[5])) " +
+            "return {0, after, tonumber(owner)}";
+
+    /**
+     * ARGV : balance, seq, userId
+     * Redis 의 seq 가 DB 보다 작지 않으면 Redis 가 최신이므로 그대로 둔다. (return 0)
+     */
+    private static final String LOAD_SCRIPT =
+            "local seq = redis.call('HGET', KEYS[1], 'seq') " +
+            "if seq and tonumber(seq) >= tonumber(ARGV[2]) then return 0 end " +
+            "redis.call('DEL', KEYS[2]) " +
+            "redis.call('HMSET', KEYS[1], 'balance', ARGV[1], 'seq', ARGV[2], 'userId', ARGV[3]) " +
+            "return 1";
+
+    /**
+     * return : {balance, seq}, 없으면 {}
+     */
+    private static final String UNLOAD_SCRIPT =
+            "local values = redis.call('HMGET', KEYS[1], 'balance', 'seq') " +
+            "if not values[1] then return {} end " +
+            "redis.call('DEL', KEYS[1]) " +
+            "return {tonumber(values[1]), tonumber(values[2])}";
+
+    /**
+     * ARGV : seq. 원장 앞에서 seq 이하인 항목을 지운다. (여러 노드가 같은 항목을 반영해도 한 번만 지워짐)
+     */
+    private static final String TRIM_SCRIPT =
+            "local removed = 0 " +
+            "while true do " +
+            "  local head = redis.call('LINDEX', KEYS[1], 0) " +
+            "  if not head then break end " +
+            "  if tonumber(string.match(head, '^(%d+)|')) > tonumber(ARGV[1]) then break end " +
+            "  redis.call('LPOP', KEYS[1]) " +
+            "  removed = removed + 1 " +
+            "end " +
+            "return removed";
+
+    private final RedissonClient redissonClient;
+    private final Map<String, String> shas = new ConcurrentHashMap<>();
+
+    public MutationResult debit(String accountNumber, Long userId, long amount,
+                                String transactionId, TransactionType transactionType,
+                                LocalDateTime transactedAt) {
+        return mutate(accountNumber, String.valueOf(userId), -amount,
+                transactionId, transactionType, transactedAt);
+    }
+
+    public MutationResult credit(String accountNumber, long amount,
+                                 String transactionId, TransactionType transactionType,
+                                 LocalDateTime transactedAt) {
+        return mutate(accountNumber, "", amount, transactionId, transactionType, transactedAt);
+    }
+
+    /**
+     * @return Redis 에 이미 더 최신 상태가 있어 그대로 두었으면 false
+     */
+    public boolean load(String accountNumber, Long userId, long balance, long seq) {
+        Long loaded = eval(LOAD_SCRIPT, RScript.ReturnType.INTEGER, accountNumber,
+                String.valueOf(balance), String.valueOf(seq), String.valueOf(userId));
+        return loaded == 1L;
+    }
+
+    /**
+     * 잔액 hash 를 지워 이후의 증감을 막는다. 원장은 남겨 두므로 마저 반영해야 한다.
+     */
+    public Optional<State> unload(String accountNumber) {
+        List<Long> values = eval(UNLOAD_SCRIPT, RScript.ReturnType.MULTI, accountNumber);
+        if (values.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new State(values.get(0), values.get(1)));
+    }
+
+    public Optional<State> getState(String accountNumber) {
+        Map<String, String> values = redissonClient.<String, String>getMap(
+                        balanceKey(accountNumber), StringCodec.INSTANCE)
+                .getAll(Set.of("balance", "seq"));
+        if (!values.containsKey("balance")) {
+            return Optional.empty();
+        }
+        return Optional.of(new State(Long.parseLong(values.get("balance")),
+                Long.parseLong(values.get("seq"))));
+    }
+
+    public List<LedgerEntry> readLedger(String accountNumber, int count) {
+        return redissonClient.<String>getList(ledgerKey(accountNumber), StringCodec.INSTANCE)
+                .range(0, count - 1)
+                .stream()
+                .map(LedgerEntry::parse)
+                .collect(Collectors.toList());
+    }
+
+    public void trimLedger(String accountNumber, long seq) {
+        redissonClient.getScript(StringCodec.INSTANCE).eval(ledgerKey(accountNumber),
+                RScript.Mode.READ_WRITE, TRIM_SCRIPT, RScript.ReturnType.INTEGER,
+                Collections.singletonList(ledgerKey(accountNumber)), String.valueOf(seq));
+    }
+
+    /**
+     * DB 에 반영되기 전의 거래를 ID 로 찾는다. Redis 에 접근할 수 없으면 없는 것으로 본다. (DB 를 보게 된다)
+     */
+    public Optional<TransactionDto> findTransaction(String transactionId) {
+        String value;
+        try {
+            value = redissonClient.<String>getBucket(transactionKey(transactionId),
+                    StringCodec.INSTANCE).get();
+        } catch (RedisException e) {
+            log.warn("Failed to look up hot transaction : {}", transactionId, e);
+            return Optional.empty();
+        }
+        if (value == null) {
+            return Optional.empty();
+        }
+        String[] fields = value.split("\\|");
+        return Optional.of(TransactionDto.builder()
+                .accountNumber(fields[0])
+                .transactionId(fields[1])
+                .transactionType(TransactionType.valueOf(fields[2]))
+                .transactionResultType(S)
+                .amount(Long.parseLong(fields[3]))
+                .balanceSnapshot(Long.parseLong(fields[4]))
+                .transactedAt(LocalDateTime.parse(fields[5]))
+                .build());
+    }
+
+    /**
+     * DB 에 반영한 거래의 ID 색인을 지운다.
+     */
+    public void removeTransactions(Collection<String> transactionIds) {
+        if (transactionIds.isEmpty()) {
+            return;
+        }
+        redissonClient.getKeys().delete(transactionIds.stream()
+                .map(HotBalanceStore::transactionKey)
+                .toArray(String[]::new));
+    }
+
+    private MutationResult mutate(String accountNumber, String userId, long delta,
+                                  String transactionId, TransactionType transactionType,
+                                  LocalDateTime transactedAt) {
+        List<Long> values = eval(MUTATE_SCRIPT, RScript.ReturnType.MULTI, accountNumber,
+                userId, String.valueOf(delta), transactionId, transactionType.name(),
+                transactedAt.toString());
+        MutationResult result = new MutationResult(
+                MutationStatus.values()[values.get(0).intValue()], values.get(1), values.get(2));
+        if (result.getStatus() == MutationStatus.OK) {
+            index(accountNumber, transactionId, transactionType, Math.abs(delta),
+                    result.getBalance(), transactedAt);
+        }
+        return result;
+    }
+
+    private void index(String accountNumber, String transactionId,
+                       TransactionType transactionType, long amount, long balanceAfter,
+                       LocalDateTime transactedAt) {
+        String value = String.join("|", accountNumber, transactionId, transactionType.name(),
+                String.valueOf(amount), String.valueOf(balanceAfter), transactedAt.toString());
+        try {
+            redissonClient.<String>getBucket(transactionKey(transactionId), StringCodec.INSTANCE)
+                    .set(value);
+        } catch (RedisException e) {
+            // 잔액은 이미 바뀌었으므로 실패로 돌리지 않는다. DB 반영 전까지 ID 조회만 안 된다.
+            log.warn("Failed to index hot transaction : {}", transactionId, e);
+        }
+    }
+
+    /**
+     * 스크립트는 SHA 로 호출하고, Redis 가 재시작되어 캐시가 비었으면 다시 올린다.
+     */
+    private <R> R eval(String script, RScript.ReturnType returnType, String accountNumber,
+                       Object... args) {
+        RScript rScript = redissonClient.getScript(StringCodec.INSTANCE);
+        List<Object> keys = List.of(balanceKey(accountNumber), ledgerKey(accountNumber));
+        String sha = shas.computeIfAbsent(script, rScript::scriptLoad);
+        try {
+            return rScript.evalSha(balanceKey(accountNumber), RScript.Mode.READ_WRITE,
+                    sha, returnType, keys, args);
+        } catch (RedisException e) {
+            if (e.getMessage() == null || !e.getMessage().contains("NOSCRIPT")) {
+                throw e;
+            }
+            log.warn("Reloading hot balance script after NOSCRIPT");
+            shas.put(script, rScript.scriptLoad(script));
+            return rScript.evalSha(balanceKey(accountNumber), RScript.Mode.READ_WRITE,
+                    shas.get(script), returnType, keys, args);
+        }
+    }
+
+    private static String balanceKey(String accountNumber) {
+        return KEY_PREFIX + accountNumber + "}";
+    }
+
+    private static String transactionKey(String transactionId) {
+        return TRANSACTION_KEY_PREFIX + transactionId;
+    }
+
+    private static String ledgerKey(String accountNumber) {
+        return KEY_PREFIX + accountNumber + "}:ledger";
+    }
+
+    public enum MutationStatus {
+        OK,
+        NOT_LOADED,
+        USER_UN_MATCH,
+        INSUFFICIENT_BALANCE
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class MutationResult {
+        private final MutationStatus status;
+        private final long balance;
+        private final long userId;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class State {
+        private final long balance;
+        private final long seq;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class LedgerEntry {
+        private final long seq;
+        private final String transactionId;
+        private final TransactionType transactionType;
+        private final long amount;
+        private final long balanceAfter;
+        private final LocalDateTime transactedAt;
+
+        static LedgerEntry parse(String value) {
+            String[] fields = value.split("\\|");
+            return new LedgerEntry(Long.parseLong(fields[0]), fields[1],
+                    TransactionType.valueOf(fields[2]), Long.parseLong(fields[3]),
+                    Long.parseLong(fields[4]), LocalDateTime.parse(fields[5]));
+        }
+    }
+}
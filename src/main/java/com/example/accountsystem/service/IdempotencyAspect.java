@@ -0,0 +1,114 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.aop.Idempotent;
+import com.example.accountsystem.exception.AccountException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+import static com.example.accountsystem.type.ErrorCode.INTERVAL_SERVER_ERROR;
+import static com.example.accountsystem.type.ErrorCode.INVALID_REQUEST;
+
+/**
+ * Idempotency-Key 헤더가 있는 @Idempotent 요청을 IdempotencyStore 로 한 번만 실행한다.
+ * 계좌 락(LockAopAspect) 바깥에서 실행되므로, 저장된 응답을 돌려줄 때는 락도 DB 도 거치지 않는다.
+ * 헤더가 없으면 그대로 실행한다.
+ * 응답은 JSON 으로 저장하고, 돌려줄 때 메서드의 CompletableFuture<T> 의 T 로 읽는다.
+ */
+@Slf4j
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class IdempotencyAspect {
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+
+    @Around("@annotation(idempotent) && args(request)")
+    public Object aroundMethod(
+            ProceedingJoinPoint pjp,
+            Idempotent idempotent,
+            Object request
+    ) throws Throwable {
+        String key = currentKey();
+        if (key == null || !idempotencyStore.isEnabled()) {
+            return pjp.proceed();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new AccountException(INVALID_REQUEST);
+        }
+
+        JavaType responseType = responseTypeOf(pjp);
+        return idempotencyStore.execute(idempotent.value() + ":" + key, fingerprint(request),
+                        () -> proceedAsync(pjp).thenApply(this::write))
+                .thenApply(response -> read(response, responseType));
+    }
+
+    private static String currentKey() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            return null;
+        }
+        return ((ServletRequestAttributes) attributes).getRequest().getHeader(Idempotent.HEADER);
+    }
+
+    private String fingerprint(Object request) {
+        return DigestUtils.md5DigestAsHex(write(request).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private Object read(String value, JavaType type) {
+        try {
+            return objectMapper.readValue(value, type);
+        } catch (JsonProcessingException e) {
+            log.error("Failed to read stored idempotent response as {}", type, e);
+            throw new AccountException(INTERVAL_SERVER_ERROR);
+        }
+    }
+
+    private JavaType responseTypeOf(ProceedingJoinPoint pjp) {
+        JavaType returnType = objectMapper.getTypeFactory().constructType(
+                ((MethodSignature) pjp.getSignature()).getMethod().getGenericReturnType());
+        if (!returnType.isTypeOrSubTypeOf(CompletionStage.class)) {
+            throw new IllegalStateException("@Idempotent requires a CompletionStage return type : "
+                    + pjp.getSignature().toShortString());
+        }
+        return returnType.containedTypeOrUnknown(0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CompletableFuture<Object> proceedAsync(ProceedingJoinPoint pjp) {
+        try {
+            return ((CompletionStage<Object>) pjp.proceed()).toCompletableFuture();
+        } catch (Throwable e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
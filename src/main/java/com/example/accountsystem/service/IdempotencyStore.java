@@ -0,0 +1,222 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.type.ErrorCode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.example.accountsystem.type.ErrorCode.*;
+
+/**
+ * Idempotency-Key 별 처음 응답 저장소 (2단계)
+ * 1. 노드 메모리 (Caffeine, 크기 제한 + ttl) : 같은 노드의 재시도와 동시 중복 요청은 처음 실행의 future 를 같이 기다린다.
+ * 2. Redis (ACIDEM:{키}) : 다른 노드로 간 재시도.
+ *    "P|지문"      : 처리 중 (inFlightTimeout 뒤 만료, 다른 노드의 같은 키 요청은 waitTimeout 까지 기다린다)
+ *    "D|지문|응답" : 완료된 응답 (ttl 뒤 만료)
+ *    "F|지문|오류코드" : 결과를 알 수 없는 실패 (ttl 뒤 만료)
+ * 지문(fingerprint)은 요청 본문으로 만들고, 같은 키에 다른 요청이 오면 IDEMPOTENCY_KEY_REUSED 로 거절한다.
+ * 실패는 잔액을 바꾸기 전에 거절된 것(검증 오류, 락/큐 거절 : RELEASABLE) 만 키를 지워 재시도가 다시 실행되게 한다.
+ * 그 밖의 실패(커밋 뒤 저널 실패 INTERVAL_SERVER_ERROR, 알 수 없는 예외) 는 이미 반영되었을 수 있으므로
+ * 실패를 남겨 재시도에도 같은 오류를 돌려준다. (기다리던 요청은 어느 쪽이든 같은 실패를 받는다)
+ * ACCOUNT_TRANSACTION_LOCK 은 락, 파티션, 큐에서 변경을 시작하기 전에만 나온다.
+ * (BalanceMutationExecutor 는 시작한 변경을 시간 초과로 돌려주지 않는다)
+ * Redis 에 접근할 수 없으면 노드 메모리만으로 처리한다.
+ * idempotency.replayed : 저장된 응답을 돌려준 수 (level=local|redis)
+ */
+@Slf4j
+@Component
+public class IdempotencyStore {
+    private static final String KEY_PREFIX = "ACIDEM:";
+    private static final String PENDING = "P";
+    private static final String DONE = "D";
+    private static final String FAILED = "F";
+    private static final String SEPARATOR = "|";
+    /**
+     * 잔액을 바꾸기 전에만 나오는 오류. 이 오류로 끝난 키만 지운다.
+     */
+    private static final Set<ErrorCode> RELEASABLE = EnumSet.of(
+            INVALID_REQUEST, USER_NOT_FOUND, ACCOUNT_NOT_FOUND, ACCOUNT_TRANSACTION_LOCK,
+            TRANSACTION_NOT_FOUND, TRANSACTION_ACCOUNT_UN_MATCH, USER_ACCOUNT_UN_MATCH,
+            AMOUNT_EXCEED_BALANCE, CANCEL_MUST_FULLY, TRANSFER_CANCEL_NOT_ALLOWED,
+            TOO_OLD_ORDER_TO_CANCEL, ACCOUNT_ALREADY_UNREGISTERED, BALANCE_MODE_NOT_SUPPORTED,
+            IDEMPOTENCY_KEY_IN_PROGRESS, IDEMPOTENCY_KEY_REUSED);
+
+    private final RedissonClient redissonClient;
+    private final TransactionProperties.Idempotency properties;
+    private final Cache<String, Entry> local;
+    private final Counter localReplays;
+    private final Counter redisReplays;
+
+    public IdempotencyStore(RedissonClient redissonClient,
+                            TransactionProperties transactionProperties,
+                            MeterRegistry meterRegistry) {
+        this.redissonClient = redissonClient;
+        this.properties = transactionProperties.getIdempotency();
+        this.local = Caffeine.newBuilder()
+                .maximumSize(properties.getLocalMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .build();
+        this.localReplays = replayCounter(meterRegistry, "local");
+        this.redisReplays = replayCounter(meterRegistry, "redis");
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 키로 저장된 응답이 있으면 그것을, 처리 중이면 그 결과를, 처음이면 execution 의 결과를 돌려준다.
+     * @param execution 처음 요청일 때만 호출된다. 응답을 문자열(JSON)로 돌려준다.
+     */
+    public CompletableFuture<String> execute(String key, String fingerprint,
+                                             Supplier<CompletableFuture<String>> execution) {
+        Entry entry = new Entry(fingerprint);
+        Entry existing = local.asMap().putIfAbsent(key, entry);
+        if (existing != null) {
+            if (!existing.fingerprint.equals(fingerprint)) {
+                return CompletableFuture.failedFuture(new AccountException(IDEMPOTENCY_KEY_REUSED));
+            }
+            localReplays.increment();
+            return existing.result.thenApply(response -> response);
+        }
+
+        RBucket<String> bucket = redissonClient.getBucket(KEY_PREFIX + key, StringCodec.INSTANCE);
+        long deadline = System.nanoTime() + properties.getWaitTimeout().toNanos();
+        acquire(bucket, fingerprint, deadline)
+                .thenCompose(stored -> stored != null
+                        ? CompletableFuture.completedFuture(stored)
+                        : executeAndStore(bucket, fingerprint, execution))
+                .whenComplete((response, e) -> {
+                    if (e == null) {
+                        entry.result.complete(response);
+                        return;
+                    }
+                    if (isReleasable(e)) {
+                        local.asMap().remove(key, entry);
+                    }
+                    entry.result.completeExceptionally(e);
+                });
+        return entry.result.thenApply(response -> response);
+    }
+
+    /**
+     * Redis 에 처리 중 표시를 남긴다.
+     * @return 표시를 남겼으면 null, 다른 노드가 이미 끝낸 요청이면 저장된 응답
+     */
+    private CompletableFuture<String> acquire(RBucket<String> bucket, String fingerprint,
+                                              long deadline) {
+        String value;
+        try {
+            if (bucket.trySet(PENDING + SEPARATOR + fingerprint,
+                    properties.getInFlightTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                return CompletableFuture.completedFuture(null);
+            }
+            value = bucket.get();
+        } catch (RedisException e) {
+            log.warn("Idempotency store is unavailable, continuing with local store only", e);
+            return CompletableFuture.completedFuture(null);
+        }
+        if (value == null) {
+            // 그 사이에 만료되었거나 실패로 지워졌다.
+            return acquire(bucket, fingerprint, deadline);
+        }
+
+        String[] parts = value.split("\\|", 3);
+        if (!parts[1].equals(fingerprint)) {
+            return CompletableFuture.failedFuture(new AccountException(IDEMPOTENCY_KEY_REUSED));
+        }
+        if (DONE.equals(parts[0])) {
+            redisReplays.increment();
+            return CompletableFuture.completedFuture(parts[2]);
+        }
+        if (FAILED.equals(parts[0])) {
+            redisReplays.increment();
+            return CompletableFuture.failedFuture(new AccountException(ErrorCode.valueOf(parts[2])));
+        }
+        if (System.nanoTime() - deadline > 0) {
+            return CompletableFuture.failedFuture(new AccountException(IDEMPOTENCY_KEY_IN_PROGRESS));
+        }
+        return CompletableFuture.runAsync(() -> { },
+                        CompletableFuture.delayedExecutor(
+                                properties.getPollInterval().toMillis(), TimeUnit.MILLISECONDS))
+                .thenCompose(ignored -> acquire(bucket, fingerprint, deadline));
+    }
+
+    private CompletableFuture<String> executeAndStore(
+            RBucket<String> bucket, String fingerprint,
+            Supplier<CompletableFuture<String>> execution) {
+        CompletableFuture<String> result;
+        try {
+            result = execution.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return result.whenComplete((response, e) -> {
+            try {
+                if (e == null) {
+                    bucket.set(DONE + SEPARATOR + fingerprint + SEPARATOR + response,
+                            properties.getTtl().toMillis(), TimeUnit.MILLISECONDS);
+                } else if (isReleasable(e)) {
+                    bucket.delete();
+                } else {
+                    bucket.set(FAILED + SEPARATOR + fingerprint + SEPARATOR + errorCodeOf(e),
+                            properties.getTtl().toMillis(), TimeUnit.MILLISECONDS);
+                }
+            } catch (RedisException redisException) {
+                log.warn("Failed to store idempotent response for {}", bucket.getName(),
+                        redisException);
+            }
+        });
+    }
+
+    private static boolean isReleasable(Throwable e) {
+        Throwable cause = unwrap(e);
+        return cause instanceof AccountException
+                && RELEASABLE.contains(((AccountException) cause).getErrorCode());
+    }
+
+    private static ErrorCode errorCodeOf(Throwable e) {
+        Throwable cause = unwrap(e);
+        return cause instanceof AccountException
+                ? ((AccountException) cause).getErrorCode()
+                : INTERVAL_SERVER_ERROR;
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException)
+                && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    private static Counter replayCounter(MeterRegistry meterRegistry, String level) {
+        return Counter.builder("idempotency.replayed")
+                .tag("level", level)
+                .register(meterRegistry);
+    }
+
+    @RequiredArgsConstructor
+    private static class Entry {
+        private final String fingerprint;
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.domain.Account;
+import com.example.accountsystem.type.AccountStatus;
+import com.example.accountsystem.type.BalanceMode;
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static com.example.accountsystem.type.ErrorCode.*;
+
+/**
+ * LedgerSequencer 의 업무 단계. 업무 스레드 하나만 접근하므로 동기화하지 않는다.
+ * 계좌 잔액을 메모리에 들고 TransactionService 의 validateUseBalance / transferBalance 와
+ * 같은 순서로 검증한 뒤 바로 바꾼다. 원거래 검증(validateCancelBalance) 은 요청 스레드에서 끝낸다.
+ * 처음 보는 계좌만 loader 로 DB 에서 읽고, 이후에는 DB 를 보지 않는다.
+ * (REFRESH 명령은 refresher 로 계좌 상태만 다시 읽고 잔액은 그대로 둔다)
+ * 메모리 잔액은 STANDARD 계좌만 다룬다. (STRIPED/HOT 은 잔액이 다른 곳에 있다)
+ * 잔액을 바꿀 때마다 계좌의 원장 순번(ledgerSeq) 을 하나씩 올려 명령에 적는다.
+ */
+final class LedgerBook {
+    private final Function<String, Optional<AccountState>> loader;
+    private final Function<String, Optional<AccountState>> refresher;
+    private final Map<String, AccountState> accounts = new HashMap<>();
+
+    LedgerBook(Function<String, Optional<AccountState>> loader,
+               Function<String, Optional<AccountState>> refresher) {
+        this.loader = loader;
+        this.refresher = refresher;
+    }
+
+    void apply(LedgerEvent event) {
+        switch (event.command) {
+            case USE:
+                use(event);
+                break;
+            case CANCEL:
+                cancel(event);
+                break;
+            case TRANSFER:
+                transfer(event);
+                break;
+            case REFRESH:
+                refresh(event.accountNumber);
+                break;
+            default:
+                throw new IllegalStateException("Unknown ledger command : " + event.command);
+        }
+    }
+
+    private void use(LedgerEvent event) {
+        AccountState account = find(event.accountNumber);
+        if (account == null) {
+            event.errorCode = ACCOUNT_NOT_FOUND;
+            return;
+        }
+        if (!validateUse(event, account)) {
+            return;
+        }
+        account.balance -= event.amount;
+        event.account = account;
+        event.balanceAfter = account.balance;
+        event.ledgerSeq = ++account.ledgerSeq;
+    }
+
+    private void cancel(LedgerEvent event) {
+        AccountState account = find(event.accountNumber);
+        if (account == null) {
+            event.errorCode = ACCOUNT_NOT_FOUND;
+            return;
+        }
+        if (account.balanceMode != BalanceMode.STANDARD) {
+            event.errorCode = BALANCE_MODE_NOT_SUPPORTED;
+            return;
+        }
+        account.balance += event.amount;
+        event.account = account;
+        event.balanceAfter = account.balance;
+        event.ledgerSeq = ++account.ledgerSeq;
+    }
+
+    private void transfer(LedgerEvent event) {
+        AccountState from = find(event.accountNumber);
+        AccountState to = find(event.counterpartAccountNumber);
+        if (from == null || to == null) {
+            event.errorCode = ACCOUNT_NOT_FOUND;
+            return;
+        }
+        if (to.balanceMode != BalanceMode.STANDARD) {
+            event.errorCode = BALANCE_MODE_NOT_SUPPORTED;
+            return;
+        }
+        if (!validateUse(event, from)) {
+            return;
+        }
+        if (to.accountStatus != AccountStatus.IN_USE) {
+            event.errorCode = ACCOUNT_ALREADY_UNREGISTERED;
+            return;
+        }
+        from.balance -= event.amount;
+        to.balance += event.amount;
+        event.account = from;
+        event.balanceAfter = from.balance;
+        event.ledgerSeq = ++from.ledgerSeq;
+        event.counterpart = to;
+        event.counterpartBalanceAfter = to.balance;
+        event.counterpartLedgerSeq = ++to.ledgerSeq;
+    }
+
+    private static boolean validateUse(LedgerEvent event, AccountState account) {
+        if (!Objects.equals(event.userId, account.ownerId)) {
+            event.errorCode = USER_ACCOUNT_UN_MATCH;
+            event.userUnMatch = true;
+        } else if (account.accountStatus != AccountStatus.IN_USE) {
+            event.errorCode = ACCOUNT_ALREADY_UNREGISTERED;
+        } else if (account.balanceMode != BalanceMode.STANDARD) {
+            event.errorCode = BALANCE_MODE_NOT_SUPPORTED;
+        } else if (account.balance < event.amount) {
+            event.errorCode = AMOUNT_EXCEED_BALANCE;
+        }
+        return event.errorCode == null;
+    }
+
+    private void refresh(String accountNumber) {
+        AccountState current = accounts.get(accountNumber);
+        if (current == null) {
+            return;
+        }
+        refresher.apply(accountNumber).ifPresentOrElse(
+                fresh -> accounts.put(accountNumber,
+                        fresh.withLedger(current.balance, current.ledgerSeq)),
+                () -> accounts.remove(accountNumber));
+    }
+
+    private AccountState find(String accountNumber) {
+        AccountState account = accounts.get(accountNumber);
+        if (account == null) {
+            account = loader.apply(accountNumber).orElse(null);
+            if (account != null) {
+                accounts.put(accountNumber, account);
+            }
+        }
+        return account;
+    }
+
+    /**
+     * 기동 시 재생한 계좌를 미리 올린다. (LedgerReplayer)
+     */
+    void preload(Map<String, AccountState> states) {
+        accounts.putAll(states);
+    }
+
+    int size() {
+        return accounts.size();
+    }
+
+    /**
+     * 메모리에 올린 계좌. 잔액과 원장 순번만 바뀌고 나머지는 적재 시점의 값이다.
+     * replayedEvents : 적재할 때 재생한 스냅샷 이후 거래 수 (LedgerPersister 가 다음 스냅샷 시점을 정함)
+     */
+    @Getter
+    static final class AccountState {
+        private final Long id;
+        private final Long ownerId;
+        private final String accountNumber;
+        private final AccountStatus accountStatus;
+        private final BalanceMode balanceMode;
+        private final int replayedEvents;
+        private long balance;
+        private long ledgerSeq;
+
+        AccountState(Long id, Long ownerId, String accountNumber,
+                     AccountStatus accountStatus, BalanceMode balanceMode, long balance) {
+            this(id, ownerId, accountNumber, accountStatus, balanceMode, balance, 0L, 0);
+        }
+
+        AccountState(Long id, Long ownerId, String accountNumber,
+                     AccountStatus accountStatus, BalanceMode balanceMode, long balance,
+                     long ledgerSeq, int replayedEvents) {
+            this.id = id;
+            this.ownerId = ownerId;
+            this.accountNumber = accountNumber;
+            this.accountStatus = accountStatus;
+            this.balanceMode = balanceMode;
+            this.balance = balance;
+            this.ledgerSeq = ledgerSeq;
+            this.replayedEvents = replayedEvents;
+        }
+
+        AccountState withLedger(long balance, long ledgerSeq) {
+            return new AccountState(id, ownerId, accountNumber, accountStatus, balanceMode,
+                    balance, ledgerSeq, replayedEvents);
+        }
+
+        /**
+         * account.getAccountUser() 는 지연 로딩 프록시라 getId() 로 사용자를 읽지 않는다.
+         * balance_mode 가 비어 있는 계좌는 STANDARD 로 본다.
+         */
+        static AccountState from(Account account) {
+            return from(account, account.getBalance(), 0L, 0);
+        }
+
+        static AccountState from(Account account, long balance, long ledgerSeq, int replayedEvents) {
+            return new AccountState(account.getId(), account.getAccountUser().getId(),
+                    account.getAccountNumber(), account.getAccountStatus(),
+                    account.getBalanceMode() == null ? BalanceMode.STANDARD : account.getBalanceMode(),
+                    balance, ledgerSeq, replayedEvents);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.dto.TransactionDto;
+import com.example.accountsystem.type.ErrorCode;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * LedgerRingBuffer 의 슬롯. 기동 시 한 번 만들어 두고 재사용한다.
+ * 요청 스레드가 명령을 채우고, 업무 스레드(LedgerBook)가 결과를 채우고,
+ * 반영 스레드(LedgerPersister)가 DB 에 쓴 뒤 future 를 완료한다.
+ * 단계 사이의 가시성은 각 단계의 시퀀스(volatile) 로 보장되므로 필드는 volatile 이 아니다.
+ */
+final class LedgerEvent {
+    enum Command {
+        USE,
+        CANCEL,
+        TRANSFER,
+        /**
+         * 계좌 상태(해지 여부 등) 를 DB 에서 다시 읽는다. 잔액은 메모리 값을 유지한다.
+         * (아직 반영되지 않은 변경이 있을 수 있으므로 DB 잔액으로 덮어쓰지 않는다)
+         */
+        REFRESH
+    }
+
+    // 요청 스레드가 채운다.
+    Command command;
+    Long userId;
+    String accountNumber;
+    String counterpartAccountNumber;
+    long amount;
+    String transactionId;
+    String counterpartTransactionId;
+    LocalDateTime transactedAt;
+    CompletableFuture<TransactionDto> future;
+
+    // 업무 스레드가 채운다.
+    ErrorCode errorCode;
+    /**
+     * 소유주 불일치. 사용자 존재 여부 확인(DB) 은 반영 스레드에서 한다.
+     */
+    boolean userUnMatch;
+    LedgerBook.AccountState account;
+    LedgerBook.AccountState counterpart;
+    long balanceAfter;
+    long counterpartBalanceAfter;
+    long ledgerSeq;
+    long counterpartLedgerSeq;
+
+    boolean isApplied() {
+        return command != Command.REFRESH && errorCode == null;
+    }
+
+    void clear() {
+        command = null;
+        userId = null;
+        accountNumber = null;
+        counterpartAccountNumber = null;
+        amount = 0L;
+        transactionId = null;
+        counterpartTransactionId = null;
+        transactedAt = null;
+        future = null;
+        errorCode = null;
+        userUnMatch = false;
+        account = null;
+        counterpart = null;
+        balanceAfter = 0L;
+        counterpartBalanceAfter = 0L;
+        ledgerSeq = 0L;
+        counterpartLedgerSeq = 0L;
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.domain.BalanceSnapshot;
+import com.example.accountsystem.domain.Transaction;
+import com.example.accountsystem.dto.TransactionDto;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.repository.AccountRepository;
+import com.example.accountsystem.repository.AccountUserRepository;
+import com.example.accountsystem.repository.BalanceSnapshotRepository;
+import com.example.accountsystem.repository.TransactionRepository;
+import com.example.accountsystem.type.TransactionType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static com.example.accountsystem.type.ErrorCode.INTERVAL_SERVER_ERROR;
+import static com.example.accountsystem.type.ErrorCode.USER_NOT_FOUND;
+import static com.example.accountsystem.type.TransactionResultType.S;
+import static com.example.accountsystem.type.TransactionType.*;
+
+/**
+ * LedgerSequencer 의 DB 반영 단계. 반영 스레드 하나만 호출한다.
+ * 1. persist : 업무 단계에서 성공한 명령을 한 DB 트랜잭션에서 거래로 saveAll 하고,
+ *    계좌마다 배치 안의 마지막 잔액으로 한 번씩 덮어쓴다. (엔티티를 읽지 않음)
+ * 2. complete : 커밋된 뒤 저널(BalanceJournal) 에 기록하고, force 되면 요청의 future 를 완료한다.
+ *    (반영 스레드는 force 를 기다리지 않는다) 실패한 명령은 AccountException 으로 끝난다.
+ * 커밋 응답을 받지 못하고 다시 쓰는 경우 (retried) 배치의 첫 거래가 이미 있으면 반영된 것으로 본다.
+ * 이벤트 소싱을 켜면 거래에 원장 순번을 적고, 스냅샷 이후 snapshotInterval 건이 쌓인 계좌는
+ * 배치의 마지막 잔액과 순번으로 스냅샷을 같은 트랜잭션에서 덮어쓴다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LedgerPersister {
+    private final AccountRepository accountRepository;
+    private final AccountUserRepository accountUserRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionRecordCache transactionRecordCache;
+    private final AccountListCache accountListCache;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final TransactionProperties transactionProperties;
+    private final BalanceJournal balanceJournal;
+    /**
+     * 계좌별 마지막 스냅샷 이후 저장한 (커밋된) 거래 수
+     */
+    private final Map<Long, Integer> eventsSinceSnapshot = new HashMap<>();
+    /**
+     * 쓰는 중인 배치까지 센 값. 커밋된 뒤에만 eventsSinceSnapshot 에 옮긴다.
+     * (롤백된 배치를 다시 쓸 때 두 번 세거나, 저장되지 않은 스냅샷으로 0 이 되지 않도록)
+     */
+    private final Map<Long, Integer> pendingEventsSinceSnapshot = new HashMap<>();
+
+    /**
+     * @return 저장한 거래 수
+     */
+    int persist(List<LedgerEvent> events, boolean retried) {
+        pendingEventsSinceSnapshot.clear();
+        Integer persisted = transactionTemplate.execute(status -> write(events, retried));
+        eventsSinceSnapshot.putAll(pendingEventsSinceSnapshot);
+        return persisted == null ? 0 : persisted;
+    }
+
+    private int write(List<LedgerEvent> events, boolean retried) {
+        boolean eventSourced = transactionProperties.getEventSourcing().isEnabled();
+        List<Transaction> transactions = new ArrayList<>(events.size());
+        Map<Long, Long> balances = new LinkedHashMap<>();
+        Map<Long, Long> ledgerSeqs = new HashMap<>();
+        for (LedgerEvent event : events) {
+            if (!event.isApplied()) {
+                continue;
+            }
+            boolean transfer = event.command == LedgerEvent.Command.TRANSFER;
+            transactions.add(newTransaction(typeOf(event), event.account, event.amount,
+                    event.balanceAfter, event.transactionId, event.transactedAt,
+                    eventSourced ? event.ledgerSeq : null));
+            balances.put(event.account.getId(), event.balanceAfter);
+            ledgerSeqs.put(event.account.getId(), event.ledgerSeq);
+            countEvent(event.account);
+            if (transfer) {
+                transactions.add(newTransaction(TRANSFER_IN, event.counterpart, event.amount,
+                        event.counterpartBalanceAfter, event.counterpartTransactionId,
+                        event.transactedAt, eventSourced ? event.counterpartLedgerSeq : null));
+                balances.put(event.counterpart.getId(), event.counterpartBalanceAfter);
+                ledgerSeqs.put(event.counterpart.getId(), event.counterpartLedgerSeq);
+                countEvent(event.counterpart);
+            }
+        }
+        if (transactions.isEmpty()) {
+            return 0;
+        }
+        if (retried && transactionRepository.existsByTransactionId(
+                transactions.get(0).getTransactionId())) {
+            log.warn("Ledger batch starting with transactionId : {} was already persisted",
+                    transactions.get(0).getTransactionId());
+            return 0;
+        }
+
+        transactionRepository.saveAll(transactions);
+        balances.forEach(accountRepository::updateBalance);
+        if (eventSourced) {
+            balances.forEach((accountId, balance) ->
+                    takeSnapshotIfDue(accountId, balance, ledgerSeqs.get(accountId)));
+        }
+        return transactions.size();
+    }
+
+    private void countEvent(LedgerBook.AccountState account) {
+        pendingEventsSinceSnapshot.compute(account.getId(), (accountId, count) ->
+                (count == null ? eventsSinceSnapshot.getOrDefault(accountId,
+                        account.getReplayedEvents()) : count) + 1);
+    }
+
+    private void takeSnapshotIfDue(Long accountId, Long balance, Long ledgerSeq) {
+        if (pendingEventsSinceSnapshot.getOrDefault(accountId, 0)
+                < transactionProperties.getEventSourcing().getSnapshotInterval()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (balanceSnapshotRepository.updateSnapshot(accountId, balance, ledgerSeq, now) == 0) {
+            balanceSnapshotRepository.save(BalanceSnapshot.builder()
+                    .account(accountRepository.getById(accountId))
+                    .balance(balance)
+                    .ledgerSeq(ledgerSeq)
+                    .takenAt(now)
+                    .build());
+        }
+        pendingEventsSinceSnapshot.put(accountId, 0);
+    }
+
+    /**
+     * 반영이 끝난(커밋된) 명령의 결과를 돌려준다.
+     */
+    void complete(LedgerEvent event) {
+        if (event.command == LedgerEvent.Command.REFRESH) {
+            event.future.complete(null);
+            return;
+        }
+        if (event.errorCode != null) {
+            event.future.completeExceptionally(new AccountException(
+                    event.userUnMatch && !accountUserRepository.existsById(event.userId)
+                            ? USER_NOT_FOUND : event.errorCode));
+            return;
+        }
+
+        TransactionDto transactionDto = toDto(typeOf(event), event.accountNumber, event.amount,
+                event.balanceAfter, event.transactionId, event.transactedAt);
+        List<TransactionDto> records = new ArrayList<>(2);
+        records.add(transactionDto);
+        transactionRecordCache.putAfterCommit(transactionDto);
+        accountListCache.evictAfterCommit(event.account.getOwnerId());
+        if (event.command == LedgerEvent.Command.TRANSFER) {
+            TransactionDto deposit = toDto(TRANSFER_IN,
+                    event.counterpartAccountNumber, event.amount, event.counterpartBalanceAfter,
+                    event.counterpartTransactionId, event.transactedAt);
+            records.add(deposit);
+            transactionRecordCache.putAfterCommit(deposit);
+            accountListCache.evictAfterCommit(event.counterpart.getOwnerId());
+        }
+        // 슬롯은 곧 재사용되므로 future 를 따로 잡아 둔다.
+        CompletableFuture<TransactionDto> future = event.future;
+        balanceJournal.append(records).whenComplete((ignored, e) -> {
+            if (e != null) {
+                log.error("Failed to journal ledger transactionId : {}",
+                        transactionDto.getTransactionId(), e);
+                future.completeExceptionally(new AccountException(INTERVAL_SERVER_ERROR));
+            } else {
+                future.complete(transactionDto);
+            }
+        });
+    }
+
+    private Transaction newTransaction(TransactionType transactionType,
+                                       LedgerBook.AccountState account, long amount,
+                                       long balanceSnapshot, String transactionId,
+                                       LocalDateTime transactedAt, Long ledgerSeq) {
+        return Transaction.builder()
+                .transactionType(transactionType)
+                .transactionResultType(S)
+                .account(accountRepository.getById(account.getId()))
+                .amount(amount)
+                .balanceSnapshot(balanceSnapshot)
+                .transactionId(transactionId)
+                .transactedAt(transactedAt)
+                .ledgerSeq(ledgerSeq)
+                .build();
+    }
+
+    private static TransactionDto toDto(TransactionType transactionType, String accountNumber,
+                                        long amount, long balanceSnapshot,
+                                        String transactionId, LocalDateTime transactedAt) {
+        return TransactionDto.builder()
+                .accountNumber(accountNumber)
+                .transactionType(transactionType)
+                .transactionResultType(S)
+                .amount(amount)
+                .balanceSnapshot(balanceSnapshot)
+                .transactionId(transactionId)
+                .transactedAt(transactedAt)
+                .build();
+    }
+
+    private static TransactionType typeOf(LedgerEvent event) {
+        switch (event.command) {
+            case USE:
+                return USE;
+            case CANCEL:
+                return CANCEL;
+            case TRANSFER:
+                return TRANSFER_OUT;
+            default:
+                throw new IllegalStateException("No transaction for ledger command : " + event.command);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.domain.Account;
+import com.example.accountsystem.domain.BalanceSnapshot;
+import com.example.accountsystem.dto.LedgerEntry;
+import com.example.accountsystem.repository.AccountRepository;
+import com.example.accountsystem.repository.BalanceSnapshotRepository;
+import com.example.accountsystem.repository.TransactionRepository;
+import com.example.accountsystem.type.BalanceMode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 이벤트 소싱(SEQUENCED 모드) 계좌의 잔액 복원. 거래 원장이 잔액의 기준이고 Account.balance 는 따라오는 값이다.
+ * 1. 기동 시 계좌 id 를 replayChunkSize 개씩 나눠 replayThreads 개 스레드에서 청크마다 한 트랜잭션으로 재생한다.
+ * 2. 청크의 스냅샷을 한 번에 읽고, 스냅샷이 없는 계좌는 Account.balance 와 마지막 원장 순번으로 첫 스냅샷을 만든다.
+ * 3. 스냅샷 이후 거래만 순번대로 적용한다. 순번이 비거나 거래의 balanceSnapshot 과 다르면 기록만 남긴다.
+ * 4. 재생한 잔액이 Account.balance 와 다르면 원장 값으로 고치고, 재생한 거래가 snapshotInterval 건 이상이면
+ *    스냅샷을 새로 쓴다. 그래서 기동 시간은 전체 이력이 아니라 계좌 수와 계좌별 꼬리 길이에 비례한다.
+ * STRIPED/HOT 계좌는 잔액이 다른 곳에 있으므로 재생하지 않는다. (LedgerBook 이 명령을 거절한다)
+ * ledger.replay.accounts : 재생한 계좌 수, ledger.replay.events : 재생한 거래 수,
+ * ledger.replay.mismatches : Account.balance 가 원장과 달라 고친 계좌 수
+ */
+@Slf4j
+@Component
+public class LedgerReplayer {
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int snapshotInterval;
+    private final int replayThreads;
+    private final int replayChunkSize;
+    private final Counter replayedAccounts;
+    private final Counter replayedEvents;
+    private final Counter mismatches;
+
+    public LedgerReplayer(TransactionProperties transactionProperties,
+                          AccountRepository accountRepository,
+                          TransactionRepository transactionRepository,
+                          BalanceSnapshotRepository balanceSnapshotRepository,
+                          TransactionTemplate transactionTemplate,
+                          MeterRegistry meterRegistry) {
+        TransactionProperties.EventSourcing eventSourcing = transactionProperties.getEventSourcing();
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.balanceSnapshotRepository = balanceSnapshotRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.snapshotInterval = Math.max(1, eventSourcing.getSnapshotInterval());
+        this.replayThreads = Math.max(1, eventSourcing.getReplayThreads());
+        this.replayChunkSize = Math.max(1, eventSourcing.getReplayChunkSize());
+        this.replayedAccounts = meterRegistry.counter("ledger.replay.accounts");
+        this.replayedEvents = meterRegistry.counter("ledger.replay.events");
+        this.mismatches = meterRegistry.counter("ledger.replay.mismatches");
+    }
+
+    /**
+     * 모든 계좌를 재생한다. 하나라도 실패하면 IllegalStateException (잘못된 잔액으로 받지 않도록 기동을 멈춘다)
+     *
+     * @return 계좌번호별 메모리 잔액
+     */
+    Map<String, LedgerBook.AccountState> replayAll() {
+        long startedAt = System.nanoTime();
+        List<Long> accountIds = accountRepository.findAllIds();
+        Map<String, LedgerBook.AccountState> states = new ConcurrentHashMap<>();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(replayThreads, runnable -> {
+            Thread thread = new Thread(runnable, "ledger-replay-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int from = 0; from < accountIds.size(); from += replayChunkSize) {
+                List<Long> chunk = accountIds.subList(from,
+                        Math.min(accountIds.size(), from + replayChunkSize));
+                futures.add(executor.submit(() -> states.putAll(replayChunk(chunk))));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ledger replay was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to replay ledger", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        log.info("Replayed {} accounts in {} ms with {} threads", states.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt), replayThreads);
+        return states;
+    }
+
+    /**
+     * 기동 뒤에 처음 보는 계좌 (새로 만든 계좌 등) 를 재생한다. LedgerBook 의 loader.
+     */
+    Optional<LedgerBook.AccountState> replay(String accountNumber) {
+        return Optional.ofNullable(transactionTemplate.execute(status ->
+                accountRepository.findByAccountNumber(accountNumber)
+                        .map(account -> replay(List.of(account)).get(accountNumber))
+                        .orElse(null)));
+    }
+
+    private Map<String, LedgerBook.AccountState> replayChunk(List<Long> accountIds) {
+        return transactionTemplate.execute(status ->
+                replay(accountRepository.findAllById(accountIds)));
+    }
+
+    private Map<String, LedgerBook.AccountState> replay(List<Account> accounts) {
+        Map<String, LedgerBook.AccountState> states = new HashMap<>();
+        Map<Long, Account> standard = new LinkedHashMap<>();
+        for (Account account : accounts) {
+            if (account.getBalanceMode() == null || account.getBalanceMode() == BalanceMode.STANDARD) {
+                standard.put(account.getId(), account);
+            } else {
+                states.put(account.getAccountNumber(), LedgerBook.AccountState.from(account));
+            }
+        }
+        if (standard.isEmpty()) {
+            return states;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, BalanceSnapshot> snapshots = balanceSnapshotRepository
+                .findByAccountIds(standard.keySet()).stream()
+                .collect(Collectors.toMap(snapshot -> snapshot.getAccount().getId(),
+                        snapshot -> snapshot));
+        takeFirstSnapshots(standard, snapshots, now);
+        Map<Long, List<LedgerEntry>> tails = transactionRepository
+                .findLedgerTails(standard.keySet()).stream()
+                .collect(Collectors.groupingBy(LedgerEntry::getAccountId));
+
+        for (Account account : standard.values()) {
+            BalanceSnapshot snapshot = snapshots.get(account.getId());
+            List<LedgerEntry> tail = tails.getOrDefault(account.getId(), List.of());
+            long balance = snapshot.getBalance();
+            long ledgerSeq = snapshot.getLedgerSeq();
+            for (LedgerEntry entry : tail) {
+                if (entry.getLedgerSeq() != ledgerSeq + 1) {
+                    log.warn("Ledger of accountNumber : {} skips from {} to {}",
+                            account.getAccountNumber(), ledgerSeq, entry.getLedgerSeq());
+                }
+                balance = entry.applyTo(balance);
+                ledgerSeq = entry.getLedgerSeq();
+                if (!Objects.equals(entry.getBalanceSnapshot(), balance)) {
+                    log.warn("Ledger of accountNumber : {} replays to {} at {} but recorded {}",
+                            account.getAccountNumber(), balance, ledgerSeq,
+                            entry.getBalanceSnapshot());
+                }
+            }
+            if (!Objects.equals(account.getBalance(), balance)) {
+                mismatches.increment();
+                log.warn("Balance of accountNumber : {} was {} but ledger replays to {}, repaired",
+                        account.getAccountNumber(), account.getBalance(), balance);
+                accountRepository.updateBalance(account.getId(), balance);
+            }
+            int eventsSinceSnapshot = tail.size();
+            if (eventsSinceSnapshot >= snapshotInterval) {
+                balanceSnapshotRepository.updateSnapshot(account.getId(), balance, ledgerSeq, now);
+                eventsSinceSnapshot = 0;
+            }
+            replayedEvents.increment(tail.size());
+            states.put(account.getAccountNumber(), LedgerBook.AccountState.from(
+                    account, balance, ledgerSeq, eventsSinceSnapshot));
+        }
+        replayedAccounts.increment(standard.size());
+        return states;
+    }
+
+    /**
+     * 스냅샷이 없는 계좌는 지금의 Account.balance 를 마지막 원장 순번 시점의 잔액으로 보고 스냅샷을 만든다.
+     * (원장 순번이 있는 거래는 Account.balance 와 같은 트랜잭션에서 저장되므로 둘은 같은 시점이다)
+     */
+    private void takeFirstSnapshots(Map<Long, Account> accounts,
+                                    Map<Long, BalanceSnapshot> snapshots, LocalDateTime now) {
+        List<Long> missing = accounts.keySet().stream()
+                .filter(accountId -> !snapshots.containsKey(accountId))
+                .collect(Collectors.toList());
+        if (missing.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> maxLedgerSeqs = transactionRepository.findMaxLedgerSeqs(missing).stream()
+                .collect(Collectors.toMap(LedgerEntry::getAccountId, LedgerEntry::getLedgerSeq));
+        List<BalanceSnapshot> created = new ArrayList<>(missing.size());
+        for (Long accountId : missing) {
+            Account account = accounts.get(accountId);
+            created.add(BalanceSnapshot.builder()
+                    .account(account)
+                    .balance(account.getBalance())
+                    .ledgerSeq(maxLedgerSeqs.getOrDefault(accountId, 0L))
+                    .takenAt(now)
+                    .build());
+        }
+        balanceSnapshotRepository.saveAll(created)
+                .forEach(snapshot -> snapshots.put(snapshot.getAccount().getId(), snapshot));
+    }
+}
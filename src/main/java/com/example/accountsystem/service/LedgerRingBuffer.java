@@ -0,0 +1,94 @@
+package com.example.accountsystem.service;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 미리 만들어 둔 LedgerEvent 슬롯의 링 버퍼 (여러 요청 스레드 -> 단일 업무 스레드)
+ * 1. 요청 스레드는 claimed 를 CAS 로 올려 시퀀스를 받고, 슬롯을 채운 뒤 publish 한다.
+ * 2. 슬롯마다 마지막으로 publish 된 바퀴 수(sequence / size) 를 기록해, 먼저 받은 시퀀스가
+ *    아직 채워지는 중이면 뒤의 시퀀스가 publish 되어 있어도 읽지 않는다.
+ * 3. 마지막 단계가 release 한 시퀀스까지만 슬롯을 다시 내준다. 남은 슬롯이 없으면
+ *    tryClaim 은 기다리지 않고 -1 을 돌려준다.
+ * 락, 할당 없이 동작하며 소비하는 단계의 시퀀스는 LedgerSequencer 가 가진다.
+ */
+final class LedgerRingBuffer {
+    private final LedgerEvent[] events;
+    private final int mask;
+    private final int indexShift;
+    private final AtomicIntegerArray publishedRounds;
+    private final AtomicLong claimed = new AtomicLong(-1L);
+    private final AtomicLong released = new AtomicLong(-1L);
+
+    LedgerRingBuffer(int requestedSize) {
+        int size = Integer.highestOneBit(Math.max(2, requestedSize) - 1) << 1;
+        this.events = new LedgerEvent[size];
+        for (int i = 0; i < size; i++) {
+            events[i] = new LedgerEvent();
+        }
+        this.mask = size - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(size);
+        this.publishedRounds = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            publishedRounds.set(i, -1);
+        }
+    }
+
+    /**
+     * @return 받은 시퀀스, 버퍼가 가득 찼으면 -1
+     */
+    long tryClaim() {
+        while (true) {
+            long current = claimed.get();
+            long next = current + 1;
+            if (next - events.length > released.get()) {
+                return -1L;
+            }
+            if (claimed.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    LedgerEvent get(long sequence) {
+        return events[(int) sequence & mask];
+    }
+
+    void publish(long sequence) {
+        publishedRounds.set((int) sequence & mask, (int) (sequence >>> indexShift));
+    }
+
+    boolean isPublished(long sequence) {
+        return publishedRounds.get((int) sequence & mask) == (int) (sequence >>> indexShift);
+    }
+
+    /**
+     * @return from 부터 이어서 publish 된 마지막 시퀀스 (최대 limit 개), 없으면 from - 1
+     */
+    long highestPublished(long from, int limit) {
+        long sequence = from;
+        while (sequence - from < limit && isPublished(sequence)) {
+            sequence++;
+        }
+        return sequence - 1;
+    }
+
+    /**
+     * 마지막 단계가 sequence 까지 처리했으므로 그 슬롯들을 다시 쓸 수 있다.
+     */
+    void release(long sequence) {
+        released.set(sequence);
+    }
+
+    long getClaimed() {
+        return claimed.get();
+    }
+
+    long getReleased() {
+        return released.get();
+    }
+
+    int size() {
+        return events.length;
+    }
+}
@@ -0,0 +1,396 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.dto.TransactionDto;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.repository.AccountRepository;
+import com.example.accountsystem.type.ExecutionMode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static com.example.accountsystem.type.ErrorCode.*;
+
+/**
+ * SEQUENCED 모드의 잔액 변경 파이프라인 (요청 스레드 -> 링 버퍼 -> 업무 스레드 -> 반영 스레드)
+ * 1. 요청 스레드 : 거래 ID 를 만들고 (취소는 원거래 검증까지 끝내고) 링 버퍼 슬롯에 명령을 채운다.
+ *    슬롯이 없으면 기다리지 않고 ACCOUNT_TRANSACTION_LOCK 으로 실패한다.
+ * 2. 업무 스레드 : publish 된 명령을 순서대로 LedgerBook 에 적용한다. 모든 계좌의 잔액 변경이
+ *    이 스레드 하나에서 일어나므로 락이 필요 없고, 이체도 두 잔액을 그대로 옮기면 된다.
+ * 3. 반영 스레드 : 업무 스레드가 끝낸 명령을 batchSize 단위로 DB 에 쓰고 (LedgerPersister)
+ *    커밋된 뒤에 응답한다. 쓰기가 실패하면 같은 배치를 maxRetries 번까지 다시 써서 메모리 잔액과 DB 가
+ *    어긋나지 않게 한다. (그동안 링 버퍼가 차면 요청은 ACCOUNT_TRANSACTION_LOCK)
+ *    그래도 실패하면 메모리 잔액이 DB 보다 앞서 있으므로 다음 배치를 쓰지 않고 멈춘다. (halted)
+ *    남은 명령과 새 명령은 INTERVAL_SERVER_ERROR 로 끝내고, 재기동해 DB 에서 다시 읽을 때까지
+ *    health(ledgerSequencer) 는 DOWN 이다.
+ * 메모리 잔액은 이 노드만 바꾼다고 가정하므로 PARTITIONED 와 같이 계좌 단위 라우팅이 되는 배포에서
+ * 사용하고, 이 모드에서는 잔액 모드 전환(STRIPED/HOT) 을 받지 않는다.
+ * 이벤트 소싱을 켜면 기동 시 모든 계좌를 스냅샷 + 원장 꼬리로 재생해 (LedgerReplayer) 메모리 잔액을 만든 뒤
+ * 명령을 받기 시작한다.
+ * ledger.sequencer.applied : 업무 단계에서 성공한 명령 수, ledger.sequencer.persisted : 저장한 거래 수,
+ * ledger.sequencer.persist.failures : DB 반영 실패(재시도) 횟수, ledger.sequencer.backlog : 응답 전 명령 수,
+ * ledger.sequencer.persist.abandoned : 멈춘 뒤 반영하지 않고 실패로 끝낸 명령 수
+ */
+@Slf4j
+@Component
+public class LedgerSequencer {
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final boolean enabled;
+    private final boolean eventSourced;
+    private final AccountRepository accountRepository;
+    private final TransactionService transactionService;
+    private final TransactionIdGenerator transactionIdGenerator;
+    private final LedgerPersister ledgerPersister;
+    private final LedgerReplayer ledgerReplayer;
+    private final int batchSize;
+    private final long retryBackoffMillis;
+    private final int maxRetries;
+    private final long shutdownTimeoutMillis;
+    private final LedgerRingBuffer ringBuffer;
+    private final AtomicLong appliedSequence = new AtomicLong(-1L);
+    private final Counter applied;
+    private final Counter persisted;
+    private final Counter persistFailures;
+    private final Counter persistAbandoned;
+    private volatile boolean running;
+    private volatile boolean halted;
+    private Thread businessThread;
+    private Thread persistThread;
+
+    public LedgerSequencer(TransactionProperties transactionProperties,
+                           AccountRepository accountRepository,
+                           TransactionService transactionService,
+                           TransactionIdGenerator transactionIdGenerator,
+                           LedgerPersister ledgerPersister,
+                           LedgerReplayer ledgerReplayer,
+                           MeterRegistry meterRegistry) {
+        TransactionProperties.Sequencer sequencer = transactionProperties.getSequencer();
+        this.enabled = transactionProperties.getMode() == ExecutionMode.SEQUENCED;
+        this.eventSourced = enabled && transactionProperties.getEventSourcing().isEnabled();
+        this.accountRepository = accountRepository;
+        this.transactionService = transactionService;
+        this.transactionIdGenerator = transactionIdGenerator;
+        this.ledgerPersister = ledgerPersister;
+        this.ledgerReplayer = ledgerReplayer;
+        this.batchSize = Math.max(1, sequencer.getBatchSize());
+        this.retryBackoffMillis = sequencer.getRetryBackoff().toMillis();
+        this.maxRetries = Math.max(0, sequencer.getMaxRetries());
+        this.shutdownTimeoutMillis = sequencer.getShutdownTimeout().toMillis();
+        this.ringBuffer = enabled ? new LedgerRingBuffer(sequencer.getBufferSize()) : null;
+        this.applied = meterRegistry.counter("ledger.sequencer.applied");
+        this.persisted = meterRegistry.counter("ledger.sequencer.persisted");
+        this.persistFailures = meterRegistry.counter("ledger.sequencer.persist.failures");
+        this.persistAbandoned = meterRegistry.counter("ledger.sequencer.persist.abandoned");
+        if (enabled) {
+            meterRegistry.gauge("ledger.sequencer.backlog", ringBuffer,
+                    buffer -> buffer.getClaimed() - buffer.getReleased());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * DB 반영을 maxRetries 번 다시 해도 실패해 멈췄으면 true
+     */
+    public boolean isHalted() {
+        return halted;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        Function<String, Optional<LedgerBook.AccountState>> refresher = accountNumber ->
+                accountRepository.findByAccountNumber(accountNumber)
+                        .map(LedgerBook.AccountState::from);
+        LedgerBook ledgerBook;
+        if (eventSourced) {
+            ledgerBook = new LedgerBook(ledgerReplayer::replay, refresher);
+            ledgerBook.preload(ledgerReplayer.replayAll());
+        } else {
+            ledgerBook = new LedgerBook(refresher, refresher);
+        }
+        running = true;
+        businessThread = newThread("ledger-business", () -> runBusinessStage(ledgerBook));
+        persistThread = newThread("ledger-persister", this::runPersistStage);
+        businessThread.start();
+        persistThread.start();
+        log.info("Ledger sequencer started with {} slots", ringBuffer.size());
+    }
+
+    /**
+     * 새 명령을 받지 않고, 이미 받은 명령이 모두 반영될 때까지 기다린 뒤 멈춘다.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownTimeoutMillis);
+        while (ringBuffer.getReleased() < ringBuffer.getClaimed() && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        if (ringBuffer.getReleased() < ringBuffer.getClaimed()) {
+            log.warn("Ledger sequencer stopped with {} commands not persisted",
+                    ringBuffer.getClaimed() - ringBuffer.getReleased());
+        }
+        businessThread.interrupt();
+        persistThread.interrupt();
+    }
+
+    public CompletableFuture<TransactionDto> useBalance(Long userId, String accountNumber,
+                                                        Long amount) {
+        long value = amount;
+        String transactionId = transactionIdGenerator.nextId();
+        return publish(event -> {
+            event.command = LedgerEvent.Command.USE;
+            event.userId = userId;
+            event.accountNumber = accountNumber;
+            event.amount = value;
+            event.transactionId = transactionId;
+        });
+    }
+
+    /**
+     * 원거래는 요청 스레드에서 캐시/DB 로 찾아 검증한다. (업무 스레드가 DB 를 기다리지 않도록)
+     */
+    public CompletableFuture<TransactionDto> cancelBalance(String transactionId,
+                                                           String accountNumber, Long amount) {
+        try {
+            TransactionService.validateCancelBalance(
+                    transactionService.queryTransaction(transactionId), accountNumber, amount);
+        } catch (AccountException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        long value = amount;
+        String cancelTransactionId = transactionIdGenerator.nextId();
+        return publish(event -> {
+            event.command = LedgerEvent.Command.CANCEL;
+            event.accountNumber = accountNumber;
+            event.amount = value;
+            event.transactionId = cancelTransactionId;
+        });
+    }
+
+    /**
+     * @return 출금 거래
+     */
+    public CompletableFuture<TransactionDto> transferBalance(Long userId, String fromAccountNumber,
+                                                             String toAccountNumber, Long amount) {
+        if (Objects.equals(fromAccountNumber, toAccountNumber)) {
+            return CompletableFuture.failedFuture(new AccountException(INVALID_REQUEST));
+        }
+        long value = amount;
+        String withdrawalId = transactionIdGenerator.nextId();
+        String depositId = transactionIdGenerator.nextId();
+        return publish(event -> {
+            event.command = LedgerEvent.Command.TRANSFER;
+            event.userId = userId;
+            event.accountNumber = fromAccountNumber;
+            event.counterpartAccountNumber = toAccountNumber;
+            event.amount = value;
+            event.transactionId = withdrawalId;
+            event.counterpartTransactionId = depositId;
+        });
+    }
+
+    /**
+     * 커밋된 뒤 메모리에 올린 계좌의 상태를 DB 에서 다시 읽게 한다. (계좌 해지 등)
+     * 앞서 받은 명령 뒤에 순서대로 적용되며 잔액은 메모리 값을 유지한다.
+     */
+    public void refreshAfterCommit(String accountNumber) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh(accountNumber);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                refresh(accountNumber);
+            }
+        });
+    }
+
+    private void refresh(String accountNumber) {
+        publish(event -> {
+            event.command = LedgerEvent.Command.REFRESH;
+            event.accountNumber = accountNumber;
+        }).whenComplete((ignored, e) -> {
+            if (e != null) {
+                log.error("Failed to refresh ledger account of accountNumber : {}", accountNumber);
+            }
+        });
+    }
+
+    /**
+     * 슬롯을 받은 뒤에는 반드시 publish 해야 한다. (publish 되지 않은 슬롯에서 파이프라인이 멈춘다)
+     * 그래서 translator 는 필드 대입만 하고, 언박싱/ID 생성은 슬롯을 받기 전에 끝낸다.
+     */
+    private CompletableFuture<TransactionDto> publish(Consumer<LedgerEvent> translator) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new AccountException(ACCOUNT_TRANSACTION_LOCK));
+        }
+        if (halted) {
+            return CompletableFuture.failedFuture(new AccountException(INTERVAL_SERVER_ERROR));
+        }
+        long sequence = ringBuffer.tryClaim();
+        if (sequence < 0) {
+            log.error("Ledger ring buffer is full");
+            return CompletableFuture.failedFuture(new AccountException(ACCOUNT_TRANSACTION_LOCK));
+        }
+        CompletableFuture<TransactionDto> future = new CompletableFuture<>();
+        LedgerEvent event = ringBuffer.get(sequence);
+        try {
+            event.clear();
+            translator.accept(event);
+            event.transactedAt = LocalDateTime.now();
+            event.future = future;
+        } finally {
+            ringBuffer.publish(sequence);
+        }
+        return future;
+    }
+
+    private void runBusinessStage(LedgerBook ledgerBook) {
+        int idle = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            long next = appliedSequence.get() + 1;
+            long end = ringBuffer.highestPublished(next, batchSize);
+            if (end < next) {
+                idle = idle(idle);
+                continue;
+            }
+            idle = 0;
+            for (long sequence = next; sequence <= end; sequence++) {
+                LedgerEvent event = ringBuffer.get(sequence);
+                try {
+                    ledgerBook.apply(event);
+                } catch (RuntimeException e) {
+                    log.error("Failed to apply ledger command for accountNumber : {}",
+                            event.accountNumber, e);
+                    event.errorCode = INTERVAL_SERVER_ERROR;
+                }
+                if (event.isApplied()) {
+                    applied.increment();
+                }
+            }
+            appliedSequence.set(end);
+        }
+    }
+
+    private void runPersistStage() {
+        List<LedgerEvent> batch = new ArrayList<>(batchSize);
+        int idle = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            long next = ringBuffer.getReleased() + 1;
+            long end = Math.min(appliedSequence.get(), next + batchSize - 1);
+            if (end < next) {
+                idle = idle(idle);
+                continue;
+            }
+            idle = 0;
+            batch.clear();
+            for (long sequence = next; sequence <= end; sequence++) {
+                batch.add(ringBuffer.get(sequence));
+            }
+            if (halted || !persistWithRetry(batch)) {
+                batch.forEach(event -> event.future.completeExceptionally(
+                        new AccountException(INTERVAL_SERVER_ERROR)));
+                if (!halted) {
+                    return;
+                }
+                // 멈춘 뒤에도 남은 명령이 응답을 기다리지 않도록 실패로 끝내며 넘어간다.
+                persistAbandoned.increment(batch.size());
+                ringBuffer.release(end);
+                continue;
+            }
+            for (LedgerEvent event : batch) {
+                try {
+                    ledgerPersister.complete(event);
+                } catch (RuntimeException e) {
+                    log.error("Failed to complete ledger command for accountNumber : {}",
+                            event.accountNumber, e);
+                    event.future.completeExceptionally(new AccountException(INTERVAL_SERVER_ERROR));
+                }
+            }
+            ringBuffer.release(end);
+        }
+    }
+
+    /**
+     * @return 반영했으면 true, maxRetries 번 다시 써도 실패해 멈췄거나 (halted)
+     * 재시도 중에 멈추라는 요청(interrupt) 을 받으면 false
+     */
+    private boolean persistWithRetry(List<LedgerEvent> batch) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                persisted.increment(ledgerPersister.persist(batch, attempt > 0));
+                return true;
+            } catch (RuntimeException e) {
+                persistFailures.increment();
+                if (attempt >= maxRetries) {
+                    halted = true;
+                    log.error("Ledger sequencer halted after {} retries, failing {} ledger commands",
+                            maxRetries, batch.size(), e);
+                    return false;
+                }
+                log.error("Failed to persist {} ledger commands, retrying in {} ms",
+                        batch.size(), retryBackoffMillis, e);
+            }
+            try {
+                Thread.sleep(retryBackoffMillis);
+            } catch (InterruptedException e) {
+                log.error("Ledger sequencer stopped while persisting {} commands", batch.size());
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 잠깐은 돌면서 기다리고 (지연 최소화), 한가하면 양보/park 로 CPU 를 놓는다.
+     */
+    private static int idle(int idle) {
+        if (idle < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (idle < YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return Math.min(idle + 1, YIELD_TRIES);
+    }
+
+    private static Thread newThread(String name, Runnable runnable) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.accountsystem.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * health 의 ledgerSequencer. DB 반영을 포기하고 멈춘 (halted) SEQUENCED 파이프라인은 DOWN.
+ * 메모리 잔액이 DB 보다 앞서 있으므로 재기동해야 돌아온다.
+ */
+@Component
+@RequiredArgsConstructor
+public class LedgerSequencerHealthIndicator implements HealthIndicator {
+    private final LedgerSequencer ledgerSequencer;
+
+    @Override
+    public Health health() {
+        if (ledgerSequencer.isHalted()) {
+            return Health.down()
+                    .withDetail("reason", "ledger persist retries exhausted")
+                    .build();
+        }
+        return Health.up()
+                .withDetail("enabled", ledgerSequencer.isEnabled())
+                .build();
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.LockProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 같은 JVM 안의 요청끼리는 Redis 까지 가지 않고 여기서 먼저 줄을 서도록 하는
+ * 계좌번호 기준 스트라이프 락.
+ * 로컬 락을 잡은 요청만 Redisson 락을 시도한다.
+ * 여러 계좌를 잡을 때는 스트라이프 번호 순서로 잡아 교착을 피한다.
+ * 스트라이프는 스레드가 아니라 허가(permit) 로 소유하므로 비동기 락(tryLockAsync) 도 같은 줄에 서고,
+ * 잡은 스레드와 다른 스레드에서 풀 수 있다. (재진입은 되지 않는다)
+ */
+@Component
+public class LocalAccountLock {
+    private final boolean enabled;
+    private final Stripe[] stripes;
+
+    public LocalAccountLock(LockProperties lockProperties) {
+        LockProperties.Local local = lockProperties.getLocal();
+        this.enabled = local.isEnabled();
+        this.stripes = new Stripe[enabled ? Math.max(1, local.getStripes()) : 0];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public boolean tryLock(Collection<String> accountNumbers, long waitMillis)
+            throws InterruptedException {
+        if (!enabled) {
+            return true;
+        }
+
+        CompletableFuture<Boolean> acquired = tryLockAsync(accountNumbers, waitMillis);
+        try {
+            return acquired.get();
+        } catch (InterruptedException e) {
+            // 기다리던 스레드가 떠나도 나중에 받은 허가는 돌려준다.
+            acquired.thenAccept(isLock -> {
+                if (isLock) {
+                    unlock(accountNumbers);
+                }
+            });
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * 기다리는 동안 스레드를 점유하지 않는다.
+     * @return waitMillis 안에 모든 스트라이프를 잡으면 true, 못 잡으면 (잡은 것을 돌려주고) false
+     */
+    public CompletableFuture<Boolean> tryLockAsync(Collection<String> accountNumbers,
+                                                   long waitMillis) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(true);
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        return acquire(stripesOf(accountNumbers), 0, deadline);
+    }
+
+    public void unlock(Collection<String> accountNumbers) {
+        if (!enabled) {
+            return;
+        }
+        stripesOf(accountNumbers).forEach(Stripe::release);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 지금 줄을 서면 앞에 있을 요청 수. 잡고 있는 요청 1 + 기다리는 요청 수를 스트라이프마다 더한다.
+     * 스트라이프는 차례로 잡으므로 여러 계좌면 각 줄을 모두 기다려야 한다.
+     * 로컬 락을 쓰지 않으면 0.
+     */
+    public int queueDepth(Collection<String> accountNumbers) {
+        if (!enabled) {
+            return 0;
+        }
+        return stripesOf(accountNumbers).stream()
+                .mapToInt(Stripe::queueDepth)
+                .sum();
+    }
+
+    private CompletableFuture<Boolean> acquire(List<Stripe> lockOrder, int index, long deadline) {
+        if (index == lockOrder.size()) {
+            return CompletableFuture.completedFuture(true);
+        }
+        return lockOrder.get(index).acquire(deadline - System.nanoTime())
+                .thenCompose(isLock -> {
+                    if (!isLock) {
+                        lockOrder.subList(0, index).forEach(Stripe::release);
+                        return CompletableFuture.completedFuture(false);
+                    }
+                    return acquire(lockOrder, index + 1, deadline);
+                });
+    }
+
+    private List<Stripe> stripesOf(Collection<String> accountNumbers) {
+        return accountNumbers.stream()
+                .map(accountNumber -> Math.floorMod(accountNumber.hashCode(), stripes.length))
+                .distinct()
+                .sorted()
+                .map(index -> stripes[index])
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 허가 하나짜리 공정(FIFO) 락. 풀 때 기다리는 요청이 있으면 허가를 바로 넘긴다.
+     * 기다리다 시간이 지난 요청은 false 로 끝나며, 넘겨주기와 시간 초과가 겹치면 먼저 완료한 쪽이 이긴다.
+     */
+    private static class Stripe {
+        private final Deque<CompletableFuture<Boolean>> waiters = new ArrayDeque<>();
+        private boolean held;
+
+        CompletableFuture<Boolean> acquire(long timeoutNanos) {
+            CompletableFuture<Boolean> waiter;
+            synchronized (this) {
+                if (!held) {
+                    held = true;
+                    return CompletableFuture.completedFuture(true);
+                }
+                if (timeoutNanos <= 0) {
+                    return CompletableFuture.completedFuture(false);
+                }
+                waiter = new CompletableFuture<>();
+                waiters.addLast(waiter);
+            }
+            CompletableFuture.delayedExecutor(timeoutNanos, TimeUnit.NANOSECONDS).execute(() -> {
+                if (waiter.complete(false)) {
+                    synchronized (this) {
+                        waiters.remove(waiter);
+                    }
+                }
+            });
+            return waiter;
+        }
+
+        synchronized int queueDepth() {
+            return held ? waiters.size() + 1 : 0;
+        }
+
+        void release() {
+            while (true) {
+                CompletableFuture<Boolean> next;
+                synchronized (this) {
+                    next = waiters.pollFirst();
+                    if (next == null) {
+                        held = false;
+                        return;
+                    }
+                }
+                if (next.complete(true)) {
+                    return;
+                }
+            }
+        }
+    }
+}
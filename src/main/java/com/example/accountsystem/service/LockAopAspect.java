@@ -1,32 +1,128 @@
 package com.example.accountsystem.service;
 
+import com.example.accountsystem.aop.AccountLock;
 import com.example.accountsystem.aop.AccountLockIdInterface;
+import com.example.accountsystem.aop.LockPolicy;
+import com.example.accountsystem.exception.AccountException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
+
 @Aspect
 @Component
 @Slf4j
 @RequiredArgsConstructor
 public class LockAopAspect {
     private final LockService lockService;
+    private final LockPolicyResolver lockPolicyResolver;
+    private final BalanceMutationExecutor balanceMutationExecutor;
+    private final BalanceModeRegistry balanceModeRegistry;
+    private final LockMetrics lockMetrics;
 
 
-    @Around("@annotation(com.example.accountsystem.aop.AccountLock) && args(request)")
+    @Around("@annotation(accountLock) && args(request)")
     public Object aroundMethod(
             ProceedingJoinPoint pjp,
+            AccountLock accountLock,
             AccountLockIdInterface request
     ) throws Throwable {
-        lockService.lock(request.getAccountNumber());
+        List<String> accountNumbers = getLockTargets(request);
+        if (accountNumbers.isEmpty()) {
+            return pjp.proceed();
+        }
+
+        LockPolicy lockPolicy = lockPolicyResolver.resolve(accountLock, accountNumbers);
+        String endpoint = pjp.getSignature().toShortString();
+        if (isAsync(pjp)) {
+            return aroundAsync(pjp, accountNumbers, lockPolicy, endpoint);
+        }
+
+        long waitStartedAt = System.nanoTime();
+        try {
+            lockService.lock(accountNumbers, lockPolicy);
+        } catch (AccountException e) {
+            lockMetrics.recordFailure(endpoint, accountNumbers, System.nanoTime() - waitStartedAt);
+            throw e;
+        }
+        long lockedAt = System.nanoTime();
+        lockMetrics.recordAcquired(endpoint, accountNumbers, lockedAt - waitStartedAt);
         try {
             return pjp.proceed();
 
         } finally {
-            lockService.unlock(request.getAccountNumber());
+            recordHoldTime(lockPolicy, endpoint, accountNumbers, System.nanoTime() - lockedAt);
+            lockService.unlock(accountNumbers);
+        }
+    }
+
+    /**
+     * CompletableFuture 를 반환하는 메서드는 락을 비동기로 잡고,
+     * 반환된 future 가 끝날 때 락을 푼다.
+     * 메서드 본문은 락을 얻은 Redisson 스레드에서 호출되므로 바로 future 를 반환해야 한다.
+     */
+    private CompletableFuture<Object> aroundAsync(
+            ProceedingJoinPoint pjp,
+            List<String> accountNumbers,
+            LockPolicy lockPolicy,
+            String endpoint
+    ) {
+        long waitStartedAt = System.nanoTime();
+        return lockService.lockAsync(accountNumbers, lockPolicy)
+                .whenComplete((ownerId, e) -> {
+                    long waitNanos = System.nanoTime() - waitStartedAt;
+                    if (e == null) {
+                        lockMetrics.recordAcquired(endpoint, accountNumbers, waitNanos);
+                    } else {
+                        lockMetrics.recordFailure(endpoint, accountNumbers, waitNanos);
+                    }
+                })
+                .thenCompose(ownerId -> {
+                    long lockedAt = System.nanoTime();
+                    return proceedAsync(pjp).whenComplete((result, e) -> {
+                        recordHoldTime(lockPolicy, endpoint, accountNumbers, System.nanoTime() - lockedAt);
+                        lockService.unlockAsync(accountNumbers, ownerId);
+                    });
+                });
+    }
+
+    private void recordHoldTime(
+            LockPolicy lockPolicy, String endpoint, List<String> accountNumbers, long holdNanos) {
+        lockPolicyResolver.recordHoldTime(lockPolicy, holdNanos);
+        lockMetrics.recordHold(endpoint, accountNumbers, holdNanos);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CompletableFuture<Object> proceedAsync(ProceedingJoinPoint pjp) {
+        try {
+            return ((CompletionStage<Object>) pjp.proceed()).toCompletableFuture();
+        } catch (Throwable e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static boolean isAsync(ProceedingJoinPoint pjp) {
+        return CompletionStage.class.isAssignableFrom(
+                ((MethodSignature) pjp.getSignature()).getReturnType());
+    }
+
+    /**
+     * PARTITIONED 모드이거나 락이 필요 없는(STRIPED, HOT) 계좌는 제외
+     */
+    private List<String> getLockTargets(AccountLockIdInterface request) {
+        if (!balanceMutationExecutor.isLockRequired()) {
+            return List.of();
         }
+        return request.getAccountNumbers().stream()
+                .filter(accountNumber -> !balanceModeRegistry.isLockFree(accountNumber))
+                .collect(Collectors.toList());
     }
 }
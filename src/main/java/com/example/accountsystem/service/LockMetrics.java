@@ -0,0 +1,206 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.LockProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 계좌 락 계측
+ * account.lock.wait : 락 대기 시간 (endpoint, outcome=acquired|failed)
+ * account.lock.hold : 락 점유 시간 (endpoint)
+ * account.lock.failures : 락 획득 실패 수 (endpoint)
+ * account.lock.redis.errors : Redis 오류 수 (operation=lock|unlock)
+ * 계좌별 경합 통계는 /actuator/accountlocks 로 조회한다.
+ */
+@Component
+public class LockMetrics {
+    private final MeterRegistry meterRegistry;
+    private final int trackedAccounts;
+    private final long contentionThresholdNanos;
+    private final Map<String, EndpointMeters> endpointMeters = new ConcurrentHashMap<>();
+    private final Map<String, AccountStats> accountStats = new ConcurrentHashMap<>();
+    private final LongAdder untracked = new LongAdder();
+
+    public LockMetrics(MeterRegistry meterRegistry, LockProperties lockProperties) {
+        this.meterRegistry = meterRegistry;
+        this.trackedAccounts = lockProperties.getMetrics().getTrackedAccounts();
+        this.contentionThresholdNanos =
+                lockProperties.getMetrics().getContentionThreshold().toNanos();
+    }
+
+    public void recordAcquired(String endpoint, List<String> accountNumbers, long waitNanos) {
+        meters(endpoint).acquired.record(waitNanos, TimeUnit.NANOSECONDS);
+        if (waitNanos < contentionThresholdNanos) {
+            return;
+        }
+        for (String accountNumber : accountNumbers) {
+            stats(accountNumber).ifPresent(stats -> stats.recordContended(waitNanos));
+        }
+    }
+
+    public void recordFailure(String endpoint, List<String> accountNumbers, long waitNanos) {
+        EndpointMeters meters = meters(endpoint);
+        meters.failed.record(waitNanos, TimeUnit.NANOSECONDS);
+        meters.failures.increment();
+        for (String accountNumber : accountNumbers) {
+            stats(accountNumber).ifPresent(stats -> stats.recordFailure(waitNanos));
+        }
+    }
+
+    public void recordHold(String endpoint, List<String> accountNumbers, long holdNanos) {
+        meters(endpoint).hold.record(holdNanos, TimeUnit.NANOSECONDS);
+        for (String accountNumber : accountNumbers) {
+            AccountStats stats = accountStats.get(accountNumber);
+            if (stats != null) {
+                stats.recordHold(holdNanos);
+            }
+        }
+    }
+
+    public void recordRedisError(String operation) {
+        meterRegistry.counter("account.lock.redis.errors", "operation", operation).increment();
+    }
+
+    /**
+     * 대기 시간 합이 큰 순서로 상위 limit 개 계좌
+     */
+    public List<AccountLockStatistics> topContended(int limit) {
+        return accountStats.entrySet().stream()
+                .map(entry -> entry.getValue().snapshot(entry.getKey()))
+                .sorted(Comparator.comparingLong(AccountLockStatistics::getTotalWaitMillis).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    public Optional<AccountLockStatistics> statisticsOf(String accountNumber) {
+        return Optional.ofNullable(accountStats.get(accountNumber))
+                .map(stats -> stats.snapshot(accountNumber));
+    }
+
+    public int trackedAccountCount() {
+        return accountStats.size();
+    }
+
+    public long untrackedCount() {
+        return untracked.sum();
+    }
+
+    public void reset() {
+        accountStats.clear();
+        untracked.reset();
+    }
+
+    private EndpointMeters meters(String endpoint) {
+        return endpointMeters.computeIfAbsent(endpoint == null ? "unknown" : endpoint,
+                name -> new EndpointMeters(meterRegistry, name));
+    }
+
+    /**
+     * 추적 한도를 넘으면 새 계좌는 기록하지 않고 untracked 로만 센다.
+     */
+    private Optional<AccountStats> stats(String accountNumber) {
+        AccountStats stats = accountStats.get(accountNumber);
+        if (stats == null) {
+            if (accountStats.size() >= trackedAccounts) {
+                untracked.increment();
+                return Optional.empty();
+            }
+            stats = accountStats.computeIfAbsent(accountNumber, key -> new AccountStats());
+        }
+        return Optional.of(stats);
+    }
+
+    private static class EndpointMeters {
+        private final Timer acquired;
+        private final Timer failed;
+        private final Timer hold;
+        private final Counter failures;
+
+        private EndpointMeters(MeterRegistry meterRegistry, String endpoint) {
+            this.acquired = waitTimer(meterRegistry, endpoint, "acquired");
+            this.failed = waitTimer(meterRegistry, endpoint, "failed");
+            this.hold = Timer.builder("account.lock.hold")
+                    .tag("endpoint", endpoint)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            this.failures = Counter.builder("account.lock.failures")
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry);
+        }
+
+        private static Timer waitTimer(MeterRegistry meterRegistry, String endpoint, String outcome) {
+            return Timer.builder("account.lock.wait")
+                    .tag("endpoint", endpoint)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+    }
+
+    private static class AccountStats {
+        private final LongAdder contended = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalWaitNanos = new LongAdder();
+        private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0L);
+        private final LongAdder holds = new LongAdder();
+        private final LongAdder totalHoldNanos = new LongAdder();
+
+        private void recordContended(long waitNanos) {
+            contended.increment();
+            recordWait(waitNanos);
+        }
+
+        private void recordFailure(long waitNanos) {
+            failures.increment();
+            recordWait(waitNanos);
+        }
+
+        private void recordWait(long waitNanos) {
+            totalWaitNanos.add(waitNanos);
+            maxWaitNanos.accumulate(waitNanos);
+        }
+
+        private void recordHold(long holdNanos) {
+            holds.increment();
+            totalHoldNanos.add(holdNanos);
+        }
+
+        private AccountLockStatistics snapshot(String accountNumber) {
+            long holdCount = holds.sum();
+            return new AccountLockStatistics(
+                    accountNumber,
+                    contended.sum(),
+                    failures.sum(),
+                    TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.sum()),
+                    TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()),
+                    holdCount == 0 ? 0L
+                            : TimeUnit.NANOSECONDS.toMicros(totalHoldNanos.sum() / holdCount)
+            );
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class AccountLockStatistics {
+        private String accountNumber;
+        private long contendedCount;
+        private long failureCount;
+        private long totalWaitMillis;
+        private long maxWaitMillis;
+        private long averageHoldMicros;
+    }
+}
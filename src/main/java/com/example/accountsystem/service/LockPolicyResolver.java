@@ -0,0 +1,79 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.aop.AccountLock;
+import com.example.accountsystem.aop.LockPolicy;
+import com.example.accountsystem.config.LockProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @AccountLock 과 설정 프로필로 락 정책을 결정한다.
+ * 1. @AccountLock 의 tryLockTime / leaseTime
+ * 2. account-system.lock.profiles.{profile} 값이 있으면 덮어씀
+ * 3. adaptive 사용 시 대기 시간을 (관측된 점유 시간 상한 x 앞에 선 요청 수) 로 줄임.
+ *    앞에 선 요청 수는 LocalAccountLock 의 스트라이프 줄 길이이며, 로컬 락을 쓰지 않으면 1 로 본다.
+ */
+@Component
+@RequiredArgsConstructor
+public class LockPolicyResolver {
+    private final LockProperties lockProperties;
+    private final LocalAccountLock localAccountLock;
+    private final Map<String, HoldTimeEstimator> estimators = new ConcurrentHashMap<>();
+
+    public LockPolicy resolve(AccountLock accountLock, Collection<String> accountNumbers) {
+        return resolve(accountLock.profile(), accountNumbers,
+                accountLock.tryLockTime(), accountLock.leaseTime());
+    }
+
+    /**
+     * @AccountLock 없이 락을 잡는 경우(배치 등). 프로필에 없는 값은 기본값을 사용한다.
+     */
+    public LockPolicy resolve(String profileName, Collection<String> accountNumbers) {
+        return resolve(profileName, accountNumbers,
+                LockPolicy.DEFAULT.getWaitMillis(), LockPolicy.DEFAULT.getLeaseMillis());
+    }
+
+    private LockPolicy resolve(String profileName, Collection<String> accountNumbers,
+                               long waitMillis, long leaseMillis) {
+        LockProperties.Profile profile = lockProperties.getProfiles().get(profileName);
+        if (profile != null) {
+            if (profile.getWaitTime() != null) {
+                waitMillis = profile.getWaitTime().toMillis();
+            }
+            if (profile.getLeaseTime() != null) {
+                leaseMillis = profile.getLeaseTime().toMillis();
+            }
+        }
+
+        if (lockProperties.getAdaptive().isEnabled()) {
+            waitMillis = adaptiveWaitMillis(profileName, accountNumbers, waitMillis);
+        }
+
+        return new LockPolicy(profileName, waitMillis, leaseMillis);
+    }
+
+    public void recordHoldTime(LockPolicy lockPolicy, long holdNanos) {
+        estimators.computeIfAbsent(lockPolicy.getProfile(), key -> new HoldTimeEstimator())
+                .record(holdNanos);
+    }
+
+    private long adaptiveWaitMillis(String profileName, Collection<String> accountNumbers,
+                                    long configuredWaitMillis) {
+        HoldTimeEstimator estimator = estimators.get(profileName);
+        LockProperties.Adaptive adaptive = lockProperties.getAdaptive();
+        if (estimator == null || estimator.samples() < adaptive.getWarmupSamples()) {
+            return configuredWaitMillis;
+        }
+
+        // 앞에 선 요청마다 점유 시간 하나씩 기다린다. 줄이 비어 있어도 점유 시간 하나는 준다.
+        int queueDepth = Math.max(1, localAccountLock.queueDepth(accountNumbers));
+        long estimatedMillis = TimeUnit.NANOSECONDS.toMillis(estimator.upperBoundNanos()) * queueDepth;
+        long minWaitMillis = Math.min(adaptive.getMinWaitTime().toMillis(), configuredWaitMillis);
+        return Math.max(minWaitMillis, Math.min(configuredWaitMillis, estimatedMillis));
+    }
+}
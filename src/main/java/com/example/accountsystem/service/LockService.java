@@ -1,5 +1,6 @@
 package com.example.accountsystem.service;
 
+import com.example.accountsystem.aop.LockPolicy;
 import com.example.accountsystem.exception.AccountException;
 import com.example.accountsystem.type.ErrorCode;
 import lombok.RequiredArgsConstructor;
@@ -8,34 +9,169 @@ import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
+/**
+ * 계좌 락. 여러 계좌는 계좌번호 순으로 정렬해 하나의 MultiLock 으로 잡으므로
+ * 반대 방향 이체가 동시에 들어와도 교착되지 않는다.
+ * lockAsync 는 대기하는 동안 스레드를 점유하지 않는다. 로컬 락 티어도 허가 기반이라 동기 요청과 같은 줄에 서며,
+ * Redis 락은 스레드 대신 발급한 소유자 ID 로 잡고 푼다.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class LockService {
     private final RedissonClient redissonClient;
+    private final LocalAccountLock localAccountLock;
+    private final LockMetrics lockMetrics;
+    private final AtomicLong asyncOwnerSequence = new AtomicLong();
 
     public void lock(String accountNumber) {
-        RLock lock = redissonClient.getLock(getLockKey(accountNumber));
-        log.debug("Trying lock for accountNumber : {}", accountNumber);
+        lock(accountNumber, LockPolicy.DEFAULT);
+    }
+
+    public void lock(String accountNumber, LockPolicy lockPolicy) {
+        lock(Collections.singletonList(accountNumber), lockPolicy);
+    }
+
+    public void lock(List<String> accountNumbers, LockPolicy lockPolicy) {
+        List<String> lockOrder = lockOrder(accountNumbers);
+        log.debug("Trying lock for accountNumbers : {} ({})", lockOrder, lockPolicy);
+        long startedAt = System.nanoTime();
+
+        acquireLocalLock(lockOrder, lockPolicy.getWaitMillis());
 
+        RLock lock = getLock(lockOrder);
         try {
-            boolean isLock = lock.tryLock(1, 15, TimeUnit.SECONDS);
+            long remainingMillis = lockPolicy.getWaitMillis()
+                    - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+            boolean isLock = lock.tryLock(Math.max(0L, remainingMillis),
+                    lockPolicy.getLeaseMillis(), TimeUnit.MILLISECONDS);
             if (!isLock) {
                 log.error("====Lock acquisition failed====");
                 throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
             }
         } catch(AccountException e) {
+            localAccountLock.unlock(lockOrder);
             throw e;
         } catch (Exception e) {
             log.error("Redis lock failed", e);
+            lockMetrics.recordRedisError("lock");
         }
     }
 
     public void unlock(String accountNumber) {
-        log.debug("Unlock for accountNumber : {}", accountNumber);
-        redissonClient.getLock(getLockKey(accountNumber)).unlock();
+        unlock(Collections.singletonList(accountNumber));
+    }
+
+    public void unlock(List<String> accountNumbers) {
+        List<String> lockOrder = lockOrder(accountNumbers);
+        log.debug("Unlock for accountNumbers : {}", lockOrder);
+        try {
+            getLock(lockOrder).unlock();
+        } finally {
+            localAccountLock.unlock(lockOrder);
+        }
+    }
+
+    public CompletableFuture<Long> lockAsync(List<String> accountNumbers, LockPolicy lockPolicy) {
+        List<String> lockOrder = lockOrder(accountNumbers);
+        // 실제 스레드 ID 와 겹치지 않도록 음수 사용
+        long ownerId = -asyncOwnerSequence.incrementAndGet();
+        log.debug("Trying async lock for accountNumbers : {} ({})", lockOrder, lockPolicy);
+        long startedAt = System.nanoTime();
+
+        return localAccountLock.tryLockAsync(lockOrder, lockPolicy.getWaitMillis())
+                .thenCompose(isLocalLock -> {
+                    if (!isLocalLock) {
+                        log.error("====Local lock acquisition failed====");
+                        throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+                    }
+                    long remainingMillis = lockPolicy.getWaitMillis()
+                            - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+                    return tryLockAsync(lockOrder, lockPolicy, Math.max(0L, remainingMillis), ownerId);
+                });
+    }
+
+    private CompletableFuture<Long> tryLockAsync(
+            List<String> lockOrder, LockPolicy lockPolicy, long waitMillis, long ownerId) {
+        CompletableFuture<Boolean> tryLock;
+        try {
+            tryLock = getLock(lockOrder).tryLockAsync(waitMillis,
+                    lockPolicy.getLeaseMillis(), TimeUnit.MILLISECONDS, ownerId)
+                    .toCompletableFuture();
+        } catch (Exception e) {
+            tryLock = CompletableFuture.failedFuture(e);
+        }
+
+        return tryLock.handle((isLock, e) -> {
+            if (e != null) {
+                log.error("Redis lock failed", e);
+                lockMetrics.recordRedisError("lock");
+                return ownerId;
+            }
+            if (!isLock) {
+                localAccountLock.unlock(lockOrder);
+                log.error("====Lock acquisition failed====");
+                throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+            }
+            return ownerId;
+        });
+    }
+
+    /**
+     * Redis 락을 푼 뒤에 로컬 락을 넘긴다. (다음 요청이 바로 Redis 락을 잡을 수 있도록)
+     */
+    public CompletableFuture<Void> unlockAsync(List<String> accountNumbers, long ownerId) {
+        List<String> lockOrder = lockOrder(accountNumbers);
+        log.debug("Async unlock for accountNumbers : {}", lockOrder);
+        CompletableFuture<Void> unlock;
+        try {
+            unlock = getLock(lockOrder).unlockAsync(ownerId).toCompletableFuture();
+        } catch (Exception e) {
+            unlock = CompletableFuture.failedFuture(e);
+        }
+        return unlock.handle((ignored, e) -> {
+            if (e != null) {
+                log.error("Redis unlock failed", e);
+                lockMetrics.recordRedisError("unlock");
+            }
+            localAccountLock.unlock(lockOrder);
+            return null;
+        });
+    }
+
+    private void acquireLocalLock(List<String> lockOrder, long waitMillis) {
+        try {
+            if (!localAccountLock.tryLock(lockOrder, waitMillis)) {
+                log.error("====Local lock acquisition failed====");
+                throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+        }
+    }
+
+    private RLock getLock(List<String> lockOrder) {
+        if (lockOrder.size() == 1) {
+            return redissonClient.getLock(getLockKey(lockOrder.get(0)));
+        }
+        return redissonClient.getMultiLock(lockOrder.stream()
+                .map(accountNumber -> redissonClient.getLock(getLockKey(accountNumber)))
+                .toArray(RLock[]::new));
+    }
+
+    private static List<String> lockOrder(List<String> accountNumbers) {
+        return accountNumbers.stream()
+                .distinct()
+                .sorted()
+                .collect(Collectors.toList());
     }
 
     private String getLockKey(String accountNumber) {
@@ -0,0 +1,119 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 시간순으로 정렬되는 13자 거래 ID
+ * 64bit = 41bit 밀리초(2022-01-01 기준) + 10bit 노드 ID + 12bit 순번 을 Crockford base32 로 표기한다.
+ * 고정 길이라 문자열 순서와 생성 순서가 같고, transactionId 인덱스의 끝에만 쌓인다.
+ * (밀리초, 순번) 상태를 AtomicLong 하나에 담아 CAS 로 갱신하므로 스레드 간 락이 없다.
+ * 같은 밀리초에 순번을 다 쓰면 다음 밀리초를 미리 쓰고, 시계가 뒤로 가도 마지막 값에서 계속 증가한다.
+ * 노드 ID 는 account-system.transaction.node-id 로 지정하고, 없으면 Redis 카운터로 받는다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "account-system.transaction",
+        name = "id-generator", havingValue = "snowflake", matchIfMissing = true)
+public class SnowflakeTransactionIdGenerator implements TransactionIdGenerator {
+    static final long EPOCH_MILLIS = Instant.parse("2022-01-01T00:00:00Z").toEpochMilli();
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    static final int ID_LENGTH = 13;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final String NODE_COUNTER_KEY = "ACTXNODE:SEQ";
+
+    private final long nodeBits;
+    /**
+     * (밀리초 << SEQUENCE_BITS) | 순번
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    @Autowired
+    public SnowflakeTransactionIdGenerator(TransactionProperties transactionProperties,
+                                           RedissonClient redissonClient) {
+        this(resolveNodeId(transactionProperties.getNodeId(), redissonClient));
+    }
+
+    SnowflakeTransactionIdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("nodeId must be 0 ~ " + MAX_NODE_ID + " : " + nodeId);
+        }
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+        log.info("Transaction id node : {}", nodeId);
+    }
+
+    @Override
+    public String nextId() {
+        return encode(nextValue());
+    }
+
+    long nextValue() {
+        while (true) {
+            long current = state.get();
+            long nowMillis = System.currentTimeMillis() - EPOCH_MILLIS;
+            long next = nowMillis > (current >>> SEQUENCE_BITS)
+                    ? nowMillis << SEQUENCE_BITS
+                    : current + 1;
+            if (state.compareAndSet(current, next)) {
+                return (next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)
+                        | nodeBits
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * ID 가 만들어진 시각 (epoch 밀리초). 형식이 다르면 -1
+     */
+    public static long timestampOf(String transactionId) {
+        if (transactionId == null || transactionId.length() != ID_LENGTH) {
+            return -1L;
+        }
+        long value = 0L;
+        for (int i = 0; i < ID_LENGTH; i++) {
+            int digit = decode(transactionId.charAt(i));
+            if (digit < 0) {
+                return -1L;
+            }
+            value = (value << 5) | digit;
+        }
+        return (value >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    static String encode(long value) {
+        char[] chars = new char[ID_LENGTH];
+        for (int i = ID_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (value & 0x1F)];
+            value >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    private static int decode(char c) {
+        for (int i = 0; i < ALPHABET.length; i++) {
+            if (ALPHABET[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int resolveNodeId(Integer nodeId, RedissonClient redissonClient) {
+        if (nodeId != null) {
+            return nodeId;
+        }
+        return (int) Math.floorMod(
+                redissonClient.getAtomicLong(NODE_COUNTER_KEY).getAndIncrement(),
+                (long) MAX_NODE_ID + 1);
+    }
+}
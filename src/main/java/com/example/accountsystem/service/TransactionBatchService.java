@@ -0,0 +1,156 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.aop.LockPolicy;
+import com.example.accountsystem.dto.UseBalance;
+import com.example.accountsystem.dto.UseBalanceBatch;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.type.ErrorCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+import static com.example.accountsystem.type.TransactionType.USE;
+
+/**
+ * 잔액 사용 일괄 처리
+ * 요청을 계좌별로 묶어 계좌마다 락을 한 번만 잡고, 한 DB 트랜잭션에서 처리한다.
+ * 서로 다른 계좌 묶음은 BalanceMutationExecutor 에서 동시에 처리된다.
+ * SEQUENCED 모드에서는 항목마다 LedgerSequencer 에 넘긴다. (한 계좌의 항목은 요청 순서대로 적용된다)
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransactionBatchService {
+    private static final String LOCK_PROFILE = "use-batch";
+
+    private final TransactionService transactionService;
+    private final LockService lockService;
+    private final LockPolicyResolver lockPolicyResolver;
+    private final BalanceMutationExecutor balanceMutationExecutor;
+    private final BalanceModeRegistry balanceModeRegistry;
+    private final FailedTransactionWriter failedTransactionWriter;
+    private final HotBalanceService hotBalanceService;
+    private final LedgerSequencer ledgerSequencer;
+
+    public CompletableFuture<UseBalanceBatch.Response> useBalances(List<UseBalance.Request> requests) {
+        if (ledgerSequencer.isEnabled()) {
+            return useBalancesSequenced(requests);
+        }
+
+        Map<String, List<Integer>> indexesByAccount = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            indexesByAccount.computeIfAbsent(requests.get(i).getAccountNumber(),
+                    key -> new ArrayList<>()).add(i);
+        }
+
+        UseBalanceBatch.Item[] items = new UseBalanceBatch.Item[requests.size()];
+        CompletableFuture<?>[] groups = indexesByAccount.entrySet().stream()
+                .map(group -> useBalanceGroup(group.getKey(), group.getValue(), requests, items))
+                .toArray(CompletableFuture[]::new);
+
+        return CompletableFuture.allOf(groups)
+                .thenApply(ignored -> UseBalanceBatch.Response.from(Arrays.asList(items)));
+    }
+
+    private CompletableFuture<UseBalanceBatch.Response> useBalancesSequenced(
+            List<UseBalance.Request> requests) {
+        UseBalanceBatch.Item[] items = new UseBalanceBatch.Item[requests.size()];
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[requests.size()];
+        for (int i = 0; i < requests.size(); i++) {
+            int index = i;
+            UseBalance.Request request = requests.get(i);
+            futures[i] = ledgerSequencer.useBalance(request.getUserId(),
+                            request.getAccountNumber(), request.getAmount())
+                    .handle((transactionDto, e) -> {
+                        UseBalanceBatch.Item item;
+                        if (e == null) {
+                            item = UseBalanceBatch.Item.success(transactionDto);
+                        } else {
+                            item = UseBalanceBatch.Item.failure(errorCodeOf(e));
+                            failedTransactionWriter.record(USE, request.getAccountNumber(),
+                                    request.getAmount());
+                        }
+                        item.setIndex(index);
+                        items[index] = item;
+                        return null;
+                    });
+        }
+
+        return CompletableFuture.allOf(futures)
+                .thenApply(ignored -> UseBalanceBatch.Response.from(Arrays.asList(items)));
+    }
+
+    private CompletableFuture<Void> useBalanceGroup(
+            String accountNumber,
+            List<Integer> indexes,
+            List<UseBalance.Request> requests,
+            UseBalanceBatch.Item[] items
+    ) {
+        List<UseBalance.Request> groupRequests = indexes.stream()
+                .map(requests::get)
+                .collect(Collectors.toList());
+
+        return balanceMutationExecutor.submit(accountNumber,
+                        () -> lockAndUseBalances(accountNumber, groupRequests))
+                .handle((groupItems, e) -> {
+                    if (e == null) {
+                        for (int i = 0; i < indexes.size(); i++) {
+                            groupItems.get(i).setIndex(indexes.get(i));
+                            items[indexes.get(i)] = groupItems.get(i);
+                        }
+                        return null;
+                    }
+
+                    ErrorCode errorCode = errorCodeOf(e);
+                    log.error("Failed to use balance in batch for accountNumber : {} ({})",
+                            accountNumber, errorCode);
+                    for (Integer index : indexes) {
+                        UseBalanceBatch.Item item = UseBalanceBatch.Item.failure(errorCode);
+                        item.setIndex(index);
+                        items[index] = item;
+                    }
+                    failedTransactionWriter.record(USE, accountNumber, groupRequests.stream()
+                            .map(UseBalance.Request::getAmount)
+                            .collect(Collectors.toList()));
+                    return null;
+                });
+    }
+
+    private List<UseBalanceBatch.Item> lockAndUseBalances(
+            String accountNumber, List<UseBalance.Request> requests) {
+        if (balanceModeRegistry.isHot(accountNumber)) {
+            return hotBalanceService.useBalances(accountNumber, requests);
+        }
+        if (!isLockRequired(accountNumber)) {
+            return transactionService.useBalances(accountNumber, requests);
+        }
+
+        LockPolicy lockPolicy = lockPolicyResolver.resolve(LOCK_PROFILE, List.of(accountNumber));
+        lockService.lock(accountNumber, lockPolicy);
+        long lockedAt = System.nanoTime();
+        try {
+            return transactionService.useBalances(accountNumber, requests);
+        } finally {
+            lockPolicyResolver.recordHoldTime(lockPolicy, System.nanoTime() - lockedAt);
+            lockService.unlock(accountNumber);
+        }
+    }
+
+    private boolean isLockRequired(String accountNumber) {
+        return balanceMutationExecutor.isLockRequired()
+                && !balanceModeRegistry.isLockFree(accountNumber);
+    }
+
+    private static ErrorCode errorCodeOf(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null
+                ? e.getCause() : e;
+        return cause instanceof AccountException
+                ? ((AccountException) cause).getErrorCode()
+                : ErrorCode.INTERVAL_SERVER_ERROR;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.accountsystem.service;
+
+/**
+ * 거래 ID(transactionId) 생성기
+ * account-system.transaction.id-generator 로 구현을 고른다. (snowflake | uuid)
+ */
+public interface TransactionIdGenerator {
+    String nextId();
+}
@@ -0,0 +1,93 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.dto.TransactionExport;
+import com.example.accountsystem.type.ExportFormat;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 거래 원장을 파일로 내보내는 명령. --export.output 이 있으면 내보낸 뒤 종료한다.
+ * java -jar account-system.jar --spring.main.web-application-type=none --export.output=ledger.ndjson
+ *     [--export.format=csv] [--export.account-number=1000000012]
+ *     [--export.from=2022-07-01T00:00] [--export.to=2022-08-01T00:00]
+ * 이 프로세스가 연결한 DB 를 읽으므로 spring.datasource.url 을 운영 DB (여러 프로세스가 함께 쓰는 datasource)
+ * 로 지정해 띄운다. 기본 설정(jdbc:h2:mem) 으로는 새로 만든 빈 DB 를 내보낸다.
+ * 저널 복구(BalanceJournalRecovery) 를 켜면 복구가 끝난 뒤에 내보낸다. (@Order)
+ * 종료 코드는 ExitCodeGenerator 로 돌려주고, 기동(ApplicationReadyEvent 작업 포함) 이 끝나면
+ * AccountSystemApplication.main 이 컨텍스트를 닫고 종료한다.
+ */
+@Slf4j
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class TransactionLedgerExportCommand implements ApplicationRunner, ExitCodeGenerator {
+    private static final String OUTPUT = "export.output";
+    private static final String FORMAT = "export.format";
+    private static final String ACCOUNT_NUMBER = "export.account-number";
+    private static final String FROM = "export.from";
+    private static final String TO = "export.to";
+
+    private final TransactionLedgerExporter transactionLedgerExporter;
+    private volatile boolean exported;
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        String output = option(args, OUTPUT);
+        if (output == null) {
+            return;
+        }
+        String format = option(args, FORMAT);
+        String from = option(args, FROM);
+        String to = option(args, TO);
+        TransactionExport export = transactionLedgerExporter.prepare(
+                format == null ? ExportFormat.NDJSON
+                        : ExportFormat.valueOf(format.toUpperCase(Locale.ROOT)),
+                option(args, ACCOUNT_NUMBER),
+                from == null ? null : LocalDateTime.parse(from),
+                to == null ? null : LocalDateTime.parse(to));
+
+        Path path = Paths.get(output);
+        long rows;
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            rows = transactionLedgerExporter.export(export, writer);
+        }
+        log.info("Exported {} transactions to {}", rows, path.toAbsolutePath());
+        exported = true;
+    }
+
+    /**
+     * 내보내기를 마쳤으면 true. (기동한 뒤 종료해야 한다)
+     */
+    public boolean isExported() {
+        return exported;
+    }
+
+    /**
+     * 내보내기가 실패하면 run 이 예외를 던져 기동이 실패하므로 (종료 코드 1) 여기서는 성공만 다룬다.
+     */
+    @Override
+    public int getExitCode() {
+        return 0;
+    }
+
+    private static String option(ApplicationArguments args, String name) {
+        List<String> values = args.getOptionValues(name);
+        return values == null || values.isEmpty() ? null : values.get(values.size() - 1);
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.dto.TransactionDto;
+import com.example.accountsystem.dto.TransactionExport;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.repository.AccountRepository;
+import com.example.accountsystem.type.ExportFormat;
+import com.example.accountsystem.type.TransactionResultType;
+import com.example.accountsystem.type.TransactionType;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import javax.transaction.Transactional;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.accountsystem.type.ErrorCode.ACCOUNT_NOT_FOUND;
+import static com.example.accountsystem.type.ErrorCode.INVALID_REQUEST;
+
+/**
+ * 정산 대사용 거래 원장 내보내기
+ * JPA 를 거치지 않고 JDBC 커서(forward-only, read-only, fetchSize) 로 한 행씩 읽어 바로 Writer 에 쓴다.
+ * 행을 모으지 않으므로 거래 수와 관계없이 메모리에는 fetchSize 행과 Writer 버퍼만 올라간다.
+ * 순서는 거래 id 순이고, 계좌와 기간([from, to)) 조건은 null 이면 뺀다.
+ * (PostgreSQL 은 트랜잭션 안에서만 fetchSize 만큼 나눠 읽으므로 트랜잭션 안에서 실행한다)
+ */
+@Component
+@RequiredArgsConstructor
+public class TransactionLedgerExporter {
+    private static final String[] COLUMNS = {"transactionId", "accountNumber",
+            "transactionType", "transactionResultType", "amount", "balanceSnapshot",
+            "transactedAt"};
+    private static final String SELECT = "select t.transaction_id, a.account_number, " +
+            "t.transaction_type, t.transaction_result_type, t.amount, t.balance_snapshot, " +
+            "t.transacted_at from transaction t join account a on a.id = t.account_id";
+    private static final String CSV_LINE_SEPARATOR = "\r\n";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AccountRepository accountRepository;
+    private final TransactionProperties transactionProperties;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 조건을 검증한다. 응답(파일)을 쓰기 시작하기 전에 호출해 잘못된 요청은 오류 응답으로 돌려준다.
+     */
+    public TransactionExport prepare(ExportFormat format, String accountNumber,
+                                     LocalDateTime from, LocalDateTime to) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new AccountException(INVALID_REQUEST);
+        }
+        Long accountId = null;
+        if (accountNumber != null) {
+            accountId = accountRepository.findIdByAccountNumber(accountNumber)
+                    .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+        }
+        return TransactionExport.builder()
+                .format(format)
+                .accountId(accountId)
+                .from(from)
+                .to(to)
+                .build();
+    }
+
+    /**
+     * @return 내보낸 거래 수
+     */
+    @Transactional
+    public long export(TransactionExport export, Writer writer) throws IOException {
+        List<Object> parameters = new ArrayList<>();
+        String sql = query(export, parameters);
+        RowWriter rowWriter = export.getFormat() == ExportFormat.CSV
+                ? new CsvRowWriter(writer)
+                : new NdjsonRowWriter(objectMapper.getFactory().createGenerator(writer));
+        long[] rows = new long[1];
+        try {
+            rowWriter.begin();
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(transactionProperties.getExport().getFetchSize());
+                for (int i = 0; i < parameters.size(); i++) {
+                    statement.setObject(i + 1, parameters.get(i));
+                }
+                return statement;
+            }, (RowCallbackHandler) resultSet -> {
+                try {
+                    rowWriter.write(toRow(resultSet));
+                } catch (IOException e) {
+                    // 받는 쪽이 끊기면 커서를 닫고 멈춘다.
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            });
+            rowWriter.end();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        return rows[0];
+    }
+
+    private static String query(TransactionExport export, List<Object> parameters) {
+        List<String> conditions = new ArrayList<>();
+        if (export.getAccountId() != null) {
+            conditions.add("t.account_id = ?");
+            parameters.add(export.getAccountId());
+        }
+        if (export.getFrom() != null) {
+            conditions.add("t.transacted_at >= ?");
+            parameters.add(export.getFrom());
+        }
+        if (export.getTo() != null) {
+            conditions.add("t.transacted_at < ?");
+            parameters.add(export.getTo());
+        }
+        return SELECT
+                + (conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions))
+                + " order by t.id";
+    }
+
+    private static TransactionDto toRow(ResultSet resultSet) throws SQLException {
+        String transactionType = resultSet.getString(3);
+        String transactionResultType = resultSet.getString(4);
+        return TransactionDto.builder()
+                .transactionId(resultSet.getString(1))
+                .accountNumber(resultSet.getString(2))
+                .transactionType(transactionType == null
+                        ? null : TransactionType.valueOf(transactionType))
+                .transactionResultType(transactionResultType == null
+                        ? null : TransactionResultType.valueOf(transactionResultType))
+                .amount(nullableLong(resultSet, 5))
+                .balanceSnapshot(nullableLong(resultSet, 6))
+                .transactedAt(resultSet.getObject(7, LocalDateTime.class))
+                .build();
+    }
+
+    private static Long nullableLong(ResultSet resultSet, int column) throws SQLException {
+        long value = resultSet.getLong(column);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    private static String nameOf(Enum<?> value) {
+        return value == null ? null : value.name();
+    }
+
+    private interface RowWriter {
+        void begin() throws IOException;
+
+        void write(TransactionDto row) throws IOException;
+
+        void end() throws IOException;
+    }
+
+    private static class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+
+        NdjsonRowWriter(JsonGenerator generator) {
+            this.generator = generator;
+            // 줄 사이에는 개행만 둔다. (기본 구분자는 공백)
+            generator.setRootValueSeparator(null);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public void write(TransactionDto row) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField(COLUMNS[0], row.getTransactionId());
+            generator.writeStringField(COLUMNS[1], row.getAccountNumber());
+            generator.writeStringField(COLUMNS[2], nameOf(row.getTransactionType()));
+            generator.writeStringField(COLUMNS[3], nameOf(row.getTransactionResultType()));
+            writeNumberField(COLUMNS[4], row.getAmount());
+            writeNumberField(COLUMNS[5], row.getBalanceSnapshot());
+            generator.writeStringField(COLUMNS[6], row.getTransactedAt() == null
+                    ? null : row.getTransactedAt().toString());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        private void writeNumberField(String name, Long value) throws IOException {
+            generator.writeFieldName(name);
+            if (value == null) {
+                generator.writeNull();
+            } else {
+                generator.writeNumber(value);
+            }
+        }
+
+        @Override
+        public void end() throws IOException {
+            generator.close();
+        }
+    }
+
+    private static class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void begin() throws IOException {
+            writer.write(String.join(",", COLUMNS));
+            writer.write(CSV_LINE_SEPARATOR);
+        }
+
+        @Override
+        public void write(TransactionDto row) throws IOException {
+            writeValue(row.getTransactionId());
+            writer.write(',');
+            writeValue(row.getAccountNumber());
+            writer.write(',');
+            writeValue(nameOf(row.getTransactionType()));
+            writer.write(',');
+            writeValue(nameOf(row.getTransactionResultType()));
+            writer.write(',');
+            writeValue(row.getAmount());
+            writer.write(',');
+            writeValue(row.getBalanceSnapshot());
+            writer.write(',');
+            writeValue(row.getTransactedAt());
+            writer.write(CSV_LINE_SEPARATOR);
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            String text = value.toString();
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0
+                    && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                writer.write(text);
+                return;
+            }
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void end() {
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.dto.TransactionDto;
+import com.example.accountsystem.repository.TransactionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * 거래 조회 캐시 (transactionId -> TransactionDto) 와 거래 ID Bloom filter
+ * 1. 거래는 저장 후 바뀌지 않으므로 커밋되면 DTO 를 그대로 캐시한다. (크기로만 내보냄)
+ * 2. 없는 거래 ID 조회는 Bloom filter 로 DB 없이 거른다.
+ *    filter 는 기동 시 DB 의 모든 거래 ID 로 만들고, 이후 이 노드에서 쓰는 거래 ID 를 더한다.
+ *    다른 노드가 기동 이후에 만든 거래는 filter 에 없으므로, ID 에 담긴 생성 시각(snowflake)이
+ *    filter 를 만든 시각 - safetyMargin 보다 이전인 경우에만 filter 를 믿는다.
+ *    (시각을 알 수 없는 형식의 ID 는 항상 DB 를 본다)
+ * transaction.lookup.rejected : filter 로 거른 조회 수, 캐시 통계는 cache.* (cache=transaction-record)
+ */
+@Slf4j
+@Component
+public class TransactionRecordCache {
+    static final String CACHE_NAME = "transaction-record";
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionProperties.RecordCache properties;
+    private final Cache<String, TransactionDto> cache;
+    private final Counter rejected;
+    private final LongSupplier clock;
+    private volatile Filter filter;
+
+    @Autowired
+    public TransactionRecordCache(TransactionRepository transactionRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  TransactionProperties transactionProperties,
+                                  MeterRegistry meterRegistry) {
+        this(transactionRepository, transactionManager, transactionProperties, meterRegistry,
+                System::currentTimeMillis);
+    }
+
+    TransactionRecordCache(TransactionRepository transactionRepository,
+                           PlatformTransactionManager transactionManager,
+                           TransactionProperties transactionProperties,
+                           MeterRegistry meterRegistry,
+                           LongSupplier clock) {
+        this.transactionRepository = transactionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.properties = transactionProperties.getRecordCache();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        this.rejected = meterRegistry.counter("transaction.lookup.rejected");
+        this.clock = clock;
+    }
+
+    public Optional<TransactionDto> get(String transactionId) {
+        if (!properties.isEnabled()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(cache.getIfPresent(transactionId));
+    }
+
+    /**
+     * DB 를 보지 않아도 없는 거래라고 확실히 말할 수 있으면 true
+     */
+    public boolean isKnownAbsent(String transactionId) {
+        Filter current = filter;
+        if (!properties.isEnabled() || current == null) {
+            return false;
+        }
+        long createdAt = SnowflakeTransactionIdGenerator.timestampOf(transactionId);
+        if (createdAt < 0 || createdAt >= current.coveredUntil
+                || current.bloomFilter.mightContain(transactionId)) {
+            return false;
+        }
+        rejected.increment();
+        return true;
+    }
+
+    /**
+     * DB 에서 읽은(이미 커밋된) 거래를 캐시
+     */
+    public void put(TransactionDto transactionDto) {
+        if (properties.isEnabled()) {
+            cache.put(transactionDto.getTransactionId(), transactionDto);
+        }
+    }
+
+    /**
+     * 방금 저장한 거래. filter 에는 바로 넣고 (커밋 직후의 조회를 거르지 않도록),
+     * 캐시에는 커밋된 뒤에 넣는다. (롤백된 거래를 캐시에서 보여주지 않도록)
+     */
+    public void putAfterCommit(TransactionDto transactionDto) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Filter current = filter;
+        if (current != null) {
+            current.bloomFilter.put(transactionDto.getTransactionId());
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            put(transactionDto);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                put(transactionDto);
+            }
+        });
+    }
+
+    /**
+     * 거래 수가 많으면 오래 걸리므로 기동을 막지 않도록 별도 스레드에서 만든다.
+     * 다 만들기 전까지는 filter 로 거르지 않는다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Thread thread = new Thread(this::rebuild, "transaction-filter-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void rebuild() {
+        long startedAt = clock.getAsLong();
+        try {
+            long count = transactionRepository.count();
+            BloomFilter bloomFilter = new BloomFilter(
+                    Math.max(properties.getExpectedInsertions(), count * 2),
+                    properties.getFalsePositiveRate());
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<String> transactionIds = transactionRepository.streamAllTransactionIds()) {
+                    transactionIds.forEach(bloomFilter::put);
+                }
+            });
+            filter = new Filter(bloomFilter,
+                    startedAt - properties.getSafetyMargin().toMillis());
+            log.info("Rebuilt transaction id filter with {} ids ({} bits, {} hashes) in {} ms",
+                    count, bloomFilter.bitCount(), bloomFilter.hashCount(),
+                    clock.getAsLong() - startedAt);
+        } catch (RuntimeException e) {
+            log.error("Failed to rebuild transaction id filter", e);
+        }
+    }
+
+    private static class Filter {
+        private final BloomFilter bloomFilter;
+        private final long coveredUntil;
+
+        private Filter(BloomFilter bloomFilter, long coveredUntil) {
+            this.bloomFilter = bloomFilter;
+            this.coveredUntil = coveredUntil;
+        }
+    }
+}
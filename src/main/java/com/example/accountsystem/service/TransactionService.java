@@ -1,9 +1,14 @@
 package com.example.accountsystem.service;
 
 import com.example.accountsystem.domain.Account;
-import com.example.accountsystem.domain.AccountUser;
 import com.example.accountsystem.domain.Transaction;
+import com.example.accountsystem.dto.BalanceMutation;
+import com.example.accountsystem.dto.FailedTransaction;
 import com.example.accountsystem.dto.TransactionDto;
+import com.example.accountsystem.dto.TransactionHistory;
+import com.example.accountsystem.dto.TransactionHistoryItem;
+import com.example.accountsystem.dto.UseBalance;
+import com.example.accountsystem.dto.UseBalanceBatch;
 import com.example.accountsystem.exception.AccountException;
 import com.example.accountsystem.repository.AccountRepository;
 import com.example.accountsystem.repository.AccountUserRepository;
@@ -13,101 +18,372 @@ import com.example.accountsystem.type.TransactionResultType;
 import com.example.accountsystem.type.TransactionType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
 
-import java.util.Objects;
-import java.util.UUID;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
 
 import static com.example.accountsystem.type.ErrorCode.*;
 import static com.example.accountsystem.type.TransactionResultType.F;
 import static com.example.accountsystem.type.TransactionResultType.S;
-import static com.example.accountsystem.type.TransactionType.CANCEL;
-import static com.example.accountsystem.type.TransactionType.USE;
+import static com.example.accountsystem.type.TransactionType.*;
 import static java.time.LocalDateTime.now;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class TransactionService {
+    static final int MAX_HISTORY_PAGE_SIZE = 100;
+
     private final TransactionRepository transactionRepository;
     private final AccountUserRepository accountUserRepository;
     private final AccountRepository accountRepository;
+    private final BalanceSlotService balanceSlotService;
+    private final BalanceModeRegistry balanceModeRegistry;
+    private final TransactionIdGenerator transactionIdGenerator;
+    private final AccountListCache accountListCache;
+    private final TransactionRecordCache transactionRecordCache;
+    private final HotBalanceStore hotBalanceStore;
+    private final BalanceJournal balanceJournal;
 
+    /**
+     * 계좌만 조회한다. 소유주 확인은 계좌의 account_user_id 로 하므로 사용자는 읽지 않는다.
+     */
     @Transactional
     public TransactionDto useBalance(Long userId, String accountNumber,
                                      Long amount) {
-        AccountUser user = accountUserRepository.findById(userId)
-                .orElseThrow(() -> new AccountException(USER_NOT_FOUND));
         Account account = accountRepository.findByAccountNumber(accountNumber)
                 .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
 
-        validateUseBalance(user, account, amount);
+        validateUseBalance(userId, account, amount);
+        accountListCache.evictAfterCommit(userId);
+
+        return saveAndGetTransaction(USE, S, account, amount,
+                withdraw(account, amount));
+    }
+
+    /**
+     * 한 계좌에 대한 잔액 사용 요청 여러 건을 한 DB 트랜잭션에서 처리.
+     * 항목별 검증/차감 실패는 해당 항목만 실패(F) 거래로 남기고 나머지는 계속 진행하며,
+     * 거래 내역은 saveAll 로 한 번에 저장한다. (계좌 락은 호출하는 쪽에서 잡는다)
+     * @return 요청 순서대로 항목별 결과
+     */
+    @Transactional
+    public List<UseBalanceBatch.Item> useBalances(String accountNumber,
+                                                  List<UseBalance.Request> requests) {
+        Account account = accountRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+
+        List<Transaction> transactions = new ArrayList<>(requests.size());
+        List<UseBalanceBatch.Item> items = new ArrayList<>(requests.size());
+        for (UseBalance.Request request : requests) {
+            try {
+                validateUseBalance(request.getUserId(), account, request.getAmount());
+
+                Transaction transaction = newTransaction(USE, S, account, request.getAmount(),
+                        withdraw(account, request.getAmount()));
+                transactions.add(transaction);
+                items.add(UseBalanceBatch.Item.success(TransactionDto.fromEntity(transaction)));
+            } catch (AccountException e) {
+                transactions.add(newTransaction(USE, F, account, request.getAmount(),
+                        balanceOf(account)));
+                items.add(UseBalanceBatch.Item.failure(e.getErrorCode()));
+            }
+        }
+        transactionRepository.saveAll(transactions);
+        cacheAfterCommit(transactions);
+        for (Transaction transaction : transactions) {
+            if (transaction.getTransactionResultType() == S) {
+                balanceJournal.appendAfterCommit(TransactionDto.fromEntity(transaction));
+            }
+        }
+        accountListCache.evictAfterCommit(account.getAccountUser().getId());
+
+        return items;
+    }
+
+    /**
+     * 여러 계좌의 잔액 사용/취소를 한 DB 트랜잭션에서 처리. (BalanceMutationCoalescer)
+     * 계좌는 한 번에 조회하고, 항목별 검증 실패는 잔액을 바꾸기 전에 걸러 그 항목만 실패로 돌려준다.
+     * 성공 거래는 saveAll 로, 계좌 잔액 UPDATE 는 flush 때 JDBC 배치로 한 번에 나간다.
+     * 실패(F) 거래는 단건 처리와 같이 호출하는 쪽에서 FailedTransactionWriter 로 남긴다.
+     * 저널도 호출하는 쪽이 이 메서드가 끝난(커밋된) 뒤에 남긴다. afterCommit 에서 저널이 실패하면
+     * 커밋된 배치가 예외로 끝나 롤백된 것과 구분되지 않기 때문이다.
+     * (계좌 락은 호출하는 쪽에서 잡는다)
+     * @return 요청 순서대로 항목별 결과
+     */
+    @Transactional
+    public List<BalanceMutation.Result> applyMutations(List<BalanceMutation> mutations) {
+        Map<String, Account> accounts = accountRepository.findByAccountNumberIn(
+                        mutations.stream()
+                                .map(BalanceMutation::getAccountNumber)
+                                .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Account::getAccountNumber, account -> account));
+
+        List<Transaction> transactions = new ArrayList<>(mutations.size());
+        List<BalanceMutation.Result> results = new ArrayList<>(mutations.size());
+        Set<Long> userIds = new HashSet<>();
+        for (BalanceMutation mutation : mutations) {
+            try {
+                Account account = accounts.get(mutation.getAccountNumber());
+                if (account == null) {
+                    throw new AccountException(ACCOUNT_NOT_FOUND);
+                }
+                Transaction transaction = applyMutation(mutation, account);
+                transactions.add(transaction);
+                results.add(BalanceMutation.Result.success(TransactionDto.fromEntity(transaction)));
+                userIds.add(account.getAccountUser().getId());
+            } catch (AccountException e) {
+                results.add(BalanceMutation.Result.failure(e));
+            }
+        }
+        transactionRepository.saveAll(transactions);
+        cacheAfterCommit(transactions);
+        userIds.forEach(accountListCache::evictAfterCommit);
+
+        return results;
+    }
+
+    private Transaction applyMutation(BalanceMutation mutation, Account account) {
+        if (mutation.getTransactionType() == CANCEL) {
+            validateCancelBalance(queryTransaction(mutation.getTransactionId()),
+                    account.getAccountNumber(), mutation.getAmount());
+            return newTransaction(CANCEL, S, account, mutation.getAmount(),
+                    deposit(account, mutation.getAmount()));
+        }
+        validateUseBalance(mutation.getUserId(), account, mutation.getAmount());
+        return newTransaction(USE, S, account, mutation.getAmount(),
+                withdraw(account, mutation.getAmount()));
+    }
 
+    /**
+     * 한 DB 트랜잭션 안에서 출금 계좌 차감, 입금 계좌 증액.
+     * 두 계좌의 락은 LockAopAspect 가 계좌번호 순서로 함께 잡는다.
+     * HOT 계좌는 잔액이 Redis 에 있어 한 트랜잭션으로 묶을 수 없으므로 이체하지 않는다.
+     * @return 출금 거래
+     */
+    @Transactional
+    public TransactionDto transferBalance(Long userId, String fromAccountNumber,
+                                          String toAccountNumber, Long amount) {
+        if (Objects.equals(fromAccountNumber, toAccountNumber)) {
+            throw new AccountException(INVALID_REQUEST);
+        }
+        Account fromAccount = accountRepository.findByAccountNumber(fromAccountNumber)
+                .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+        Account toAccount = accountRepository.findByAccountNumber(toAccountNumber)
+                .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+
+        if (fromAccount.isHot() || toAccount.isHot()) {
+            throw new AccountException(BALANCE_MODE_NOT_SUPPORTED);
+        }
+        validateUseBalance(userId, fromAccount, amount);
+        if (toAccount.getAccountStatus() != AccountStatus.IN_USE) {
+            throw new AccountException(ACCOUNT_ALREADY_UNREGISTERED);
+        }
+
+        TransactionDto withdrawal = saveAndGetTransaction(TRANSFER_OUT, S, fromAccount,
+                amount, withdraw(fromAccount, amount));
+        saveAndGetTransaction(TRANSFER_IN, S, toAccount, amount, deposit(toAccount, amount));
+        accountListCache.evictAfterCommit(userId);
+        accountListCache.evictAfterCommit(toAccount.getAccountUser().getId());
+
+        return withdrawal;
+    }
+
+    /**
+     * @return 출금 후 잔액
+     */
+    private Long withdraw(Account account, Long amount) {
+        if (account.isStriped()) {
+            return balanceSlotService.debit(account, amount);
+        }
+        validateLockedBalanceMode(account);
         account.useBalance(amount);
+        return account.getBalance();
+    }
 
-        return saveAndGetTransaction(USE, S, account, amount);
+    /**
+     * @return 입금 후 잔액
+     */
+    private Long deposit(Account account, Long amount) {
+        if (account.isStriped()) {
+            return balanceSlotService.credit(account, amount);
+        }
+        validateLockedBalanceMode(account);
+        account.cancelBalance(amount);
+        return account.getBalance();
     }
 
     private TransactionDto saveAndGetTransaction(
             TransactionType transactionType,
             TransactionResultType transactionResultType,
             Account account,
-            Long amount) {
-        return TransactionDto.fromEntity(transactionRepository.save(
-                Transaction.builder()
-                        .transactionType(transactionType)
-                        .transactionResultType(transactionResultType)
-                        .account(account)
-                        .amount(amount)
-                        .balanceSnapshot(account.getBalance())
-                        .transactionId(UUID.randomUUID().toString().replace("-", ""))
-                        .transactedAt(now())
-                        .build()
+            Long amount,
+            Long balanceSnapshot) {
+        TransactionDto transactionDto = TransactionDto.fromEntity(transactionRepository.save(
+                newTransaction(transactionType, transactionResultType,
+                        account, amount, balanceSnapshot)
         ));
+        transactionRecordCache.putAfterCommit(transactionDto);
+        balanceJournal.appendAfterCommit(transactionDto);
+        return transactionDto;
     }
 
-    private void validateUseBalance(AccountUser user, Account account, Long amount) {
-        if (!Objects.equals(user.getId(), account.getAccountUser().getId())) {
-            throw new AccountException(USER_ACCOUNT_UN_MATCH);
+    private void cacheAfterCommit(List<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            transactionRecordCache.putAfterCommit(TransactionDto.fromEntity(transaction));
+        }
+    }
+
+    private Transaction newTransaction(
+            TransactionType transactionType,
+            TransactionResultType transactionResultType,
+            Account account,
+            Long amount,
+            Long balanceSnapshot) {
+        return newTransaction(transactionType, transactionResultType,
+                account, amount, balanceSnapshot, now());
+    }
+
+    private Transaction newTransaction(
+            TransactionType transactionType,
+            TransactionResultType transactionResultType,
+            Account account,
+            Long amount,
+            Long balanceSnapshot,
+            LocalDateTime transactedAt) {
+        return Transaction.builder()
+                .transactionType(transactionType)
+                .transactionResultType(transactionResultType)
+                .account(account)
+                .amount(amount)
+                .balanceSnapshot(balanceSnapshot)
+                .transactionId(transactionIdGenerator.nextId())
+                .transactedAt(transactedAt)
+                .build();
+    }
+
+    /**
+     * account.getAccountUser() 는 지연 로딩 프록시라 getId() 만으로는 조회가 일어나지 않는다.
+     * 소유주가 다를 때만 사용자 존재 여부를 확인해 오류 코드를 고른다.
+     */
+    private void validateUseBalance(Long userId, Account account, Long amount) {
+        if (!Objects.equals(userId, account.getAccountUser().getId())) {
+            throw new AccountException(accountUserRepository.existsById(userId)
+                    ? USER_ACCOUNT_UN_MATCH : USER_NOT_FOUND);
         }
         if (account.getAccountStatus() != AccountStatus.IN_USE) {
             throw new AccountException(ACCOUNT_ALREADY_UNREGISTERED);
         }
-        if (account.getBalance() < amount) {
+        if (!account.isStriped() && account.getBalance() < amount) {
             throw new AccountException(AMOUNT_EXCEED_BALANCE);
         }
     }
 
-    public void saveFailedUseTransaction(String accountNumber, Long amount) {
-        Account account = accountRepository.findByAccountNumber(accountNumber)
-                .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+    /**
+     * 이 노드가 STRIPED/HOT 으로 알고 있어 락 없이 들어왔는데 계좌는 이미 STANDARD 로
+     * 돌아간 경우 (모드 전환 직후). 락 없이 balance 를 바꾸지 않도록 재시도시킨다.
+     * 반대로 계좌가 HOT 인데 이 노드가 아직 모르는 경우도 잔액이 Redis 에 있으므로 재시도시킨다.
+     */
+    private void validateLockedBalanceMode(Account account) {
+        if (account.isHot() || balanceModeRegistry.isLockFree(account.getAccountNumber())) {
+            throw new AccountException(ACCOUNT_TRANSACTION_LOCK);
+        }
+    }
+
+    private Long balanceOf(Account account) {
+        if (account.isHot()) {
+            return hotBalanceStore.getState(account.getAccountNumber())
+                    .map(HotBalanceStore.State::getBalance)
+                    .orElse(account.getBalance());
+        }
+        return account.isStriped()
+                ? balanceSlotService.sumBalance(account)
+                : account.getBalance();
+    }
 
-        saveAndGetTransaction(USE, F, account, amount);
+    /**
+     * 실패(F) 거래를 한 번에 저장. 계좌는 한 번의 조회로 모두 가져오고,
+     * 잔액 스냅샷은 저장 시점의 잔액이다. 없는 계좌의 기록은 버린다.
+     */
+    @Transactional
+    public void saveFailedTransactions(List<FailedTransaction> failedTransactions) {
+        Map<String, Account> accounts = accountRepository.findByAccountNumberIn(
+                        failedTransactions.stream()
+                                .map(FailedTransaction::getAccountNumber)
+                                .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Account::getAccountNumber, account -> account));
+        Map<String, Long> balanceSnapshots = new HashMap<>();
+
+        List<Transaction> transactions = new ArrayList<>(failedTransactions.size());
+        for (FailedTransaction failedTransaction : failedTransactions) {
+            Account account = accounts.get(failedTransaction.getAccountNumber());
+            if (account == null) {
+                log.warn("Dropped failed transaction for unknown accountNumber : {}",
+                        failedTransaction.getAccountNumber());
+                continue;
+            }
+            transactions.add(newTransaction(failedTransaction.getTransactionType(), F,
+                    account, failedTransaction.getAmount(),
+                    balanceSnapshots.computeIfAbsent(account.getAccountNumber(),
+                            accountNumber -> balanceOf(account)),
+                    failedTransaction.getTransactedAt()));
+        }
+        transactionRepository.saveAll(transactions);
+        cacheAfterCommit(transactions);
     }
 
+    /**
+     * 원거래가 TransactionRecordCache 에 있으면 계좌만 조회하고,
+     * 없으면 원거래와 계좌를 한 번에 조회한다. (요청한 계좌가 원거래의 계좌가 아닐 때만
+     * 계좌를 따로 조회해 오류 코드를 고른다)
+     */
     @Transactional
     public TransactionDto cancelBalance(
             String transactionId,
             String accountNumber,
             Long amount) {
-        Transaction transaction = transactionRepository.findByTransactionId(transactionId)
-                .orElseThrow(() -> new AccountException(TRANSACTION_NOT_FOUND));
-        Account account = accountRepository.findByAccountNumber(accountNumber)
-                .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
-
-        validateCancelBalance(transaction, account, amount);
+        Optional<TransactionDto> cached = transactionRecordCache.get(transactionId);
+        TransactionDto original;
+        Account account;
+        if (cached.isPresent()) {
+            original = cached.get();
+            account = accountRepository.findByAccountNumber(accountNumber)
+                    .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+        } else {
+            Transaction transaction = findTransaction(transactionId);
+            original = TransactionDto.fromEntity(transaction);
+            transactionRecordCache.put(original);
+            account = Objects.equals(original.getAccountNumber(), accountNumber)
+                    ? transaction.getAccount()
+                    : accountRepository.findByAccountNumber(accountNumber)
+                            .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
+        }
 
-        account.cancelBalance(amount);
+        validateCancelBalance(original, account.getAccountNumber(), amount);
+        accountListCache.evictAfterCommit(account.getAccountUser().getId());
 
-        return saveAndGetTransaction(CANCEL, S, account, amount);
+        return saveAndGetTransaction(CANCEL, S, account, amount,
+                deposit(account, amount));
     }
 
-    private void validateCancelBalance(Transaction transaction, Account account, Long amount) {
-        if (!Objects.equals(transaction.getAccount().getId(), account.getId())) {
+    /**
+     * HotBalanceService 의 취소도 같은 규칙을 따른다.
+     */
+    static void validateCancelBalance(TransactionDto transaction, String accountNumber, Long amount) {
+        if (!Objects.equals(transaction.getAccountNumber(), accountNumber)) {
             throw new AccountException(TRANSACTION_ACCOUNT_UN_MATCH);
         }
+        if (transaction.getTransactionType() == TRANSFER_OUT
+                || transaction.getTransactionType() == TRANSFER_IN) {
+            throw new AccountException(TRANSFER_CANCEL_NOT_ALLOWED);
+        }
         if (!Objects.equals(transaction.getAmount(), amount)) {
             throw new AccountException(CANCEL_MUST_FULLY);
         }
@@ -116,18 +392,80 @@ public class TransactionService {
         }
     }
 
-    @Transactional
-    public void saveFailedCancelTransaction(String accountNumber, Long amount) {
-        Account account = accountRepository.findByAccountNumber(accountNumber)
+    /**
+     * 캐시, Redis 의 HOT 거래 색인(DB 반영 전 거래), DB 순으로 찾는다.
+     * 색인은 DB 반영이 커밋된 뒤에 지우므로 Redis 를 먼저 보면 반영 중인 거래도 놓치지 않는다.
+     * HOT 거래도 저장할 때 filter 에 들어가므로 filter 로 없는 거래를 먼저 거르고,
+     * HOT 계좌가 하나도 없으면 Redis 는 보지 않는다.
+     */
+    public TransactionDto queryTransaction(String transactionId) {
+        Optional<TransactionDto> cached = transactionRecordCache.get(transactionId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        if (transactionRecordCache.isKnownAbsent(transactionId)) {
+            throw new AccountException(TRANSACTION_NOT_FOUND);
+        }
+        if (balanceModeRegistry.hasHotAccounts()) {
+            Optional<TransactionDto> hot = hotBalanceStore.findTransaction(transactionId);
+            if (hot.isPresent()) {
+                return hot.get();
+            }
+        }
+
+        TransactionDto transactionDto = TransactionDto.fromEntity(
+                transactionRepository.findWithAccountByTransactionId(transactionId)
+                        .orElseThrow(() -> new AccountException(TRANSACTION_NOT_FOUND)));
+        transactionRecordCache.put(transactionDto);
+        return transactionDto;
+    }
+
+    /**
+     * 계좌 거래 내역 한 페이지 (최근 순, keyset).
+     * size + 1 건을 읽어 다음 페이지가 있는지 보고, 있으면 이 페이지 마지막 거래를 커서로 돌려준다.
+     * @param cursor 이전 페이지의 nextCursor (첫 페이지는 null)
+     */
+    public TransactionHistory getTransactionHistory(String accountNumber,
+                                                    TransactionType transactionType,
+                                                    TransactionResultType resultType,
+                                                    String cursor,
+                                                    int size) {
+        if (size < 1 || size > MAX_HISTORY_PAGE_SIZE) {
+            throw new AccountException(INVALID_REQUEST);
+        }
+        Long accountId = accountRepository.findIdByAccountNumber(accountNumber)
                 .orElseThrow(() -> new AccountException(ACCOUNT_NOT_FOUND));
 
-        saveAndGetTransaction(CANCEL, F, account, amount);
+        PageRequest page = PageRequest.of(0, size + 1);
+        List<TransactionHistoryItem> items;
+        if (cursor == null) {
+            items = transactionRepository.findHistory(accountId, transactionType, resultType, page);
+        } else {
+            TransactionHistory.Cursor after = TransactionHistory.Cursor.decode(cursor);
+            items = transactionRepository.findHistoryBefore(accountId, transactionType, resultType,
+                    after.getTransactedAt(), after.getId(), page);
+        }
+
+        String nextCursor = null;
+        if (items.size() > size) {
+            items = items.subList(0, size);
+            nextCursor = TransactionHistory.Cursor.of(items.get(size - 1)).encode();
+        }
+        return TransactionHistory.builder()
+                .accountNumber(accountNumber)
+                .items(items)
+                .nextCursor(nextCursor)
+                .build();
     }
 
-    public TransactionDto queryTransaction(String transactionId) {
-        return TransactionDto.fromEntity(
-                transactionRepository.findByTransactionId(transactionId)
-                .orElseThrow(() -> new AccountException(TRANSACTION_NOT_FOUND))
-        );
+    /**
+     * Bloom filter 로 없는 게 확실한 ID 는 DB 를 보지 않는다.
+     */
+    private Transaction findTransaction(String transactionId) {
+        if (transactionRecordCache.isKnownAbsent(transactionId)) {
+            throw new AccountException(TRANSACTION_NOT_FOUND);
+        }
+        return transactionRepository.findWithAccountByTransactionId(transactionId)
+                .orElseThrow(() -> new AccountException(TRANSACTION_NOT_FOUND));
     }
 }
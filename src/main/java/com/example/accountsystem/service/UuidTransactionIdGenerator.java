@@ -0,0 +1,19 @@
+package com.example.accountsystem.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * 기존 방식의 32자 랜덤 ID
+ */
+@Component
+@ConditionalOnProperty(prefix = "account-system.transaction",
+        name = "id-generator", havingValue = "uuid")
+public class UuidTransactionIdGenerator implements TransactionIdGenerator {
+    @Override
+    public String nextId() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+}
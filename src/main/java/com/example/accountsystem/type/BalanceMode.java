@@ -0,0 +1,7 @@
+package com.example.accountsystem.type;
+
+public enum BalanceMode {
+    STANDARD,
+    STRIPED,
+    HOT
+}
@@ -16,10 +16,15 @@ public enum ErrorCode {
     USER_ACCOUNT_UN_MATCH("사용자와 예금주가 다릅니다."),
     AMOUNT_EXCEED_BALANCE("거래 금액이 계좌 잔액보다 큽니다."),
     CANCEL_MUST_FULLY("부분 취소는 허용되지 않습니다."),
+    TRANSFER_CANCEL_NOT_ALLOWED("계좌 이체 거래는 취소할 수 없습니다."),
     TOO_OLD_ORDER_TO_CANCEL("1년이 지난 거래는 취소가 불가능합니다."),
     ACCOUNT_ALREADY_UNREGISTERED("계좌가 이미 해지되었습니다."),
     BALANCE_NOT_EMPTY("잔액이 있는 계좌는 해지할 수 없습니다."),
-    MAX_ACCOUNT_PER_USER_10("사용 가능한 최대 계좌는 10개입니다.")
+    MAX_ACCOUNT_PER_USER_10("사용 가능한 최대 계좌는 10개입니다."),
+    ACCOUNT_NUMBER_EXHAUSTED("발급 가능한 계좌번호가 없습니다."),
+    BALANCE_MODE_NOT_SUPPORTED("현재 잔액 모드에서는 지원하지 않는 요청입니다."),
+    IDEMPOTENCY_KEY_IN_PROGRESS("같은 멱등 키의 요청이 처리 중입니다."),
+    IDEMPOTENCY_KEY_REUSED("멱등 키가 다른 요청에 사용되었습니다.")
     ;
 
     private final String description;
@@ -0,0 +1,7 @@
+package com.example.accountsystem.type;
+
+public enum ExecutionMode {
+    LOCK,
+    PARTITIONED,
+    SEQUENCED
+}
@@ -0,0 +1,19 @@
+package com.example.accountsystem.type;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 거래 원장 내보내기 형식
+ * NDJSON : 한 줄에 거래 하나의 JSON
+ * CSV : 첫 줄은 헤더, 값에 쉼표나 따옴표가 있으면 따옴표로 감싼다. (RFC 4180)
+ */
+@Getter
+@AllArgsConstructor
+public enum ExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+}
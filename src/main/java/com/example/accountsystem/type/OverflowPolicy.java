@@ -0,0 +1,13 @@
+package com.example.accountsystem.type;
+
+/**
+ * 실패 거래 기록 큐가 가득 찼을 때의 처리
+ * DROP_NEWEST : 새 기록을 버린다.
+ * DROP_OLDEST : 가장 오래된 기록을 버리고 새 기록을 넣는다.
+ * CALLER_RUNS : 요청 스레드에서 바로 저장한다. (기록은 잃지 않지만 요청이 느려진다)
+ */
+public enum OverflowPolicy {
+    DROP_NEWEST,
+    DROP_OLDEST,
+    CALLER_RUNS
+}
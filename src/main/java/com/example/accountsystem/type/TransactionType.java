@@ -1,5 +1,12 @@
 package com.example.accountsystem.type;
 
 public enum TransactionType {
-    USE, CANCEL
+    USE, CANCEL, TRANSFER_OUT, TRANSFER_IN;
+
+    /**
+     * 잔액을 줄이는 거래
+     */
+    public boolean isDebit() {
+        return this == USE || this == TRANSFER_OUT;
+    }
 }
@@ -1,6 +0,0 @@
-insert into account_user(id, name, created_at, updated_at)
-values (1, 'Pororo', now(), now());
-insert into account_user(id, name, created_at, updated_at)
-values (2, 'Jango', now(), now());
-insert into account_user(id, name, created_at, updated_at)
-values (3, 'Haze', now(), now());
\ No newline at end of file
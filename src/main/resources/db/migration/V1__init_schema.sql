@@ -0,0 +1,73 @@
+-- 계좌 시스템 초기 스키마
+-- 시퀀스 increment 는 account-system.id.allocation-size 설정과 같아야 한다. (PooledIdGenerator)
+
+create sequence account_user_seq start with 1 increment by 50;
+create sequence account_seq start with 1 increment by 50;
+create sequence transaction_seq start with 1 increment by 500;
+create sequence balance_slot_seq start with 1 increment by 50;
+
+create table account_user (
+    id            bigint       not null,
+    name          varchar(255),
+    account_count integer      not null default 0,
+    created_at    timestamp,
+    updated_at    timestamp,
+    primary key (id)
+);
+
+create table account (
+    id                 bigint       not null,
+    account_user_id    bigint,
+    account_number     varchar(255),
+    account_status     varchar(255),
+    balance            bigint,
+    balance_mode       varchar(255),
+    balance_slot_count integer,
+    registered_at      timestamp,
+    un_registered_at   timestamp,
+    created_at         timestamp,
+    updated_at         timestamp,
+    primary key (id),
+    constraint fk_account_account_user foreign key (account_user_id) references account_user (id)
+);
+
+create table transaction (
+    id                      bigint       not null,
+    transaction_type        varchar(255),
+    transaction_result_type varchar(255),
+    account_id              bigint,
+    amount                  bigint,
+    balance_snapshot        bigint,
+    transaction_id          varchar(255),
+    transacted_at           timestamp,
+    created_at              timestamp,
+    updated_at              timestamp,
+    primary key (id),
+    constraint fk_transaction_account foreign key (account_id) references account (id)
+);
+
+create table balance_slot (
+    id         bigint  not null,
+    account_id bigint,
+    slot_index integer,
+    balance    bigint,
+    created_at timestamp,
+    updated_at timestamp,
+    primary key (id),
+    constraint fk_balance_slot_account foreign key (account_id) references account (id)
+);
+
+-- AccountRepository.findByAccountNumber (모든 거래 요청)
+alter table account add constraint uk_account_account_number unique (account_number);
+-- AccountRepository.findByAccountUser (계좌 목록)
+create index idx_account_account_user on account (account_user_id);
+-- AccountRepository.findAccountNumbersByBalanceMode (기동 시 STRIPED 계좌 로딩)
+create index idx_account_balance_mode on account (balance_mode);
+
+-- TransactionRepository.findByTransactionId (거래 취소/조회)
+alter table transaction add constraint uk_transaction_transaction_id unique (transaction_id);
+-- 계좌별 거래 내역 (최근 순)
+create index idx_transaction_account_transacted_at on transaction (account_id, transacted_at);
+
+-- BalanceSlotRepository (계좌, 슬롯 번호로 갱신)
+alter table balance_slot add constraint uk_balance_slot_account_slot unique (account_id, slot_index);
@@ -0,0 +1,8 @@
+insert into account_user(id, name, account_count, created_at, updated_at)
+values (1, 'Pororo', 0, now(), now());
+insert into account_user(id, name, account_count, created_at, updated_at)
+values (2, 'Jango', 0, now(), now());
+insert into account_user(id, name, account_count, created_at, updated_at)
+values (3, 'Haze', 0, now(), now());
+
+alter sequence account_user_seq restart with 4;
@@ -0,0 +1,2 @@
+-- HOT 잔액 모드 : DB 에 반영된 마지막 Redis 원장 seq
+alter table account add column hot_ledger_seq bigint;
@@ -0,0 +1,21 @@
+-- 이벤트 소싱 (SEQUENCED 모드) : 계좌별 원장 순번과 잔액 스냅샷
+alter table transaction add column ledger_seq bigint;
+-- TransactionRepository.findLedgerTails (기동 시 스냅샷 이후 거래 재생), 같은 순번이 두 번 저장되지 않도록
+alter table transaction add constraint uk_transaction_account_ledger_seq unique (account_id, ledger_seq);
+
+create sequence balance_snapshot_seq start with 1 increment by 50;
+
+create table balance_snapshot (
+    id         bigint not null,
+    account_id bigint,
+    balance    bigint,
+    ledger_seq bigint,
+    taken_at   timestamp,
+    created_at timestamp,
+    updated_at timestamp,
+    primary key (id),
+    constraint fk_balance_snapshot_account foreign key (account_id) references account (id)
+);
+
+-- BalanceSnapshotRepository (계좌마다 마지막 스냅샷 하나)
+alter table balance_snapshot add constraint uk_balance_snapshot_account unique (account_id);
@@ -0,0 +1,4 @@
+-- 계좌별 거래 내역 keyset 페이지 (TransactionRepository.findHistory, findHistoryBefore)
+-- 정렬 키 (transacted_at, id) 를 모두 인덱스에 넣어 커서 위치부터 바로 읽는다. 기존 인덱스는 이 인덱스의 앞부분이다.
+create index idx_transaction_account_transacted_at_id on transaction (account_id, transacted_at, id);
+drop index idx_transaction_account_transacted_at;
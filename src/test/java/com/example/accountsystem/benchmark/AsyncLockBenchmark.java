@@ -0,0 +1,209 @@
+package com.example.accountsystem.benchmark;
+
+import com.example.accountsystem.aop.LockPolicy;
+import com.example.accountsystem.config.LockProperties;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.service.LocalAccountLock;
+import com.example.accountsystem.service.LockMetrics;
+import com.example.accountsystem.service.LockService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import redis.embedded.RedisServer;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 같은 스레드 수에서 동기 락 대기와 비동기 락 대기의 처리량 비교
+ * 요청의 절반은 하나의 계좌에 몰리고, 나머지는 서로 다른 계좌를 사용한다.
+ * 동기 : 요청 스레드 THREADS 개가 락을 기다리며 DB 작업까지 수행
+ * 비동기 : 같은 수의 스레드를 요청 접수/워커로 나누고, 락 대기 중에는 스레드를 점유하지 않음
+ * ./gradlew benchmark --tests '*AsyncLockBenchmark'
+ */
+@Tag("benchmark")
+class AsyncLockBenchmark {
+    private static final int REDIS_PORT = 6391;
+    private static final int THREADS = 16;
+    private static final int MAX_IN_FLIGHT = 1024;
+    private static final long WORK_MILLIS = 2L;
+    private static final long DURATION_MILLIS = 5000L;
+    private static final String HOT_ACCOUNT = "1000000000";
+    private static final LockPolicy POLICY = new LockPolicy("benchmark", 1000L, 15000L);
+
+    private static RedisServer redisServer;
+    private static RedissonClient redissonClient;
+
+    @BeforeAll
+    static void startRedis() {
+        redisServer = new RedisServer(REDIS_PORT);
+        redisServer.start();
+        Config config = new Config();
+        config.useSingleServer().setAddress("redis://127.0.0.1:" + REDIS_PORT);
+        redissonClient = Redisson.create(config);
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redissonClient.shutdown();
+        redisServer.stop();
+    }
+
+    @Test
+    void hotAndColdAccountThroughput() throws InterruptedException {
+        Result blocking = runBlocking();
+        Result async = runAsync();
+
+        System.out.printf("%-10s %12s %12s %10s %12s%n",
+                "mode", "hot ops/s", "cold ops/s", "failures", "max in-flight");
+        print("blocking", blocking);
+        print("async", async);
+    }
+
+    private Result runBlocking() throws InterruptedException {
+        LockService lockService = newLockService();
+        Result result = new Result();
+        CountDownLatch done = new CountDownLatch(THREADS);
+        ExecutorService requestThreads = Executors.newFixedThreadPool(THREADS);
+        long deadline = deadline();
+        AtomicLong sequence = new AtomicLong();
+
+        for (int i = 0; i < THREADS; i++) {
+            requestThreads.execute(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        long n = sequence.incrementAndGet();
+                        List<String> accounts = List.of(accountOf(n));
+                        result.inFlight(1);
+                        try {
+                            lockService.lock(accounts, POLICY);
+                            try {
+                                work();
+                                result.completed(n);
+                            } finally {
+                                lockService.unlock(accounts);
+                            }
+                        } catch (AccountException e) {
+                            result.failures.incrementAndGet();
+                        } finally {
+                            result.inFlight(-1);
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        requestThreads.shutdown();
+        return result;
+    }
+
+    private Result runAsync() throws InterruptedException {
+        LockService lockService = newLockService();
+        Result result = new Result();
+        int dispatchers = THREADS / 2;
+        CountDownLatch done = new CountDownLatch(dispatchers);
+        ExecutorService requestThreads = Executors.newFixedThreadPool(dispatchers);
+        ExecutorService workers = Executors.newFixedThreadPool(THREADS - dispatchers);
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        long deadline = deadline();
+        AtomicLong sequence = new AtomicLong();
+
+        for (int i = 0; i < dispatchers; i++) {
+            requestThreads.execute(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        if (!inFlight.tryAcquire(10, TimeUnit.MILLISECONDS)) {
+                            continue;
+                        }
+                        long n = sequence.incrementAndGet();
+                        List<String> accounts = List.of(accountOf(n));
+                        result.inFlight(1);
+                        lockService.lockAsync(accounts, POLICY)
+                                .thenCompose(ownerId -> CompletableFuture.runAsync(() -> {
+                                    work();
+                                    result.completed(n);
+                                }, workers).whenComplete((ignored, e) ->
+                                        lockService.unlockAsync(accounts, ownerId)))
+                                .whenComplete((ignored, e) -> {
+                                    if (e != null) {
+                                        result.failures.incrementAndGet();
+                                    }
+                                    result.inFlight(-1);
+                                    inFlight.release();
+                                });
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        requestThreads.shutdown();
+        // 남은 요청이 끝날 때까지 대기 (처리량 계산에는 포함하지 않음)
+        inFlight.tryAcquire(MAX_IN_FLIGHT, 30, TimeUnit.SECONDS);
+        workers.shutdown();
+        return result;
+    }
+
+    private static LockService newLockService() {
+        LockProperties lockProperties = new LockProperties();
+        lockProperties.getLocal().setEnabled(false);
+        return new LockService(redissonClient, new LocalAccountLock(lockProperties),
+                new LockMetrics(new SimpleMeterRegistry(), lockProperties));
+    }
+
+    private static long deadline() {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS);
+    }
+
+    private static String accountOf(long n) {
+        return n % 2 == 0 ? HOT_ACCOUNT : String.valueOf(2_000_000_000L + n);
+    }
+
+    private static void work() {
+        try {
+            Thread.sleep(WORK_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void print(String mode, Result result) {
+        System.out.printf("%-10s %12.1f %12.1f %10d %12d%n", mode,
+                result.hot.get() * 1000.0 / DURATION_MILLIS,
+                result.cold.get() * 1000.0 / DURATION_MILLIS,
+                result.failures.get(),
+                result.maxInFlight.get());
+    }
+
+    private static class Result {
+        private final long startedAt = System.nanoTime();
+        private final AtomicLong hot = new AtomicLong();
+        private final AtomicLong cold = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+
+        private void completed(long n) {
+            if (System.nanoTime() - startedAt > TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS)) {
+                return;
+            }
+            (n % 2 == 0 ? hot : cold).incrementAndGet();
+        }
+
+        private void inFlight(int delta) {
+            maxInFlight.accumulateAndGet(inFlight.addAndGet(delta), Math::max);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.accountsystem.benchmark;
+
+import com.example.accountsystem.domain.Account;
+import com.example.accountsystem.domain.AccountUser;
+import com.example.accountsystem.domain.Transaction;
+import com.example.accountsystem.repository.AccountRepository;
+import com.example.accountsystem.repository.AccountUserRepository;
+import com.example.accountsystem.repository.TransactionRepository;
+import com.example.accountsystem.type.AccountStatus;
+import com.example.accountsystem.type.BalanceMode;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.accountsystem.type.TransactionResultType.S;
+import static com.example.accountsystem.type.TransactionType.USE;
+
+/**
+ * 거래 내역(Transaction) insert 처리량 비교
+ * Before : insert 마다 nextval, JDBC 배치 없음 (기존 @GeneratedValue 와 같은 조건)
+ * After : application.yml 의 pooled-lo 할당 + hibernate.jdbc.batch_size
+ * ./gradlew benchmark --tests '*LedgerInsertBenchmark*'
+ */
+abstract class LedgerInsertBenchmark {
+    private static final int ROWS = 50_000;
+    private static final int ROWS_PER_TRANSACTION = 1_000;
+
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void insertThroughput() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Account account = transactionTemplate.execute(status -> createAccount());
+
+        // 워밍업
+        insert(transactionTemplate, account, ROWS_PER_TRANSACTION * 5);
+
+        long startedAt = System.nanoTime();
+        insert(transactionTemplate, account, ROWS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+
+        System.out.printf("%-8s %,d rows in %,d ms (%,.0f rows/sec)%n",
+                getClass().getSimpleName(), ROWS, elapsedMillis,
+                ROWS * 1000.0 / Math.max(1L, elapsedMillis));
+    }
+
+    private void insert(TransactionTemplate transactionTemplate, Account account, int rows) {
+        for (int offset = 0; offset < rows; offset += ROWS_PER_TRANSACTION) {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Transaction> transactions = new ArrayList<>(ROWS_PER_TRANSACTION);
+                for (int i = 0; i < ROWS_PER_TRANSACTION; i++) {
+                    transactions.add(Transaction.builder()
+                            .transactionType(USE)
+                            .transactionResultType(S)
+                            .account(account)
+                            .amount(1000L)
+                            .balanceSnapshot(0L)
+                            .transactionId(Long.toHexString(System.nanoTime()) + i)
+                            .transactedAt(LocalDateTime.now())
+                            .build());
+                }
+                transactionRepository.saveAll(transactions);
+            });
+        }
+    }
+
+    private Account createAccount() {
+        AccountUser user = accountUserRepository.save(AccountUser.builder()
+                .name("benchmark").build());
+        return accountRepository.save(Account.builder()
+                .accountUser(user)
+                .accountNumber("1000000000")
+                .accountStatus(AccountStatus.IN_USE)
+                .balanceMode(BalanceMode.STANDARD)
+                .balance(0L)
+                .build());
+    }
+
+    @Tag("benchmark")
+    @DataJpaTest(properties = {
+            // 시퀀스 increment 가 Flyway 스키마(50/500)와 달라지므로 스키마를 Hibernate 가 만든다.
+            "spring.flyway.enabled=false",
+            "spring.jpa.hibernate.ddl-auto=create-drop",
+            "spring.jpa.properties.hibernate.show_sql=false",
+            "spring.jpa.properties.account-system.id.allocation-size.default=1",
+            "spring.jpa.properties.account-system.id.allocation-size.transaction=1",
+            "spring.jpa.properties.hibernate.jdbc.batch_size=1",
+            "spring.jpa.properties.hibernate.order_inserts=false"
+    })
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    static class Before extends LedgerInsertBenchmark {
+    }
+
+    @Tag("benchmark")
+    @DataJpaTest(properties = "spring.jpa.properties.hibernate.show_sql=false")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    static class After extends LedgerInsertBenchmark {
+    }
+}
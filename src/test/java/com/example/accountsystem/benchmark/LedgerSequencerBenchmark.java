@@ -0,0 +1,149 @@
+package com.example.accountsystem.benchmark;
+
+import com.example.accountsystem.controller.TransactionController;
+import com.example.accountsystem.domain.Account;
+import com.example.accountsystem.domain.AccountUser;
+import com.example.accountsystem.dto.UseBalance;
+import com.example.accountsystem.repository.AccountRepository;
+import com.example.accountsystem.repository.AccountUserRepository;
+import com.example.accountsystem.type.AccountStatus;
+import com.example.accountsystem.type.BalanceMode;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 잔액 사용 처리량 비교 (컨트롤러부터 DB 커밋까지)
+ * Lock : 계좌 락(@AccountLock) + 요청마다 JPA 트랜잭션 (account-system.transaction.mode=lock)
+ * Sequenced : 링 버퍼 + 단일 업무 스레드 + 배치 DB 반영 (mode=sequenced)
+ * 요청의 절반은 하나의 계좌에 몰리고, 나머지는 ACCOUNTS 개 계좌에 나눈다.
+ * (컨텍스트가 함께 떠 있으므로 Redis 포트와 H2 DB 를 따로 쓴다)
+ * ./gradlew benchmark --tests '*LedgerSequencerBenchmark*'
+ */
+abstract class LedgerSequencerBenchmark {
+    private static final int DISPATCHERS = 8;
+    private static final int MAX_IN_FLIGHT = 4096;
+    private static final int ACCOUNTS = 64;
+    private static final long DURATION_MILLIS = 5000L;
+    private static final long INITIAL_BALANCE = 1_000_000_000_000L;
+
+    @Autowired
+    private TransactionController transactionController;
+
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    private final AtomicLong failures = new AtomicLong();
+
+    @Test
+    void useBalanceThroughput() throws InterruptedException {
+        List<String> accountNumbers = createAccounts();
+
+        // 워밍업
+        run(accountNumbers, 1000L);
+
+        long completed = run(accountNumbers, DURATION_MILLIS);
+        System.out.printf("%-10s %,d uses in %,d ms (%,.0f ops/sec), failures %,d%n",
+                getClass().getSimpleName(), completed, DURATION_MILLIS,
+                completed * 1000.0 / DURATION_MILLIS, failures.get());
+    }
+
+    private long run(List<String> accountNumbers, long durationMillis) throws InterruptedException {
+        failures.set(0);
+        AtomicLong completed = new AtomicLong();
+        AtomicLong sequence = new AtomicLong();
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        CountDownLatch done = new CountDownLatch(DISPATCHERS);
+        ExecutorService dispatchers = Executors.newFixedThreadPool(DISPATCHERS);
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+
+        for (int i = 0; i < DISPATCHERS; i++) {
+            dispatchers.execute(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        if (!inFlight.tryAcquire(10, TimeUnit.MILLISECONDS)) {
+                            continue;
+                        }
+                        long n = sequence.incrementAndGet();
+                        String accountNumber = n % 2 == 0
+                                ? accountNumbers.get(0)
+                                : accountNumbers.get((int) (n % accountNumbers.size()));
+                        transactionController.useBalance(
+                                        new UseBalance.Request(1L, accountNumber, 1L))
+                                .whenComplete((response, e) -> {
+                                    if (e != null) {
+                                        failures.incrementAndGet();
+                                    } else if (System.nanoTime() < deadline) {
+                                        completed.incrementAndGet();
+                                    }
+                                    inFlight.release();
+                                });
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        dispatchers.shutdown();
+        // 남은 요청이 끝날 때까지 대기 (처리량 계산에는 포함하지 않음)
+        inFlight.tryAcquire(MAX_IN_FLIGHT, 60, TimeUnit.SECONDS);
+        return completed.get();
+    }
+
+    private List<String> createAccounts() {
+        AccountUser user = accountUserRepository.findById(1L).orElseThrow();
+        List<Account> accounts = new ArrayList<>(ACCOUNTS);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.add(Account.builder()
+                    .accountUser(user)
+                    .accountNumber(String.valueOf(3_000_000_000L + i))
+                    .accountStatus(AccountStatus.IN_USE)
+                    .balanceMode(BalanceMode.STANDARD)
+                    .balance(INITIAL_BALANCE)
+                    .registeredAt(LocalDateTime.now())
+                    .build());
+        }
+        List<String> accountNumbers = new ArrayList<>(ACCOUNTS);
+        accountRepository.saveAll(accounts)
+                .forEach(account -> accountNumbers.add(account.getAccountNumber()));
+        return accountNumbers;
+    }
+
+    @Tag("benchmark")
+    @SpringBootTest(properties = {
+            "spring.redis.port=6394",
+            "spring.datasource.url=jdbc:h2:mem:sequencer-lock",
+            "spring.jpa.properties.hibernate.show_sql=false",
+            "account-system.transaction.mode=lock"
+    })
+    static class Lock extends LedgerSequencerBenchmark {
+    }
+
+    @Tag("benchmark")
+    @SpringBootTest(properties = {
+            "spring.redis.port=6395",
+            "spring.datasource.url=jdbc:h2:mem:sequencer-sequenced",
+            "spring.jpa.properties.hibernate.show_sql=false",
+            "account-system.transaction.mode=sequenced"
+    })
+    static class Sequenced extends LedgerSequencerBenchmark {
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.accountsystem.benchmark;
+
+import com.example.accountsystem.config.LockProperties;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.service.LocalAccountLock;
+import com.example.accountsystem.service.LockMetrics;
+import com.example.accountsystem.service.LockService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import redis.embedded.RedisServer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 하나의 계좌에 요청이 몰릴 때 로컬 락 티어 유무에 따른 처리량 비교
+ * ./gradlew benchmark --tests '*LockThroughputBenchmark'
+ */
+@Tag("benchmark")
+class LockThroughputBenchmark {
+    private static final int REDIS_PORT = 6390;
+    private static final int THREADS = 16;
+    private static final long DURATION_MILLIS = 5000L;
+    private static final String HOT_ACCOUNT = "1000000000";
+
+    private static RedisServer redisServer;
+    private static RedissonClient redissonClient;
+
+    @BeforeAll
+    static void startRedis() {
+        redisServer = new RedisServer(REDIS_PORT);
+        redisServer.start();
+        Config config = new Config();
+        config.useSingleServer().setAddress("redis://127.0.0.1:" + REDIS_PORT);
+        redissonClient = Redisson.create(config);
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redissonClient.shutdown();
+        redisServer.stop();
+    }
+
+    @Test
+    void hotAccountThroughput() throws InterruptedException {
+        Result withoutLocal = run(false);
+        Result withLocal = run(true);
+
+        System.out.printf("%-18s %12s %10s%n", "mode", "ops/sec", "failures");
+        System.out.printf("%-18s %12.1f %10d%n", "redis only", withoutLocal.opsPerSec, withoutLocal.failures);
+        System.out.printf("%-18s %12.1f %10d%n", "local + redis", withLocal.opsPerSec, withLocal.failures);
+    }
+
+    private Result run(boolean localEnabled) throws InterruptedException {
+        LockProperties lockProperties = new LockProperties();
+        lockProperties.getLocal().setEnabled(localEnabled);
+        LockService lockService = new LockService(redissonClient, new LocalAccountLock(lockProperties),
+                new LockMetrics(new SimpleMeterRegistry(), lockProperties));
+
+        AtomicLong completed = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION_MILLIS);
+
+        for (int i = 0; i < THREADS; i++) {
+            executor.execute(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        try {
+                            lockService.lock(HOT_ACCOUNT);
+                        } catch (AccountException e) {
+                            failures.incrementAndGet();
+                            continue;
+                        }
+                        try {
+                            completed.incrementAndGet();
+                        } finally {
+                            lockService.unlock(HOT_ACCOUNT);
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        executor.shutdown();
+
+        return new Result(completed.get() * 1000.0 / DURATION_MILLIS, failures.get());
+    }
+
+    private static class Result {
+        private final double opsPerSec;
+        private final long failures;
+
+        private Result(double opsPerSec, long failures) {
+            this.opsPerSec = opsPerSec;
+            this.failures = failures;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.accountsystem.benchmark;
+
+import com.example.accountsystem.domain.AccountUser;
+import com.example.accountsystem.repository.AccountRepository;
+import com.example.accountsystem.repository.AccountUserRepository;
+import com.example.accountsystem.repository.TransactionRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntConsumer;
+
+/**
+ * 거래 요청/취소/조회/계좌 목록이 타는 조회 경로의 지연시간 측정
+ * transaction 테이블에 benchmark.rows 건(기본 1천만 건)을 넣고 repository 메서드별 p50/p99 를 출력한다.
+ * Indexed : Flyway 스키마 그대로
+ * Unindexed : 조회용 유니크 제약/인덱스를 지운 스키마 (ddl-auto 만 쓰던 이전 상태)
+ * ./gradlew benchmark --tests '*RepositoryLookupBenchmark*' -Dbenchmark.rows=10000000
+ */
+abstract class RepositoryLookupBenchmark {
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 10_000_000);
+    private static final int ROWS_PER_INSERT = 1_000_000;
+    private static final int USERS = 100;
+    private static final int ACCOUNTS = 1_000;
+    private static final int USER_ID_OFFSET = 100;
+    private static final long ACCOUNT_NUMBER_OFFSET = 2_000_000_000L;
+    private static final int WARMUP_LOOKUPS = 2_000;
+    private static final int LOOKUPS = 10_000;
+
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Test
+    void lookupLatency() {
+        prepareSchema();
+        seed();
+
+        measure("findByAccountNumber", ACCOUNTS, i -> accountRepository
+                .findByAccountNumber(String.valueOf(ACCOUNT_NUMBER_OFFSET + i))
+                .orElseThrow());
+        measure("findByTransactionId", ROWS, i -> transactionRepository
+                .findByTransactionId(transactionIdOf(i))
+                .orElseThrow());
+        measure("findByAccountUser", USERS, i -> {
+            AccountUser accountUser = new AccountUser();
+            accountUser.setId((long) USER_ID_OFFSET + i);
+            accountRepository.findByAccountUser(accountUser);
+        });
+        measure("findAccountInfosByAccountUserId", USERS, i -> accountRepository
+                .findAccountInfosByAccountUserId((long) USER_ID_OFFSET + i));
+    }
+
+    protected void prepareSchema() {
+    }
+
+    private void seed() {
+        long startedAt = System.nanoTime();
+        jdbcTemplate.update("insert into account_user(id, name, account_count, created_at, updated_at) " +
+                "select x, concat('user', x), 10, now(), now() from system_range(?, ?)",
+                USER_ID_OFFSET + 1, USER_ID_OFFSET + USERS);
+        jdbcTemplate.update("insert into account(id, account_user_id, account_number, account_status, " +
+                        "balance, balance_mode, balance_slot_count, registered_at, created_at, updated_at) " +
+                        "select x, ? + mod(x - 1, ?) + 1, cast(? + x as varchar), 'IN_USE', " +
+                        "1000000000, 'STANDARD', 0, now(), now(), now() from system_range(1, ?)",
+                USER_ID_OFFSET, USERS, ACCOUNT_NUMBER_OFFSET, ACCOUNTS);
+        for (int from = 1; from <= ROWS; from += ROWS_PER_INSERT) {
+            jdbcTemplate.update("insert into transaction(id, transaction_type, transaction_result_type, " +
+                            "account_id, amount, balance_snapshot, transaction_id, transacted_at, " +
+                            "created_at, updated_at) " +
+                            "select x, 'USE', 'S', mod(x - 1, ?) + 1, 1000, 0, concat('BENCH', x), " +
+                            "dateadd('SECOND', x, timestamp '2022-01-01 00:00:00'), now(), now() " +
+                            "from system_range(?, ?)",
+                    ACCOUNTS, from, Math.min(ROWS, from + ROWS_PER_INSERT - 1));
+        }
+        System.out.printf("%-10s seeded %,d transactions in %,d ms%n",
+                getClass().getSimpleName(), ROWS, (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    private void measure(String name, int keyCount, IntConsumer lookup) {
+        for (int i = 0; i < WARMUP_LOOKUPS; i++) {
+            lookup.accept(randomKey(keyCount));
+        }
+
+        long[] latencies = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            int key = randomKey(keyCount);
+            long startedAt = System.nanoTime();
+            lookup.accept(key);
+            latencies[i] = System.nanoTime() - startedAt;
+        }
+
+        Arrays.sort(latencies);
+        System.out.printf("%-10s %-32s p50 %,8.1f us  p99 %,10.1f us%n",
+                getClass().getSimpleName(), name,
+                latencies[LOOKUPS / 2] / 1000.0,
+                latencies[LOOKUPS * 99 / 100] / 1000.0);
+    }
+
+    private static int randomKey(int keyCount) {
+        return ThreadLocalRandom.current().nextInt(keyCount) + 1;
+    }
+
+    private static String transactionIdOf(int i) {
+        return "BENCH" + i;
+    }
+
+    @Tag("benchmark")
+    @DataJpaTest(properties = "spring.jpa.properties.hibernate.show_sql=false")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    static class Indexed extends RepositoryLookupBenchmark {
+    }
+
+    @Tag("benchmark")
+    @DataJpaTest(properties = "spring.jpa.properties.hibernate.show_sql=false")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    static class Unindexed extends RepositoryLookupBenchmark {
+        private static final List<String> DROP_INDEXES = List.of(
+                "alter table account drop constraint uk_account_account_number",
+                "drop index idx_account_account_user",
+                "alter table transaction drop constraint uk_transaction_transaction_id",
+                "drop index idx_transaction_account_transacted_at_id");
+
+        @Override
+        protected void prepareSchema() {
+            DROP_INDEXES.forEach(jdbcTemplate::execute);
+        }
+    }
+}
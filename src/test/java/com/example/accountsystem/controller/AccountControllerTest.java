@@ -2,12 +2,21 @@ package com.example.accountsystem.controller;
 
 import com.example.accountsystem.domain.Account;
 import com.example.accountsystem.dto.AccountDto;
+import com.example.accountsystem.dto.AccountInfo;
+import com.example.accountsystem.dto.ChangeBalanceMode;
 import com.example.accountsystem.dto.CreateAccount;
 import com.example.accountsystem.dto.DeleteAccount;
+import com.example.accountsystem.dto.TransactionHistory;
+import com.example.accountsystem.dto.TransactionHistoryItem;
 import com.example.accountsystem.exception.AccountException;
 import com.example.accountsystem.type.AccountStatus;
 import com.example.accountsystem.service.AccountService;
+import com.example.accountsystem.service.BalanceModeService;
+import com.example.accountsystem.service.TransactionService;
+import com.example.accountsystem.type.BalanceMode;
 import com.example.accountsystem.type.ErrorCode;
+import com.example.accountsystem.type.TransactionResultType;
+import com.example.accountsystem.type.TransactionType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +29,8 @@ import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
@@ -33,6 +44,12 @@ class AccountControllerTest {
     @MockBean
     private AccountService accountService;
 
+    @MockBean
+    private BalanceModeService balanceModeService;
+
+    @MockBean
+    private TransactionService transactionService;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -122,20 +139,20 @@ class AccountControllerTest {
     @Test
     void successGetAccountsByUserId() throws Exception {
         // given
-        List<AccountDto> accountDtos =
+        List<AccountInfo> accountInfos =
                 Arrays.asList(
-                        AccountDto.builder()
+                        AccountInfo.builder()
                                 .accountNumber("12345674890")
                                 .balance(1000L).build(),
-                        AccountDto.builder()
+                        AccountInfo.builder()
                                 .accountNumber("9876543210")
                                 .balance(1000L).build(),
-                        AccountDto.builder()
+                        AccountInfo.builder()
                                 .accountNumber("1234598760")
                                 .balance(1000L).build()
                 );
         given(accountService.getAccountByUserId(anyLong()))
-                .willReturn(accountDtos);
+                .willReturn(accountInfos);
         // when
         // then
         mockMvc.perform(get("/account?user_id=1"))
@@ -147,4 +164,63 @@ class AccountControllerTest {
                 .andExpect(jsonPath("$[2].accountNumber").value("1234598760"))
                 .andExpect(jsonPath("$[2].balance").value(1000L));
     }
-}
\ No newline at end of file
+
+    @Test
+    void successChangeBalanceMode() throws Exception {
+        // given
+        given(balanceModeService.changeBalanceMode(anyString(), any(), anyInt()))
+                .willReturn(AccountDto.builder()
+                        .accountNumber("1234567890")
+                        .balanceMode(BalanceMode.STRIPED)
+                        .balanceSlotCount(8)
+                        .balance(10000L)
+                        .build());
+
+        // when
+        // then
+        mockMvc.perform(post("/account/balance-mode")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new ChangeBalanceMode.Request("1234567890",
+                                        BalanceMode.STRIPED, 8)
+                        )))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accountNumber").value("1234567890"))
+                .andExpect(jsonPath("$.balanceMode").value("STRIPED"))
+                .andExpect(jsonPath("$.balanceSlotCount").value(8))
+                .andExpect(jsonPath("$.balance").value(10000L));
+    }
+
+    @Test
+    void successGetTransactionHistory() throws Exception {
+        // given
+        given(transactionService.getTransactionHistory(
+                "1234567890", TransactionType.USE, null, "cursor", 2))
+                .willReturn(TransactionHistory.builder()
+                        .accountNumber("1234567890")
+                        .items(List.of(TransactionHistoryItem.builder()
+                                .id(7L)
+                                .transactionId("transactionId")
+                                .transactionType(TransactionType.USE)
+                                .transactionResult(TransactionResultType.S)
+                                .amount(1000L)
+                                .balanceSnapshot(9000L)
+                                .transactedAt(LocalDateTime.now())
+                                .build()))
+                        .nextCursor("next")
+                        .build());
+
+        // when
+        // then
+        mockMvc.perform(get("/account/1234567890/transactions")
+                        .param("transaction_type", "USE")
+                        .param("cursor", "cursor")
+                        .param("size", "2"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].transactionId").value("transactionId"))
+                .andExpect(jsonPath("$.items[0].id").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+}
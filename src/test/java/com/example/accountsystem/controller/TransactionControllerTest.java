@@ -1,10 +1,24 @@
 package com.example.accountsystem.controller;
 
+import com.example.accountsystem.config.TransactionProperties;
 import com.example.accountsystem.dto.AccountDto;
 import com.example.accountsystem.dto.CancelBalance;
 import com.example.accountsystem.dto.TransactionDto;
+import com.example.accountsystem.dto.TransactionExport;
+import com.example.accountsystem.dto.TransferBalance;
 import com.example.accountsystem.dto.UseBalance;
+import com.example.accountsystem.dto.UseBalanceBatch;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.service.BalanceMutationCoalescer;
+import com.example.accountsystem.service.BalanceMutationExecutor;
+import com.example.accountsystem.service.FailedTransactionWriter;
+import com.example.accountsystem.service.HotBalanceService;
+import com.example.accountsystem.service.LedgerSequencer;
+import com.example.accountsystem.service.TransactionBatchService;
+import com.example.accountsystem.service.TransactionLedgerExporter;
 import com.example.accountsystem.service.TransactionService;
+import com.example.accountsystem.type.ErrorCode;
+import com.example.accountsystem.type.ExportFormat;
 import com.example.accountsystem.type.TransactionResultType;
 import com.example.accountsystem.type.TransactionType;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -12,30 +26,62 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.Writer;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static com.example.accountsystem.type.TransactionResultType.*;
 import static com.example.accountsystem.type.TransactionType.USE;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(TransactionController.class)
+@Import({BalanceMutationExecutor.class, TransactionProperties.class})
 class TransactionControllerTest {
     @MockBean
     private TransactionService transactionService;
 
+    @MockBean
+    private TransactionBatchService transactionBatchService;
+
+    @MockBean
+    private FailedTransactionWriter failedTransactionWriter;
+
+    @MockBean
+    private HotBalanceService hotBalanceService;
+
+    @MockBean
+    private LedgerSequencer ledgerSequencer;
+
+    @MockBean
+    private BalanceMutationCoalescer balanceMutationCoalescer;
+
+    @MockBean
+    private TransactionLedgerExporter transactionLedgerExporter;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -55,12 +101,17 @@ class TransactionControllerTest {
                         .build());
         // when
         // then
-        mockMvc.perform(post("/transaction/use")
+        MvcResult mvcResult = mockMvc.perform(post("/transaction/use")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(
                                 new UseBalance.Request(1L, "2000000000", 3000L)
                         ))
-                ).andDo(print())
+                )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andDo(print())
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.accountNumber").value("1000000000"))
                 .andExpect(jsonPath("$.amount").value(12345L))
@@ -68,6 +119,99 @@ class TransactionControllerTest {
                 .andExpect(jsonPath("$.transactionResult").value("S"));
     }
 
+    @Test
+    void useBalanceOfHotAccountGoesToRedis() throws Exception {
+        // given
+        given(hotBalanceService.isHot("2000000000"))
+                .willReturn(true);
+        given(hotBalanceService.useBalance(1L, "2000000000", 3000L))
+                .willReturn(TransactionDto.builder()
+                        .accountNumber("2000000000")
+                        .transactedAt(LocalDateTime.now())
+                        .amount(3000L)
+                        .transactionId("transactionId")
+                        .transactionResultType(S)
+                        .build());
+        // when
+        MvcResult mvcResult = mockMvc.perform(post("/transaction/use")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UseBalance.Request(1L, "2000000000", 3000L)
+                        ))
+                )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accountNumber").value("2000000000"))
+                .andExpect(jsonPath("$.transactionResult").value("S"));
+        verify(transactionService, never()).useBalance(anyLong(), anyString(), anyLong());
+    }
+
+    @Test
+    void useBalanceWithCoalescingGoesToCoalescer() throws Exception {
+        // given
+        given(balanceMutationCoalescer.accepts("2000000000"))
+                .willReturn(true);
+        given(balanceMutationCoalescer.useBalance(1L, "2000000000", 3000L))
+                .willReturn(CompletableFuture.completedFuture(TransactionDto.builder()
+                        .accountNumber("2000000000")
+                        .transactedAt(LocalDateTime.now())
+                        .amount(3000L)
+                        .transactionId("transactionId")
+                        .transactionResultType(S)
+                        .build()));
+        // when
+        MvcResult mvcResult = mockMvc.perform(post("/transaction/use")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UseBalance.Request(1L, "2000000000", 3000L)
+                        ))
+                )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accountNumber").value("2000000000"))
+                .andExpect(jsonPath("$.transactionResult").value("S"));
+        verify(transactionService, never()).useBalance(anyLong(), anyString(), anyLong());
+    }
+
+    @Test
+    void useBalanceInSequencedModeGoesToSequencer() throws Exception {
+        // given
+        given(ledgerSequencer.isEnabled())
+                .willReturn(true);
+        given(ledgerSequencer.useBalance(1L, "2000000000", 3000L))
+                .willReturn(CompletableFuture.completedFuture(TransactionDto.builder()
+                        .accountNumber("2000000000")
+                        .transactedAt(LocalDateTime.now())
+                        .amount(3000L)
+                        .transactionId("transactionId")
+                        .transactionResultType(S)
+                        .build()));
+        // when
+        MvcResult mvcResult = mockMvc.perform(post("/transaction/use")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UseBalance.Request(1L, "2000000000", 3000L)
+                        ))
+                )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.transactionId").value("transactionId"));
+        verify(transactionService, never()).useBalance(anyLong(), anyString(), anyLong());
+        verify(hotBalanceService, never()).isHot(anyString());
+    }
+
     @Test
     void successCancelBalance() throws Exception {
         // given
@@ -81,13 +225,18 @@ class TransactionControllerTest {
                         .build());
         // when
         // then
-        mockMvc.perform(post("/transaction/cancel")
+        MvcResult mvcResult = mockMvc.perform(post("/transaction/cancel")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(
                                 new CancelBalance.Request("transactionId",
                                         "2000000000", 3000L)
                         ))
-                ).andDo(print())
+                )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andDo(print())
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.accountNumber").value("1000000000"))
                 .andExpect(jsonPath("$.amount").value(54321L))
@@ -95,6 +244,102 @@ class TransactionControllerTest {
                 .andExpect(jsonPath("$.transactionResult").value("S"));
     }
 
+    @Test
+    void successTransferBalance() throws Exception {
+        // given
+        given(transactionService.transferBalance(anyLong(), anyString(), anyString(), anyLong()))
+                .willReturn(TransactionDto.builder()
+                        .accountNumber("1000000000")
+                        .transactionType(TransactionType.TRANSFER_OUT)
+                        .transactedAt(LocalDateTime.now())
+                        .amount(3000L)
+                        .transactionId("transactionId")
+                        .transactionResultType(S)
+                        .build());
+        // when
+        // then
+        MvcResult mvcResult = mockMvc.perform(post("/transaction/transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new TransferBalance.Request(1L,
+                                        "1000000000", "2000000000", 3000L)
+                        ))
+                )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fromAccountNumber").value("1000000000"))
+                .andExpect(jsonPath("$.toAccountNumber").value("2000000000"))
+                .andExpect(jsonPath("$.amount").value(3000L))
+                .andExpect(jsonPath("$.transactionId").value("transactionId"))
+                .andExpect(jsonPath("$.transactionResult").value("S"));
+    }
+
+    @Test
+    void failUseBalance_saveFailedTransaction() throws Exception {
+        // given
+        given(transactionService.useBalance(anyLong(), anyString(), anyLong()))
+                .willThrow(new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE));
+        // when
+        MvcResult mvcResult = mockMvc.perform(post("/transaction/use")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UseBalance.Request(1L, "2000000000", 3000L)
+                        )))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.errorCode").value("AMOUNT_EXCEED_BALANCE"));
+        verify(failedTransactionWriter, times(1))
+                .record(USE, "2000000000", 3000L);
+    }
+
+    @Test
+    void successUseBalanceBatch() throws Exception {
+        // given
+        UseBalanceBatch.Item success = UseBalanceBatch.Item.success(TransactionDto.builder()
+                .accountNumber("1000000000")
+                .transactedAt(LocalDateTime.now())
+                .amount(1000L)
+                .transactionId("transactionId")
+                .transactionResultType(S)
+                .build());
+        success.setIndex(0);
+        UseBalanceBatch.Item failure = UseBalanceBatch.Item.failure(ErrorCode.AMOUNT_EXCEED_BALANCE);
+        failure.setIndex(1);
+        given(transactionBatchService.useBalances(any()))
+                .willReturn(CompletableFuture.completedFuture(
+                        UseBalanceBatch.Response.from(Arrays.asList(success, failure))));
+        // when
+        MvcResult mvcResult = mockMvc.perform(post("/transaction/use/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UseBalanceBatch.Request(Arrays.asList(
+                                        new UseBalance.Request(1L, "1000000000", 1000L),
+                                        new UseBalance.Request(1L, "1000000000", 9000000L)
+                                ))
+                        )))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.successCount").value(1))
+                .andExpect(jsonPath("$.failureCount").value(1))
+                .andExpect(jsonPath("$.items[0].result.transactionId").value("transactionId"))
+                .andExpect(jsonPath("$.items[1].index").value(1))
+                .andExpect(jsonPath("$.items[1].error.errorCode").value("AMOUNT_EXCEED_BALANCE"));
+    }
+
     @Test
     void successQueryTransaction() throws Exception {
         // given
@@ -118,4 +363,36 @@ class TransactionControllerTest {
                 .andExpect(jsonPath("$.transactionId").value("transactionId"))
                 .andExpect(jsonPath("$.transactionResult").value("S"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void exportTransactionsStreamsToResponse() throws Exception {
+        // given
+        LocalDateTime from = LocalDateTime.of(2022, 7, 1, 0, 0);
+        TransactionExport export = TransactionExport.builder()
+                .format(ExportFormat.CSV)
+                .accountId(1L)
+                .from(from)
+                .build();
+        given(transactionLedgerExporter.prepare(ExportFormat.CSV, "1000000000", from, null))
+                .willReturn(export);
+        given(transactionLedgerExporter.export(eq(export), any()))
+                .willAnswer(invocation -> {
+                    Writer writer = invocation.getArgument(1);
+                    writer.write("transactionId\r\n");
+                    writer.flush();
+                    return 0L;
+                });
+
+        // when
+        // then
+        mockMvc.perform(get("/transaction/export")
+                        .param("format", "CSV")
+                        .param("account_number", "1000000000")
+                        .param("from", "2022-07-01T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition",
+                        "attachment; filename=\"transactions.csv\""))
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(content().string("transactionId\r\n"));
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.accountsystem.repository;
+
+import com.example.accountsystem.domain.Account;
+import com.example.accountsystem.domain.AccountUser;
+import com.example.accountsystem.domain.BalanceSlot;
+import com.example.accountsystem.dto.AccountInfo;
+import com.example.accountsystem.type.AccountStatus;
+import com.example.accountsystem.type.BalanceMode;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.show_sql=false"
+})
+class AccountRepositoryTest {
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Test
+    @DisplayName("계좌 목록 프로젝션 - STRIPED 계좌는 슬롯 합계, 엔티티는 만들지 않음")
+    void findAccountInfosByAccountUserId() {
+        // given
+        AccountUser user = testEntityManager.persist(AccountUser.builder()
+                .name("Pobi").build());
+        AccountUser other = testEntityManager.persist(AccountUser.builder()
+                .name("Harry").build());
+        persistAccount(user, "1000000001", BalanceMode.STANDARD, 1000L);
+        Account striped = persistAccount(user, "1000000002", BalanceMode.STRIPED, 0L);
+        persistAccount(other, "1000000003", BalanceMode.STANDARD, 3000L);
+        for (int i = 0; i < 3; i++) {
+            testEntityManager.persist(BalanceSlot.builder()
+                    .account(striped)
+                    .slotIndex(i)
+                    .balance(500L)
+                    .build());
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
+        Statistics statistics = testEntityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // when
+        List<AccountInfo> accountInfos =
+                accountRepository.findAccountInfosByAccountUserId(user.getId());
+
+        // then
+        assertEquals(2, accountInfos.size());
+        assertEquals("1000000001", accountInfos.get(0).getAccountNumber());
+        assertEquals(1000L, accountInfos.get(0).getBalance());
+        assertEquals("1000000002", accountInfos.get(1).getAccountNumber());
+        assertEquals(1500L, accountInfos.get(1).getBalance());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    @DisplayName("계좌가 없으면 빈 목록")
+    void findAccountInfosByAccountUserId_empty() {
+        assertTrue(accountRepository.findAccountInfosByAccountUserId(-1L).isEmpty());
+    }
+
+    private Account persistAccount(AccountUser user, String accountNumber,
+                                   BalanceMode balanceMode, Long balance) {
+        return testEntityManager.persist(Account.builder()
+                .accountUser(user)
+                .accountNumber(accountNumber)
+                .accountStatus(AccountStatus.IN_USE)
+                .balanceMode(balanceMode)
+                .balanceSlotCount(balanceMode == BalanceMode.STRIPED ? 3 : null)
+                .balance(balance)
+                .build());
+    }
+}
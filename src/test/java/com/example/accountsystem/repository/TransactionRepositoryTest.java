@@ -0,0 +1,160 @@
+package com.example.accountsystem.repository;
+
+import com.example.accountsystem.domain.Account;
+import com.example.accountsystem.domain.AccountUser;
+import com.example.accountsystem.domain.BalanceSnapshot;
+import com.example.accountsystem.domain.Transaction;
+import com.example.accountsystem.dto.LedgerEntry;
+import com.example.accountsystem.dto.TransactionHistoryItem;
+import com.example.accountsystem.type.AccountStatus;
+import com.example.accountsystem.type.BalanceMode;
+import com.example.accountsystem.type.TransactionResultType;
+import com.example.accountsystem.type.TransactionType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.show_sql=false")
+class TransactionRepositoryTest {
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Test
+    @DisplayName("원장 꼬리 - 스냅샷 이후 순번만 계좌, 순번 순으로 (순번 없는 거래와 스냅샷 없는 계좌는 제외)")
+    void findLedgerTails() {
+        // given
+        AccountUser user = testEntityManager.persist(AccountUser.builder()
+                .name("Pobi").build());
+        Account first = persistAccount(user, "1000000001");
+        Account second = persistAccount(user, "1000000002");
+        Account withoutSnapshot = persistAccount(user, "1000000003");
+        persistSnapshot(first, 2L);
+        persistSnapshot(second, 0L);
+        for (long seq = 3L; seq >= 1L; seq--) {
+            persistTransaction(first, "first" + seq, seq);
+        }
+        persistTransaction(first, "first-failed", null);
+        persistTransaction(second, "second1", 1L);
+        persistTransaction(withoutSnapshot, "other1", 1L);
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        // when
+        List<LedgerEntry> tails = transactionRepository.findLedgerTails(
+                List.of(first.getId(), second.getId(), withoutSnapshot.getId()));
+        List<LedgerEntry> maxLedgerSeqs = transactionRepository.findMaxLedgerSeqs(
+                List.of(first.getId(), withoutSnapshot.getId()));
+
+        // then
+        assertEquals(2, tails.size());
+        assertEquals(first.getId(), tails.get(0).getAccountId());
+        assertEquals(3L, tails.get(0).getLedgerSeq());
+        assertEquals(TransactionType.USE, tails.get(0).getTransactionType());
+        assertEquals(second.getId(), tails.get(1).getAccountId());
+        assertEquals(2, maxLedgerSeqs.size());
+        assertEquals(3L, maxLedgerSeqs.stream()
+                .filter(entry -> entry.getAccountId().equals(first.getId()))
+                .findFirst().orElseThrow().getLedgerSeq());
+    }
+
+    @Test
+    @DisplayName("거래 내역 keyset - 같은 시각은 id 역순, 커서 이후만, 조건은 null 이면 무시")
+    void findHistory() {
+        // given
+        AccountUser user = testEntityManager.persist(AccountUser.builder()
+                .name("Pobi").build());
+        Account account = persistAccount(user, "1000000001");
+        Account other = persistAccount(user, "1000000002");
+        LocalDateTime base = LocalDateTime.of(2022, 7, 1, 12, 0);
+        persistHistory(account, "t1", TransactionType.USE, TransactionResultType.S, base);
+        persistHistory(account, "t2", TransactionType.USE, TransactionResultType.F, base.plusMinutes(1));
+        persistHistory(account, "t3", TransactionType.CANCEL, TransactionResultType.S, base.plusMinutes(1));
+        persistHistory(account, "t4", TransactionType.USE, TransactionResultType.S, base.plusMinutes(2));
+        persistHistory(other, "o1", TransactionType.USE, TransactionResultType.S, base.plusMinutes(3));
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        // when
+        List<TransactionHistoryItem> first = transactionRepository.findHistory(
+                account.getId(), null, null, PageRequest.of(0, 2));
+        TransactionHistoryItem last = first.get(1);
+        List<TransactionHistoryItem> next = transactionRepository.findHistoryBefore(
+                account.getId(), null, null, last.getTransactedAt(), last.getId(),
+                PageRequest.of(0, 2));
+        List<TransactionHistoryItem> succeededUses = transactionRepository.findHistory(
+                account.getId(), TransactionType.USE, TransactionResultType.S,
+                PageRequest.of(0, 10));
+
+        // then
+        assertEquals(List.of("t4", "t3"), transactionIdsOf(first));
+        assertEquals(List.of("t2", "t1"), transactionIdsOf(next));
+        assertEquals(TransactionResultType.F, next.get(0).getTransactionResult());
+        assertEquals(List.of("t4", "t1"), transactionIdsOf(succeededUses));
+    }
+
+    private Account persistAccount(AccountUser user, String accountNumber) {
+        return testEntityManager.persist(Account.builder()
+                .accountUser(user)
+                .accountNumber(accountNumber)
+                .accountStatus(AccountStatus.IN_USE)
+                .balanceMode(BalanceMode.STANDARD)
+                .balance(10000L)
+                .build());
+    }
+
+    private void persistSnapshot(Account account, Long ledgerSeq) {
+        testEntityManager.persist(BalanceSnapshot.builder()
+                .account(account)
+                .balance(10000L)
+                .ledgerSeq(ledgerSeq)
+                .takenAt(LocalDateTime.now())
+                .build());
+    }
+
+    private void persistTransaction(Account account, String transactionId, Long ledgerSeq) {
+        testEntityManager.persist(Transaction.builder()
+                .transactionType(TransactionType.USE)
+                .transactionResultType(ledgerSeq == null
+                        ? TransactionResultType.F : TransactionResultType.S)
+                .account(account)
+                .amount(100L)
+                .balanceSnapshot(10000L)
+                .transactionId(transactionId)
+                .transactedAt(LocalDateTime.now())
+                .ledgerSeq(ledgerSeq)
+                .build());
+    }
+
+    private void persistHistory(Account account, String transactionId,
+                                TransactionType transactionType,
+                                TransactionResultType resultType,
+                                LocalDateTime transactedAt) {
+        testEntityManager.persist(Transaction.builder()
+                .transactionType(transactionType)
+                .transactionResultType(resultType)
+                .account(account)
+                .amount(100L)
+                .balanceSnapshot(10000L)
+                .transactionId(transactionId)
+                .transactedAt(transactedAt)
+                .build());
+    }
+
+    private static List<String> transactionIdsOf(List<TransactionHistoryItem> items) {
+        return items.stream()
+                .map(TransactionHistoryItem::getTransactionId)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.AccountProperties;
+import com.example.accountsystem.dto.AccountInfo;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.type.ErrorCode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountListCacheTest {
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AccountListCache accountListCache;
+
+    @BeforeEach
+    void setUp() {
+        AccountProperties accountProperties = new AccountProperties();
+        accountProperties.getListCache().setMaxStaleness(Duration.ofSeconds(5));
+        accountListCache = new AccountListCache(accountProperties, meterRegistry, nanos::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("두 번째 조회는 캐시에서 응답")
+    void hit() {
+        // when
+        accountListCache.get(1L, this::load);
+        List<AccountInfo> accountInfos = accountListCache.get(1L, this::load);
+
+        // then
+        assertEquals(1, loads.get());
+        assertEquals(1000L, accountInfos.get(0).getBalance());
+        assertEquals(1.0, meterRegistry.get("cache.gets")
+                .tag("cache", AccountListCache.CACHE_NAME)
+                .tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("maxStaleness 가 지나면 다시 읽음")
+    void expireAfterMaxStaleness() {
+        // given
+        accountListCache.get(1L, this::load);
+
+        // when
+        nanos.addAndGet(Duration.ofSeconds(6).toNanos());
+        accountListCache.get(1L, this::load);
+
+        // then
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("트랜잭션 안에서의 무효화는 커밋 후에 적용")
+    void evictAfterCommit() {
+        // given
+        accountListCache.get(1L, this::load);
+        TransactionSynchronizationManager.initSynchronization();
+
+        // when
+        accountListCache.evictAfterCommit(1L);
+        accountListCache.get(1L, this::load);
+        int loadsBeforeCommit = loads.get();
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(TransactionSynchronization::afterCommit);
+        accountListCache.get(1L, this::load);
+
+        // then
+        assertEquals(1, loadsBeforeCommit);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("트랜잭션 밖에서는 바로 무효화, 다른 사용자 항목은 유지")
+    void evictImmediately() {
+        // given
+        accountListCache.get(1L, this::load);
+        accountListCache.get(2L, this::load);
+
+        // when
+        accountListCache.evictAfterCommit(1L);
+        accountListCache.get(1L, this::load);
+        accountListCache.get(2L, this::load);
+
+        // then
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    @DisplayName("조회 실패는 캐시하지 않음")
+    void loaderFailureIsNotCached() {
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> accountListCache.get(1L, userId -> {
+                    throw new AccountException(ErrorCode.USER_NOT_FOUND);
+                }));
+        accountListCache.get(1L, this::load);
+
+        // then
+        assertEquals(ErrorCode.USER_NOT_FOUND, exception.getErrorCode());
+        assertEquals(1, loads.get());
+    }
+
+    private List<AccountInfo> load(Long userId) {
+        loads.incrementAndGet();
+        return List.of(new AccountInfo("100000000" + userId, 1000L));
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.AccountProperties;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.repository.AccountRepository;
+import com.example.accountsystem.type.ErrorCode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RAtomicLong;
+import org.redisson.api.RedissonClient;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class AccountNumberAllocatorTest {
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private RAtomicLong counter;
+
+    private AccountNumberAllocator accountNumberAllocator;
+
+    @BeforeEach
+    void setUp() {
+        AccountProperties accountProperties = new AccountProperties();
+        accountProperties.setNumberBlockSize(3);
+        accountNumberAllocator = new AccountNumberAllocator(
+                redissonClient, accountRepository, accountProperties);
+        given(redissonClient.getAtomicLong(anyString()))
+                .willReturn(counter);
+    }
+
+    @Test
+    @DisplayName("블록 안에서는 Redis 를 다시 호출하지 않음")
+    void allocateFromReservedBlock() {
+        // given
+        given(counter.isExists())
+                .willReturn(true);
+        given(counter.addAndGet(3L))
+                .willReturn(1000000002L, 1000000005L);
+
+        // when
+        String first = accountNumberAllocator.next();
+        String second = accountNumberAllocator.next();
+        String third = accountNumberAllocator.next();
+        String fourth = accountNumberAllocator.next();
+
+        // then
+        assertEquals("1000000000", first);
+        assertEquals("1000000001", second);
+        assertEquals("1000000002", third);
+        assertEquals("1000000003", fourth);
+        verify(counter, times(2)).addAndGet(3L);
+        verify(accountRepository, never()).findMaxAccountNumber();
+    }
+
+    @Test
+    @DisplayName("카운터가 없으면 DB 의 최대 계좌번호로 초기화")
+    void seedFromDatabase() {
+        // given
+        given(counter.isExists())
+                .willReturn(false);
+        given(accountRepository.findMaxAccountNumber())
+                .willReturn(Optional.of("1000000012"));
+        given(counter.addAndGet(3L))
+                .willReturn(1000000015L);
+
+        // when
+        String accountNumber = accountNumberAllocator.next();
+
+        // then
+        verify(counter, times(1)).compareAndSet(0L, 1000000012L);
+        assertEquals("1000000013", accountNumber);
+    }
+
+    @Test
+    @DisplayName("첫 계좌는 1000000000")
+    void seedWithoutAccounts() {
+        // given
+        given(counter.isExists())
+                .willReturn(false);
+        given(accountRepository.findMaxAccountNumber())
+                .willReturn(Optional.empty());
+        given(counter.addAndGet(3L))
+                .willReturn(1000000002L);
+
+        // when
+        String accountNumber = accountNumberAllocator.next();
+
+        // then
+        verify(counter, times(1)).compareAndSet(0L, 999999999L);
+        assertEquals("1000000000", accountNumber);
+    }
+
+    @Test
+    @DisplayName("10자리를 넘는 계좌번호는 발급하지 않음")
+    void exhausted() {
+        // given
+        given(counter.isExists())
+                .willReturn(true);
+        given(counter.addAndGet(anyLong()))
+                .willReturn(10000000002L);
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> accountNumberAllocator.next());
+
+        // then
+        assertEquals(ErrorCode.ACCOUNT_NUMBER_EXHAUSTED, exception.getErrorCode());
+    }
+}
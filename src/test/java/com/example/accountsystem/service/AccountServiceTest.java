@@ -3,10 +3,12 @@ package com.example.accountsystem.service;
 import com.example.accountsystem.domain.Account;
 import com.example.accountsystem.domain.AccountUser;
 import com.example.accountsystem.dto.AccountDto;
+import com.example.accountsystem.dto.AccountInfo;
 import com.example.accountsystem.exception.AccountException;
 import com.example.accountsystem.repository.AccountRepository;
 import com.example.accountsystem.repository.AccountUserRepository;
 import com.example.accountsystem.type.AccountStatus;
+import com.example.accountsystem.type.BalanceMode;
 import com.example.accountsystem.type.ErrorCode;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -19,11 +21,14 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -33,6 +38,20 @@ class AccountServiceTest {
     private AccountRepository accountRepository;
     @Mock
     private AccountUserRepository accountUserRepository;
+    @Mock
+    private BalanceSlotService balanceSlotService;
+    @Mock
+    private AccountNumberAllocator accountNumberAllocator;
+    @Mock
+    private AccountListCache accountListCache;
+    @Mock
+    private BalanceModeRegistry balanceModeRegistry;
+    @Mock
+    private HotBalanceStore hotBalanceStore;
+    @Mock
+    private LedgerSequencer ledgerSequencer;
+    @Mock
+    private BalanceJournal balanceJournal;
     @InjectMocks
     private AccountService accountService;
 
@@ -44,10 +63,10 @@ class AccountServiceTest {
         user.setId(12L);
         given(accountUserRepository.findById(anyLong()))
                 .willReturn(Optional.of(user));
-        given(accountRepository.findFirstByOrderByIdDesc())
-                .willReturn(Optional.of(Account.builder()
-                        .accountUser(user)
-                        .accountNumber("1000000012").build()));
+        given(accountUserRepository.incrementAccountCount(12L, 10))
+                .willReturn(1);
+        given(accountNumberAllocator.next())
+                .willReturn("1000000013");
         given(accountRepository.save(any()))
                 .willReturn(Account.builder()
                         .accountUser(user)
@@ -62,6 +81,7 @@ class AccountServiceTest {
         verify(accountRepository, times(1)).save(captor.capture());
         assertEquals(12L, accountDto.getUserId());
         assertEquals("1000000013", captor.getValue().getAccountNumber());
+        verify(balanceJournal, times(1)).appendAfterCommit(accountDto);
     }
 
     @Test
@@ -72,8 +92,10 @@ class AccountServiceTest {
         user.setId(15L);
         given(accountUserRepository.findById(anyLong()))
                 .willReturn(Optional.of(user));
-        given(accountRepository.findFirstByOrderByIdDesc())
-                .willReturn(Optional.empty());
+        given(accountUserRepository.incrementAccountCount(15L, 10))
+                .willReturn(1);
+        given(accountNumberAllocator.next())
+                .willReturn("1000000000");
         given(accountRepository.save(any()))
                 .willReturn(Account.builder()
                         .accountUser(user)
@@ -114,8 +136,8 @@ class AccountServiceTest {
         user.setId(15L);
         given(accountUserRepository.findById(anyLong()))
                 .willReturn(Optional.of(user));
-        given(accountRepository.countByAccountUser(any()))
-                .willReturn(10);
+        given(accountUserRepository.incrementAccountCount(15L, 10))
+                .willReturn(0);
 
         // when
         AccountException exception = assertThrows(AccountException.class,
@@ -123,6 +145,8 @@ class AccountServiceTest {
 
         // then
         assertEquals(ErrorCode.MAX_ACCOUNT_PER_USER_10, exception.getErrorCode());
+        verify(accountNumberAllocator, never()).next();
+        verify(accountRepository, never()).save(any());
     }
 
     @Test
@@ -257,47 +281,56 @@ class AccountServiceTest {
     @Test
     void successGetAccountsByUserId() {
         // given
-        AccountUser pobi = AccountUser.builder()
-                .name("Pobi").build();
-        pobi.setId(12L);
-        List<Account> accounts = Arrays.asList(
-                Account.builder()
-                        .accountUser(pobi)
-                        .accountNumber("1111111111")
-                        .balance(1000L)
-                        .build(),
-                Account.builder()
-                        .accountUser(pobi)
-                        .accountNumber("2222222222")
-                        .balance(2000L)
-                        .build(),
-                Account.builder()
-                        .accountUser(pobi)
-                        .accountNumber("3333333333")
-                        .balance(3000L)
-                        .build()
+        List<AccountInfo> accountInfos = Arrays.asList(
+                new AccountInfo("1111111111", 1000L),
+                new AccountInfo("2222222222", 2000L),
+                new AccountInfo("3333333333", 3000L)
         );
-        given(accountUserRepository.findById(anyLong()))
-                .willReturn(Optional.of(pobi));
-        given(accountRepository.findByAccountUser(any()))
-                .willReturn(accounts);
+        given(accountListCache.get(anyLong(), any()))
+                .willAnswer(invocation -> invocation.<Function<Long, List<AccountInfo>>>getArgument(1)
+                        .apply(invocation.getArgument(0)));
+        given(accountRepository.findAccountInfosByAccountUserId(anyLong()))
+                .willReturn(accountInfos);
         // when
-        List<AccountDto> accountDtos = accountService.getAccountByUserId(1L);
+        List<AccountInfo> result = accountService.getAccountByUserId(1L);
         // then
-        assertEquals(3, accountDtos.size());
-        assertEquals("1111111111", accountDtos.get(0).getAccountNumber());
-        assertEquals(1000, accountDtos.get(0).getBalance());
-        assertEquals("2222222222", accountDtos.get(1).getAccountNumber());
-        assertEquals(2000, accountDtos.get(1).getBalance());
-        assertEquals("3333333333", accountDtos.get(2).getAccountNumber());
-        assertEquals(3000, accountDtos.get(2).getBalance());
+        verify(accountUserRepository, never()).existsById(anyLong());
+        assertEquals(3, result.size());
+        assertEquals("1111111111", result.get(0).getAccountNumber());
+        assertEquals(1000, result.get(0).getBalance());
+        assertEquals("2222222222", result.get(1).getAccountNumber());
+        assertEquals(2000, result.get(1).getBalance());
+        assertEquals("3333333333", result.get(2).getAccountNumber());
+        assertEquals(3000, result.get(2).getBalance());
+    }
+
+    @Test
+    @DisplayName("계좌가 없는 사용자는 빈 목록")
+    void getAccountsByUserId_noAccounts() {
+        // given
+        given(accountListCache.get(anyLong(), any()))
+                .willAnswer(invocation -> invocation.<Function<Long, List<AccountInfo>>>getArgument(1)
+                        .apply(invocation.getArgument(0)));
+        given(accountRepository.findAccountInfosByAccountUserId(anyLong()))
+                .willReturn(List.of());
+        given(accountUserRepository.existsById(anyLong()))
+                .willReturn(true);
+        // when
+        List<AccountInfo> result = accountService.getAccountByUserId(1L);
+        // then
+        assertTrue(result.isEmpty());
     }
 
     @Test
     void failedToGetAccounts() {
         // given
-        given(accountUserRepository.findById(anyLong()))
-                .willReturn(Optional.empty());
+        given(accountListCache.get(anyLong(), any()))
+                .willAnswer(invocation -> invocation.<Function<Long, List<AccountInfo>>>getArgument(1)
+                        .apply(invocation.getArgument(0)));
+        given(accountRepository.findAccountInfosByAccountUserId(anyLong()))
+                .willReturn(List.of());
+        given(accountUserRepository.existsById(anyLong()))
+                .willReturn(false);
 
         // when
         AccountException exception = assertThrows(AccountException.class,
@@ -305,4 +338,53 @@ class AccountServiceTest {
         // then
         assertEquals(ErrorCode.USER_NOT_FOUND, exception.getErrorCode());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("HOT 계좌는 Redis 잔액으로 응답")
+    void getAccountsByUserId_hotAccountBalanceFromRedis() {
+        // given
+        given(accountListCache.get(anyLong(), any()))
+                .willAnswer(invocation -> invocation.<Function<Long, List<AccountInfo>>>getArgument(1)
+                        .apply(invocation.getArgument(0)));
+        given(accountRepository.findAccountInfosByAccountUserId(anyLong()))
+                .willReturn(Arrays.asList(
+                        new AccountInfo("1111111111", 1000L),
+                        new AccountInfo("2222222222", 2000L)));
+        given(balanceModeRegistry.isHot("2222222222"))
+                .willReturn(true);
+        given(hotBalanceStore.getState("2222222222"))
+                .willReturn(Optional.of(new HotBalanceStore.State(1500L, 7L)));
+
+        // when
+        List<AccountInfo> result = accountService.getAccountByUserId(1L);
+
+        // then
+        assertEquals(1000L, result.get(0).getBalance());
+        assertEquals(1500L, result.get(1).getBalance());
+        verify(hotBalanceStore, never()).getState("1111111111");
+    }
+
+    @Test
+    @DisplayName("HOT 계좌는 해지 불가")
+    void deleteAccountFailed_hotBalanceMode() {
+        // given
+        AccountUser pobi = AccountUser.builder()
+                .name("Pobi").build();
+        pobi.setId(12L);
+        given(accountUserRepository.findById(anyLong()))
+                .willReturn(Optional.of(pobi));
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(Account.builder()
+                        .accountUser(pobi)
+                        .accountStatus(AccountStatus.IN_USE)
+                        .balanceMode(BalanceMode.HOT)
+                        .balance(0L)
+                        .accountNumber("1000000012").build()));
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> accountService.deleteAccount(12L, "1000000012"));
+        // then
+        assertEquals(ErrorCode.BALANCE_MODE_NOT_SUPPORTED, exception.getErrorCode());
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.domain.Account;
+import com.example.accountsystem.domain.AccountUser;
+import com.example.accountsystem.domain.BalanceSlot;
+import com.example.accountsystem.domain.Transaction;
+import com.example.accountsystem.dto.AccountDto;
+import com.example.accountsystem.dto.TransactionDto;
+import com.example.accountsystem.repository.AccountRepository;
+import com.example.accountsystem.repository.AccountUserRepository;
+import com.example.accountsystem.repository.BalanceSlotRepository;
+import com.example.accountsystem.repository.BalanceSnapshotRepository;
+import com.example.accountsystem.repository.TransactionRepository;
+import com.example.accountsystem.type.BalanceMode;
+import com.example.accountsystem.type.TransactionType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static com.example.accountsystem.type.AccountStatus.IN_USE;
+import static com.example.accountsystem.type.TransactionResultType.S;
+import static com.example.accountsystem.type.TransactionType.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceJournalRecoveryTest {
+    @TempDir
+    Path directory;
+
+    @Mock
+    private AccountRepository accountRepository;
+    @Mock
+    private AccountUserRepository accountUserRepository;
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private BalanceSlotRepository balanceSlotRepository;
+    @Mock
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private final TransactionProperties transactionProperties = new TransactionProperties();
+    private BalanceJournalRecovery balanceJournalRecovery;
+
+    @BeforeEach
+    void setUp() {
+        transactionProperties.getJournal().setEnabled(true);
+        transactionProperties.getJournal().setDirectory(directory.toString());
+        balanceJournalRecovery = new BalanceJournalRecovery(transactionProperties,
+                accountRepository, accountUserRepository, transactionRepository, balanceSlotRepository,
+                balanceSnapshotRepository, transactionTemplate);
+        given(transactionTemplate.execute(any()))
+                .willAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0))
+                        .doInTransaction(null));
+    }
+
+    @Test
+    @DisplayName("DB 에 없는 거래만 저장하고 잔액에 증감을 더함")
+    @SuppressWarnings("unchecked")
+    void recoverMissingTransactions() {
+        // given
+        writeJournal(
+                record("1000000012", USE, 1000L, 9000L, "tx1"),
+                record("1000000012", USE, 2000L, 7000L, "tx2"),
+                record("1000000012", CANCEL, 2000L, 9000L, "tx3"),
+                record("9999999999", USE, 1000L, 0L, "tx4"));
+        Account account = account("1000000012", BalanceMode.STANDARD, 9000L);
+        given(transactionRepository.findTransactionIdsIn(List.of("tx1", "tx2", "tx3", "tx4")))
+                .willReturn(List.of("tx1"));
+        given(accountRepository.findByAccountNumberIn(anyCollection()))
+                .willReturn(List.of(account));
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
+
+        // when
+        int recovered = balanceJournalRecovery.recover();
+
+        // then
+        assertEquals(2, recovered);
+        verify(transactionRepository).saveAll(captor.capture());
+        assertEquals("tx2", captor.getValue().get(0).getTransactionId());
+        assertEquals(S, captor.getValue().get(0).getTransactionResultType());
+        assertEquals("tx3", captor.getValue().get(1).getTransactionId());
+        // 9000 - 2000 + 2000
+        assertEquals(9000L, account.getBalance());
+        verify(balanceSnapshotRepository, never()).deleteByAccountIds(anyCollection());
+    }
+
+    @Test
+    @DisplayName("STRIPED 계좌는 슬롯 합계에 더해 첫 슬롯에 모음")
+    void recoverStripedAccount() {
+        // given
+        writeJournal(record("1000000012", USE, 1000L, 4000L, "tx1"));
+        Account account = account("1000000012", BalanceMode.STRIPED, 0L);
+        BalanceSlot first = BalanceSlot.builder().account(account).slotIndex(0).balance(2000L).build();
+        BalanceSlot second = BalanceSlot.builder().account(account).slotIndex(1).balance(3000L).build();
+        given(transactionRepository.findTransactionIdsIn(List.of("tx1")))
+                .willReturn(List.of());
+        given(accountRepository.findByAccountNumberIn(anyCollection()))
+                .willReturn(List.of(account));
+        given(balanceSlotRepository.findAllForUpdate(account))
+                .willReturn(List.of(first, second));
+
+        // when
+        balanceJournalRecovery.recover();
+
+        // then
+        assertEquals(4000L, first.getBalance());
+        assertEquals(0L, second.getBalance());
+        assertEquals(0L, account.getBalance());
+    }
+
+    @Test
+    @DisplayName("DB 에 없는 계좌는 저널의 개설 레코드로 초기 잔액부터 다시 만든 뒤 거래를 반영")
+    @SuppressWarnings("unchecked")
+    void recoverAccountsOpenedAfterLastBackup() {
+        // given
+        BalanceJournal balanceJournal =
+                new BalanceJournal(transactionProperties, new SimpleMeterRegistry());
+        balanceJournal.open();
+        balanceJournal.appendAfterCommit(opening(12L, "2000000000", 5000L));
+        balanceJournal.appendAfterCommit(record("2000000000", USE, 1000L, 4000L, "tx1"));
+        balanceJournal.appendAfterCommit(opening(99L, "2000000001", 5000L));
+        balanceJournal.appendAfterCommit(record("2000000001", USE, 1000L, 4000L, "tx2"));
+        balanceJournal.close();
+        AccountUser user = AccountUser.builder().name("Pobi").build();
+        user.setId(12L);
+        given(accountRepository.findByAccountNumberIn(anyCollection()))
+                .willReturn(List.of());
+        given(accountUserRepository.findById(12L)).willReturn(Optional.of(user));
+        given(accountUserRepository.findById(99L)).willReturn(Optional.empty());
+        given(accountRepository.save(any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+        given(transactionRepository.findTransactionIdsIn(List.of("tx1", "tx2")))
+                .willReturn(List.of());
+        ArgumentCaptor<Account> accountCaptor = ArgumentCaptor.forClass(Account.class);
+        ArgumentCaptor<List<Transaction>> transactionCaptor = ArgumentCaptor.forClass(List.class);
+
+        // when
+        int recovered = balanceJournalRecovery.recover();
+
+        // then
+        assertEquals(1, recovered);
+        verify(accountRepository, times(1)).save(accountCaptor.capture());
+        Account account = accountCaptor.getValue();
+        assertEquals("2000000000", account.getAccountNumber());
+        assertEquals(user, account.getAccountUser());
+        assertEquals(BalanceMode.STANDARD, account.getBalanceMode());
+        // 5000 - 1000
+        assertEquals(4000L, account.getBalance());
+        verify(accountUserRepository).incrementAccountCount(12L, Integer.MAX_VALUE);
+        verify(transactionRepository).saveAll(transactionCaptor.capture());
+        assertEquals(1, transactionCaptor.getValue().size());
+        assertEquals(account, transactionCaptor.getValue().get(0).getAccount());
+    }
+
+    private void writeJournal(TransactionDto... records) {
+        BalanceJournal balanceJournal =
+                new BalanceJournal(transactionProperties, new SimpleMeterRegistry());
+        balanceJournal.open();
+        balanceJournal.append(List.of(records)).join();
+        balanceJournal.close();
+    }
+
+    private static Account account(String accountNumber, BalanceMode balanceMode, long balance) {
+        Account account = Account.builder()
+                .accountNumber(accountNumber)
+                .accountStatus(IN_USE)
+                .balanceMode(balanceMode)
+                .balance(balance)
+                .build();
+        account.setId(1L);
+        return account;
+    }
+
+    private static AccountDto opening(long userId, String accountNumber, long balance) {
+        return AccountDto.builder()
+                .userId(userId)
+                .accountNumber(accountNumber)
+                .balance(balance)
+                .registeredAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static TransactionDto record(String accountNumber, TransactionType transactionType,
+                                         long amount, long balanceSnapshot, String transactionId) {
+        return TransactionDto.builder()
+                .accountNumber(accountNumber)
+                .transactionType(transactionType)
+                .amount(amount)
+                .balanceSnapshot(balanceSnapshot)
+                .transactionId(transactionId)
+                .transactedAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.dto.AccountDto;
+import com.example.accountsystem.dto.TransactionDto;
+import com.example.accountsystem.type.TransactionType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static com.example.accountsystem.type.TransactionType.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceJournalTest {
+    @TempDir
+    Path directory;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TransactionProperties transactionProperties = new TransactionProperties();
+    private BalanceJournal balanceJournal;
+
+    @BeforeEach
+    void setUp() {
+        transactionProperties.getJournal().setEnabled(true);
+        transactionProperties.getJournal().setDirectory(directory.toString());
+        transactionProperties.getJournal().setFlushInterval(Duration.ofMillis(5));
+        transactionProperties.getJournal().setBatchSize(64);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (balanceJournal != null) {
+            balanceJournal.close();
+        }
+    }
+
+    @Test
+    void appendedRecordsAreReadBackInOrder() throws IOException {
+        // given
+        balanceJournal = openJournal();
+        LocalDateTime transactedAt = LocalDateTime.of(2022, 7, 1, 12, 30, 15, 123456789);
+
+        // when
+        balanceJournal.append(List.of(
+                record("1000000012", USE, 1000L, 9000L, "tx1", transactedAt),
+                record("1000000012", CANCEL, 1000L, 10000L, "tx2", transactedAt))).join();
+        balanceJournal.appendAfterCommit(
+                record("1000000013", TRANSFER_IN, 500L, 500L, "tx3", transactedAt));
+
+        // then
+        List<TransactionDto> records = readAll();
+        assertEquals(3, records.size());
+        assertEquals("tx1", records.get(0).getTransactionId());
+        assertEquals(USE, records.get(0).getTransactionType());
+        assertEquals(9000L, records.get(0).getBalanceSnapshot());
+        assertEquals(transactedAt, records.get(0).getTransactedAt());
+        assertEquals("1000000013", records.get(2).getAccountNumber());
+        assertEquals(TRANSFER_IN, records.get(2).getTransactionType());
+        assertEquals(500L, records.get(2).getAmount());
+    }
+
+    @Test
+    @DisplayName("계좌 개설 레코드는 거래와 섞여 있어도 따로 읽힘")
+    void accountOpeningsAreReadSeparately() throws IOException {
+        // given
+        balanceJournal = openJournal();
+        LocalDateTime registeredAt = LocalDateTime.of(2022, 7, 1, 12, 30, 15, 123456789);
+
+        // when
+        balanceJournal.appendAfterCommit(AccountDto.builder()
+                .userId(12L)
+                .accountNumber("1000000012")
+                .balance(10000L)
+                .registeredAt(registeredAt)
+                .build());
+        balanceJournal.appendAfterCommit(
+                record("1000000012", USE, 1000L, 9000L, "tx1", registeredAt));
+
+        // then
+        List<AccountDto> accounts = new ArrayList<>();
+        List<TransactionDto> records = new ArrayList<>();
+        BalanceJournal.read(directory, accounts::add, records::add);
+        assertEquals(1, accounts.size());
+        assertEquals(12L, accounts.get(0).getUserId());
+        assertEquals("1000000012", accounts.get(0).getAccountNumber());
+        assertEquals(10000L, accounts.get(0).getBalance());
+        assertEquals(registeredAt, accounts.get(0).getRegisteredAt());
+        assertEquals(1, records.size());
+        assertEquals("tx1", records.get(0).getTransactionId());
+    }
+
+    @Test
+    @DisplayName("동시에 쓰는 요청은 force 를 나눠 씀 (group commit)")
+    void concurrentAppendsShareFlushes() throws Exception {
+        // given
+        balanceJournal = openJournal();
+        ExecutorService writers = Executors.newFixedThreadPool(8);
+
+        // when
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            int writer = i;
+            futures.add(writers.submit(() -> {
+                List<CompletableFuture<Void>> appended = new ArrayList<>();
+                for (int j = 0; j < 100; j++) {
+                    appended.add(balanceJournal.append(List.of(record("1000000012", USE, 1L,
+                            0L, "tx" + writer + "-" + j, LocalDateTime.now()))));
+                }
+                appended.forEach(CompletableFuture::join);
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        writers.shutdown();
+
+        // then
+        assertEquals(800, readAll().size());
+        assertEquals(800.0, meterRegistry.counter("journal.appended").count());
+        assertTrue(meterRegistry.timer("journal.flush").count() < 800);
+    }
+
+    @Test
+    @DisplayName("세그먼트가 차면 다음 파일로 넘어가고, 읽을 때는 파일 순서대로")
+    void rollsSegments() throws IOException {
+        // given
+        transactionProperties.getJournal().setSegmentSize(DataSize.ofBytes(256));
+        balanceJournal = openJournal();
+
+        // when
+        for (int i = 0; i < 20; i++) {
+            balanceJournal.append(List.of(record("1000000012", USE, 1L, 0L, "tx" + i,
+                    LocalDateTime.now()))).join();
+        }
+
+        // then
+        List<TransactionDto> records = readAll();
+        assertEquals(20, records.size());
+        assertEquals("tx19", records.get(19).getTransactionId());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.count() > 1);
+        }
+    }
+
+    @Test
+    @DisplayName("쓰다 죽은 레코드는 버리고 그 자리부터 이어 씀")
+    void reopenDiscardsTornRecord() throws IOException {
+        // given
+        balanceJournal = openJournal();
+        balanceJournal.append(List.of(
+                record("1000000012", USE, 1000L, 9000L, "tx1", LocalDateTime.now()),
+                record("1000000012", USE, 1000L, 8000L, "tx2", LocalDateTime.now()))).join();
+        balanceJournal.close();
+        corruptAfterRecords(2);
+
+        // when
+        balanceJournal = openJournal();
+        balanceJournal.append(List.of(
+                record("1000000012", USE, 1000L, 7000L, "tx3", LocalDateTime.now()))).join();
+
+        // then
+        List<TransactionDto> records = readAll();
+        assertEquals(3, records.size());
+        assertEquals("tx3", records.get(2).getTransactionId());
+    }
+
+    @Test
+    void disabledJournalCompletesImmediately() throws IOException {
+        // given
+        transactionProperties.getJournal().setEnabled(false);
+        balanceJournal = openJournal();
+
+        // when
+        CompletableFuture<Void> future = balanceJournal.append(List.of(
+                record("1000000012", USE, 1000L, 9000L, "tx1", LocalDateTime.now())));
+
+        // then
+        assertTrue(future.isDone());
+        assertTrue(readAll().isEmpty());
+    }
+
+    private BalanceJournal openJournal() {
+        BalanceJournal journal = new BalanceJournal(transactionProperties, meterRegistry);
+        journal.open();
+        return journal;
+    }
+
+    private List<TransactionDto> readAll() throws IOException {
+        List<TransactionDto> records = new ArrayList<>();
+        BalanceJournal.read(directory, account -> {
+        }, records::add);
+        return records;
+    }
+
+    /**
+     * 정상 레코드 뒤에 길이만 있고 CRC 가 맞지 않는 레코드를 남긴다.
+     */
+    private void corruptAfterRecords(int count) throws IOException {
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        int end = 0;
+        try (FileChannel channel = FileChannel.open(segment,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+            for (int i = 0; i < count; i++) {
+                header.clear();
+                channel.read(header, end);
+                end += Integer.BYTES * 2 + header.flip().getInt();
+            }
+            channel.write(ByteBuffer.allocate(16).putInt(8).putInt(12345).putLong(-1L).flip(), end);
+        }
+    }
+
+    private static TransactionDto record(String accountNumber, TransactionType transactionType,
+                                         long amount, long balanceSnapshot,
+                                         String transactionId, LocalDateTime transactedAt) {
+        return TransactionDto.builder()
+                .accountNumber(accountNumber)
+                .transactionType(transactionType)
+                .amount(amount)
+                .balanceSnapshot(balanceSnapshot)
+                .transactionId(transactionId)
+                .transactedAt(transactedAt)
+                .build();
+    }
+}
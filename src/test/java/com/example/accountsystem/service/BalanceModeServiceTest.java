@@ -0,0 +1,254 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.domain.Account;
+import com.example.accountsystem.domain.AccountUser;
+import com.example.accountsystem.domain.BalanceSlot;
+import com.example.accountsystem.dto.AccountDto;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.repository.AccountRepository;
+import com.example.accountsystem.repository.BalanceSlotRepository;
+import com.example.accountsystem.type.BalanceMode;
+import com.example.accountsystem.type.ErrorCode;
+import com.example.accountsystem.type.ExecutionMode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static com.example.accountsystem.type.AccountStatus.IN_USE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceModeServiceTest {
+    @Mock
+    private AccountRepository accountRepository;
+    @Mock
+    private BalanceSlotRepository balanceSlotRepository;
+    @Mock
+    private LockService lockService;
+    @Spy
+    private BalanceMutationExecutor balanceMutationExecutor =
+            new BalanceMutationExecutor(new TransactionProperties());
+    @Mock
+    private BalanceModeRegistry balanceModeRegistry;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private HotBalanceStore hotBalanceStore;
+    @Mock
+    private HotBalancePersister hotBalancePersister;
+    @Mock
+    private LedgerSequencer ledgerSequencer;
+    @InjectMocks
+    private BalanceModeService balanceModeService;
+
+    @BeforeEach
+    void setUp() {
+        given(transactionTemplate.execute(any()))
+                .willAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0))
+                        .doInTransaction(null));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void stripeSplitsBalance() {
+        // given
+        Account account = account(BalanceMode.STANDARD, 1003L);
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        ArgumentCaptor<List<BalanceSlot>> captor = ArgumentCaptor.forClass(List.class);
+
+        // when
+        AccountDto accountDto = balanceModeService.changeBalanceMode(
+                "1000000000", BalanceMode.STRIPED, 4);
+
+        // then
+        verify(balanceSlotRepository, times(1)).saveAll(captor.capture());
+        List<BalanceSlot> slots = captor.getValue();
+        assertEquals(4, slots.size());
+        assertEquals(251L, slots.get(0).getBalance());
+        assertEquals(251L, slots.get(2).getBalance());
+        assertEquals(250L, slots.get(3).getBalance());
+        assertEquals(0L, account.getBalance());
+        assertEquals(BalanceMode.STRIPED, account.getBalanceMode());
+        assertEquals(1003L, accountDto.getBalance());
+        verify(balanceModeRegistry, times(1)).publish("1000000000", BalanceMode.STRIPED);
+        verify(lockService, times(1)).unlock("1000000000");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void stripeWaitsForPartitionedMutationOfSameAccount() throws Exception {
+        // given
+        TransactionProperties transactionProperties = new TransactionProperties();
+        transactionProperties.setMode(ExecutionMode.PARTITIONED);
+        transactionProperties.getPartition().setCount(1);
+        BalanceMutationExecutor partitionedExecutor = new BalanceMutationExecutor(transactionProperties);
+        BalanceModeService partitionedService = new BalanceModeService(
+                accountRepository, balanceSlotRepository, lockService, partitionedExecutor,
+                balanceModeRegistry, transactionTemplate, hotBalanceStore, hotBalancePersister,
+                ledgerSequencer);
+        Account account = account(BalanceMode.STANDARD, 1000L);
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        ArgumentCaptor<List<BalanceSlot>> captor = ArgumentCaptor.forClass(List.class);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try {
+            // when
+            // 잔액을 읽은 뒤 멈춰 있는 PARTITIONED useBalance (락 없이 계좌 행을 쓴다)
+            CompletableFuture<Long> useBalance = partitionedExecutor.submit("1000000000", () -> {
+                long balance = account.getBalance();
+                started.countDown();
+                awaitQuietly(release);
+                account.setBalance(balance - 100L);
+                return account.getBalance();
+            });
+            started.await();
+            CompletableFuture<AccountDto> stripe = CompletableFuture.supplyAsync(() ->
+                    partitionedService.changeBalanceMode("1000000000", BalanceMode.STRIPED, 2));
+
+            // then
+            verify(balanceSlotRepository, after(200).never()).saveAll(any());
+            release.countDown();
+            assertEquals(900L, useBalance.join());
+            assertEquals(900L, stripe.join().getBalance());
+            verify(balanceSlotRepository, times(1)).saveAll(captor.capture());
+            assertEquals(900L, captor.getValue().stream().mapToLong(BalanceSlot::getBalance).sum());
+            assertEquals(0L, account.getBalance());
+            assertEquals(BalanceMode.STRIPED, account.getBalanceMode());
+        } finally {
+            release.countDown();
+            partitionedExecutor.shutdown();
+        }
+    }
+
+    @Test
+    void unstripeMergesSlots() {
+        // given
+        Account account = account(BalanceMode.STRIPED, 0L);
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        given(balanceSlotRepository.findAllForUpdate(any()))
+                .willReturn(Arrays.asList(
+                        BalanceSlot.builder().slotIndex(0).balance(400L).build(),
+                        BalanceSlot.builder().slotIndex(1).balance(600L).build()));
+
+        // when
+        AccountDto accountDto = balanceModeService.changeBalanceMode(
+                "1000000000", BalanceMode.STANDARD, null);
+
+        // then
+        verify(balanceSlotRepository, times(1)).deleteAll(any());
+        assertEquals(1000L, account.getBalance());
+        assertEquals(BalanceMode.STANDARD, account.getBalanceMode());
+        assertEquals(1000L, accountDto.getBalance());
+        verify(balanceModeRegistry, times(1)).publish("1000000000", BalanceMode.STANDARD);
+    }
+
+    @Test
+    void heatLoadsBalanceIntoRedisAfterCommit() {
+        // given
+        Account account = account(BalanceMode.STANDARD, 1000L);
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        given(hotBalanceStore.getState("1000000000"))
+                .willReturn(Optional.of(new HotBalanceStore.State(1000L, 0L)));
+
+        // when
+        AccountDto accountDto = balanceModeService.changeBalanceMode(
+                "1000000000", BalanceMode.HOT, null);
+
+        // then
+        InOrder inOrder = inOrder(transactionTemplate, hotBalancePersister, balanceModeRegistry);
+        inOrder.verify(transactionTemplate).execute(any());
+        inOrder.verify(hotBalancePersister).reconcile("1000000000");
+        inOrder.verify(balanceModeRegistry).publish("1000000000", BalanceMode.HOT);
+        assertEquals(BalanceMode.HOT, account.getBalanceMode());
+        assertEquals(0L, account.getHotLedgerSeq());
+        assertEquals(1000L, accountDto.getBalance());
+        verify(lockService, times(1)).unlock("1000000000");
+    }
+
+    @Test
+    void heatRejectsStripedAccount() {
+        // given
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account(BalanceMode.STRIPED, 0L)));
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> balanceModeService.changeBalanceMode("1000000000", BalanceMode.HOT, null));
+
+        // then
+        assertEquals(ErrorCode.BALANCE_MODE_NOT_SUPPORTED, exception.getErrorCode());
+        verify(hotBalancePersister, never()).reconcile(anyString());
+        verify(balanceModeRegistry, never()).publish(anyString(), any());
+    }
+
+    @Test
+    void coolUnloadsRedisAndDrainsLedger() {
+        // given
+        Account account = account(BalanceMode.HOT, 700L);
+        account.setHotLedgerSeq(5L);
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        given(hotBalanceStore.unload("1000000000"))
+                .willReturn(Optional.of(new HotBalanceStore.State(650L, 5L)));
+
+        // when
+        AccountDto accountDto = balanceModeService.changeBalanceMode(
+                "1000000000", BalanceMode.STANDARD, null);
+
+        // then
+        InOrder inOrder = inOrder(balanceModeRegistry, hotBalanceStore, hotBalancePersister);
+        inOrder.verify(balanceModeRegistry).publish("1000000000", BalanceMode.STANDARD);
+        inOrder.verify(hotBalanceStore).unload("1000000000");
+        inOrder.verify(hotBalancePersister).drain("1000000000");
+        assertEquals(BalanceMode.STANDARD, account.getBalanceMode());
+        assertEquals(650L, account.getBalance());
+        assertEquals(650L, accountDto.getBalance());
+        verify(balanceSlotRepository, never()).findAllForUpdate(any());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Account account(BalanceMode balanceMode, long balance) {
+        AccountUser user = AccountUser.builder().name("Pobi").build();
+        user.setId(12L);
+        return Account.builder()
+                .accountUser(user)
+                .accountNumber("1000000000")
+                .accountStatus(IN_USE)
+                .balanceMode(balanceMode)
+                .balanceSlotCount(balanceMode == BalanceMode.STRIPED ? 2 : null)
+                .balance(balance)
+                .build();
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.dto.BalanceMutation;
+import com.example.accountsystem.dto.TransactionDto;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.type.ErrorCode;
+import com.example.accountsystem.type.ExecutionMode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceMutationCoalescerTest {
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private BalanceModeRegistry balanceModeRegistry;
+
+    @Mock
+    private BalanceJournal balanceJournal;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TransactionProperties transactionProperties = new TransactionProperties();
+    private final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+    private BalanceMutationCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        transactionProperties.getCoalescing().setEnabled(true);
+        transactionProperties.getCoalescing().setWindow(Duration.ofSeconds(1));
+        transactionProperties.getCoalescing().setMaxBatchSize(3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (coalescer != null) {
+            coalescer.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("여러 계좌의 요청을 한 번에 반영하고 요청마다 자기 결과를 받음")
+    void coalescesAcrossAccounts() {
+        // given
+        willAnswer(invocation -> apply(invocation.getArgument(0)))
+                .given(transactionService).applyMutations(anyList());
+        coalescer = newCoalescer();
+
+        // when
+        CompletableFuture<TransactionDto> first = coalescer.useBalance(1L, "1000000001", 1000L);
+        CompletableFuture<TransactionDto> second = coalescer.useBalance(2L, "1000000002", 2000L);
+        CompletableFuture<TransactionDto> third = coalescer.cancelBalance("transactionId",
+                "1000000003", 3000L);
+
+        // then
+        assertEquals("1000000001", first.join().getAccountNumber());
+        assertEquals(2000L, second.join().getAmount());
+        assertEquals("1000000003", third.join().getAccountNumber());
+        assertEquals(List.of(List.of("1000000001", "1000000002", "1000000003")), batches);
+        assertEquals(1, meterRegistry.summary("transaction.coalesce.batch").count());
+    }
+
+    @Test
+    @DisplayName("검증에 실패한 항목만 실패")
+    void failsOnlyInvalidMutation() {
+        // given
+        willAnswer(invocation -> apply(invocation.getArgument(0)))
+                .given(transactionService).applyMutations(anyList());
+        coalescer = newCoalescer();
+
+        // when
+        CompletableFuture<TransactionDto> first = coalescer.useBalance(1L, "1000000001", 1000L);
+        CompletableFuture<TransactionDto> invalid = coalescer.useBalance(2L, "invalid", 2000L);
+        CompletableFuture<TransactionDto> third = coalescer.useBalance(3L, "1000000003", 3000L);
+
+        // then
+        assertEquals("1000000001", first.join().getAccountNumber());
+        assertEquals("1000000003", third.join().getAccountNumber());
+        CompletionException exception = assertThrows(CompletionException.class, invalid::join);
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE,
+                ((AccountException) exception.getCause()).getErrorCode());
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    @DisplayName("배치 트랜잭션이 실패하면 항목마다 따로 다시 반영")
+    void fallsBackToOneByOne() {
+        // given
+        willAnswer(invocation -> {
+            List<BalanceMutation> mutations = invocation.getArgument(0);
+            if (mutations.size() > 1
+                    || mutations.get(0).getAccountNumber().equals("broken")) {
+                batches.add(accountNumbersOf(mutations));
+                throw new IllegalStateException("constraint violation");
+            }
+            return apply(mutations);
+        }).given(transactionService).applyMutations(anyList());
+        coalescer = newCoalescer();
+
+        // when
+        CompletableFuture<TransactionDto> first = coalescer.useBalance(1L, "1000000001", 1000L);
+        CompletableFuture<TransactionDto> broken = coalescer.useBalance(2L, "broken", 2000L);
+        CompletableFuture<TransactionDto> third = coalescer.useBalance(3L, "1000000003", 3000L);
+
+        // then
+        assertEquals("1000000001", first.join().getAccountNumber());
+        assertEquals("1000000003", third.join().getAccountNumber());
+        CompletionException exception = assertThrows(CompletionException.class, broken::join);
+        assertTrue(exception.getCause() instanceof IllegalStateException);
+        assertEquals(3.0, meterRegistry.counter("transaction.coalesce.fallback").count());
+    }
+
+    @Test
+    @DisplayName("커밋 뒤 저널 기록이 실패하면 다시 반영하지 않고 배치 전체를 실패")
+    void journalFailureAfterCommitIsNotReplayed() {
+        // given
+        willAnswer(invocation -> apply(invocation.getArgument(0)))
+                .given(transactionService).applyMutations(anyList());
+        willThrow(new AccountException(ErrorCode.INTERVAL_SERVER_ERROR))
+                .given(balanceJournal).appendAndAwait(anyList());
+        coalescer = newCoalescer();
+
+        // when
+        List<CompletableFuture<TransactionDto>> futures = List.of(
+                coalescer.useBalance(1L, "1000000001", 1000L),
+                coalescer.useBalance(2L, "invalid", 2000L),
+                coalescer.useBalance(3L, "1000000003", 3000L));
+
+        // then
+        for (CompletableFuture<TransactionDto> future : futures) {
+            CompletionException exception = assertThrows(CompletionException.class, future::join);
+            assertEquals(ErrorCode.INTERVAL_SERVER_ERROR,
+                    ((AccountException) exception.getCause()).getErrorCode());
+        }
+        assertEquals(1, batches.size());
+        verify(transactionService, times(1)).applyMutations(anyList());
+        assertEquals(0.0, meterRegistry.counter("transaction.coalesce.fallback").count());
+    }
+
+    @Test
+    @DisplayName("LOCK 모드가 아니거나 락이 필요 없는 계좌는 모으지 않음")
+    void acceptsOnlyLockedAccountsInLockMode() {
+        // given
+        given(balanceModeRegistry.isLockFree("1000000001"))
+                .willReturn(false);
+        given(balanceModeRegistry.isLockFree("1000000002"))
+                .willReturn(true);
+        coalescer = newCoalescer();
+        transactionProperties.setMode(ExecutionMode.PARTITIONED);
+        BalanceMutationCoalescer partitioned = newCoalescer();
+
+        // when
+        // then
+        assertTrue(coalescer.accepts("1000000001"));
+        assertFalse(coalescer.accepts("1000000002"));
+        assertFalse(partitioned.accepts("1000000001"));
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> partitioned.useBalance(1L, "1000000001", 1000L).join());
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK,
+                ((AccountException) exception.getCause()).getErrorCode());
+        partitioned.shutdown();
+    }
+
+    private BalanceMutationCoalescer newCoalescer() {
+        return new BalanceMutationCoalescer(transactionService, balanceModeRegistry,
+                balanceJournal, transactionProperties, meterRegistry);
+    }
+
+    /**
+     * 계좌번호가 "invalid" 인 항목은 잔액 부족으로 실패시킨다.
+     */
+    private List<BalanceMutation.Result> apply(List<BalanceMutation> mutations) {
+        batches.add(accountNumbersOf(mutations));
+        return mutations.stream()
+                .map(mutation -> mutation.getAccountNumber().equals("invalid")
+                        ? BalanceMutation.Result.failure(
+                                new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE))
+                        : BalanceMutation.Result.success(TransactionDto.builder()
+                                .accountNumber(mutation.getAccountNumber())
+                                .transactionType(mutation.getTransactionType())
+                                .amount(mutation.getAmount())
+                                .build()))
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> accountNumbersOf(List<BalanceMutation> mutations) {
+        return mutations.stream()
+                .map(BalanceMutation::getAccountNumber)
+                .collect(Collectors.toList());
+    }
+}
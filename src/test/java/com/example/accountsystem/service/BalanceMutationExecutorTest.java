@@ -0,0 +1,249 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.type.ErrorCode;
+import com.example.accountsystem.type.ExecutionMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceMutationExecutorTest {
+    private BalanceMutationExecutor balanceMutationExecutor;
+
+    @AfterEach
+    void tearDown() {
+        balanceMutationExecutor.shutdown();
+    }
+
+    @Test
+    @DisplayName("LOCK 모드는 호출 스레드에서 실행")
+    void lockModeRunsInline() {
+        // given
+        balanceMutationExecutor = new BalanceMutationExecutor(properties(ExecutionMode.LOCK));
+
+        // when
+        String threadName = balanceMutationExecutor.execute("1000000000",
+                () -> Thread.currentThread().getName());
+
+        // then
+        assertEquals(Thread.currentThread().getName(), threadName);
+        assertTrue(balanceMutationExecutor.isLockRequired());
+    }
+
+    @Test
+    @DisplayName("같은 계좌는 같은 파티션 스레드에서 순차 실행")
+    void sameAccountIsSerialized() throws Exception {
+        // given
+        balanceMutationExecutor = new BalanceMutationExecutor(properties(ExecutionMode.PARTITIONED));
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+
+        // when
+        Future<?>[] futures = new Future<?>[32];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = callers.submit(() -> balanceMutationExecutor.execute("1000000000", () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                running.decrementAndGet();
+                return Thread.currentThread().getName();
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        callers.shutdown();
+
+        // then
+        assertEquals(1, maxRunning.get());
+        assertFalse(balanceMutationExecutor.isLockRequired());
+    }
+
+    @Test
+    @DisplayName("파티션에서 발생한 예외를 그대로 전달")
+    void rethrowsAccountException() {
+        // given
+        balanceMutationExecutor = new BalanceMutationExecutor(properties(ExecutionMode.PARTITIONED));
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> balanceMutationExecutor.execute("1000000000", () -> {
+                    throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
+                }));
+
+        // then
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("반대 방향 이체가 동시에 들어와도 교착되지 않음")
+    void opposingMultiPartitionMutations() throws Exception {
+        // given
+        balanceMutationExecutor = new BalanceMutationExecutor(properties(ExecutionMode.PARTITIONED));
+        AtomicInteger completed = new AtomicInteger();
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+
+        // when
+        Future<?>[] futures = new Future<?>[64];
+        for (int i = 0; i < futures.length; i++) {
+            boolean forward = i % 2 == 0;
+            futures[i] = callers.submit(() -> balanceMutationExecutor.execute(
+                    forward ? Arrays.asList("1000000000", "1000000001")
+                            : Arrays.asList("1000000001", "1000000000"),
+                    completed::incrementAndGet));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        callers.shutdown();
+
+        // then
+        assertEquals(64, completed.get());
+    }
+
+    @Test
+    @DisplayName("LOCK 모드 submit 은 워커 스레드에서 실행")
+    void submitRunsOnWorker() {
+        // given
+        balanceMutationExecutor = new BalanceMutationExecutor(properties(ExecutionMode.LOCK));
+
+        // when
+        String threadName = balanceMutationExecutor.submit("1000000000",
+                () -> Thread.currentThread().getName()).join();
+
+        // then
+        assertTrue(threadName.startsWith("balance-worker-"));
+    }
+
+    @Test
+    @DisplayName("submit 은 예외를 감싸지 않고 future 로 전달")
+    void submitCompletesExceptionally() {
+        // given
+        balanceMutationExecutor = new BalanceMutationExecutor(properties(ExecutionMode.PARTITIONED));
+
+        // when
+        CompletableFuture<Object> future = balanceMutationExecutor.submit("1000000000", () -> {
+            throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
+        });
+
+        // then
+        ExecutionException exception = assertThrows(ExecutionException.class, future::get);
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE,
+                ((AccountException) exception.getCause()).getErrorCode());
+    }
+
+    @Test
+    @DisplayName("timeout 안에 시작하지 못한 변경은 실패로 응답하고 나중에도 실행하지 않음")
+    void timedOutMutationIsNeverExecuted() throws Exception {
+        // given
+        balanceMutationExecutor = new BalanceMutationExecutor(singlePartition(Duration.ofMillis(100)));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executed = new AtomicInteger();
+        ExecutorService callers = Executors.newSingleThreadExecutor();
+        Future<?> blocker = callers.submit(() -> balanceMutationExecutor.execute("1000000000", () -> {
+            started.countDown();
+            awaitQuietly(release);
+            return null;
+        }));
+        started.await();
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> balanceMutationExecutor.execute("1000000000", executed::incrementAndGet));
+        release.countDown();
+        blocker.get();
+        balanceMutationExecutor.execute("1000000000", () -> null);
+        callers.shutdown();
+
+        // then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        assertEquals(0, executed.get());
+    }
+
+    @Test
+    @DisplayName("이미 시작한 변경은 timeout 이 지나도 결과를 기다려 돌려줌")
+    void startedMutationIsNotReportedAsTimeout() {
+        // given
+        balanceMutationExecutor = new BalanceMutationExecutor(singlePartition(Duration.ofMillis(50)));
+
+        // when
+        String result = balanceMutationExecutor.execute("1000000000", () -> {
+            sleepQuietly(200);
+            return "committed";
+        });
+
+        // then
+        assertEquals("committed", result);
+    }
+
+    @Test
+    @DisplayName("submit - 시작하지 못한 변경만 timeout 으로 실패하고, 시작한 변경은 끝날 때 완료")
+    void submitTimesOutOnlyQueuedMutations() throws Exception {
+        // given
+        balanceMutationExecutor = new BalanceMutationExecutor(singlePartition(Duration.ofMillis(100)));
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executed = new AtomicInteger();
+        CompletableFuture<String> running = balanceMutationExecutor.submit("1000000000", () -> {
+            awaitQuietly(release);
+            return "committed";
+        });
+
+        // when
+        CompletableFuture<Integer> queued =
+                balanceMutationExecutor.submit("1000000000", executed::incrementAndGet);
+        ExecutionException exception = assertThrows(ExecutionException.class, queued::get);
+        Thread.sleep(100);
+        boolean runningDoneBeforeRelease = running.isDone();
+        release.countDown();
+
+        // then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK,
+                ((AccountException) exception.getCause()).getErrorCode());
+        assertFalse(runningDoneBeforeRelease);
+        assertEquals("committed", running.get());
+        assertEquals(0, balanceMutationExecutor.submit("1000000000", executed::get).get());
+    }
+
+    private TransactionProperties singlePartition(Duration timeout) {
+        TransactionProperties transactionProperties = properties(ExecutionMode.PARTITIONED);
+        transactionProperties.getPartition().setCount(1);
+        transactionProperties.getPartition().setTimeout(timeout);
+        return transactionProperties;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private TransactionProperties properties(ExecutionMode mode) {
+        TransactionProperties transactionProperties = new TransactionProperties();
+        transactionProperties.setMode(mode);
+        transactionProperties.getPartition().setCount(4);
+        return transactionProperties;
+    }
+}
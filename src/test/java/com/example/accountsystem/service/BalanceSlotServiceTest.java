@@ -0,0 +1,129 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.domain.Account;
+import com.example.accountsystem.domain.BalanceSlot;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.repository.BalanceSlotRepository;
+import com.example.accountsystem.type.BalanceMode;
+import com.example.accountsystem.type.ErrorCode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceSlotServiceTest {
+    @Mock
+    private BalanceSlotRepository balanceSlotRepository;
+
+    @InjectMocks
+    private BalanceSlotService balanceSlotService;
+
+    @Test
+    @DisplayName("잔액이 충분한 슬롯 하나에서 차감")
+    void debitFromSingleSlot() {
+        // given
+        Account account = stripedAccount();
+        given(balanceSlotRepository.debit(any(), anyInt(), anyLong()))
+                .willReturn(0, 1);
+        given(balanceSlotRepository.sumBalance(any()))
+                .willReturn(9000L);
+
+        // when
+        long balance = balanceSlotService.debit(account, 1000L);
+
+        // then
+        assertEquals(9000L, balance);
+        verify(balanceSlotRepository, never()).findAllForUpdate(any());
+    }
+
+    @Test
+    @DisplayName("한 슬롯으로 부족하면 여러 슬롯에서 나눠 차감")
+    void debitAcrossSlots() {
+        // given
+        Account account = stripedAccount();
+        List<BalanceSlot> slots = Arrays.asList(
+                slot(account, 0, 300L), slot(account, 1, 300L),
+                slot(account, 2, 300L), slot(account, 3, 300L));
+        given(balanceSlotRepository.debit(any(), anyInt(), anyLong()))
+                .willReturn(0);
+        given(balanceSlotRepository.findAllForUpdate(any()))
+                .willReturn(slots);
+
+        // when
+        long balance = balanceSlotService.debit(account, 1000L);
+
+        // then
+        assertEquals(200L, balance);
+        assertEquals(0L, slots.get(0).getBalance());
+        assertEquals(0L, slots.get(1).getBalance());
+        assertEquals(0L, slots.get(2).getBalance());
+        assertEquals(200L, slots.get(3).getBalance());
+    }
+
+    @Test
+    @DisplayName("슬롯 합계가 부족하면 실패")
+    void debitExceedBalance() {
+        // given
+        Account account = stripedAccount();
+        given(balanceSlotRepository.debit(any(), anyInt(), anyLong()))
+                .willReturn(0);
+        given(balanceSlotRepository.findAllForUpdate(any()))
+                .willReturn(Arrays.asList(slot(account, 0, 300L), slot(account, 1, 300L)));
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> balanceSlotService.debit(account, 1000L));
+
+        // then
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("슬롯이 해제되는 중이면 재시도하도록 실패")
+    void debitWhileMerging() {
+        // given
+        Account account = stripedAccount();
+        given(balanceSlotRepository.debit(any(), anyInt(), anyLong()))
+                .willReturn(0);
+        given(balanceSlotRepository.findAllForUpdate(any()))
+                .willReturn(Collections.emptyList());
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> balanceSlotService.debit(account, 1000L));
+
+        // then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+    }
+
+    private Account stripedAccount() {
+        return Account.builder()
+                .accountNumber("1000000000")
+                .balanceMode(BalanceMode.STRIPED)
+                .balanceSlotCount(4)
+                .balance(0L)
+                .build();
+    }
+
+    private BalanceSlot slot(Account account, int slotIndex, long balance) {
+        return BalanceSlot.builder()
+                .account(account)
+                .slotIndex(slotIndex)
+                .balance(balance)
+                .build();
+    }
+}
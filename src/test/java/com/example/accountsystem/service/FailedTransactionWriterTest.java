@@ -0,0 +1,142 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.dto.FailedTransaction;
+import com.example.accountsystem.type.OverflowPolicy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.example.accountsystem.type.TransactionType.CANCEL;
+import static com.example.accountsystem.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.willAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class FailedTransactionWriterTest {
+    @Mock
+    private TransactionService transactionService;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<List<FailedTransaction>> batches =
+            Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch writing = new CountDownLatch(1);
+    private final CountDownLatch released = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        // 첫 저장을 멈춰 세워 그 동안 큐가 차도록 한다.
+        willAnswer(invocation -> {
+            batches.add(new ArrayList<>(invocation.getArgument(0)));
+            writing.countDown();
+            released.await(5, TimeUnit.SECONDS);
+            return null;
+        }).given(transactionService).saveFailedTransactions(anyList());
+    }
+
+    @Test
+    @DisplayName("쌓인 기록은 한 번에 저장하고 종료 시 남은 기록을 모두 저장")
+    void writeInBatchesAndFlushOnShutdown() throws InterruptedException {
+        // given
+        FailedTransactionWriter writer = newWriter(100, OverflowPolicy.DROP_NEWEST);
+        writer.record(USE, "1000000000", 1000L);
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        // when
+        writer.record(USE, "1000000000", Arrays.asList(2000L, 3000L));
+        writer.record(CANCEL, "2000000000", 4000L);
+        released.countDown();
+        writer.shutdown();
+
+        // then
+        assertEquals(2, batches.size());
+        assertEquals(List.of(1000L), amountsOf(batches.get(0)));
+        assertEquals(Arrays.asList(2000L, 3000L, 4000L), amountsOf(batches.get(1)));
+        assertEquals(CANCEL, batches.get(1).get(2).getTransactionType());
+        assertEquals(4.0, count("written"));
+    }
+
+    @Test
+    @DisplayName("DROP_NEWEST - 큐가 가득 차면 새 기록을 버림")
+    void dropNewest() throws InterruptedException {
+        // given
+        FailedTransactionWriter writer = newWriter(2, OverflowPolicy.DROP_NEWEST);
+        writer.record(USE, "1000000000", 1000L);
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        // when
+        writer.record(USE, "1000000000", Arrays.asList(2000L, 3000L, 4000L));
+        released.countDown();
+        writer.shutdown();
+
+        // then
+        assertEquals(Arrays.asList(2000L, 3000L), amountsOf(batches.get(1)));
+        assertEquals(1.0, count("dropped"));
+    }
+
+    @Test
+    @DisplayName("DROP_OLDEST - 큐가 가득 차면 가장 오래된 기록을 버림")
+    void dropOldest() throws InterruptedException {
+        // given
+        FailedTransactionWriter writer = newWriter(2, OverflowPolicy.DROP_OLDEST);
+        writer.record(USE, "1000000000", 1000L);
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        // when
+        writer.record(USE, "1000000000", Arrays.asList(2000L, 3000L, 4000L));
+        released.countDown();
+        writer.shutdown();
+
+        // then
+        assertEquals(Arrays.asList(3000L, 4000L), amountsOf(batches.get(1)));
+        assertEquals(1.0, count("dropped"));
+    }
+
+    @Test
+    @DisplayName("종료 후 들어온 기록은 호출 스레드에서 바로 저장")
+    void writeDirectlyAfterShutdown() {
+        // given
+        FailedTransactionWriter writer = newWriter(100, OverflowPolicy.DROP_NEWEST);
+        released.countDown();
+        writer.shutdown();
+
+        // when
+        writer.record(USE, "1000000000", 1000L);
+
+        // then
+        assertEquals(1, batches.size());
+        assertEquals(List.of(1000L), amountsOf(batches.get(0)));
+    }
+
+    private FailedTransactionWriter newWriter(int queueCapacity, OverflowPolicy overflowPolicy) {
+        TransactionProperties transactionProperties = new TransactionProperties();
+        transactionProperties.getFailureAudit().setQueueCapacity(queueCapacity);
+        transactionProperties.getFailureAudit().setOverflowPolicy(overflowPolicy);
+        return new FailedTransactionWriter(transactionService, transactionProperties, meterRegistry);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("transaction.failure.audit").tag("result", result)
+                .counter().count();
+    }
+
+    private static List<Long> amountsOf(List<FailedTransaction> batch) {
+        return batch.stream()
+                .map(FailedTransaction::getAmount)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,297 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.domain.Account;
+import com.example.accountsystem.domain.AccountUser;
+import com.example.accountsystem.domain.Transaction;
+import com.example.accountsystem.repository.AccountRepository;
+import com.example.accountsystem.repository.TransactionRepository;
+import com.example.accountsystem.type.BalanceMode;
+import com.example.accountsystem.type.TransactionType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static com.example.accountsystem.type.AccountStatus.IN_USE;
+import static com.example.accountsystem.type.TransactionType.CANCEL;
+import static com.example.accountsystem.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HotBalancePersisterTest {
+    private static final String ACCOUNT_NUMBER = "1000000012";
+
+    @Mock
+    private HotBalanceStore hotBalanceStore;
+    @Mock
+    private BalanceModeRegistry balanceModeRegistry;
+    @Mock
+    private LockService lockService;
+    @Mock
+    private AccountRepository accountRepository;
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HotBalancePersister hotBalancePersister;
+    private Account account;
+
+    @BeforeEach
+    void setUp() {
+        TransactionProperties transactionProperties = new TransactionProperties();
+        transactionProperties.getHotBalance().setBatchSize(2);
+        hotBalancePersister = new HotBalancePersister(hotBalanceStore, balanceModeRegistry,
+                lockService, accountRepository, transactionRepository, transactionTemplate,
+                transactionProperties, meterRegistry);
+
+        AccountUser user = AccountUser.builder().name("Pobi").build();
+        user.setId(12L);
+        account = Account.builder()
+                .accountUser(user)
+                .accountNumber(ACCOUNT_NUMBER)
+                .accountStatus(IN_USE)
+                .balanceMode(BalanceMode.HOT)
+                .balance(10000L)
+                .hotLedgerSeq(3L)
+                .build();
+        given(transactionTemplate.execute(any()))
+                .willAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0))
+                        .doInTransaction(null));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushPersistsLedgerAndTrims() {
+        // given
+        given(hotBalanceStore.readLedger(ACCOUNT_NUMBER, 2))
+                .willReturn(List.of(entry(4, USE, 1000L, 9000L), entry(5, CANCEL, 1000L, 10000L)));
+        given(accountRepository.findForUpdateByAccountNumber(ACCOUNT_NUMBER))
+                .willReturn(Optional.of(account));
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
+
+        // when
+        int read = hotBalancePersister.flush(ACCOUNT_NUMBER);
+
+        // then
+        assertEquals(2, read);
+        verify(transactionRepository).saveAll(captor.capture());
+        List<Transaction> transactions = captor.getValue();
+        assertEquals(2, transactions.size());
+        assertEquals("tx4", transactions.get(0).getTransactionId());
+        assertEquals(9000L, transactions.get(0).getBalanceSnapshot());
+        assertEquals(CANCEL, transactions.get(1).getTransactionType());
+        assertEquals(10000L, account.getBalance());
+        assertEquals(5L, account.getHotLedgerSeq());
+        verify(hotBalanceStore).trimLedger(ACCOUNT_NUMBER, 5L);
+        assertEquals(2.0, meterRegistry.counter("hot.balance.persisted").count());
+    }
+
+    @Test
+    @DisplayName("이미 반영된 seq 는 다시 저장하지 않음 (지우기 전에 죽은 경우)")
+    @SuppressWarnings("unchecked")
+    void flushSkipsAlreadyPersistedEntries() {
+        // given
+        given(hotBalanceStore.readLedger(ACCOUNT_NUMBER, 2))
+                .willReturn(List.of(entry(3, USE, 1000L, 10000L), entry(4, USE, 500L, 9500L)));
+        given(accountRepository.findForUpdateByAccountNumber(ACCOUNT_NUMBER))
+                .willReturn(Optional.of(account));
+        given(transactionRepository.findTransactionIdsIn(List.of("tx3", "tx4")))
+                .willReturn(List.of("tx3"));
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
+
+        // when
+        hotBalancePersister.flush(ACCOUNT_NUMBER);
+
+        // then
+        verify(transactionRepository).saveAll(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals("tx4", captor.getValue().get(0).getTransactionId());
+        assertEquals(9500L, account.getBalance());
+        verify(hotBalanceStore).trimLedger(ACCOUNT_NUMBER, 4L);
+    }
+
+    @Test
+    @DisplayName("저널 복구로 이미 DB 에 있는 거래 ID 는 저장하지 않고 seq 와 잔액만 넘김")
+    @SuppressWarnings("unchecked")
+    void flushSkipsTransactionIdsAlreadyInDb() {
+        // given
+        given(hotBalanceStore.readLedger(ACCOUNT_NUMBER, 2))
+                .willReturn(List.of(entry(4, USE, 1000L, 9000L), entry(5, USE, 500L, 8500L)));
+        given(accountRepository.findForUpdateByAccountNumber(ACCOUNT_NUMBER))
+                .willReturn(Optional.of(account));
+        given(transactionRepository.findTransactionIdsIn(List.of("tx4", "tx5")))
+                .willReturn(List.of("tx4"));
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
+
+        // when
+        hotBalancePersister.flush(ACCOUNT_NUMBER);
+
+        // then
+        verify(transactionRepository).saveAll(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals("tx5", captor.getValue().get(0).getTransactionId());
+        assertEquals(8500L, account.getBalance());
+        assertEquals(5L, account.getHotLedgerSeq());
+        verify(hotBalanceStore).trimLedger(ACCOUNT_NUMBER, 5L);
+    }
+
+    @Test
+    @DisplayName("hotLedgerSeq 이하의 seq 에 DB 에 없는 거래가 있으면 (Redis 가 뒤로 돌아감) 반영하지 않음")
+    void flushStopsWhenLedgerIsBehindDb() {
+        // given
+        given(hotBalanceStore.readLedger(ACCOUNT_NUMBER, 2))
+                .willReturn(List.of(entry(2, USE, 1000L, 5000L), entry(3, USE, 500L, 4500L)));
+        given(accountRepository.findForUpdateByAccountNumber(ACCOUNT_NUMBER))
+                .willReturn(Optional.of(account));
+
+        // when
+        int read = hotBalancePersister.flush(ACCOUNT_NUMBER);
+
+        // then
+        assertEquals(-1, read);
+        verify(transactionRepository, never()).saveAll(any());
+        verify(hotBalanceStore, never()).trimLedger(any(), anyLong());
+        assertEquals(10000L, account.getBalance());
+        assertEquals(3L, account.getHotLedgerSeq());
+    }
+
+    @Test
+    @DisplayName("뒤로 돌아간 원장은 증감을 막고 DB 잔액 위에 다음 seq 로 다시 쌓음")
+    @SuppressWarnings("unchecked")
+    void drainRebasesLedgerBehindDb() {
+        // given
+        List<HotBalanceStore.LedgerEntry> ledger = List.of(entry(2, USE, 1000L, 5000L),
+                entry(3, USE, 500L, 4500L), entry(4, CANCEL, 1000L, 5500L));
+        given(hotBalanceStore.readLedger(ACCOUNT_NUMBER, 2))
+                .willReturn(ledger.subList(0, 2));
+        given(hotBalanceStore.readLedger(ACCOUNT_NUMBER, Integer.MAX_VALUE))
+                .willReturn(ledger);
+        given(accountRepository.findForUpdateByAccountNumber(ACCOUNT_NUMBER))
+                .willReturn(Optional.of(account));
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
+
+        // when
+        hotBalancePersister.drain(ACCOUNT_NUMBER);
+
+        // then
+        InOrder inOrder = inOrder(hotBalanceStore, transactionRepository);
+        inOrder.verify(hotBalanceStore).unload(ACCOUNT_NUMBER);
+        inOrder.verify(transactionRepository).saveAll(captor.capture());
+        inOrder.verify(hotBalanceStore).trimLedger(ACCOUNT_NUMBER, 4L);
+        List<Transaction> transactions = captor.getValue();
+        assertEquals(3, transactions.size());
+        assertEquals(9000L, transactions.get(0).getBalanceSnapshot());
+        assertEquals(8500L, transactions.get(1).getBalanceSnapshot());
+        assertEquals(9500L, transactions.get(2).getBalanceSnapshot());
+        assertEquals(9500L, account.getBalance());
+        assertEquals(6L, account.getHotLedgerSeq());
+        verify(hotBalanceStore).removeTransactions(List.of("tx2", "tx3", "tx4"));
+    }
+
+    @Test
+    @DisplayName("Redis 에 잔액이 없으면 계좌 락을 잡고 DB 값으로 다시 올림")
+    void flushAllRecoversMissingBalance() {
+        // given
+        given(balanceModeRegistry.getAccountNumbers(BalanceMode.HOT))
+                .willReturn(List.of(ACCOUNT_NUMBER));
+        given(hotBalanceStore.getState(ACCOUNT_NUMBER))
+                .willReturn(Optional.empty());
+        given(hotBalanceStore.readLedger(ACCOUNT_NUMBER, 2))
+                .willReturn(List.of());
+        given(accountRepository.findByAccountNumber(ACCOUNT_NUMBER))
+                .willReturn(Optional.of(account));
+        given(hotBalanceStore.load(ACCOUNT_NUMBER, 12L, 10000L, 3L))
+                .willReturn(true);
+
+        // when
+        hotBalancePersister.flushAll();
+
+        // then
+        InOrder inOrder = inOrder(lockService, hotBalanceStore);
+        inOrder.verify(lockService).lock(ACCOUNT_NUMBER);
+        inOrder.verify(hotBalanceStore).load(ACCOUNT_NUMBER, 12L, 10000L, 3L);
+        inOrder.verify(lockService).unlock(ACCOUNT_NUMBER);
+    }
+
+    @Test
+    void drainRepeatsWhileBatchIsFull() {
+        // given
+        given(hotBalanceStore.readLedger(ACCOUNT_NUMBER, 2))
+                .willReturn(List.of(entry(4, USE, 1000L, 9000L), entry(5, USE, 1000L, 8000L)))
+                .willReturn(List.of(entry(6, USE, 1000L, 7000L)));
+        given(accountRepository.findForUpdateByAccountNumber(ACCOUNT_NUMBER))
+                .willReturn(Optional.of(account));
+
+        // when
+        hotBalancePersister.drain(ACCOUNT_NUMBER);
+
+        // then
+        verify(hotBalanceStore, times(2)).readLedger(ACCOUNT_NUMBER, 2);
+        assertEquals(7000L, account.getBalance());
+        assertEquals(6L, account.getHotLedgerSeq());
+    }
+
+    @Test
+    @DisplayName("Redis 가 DB 보다 뒤처져 있으면 DB 값으로 다시 올림")
+    void reconcileReloadsFromDb() {
+        // given
+        given(hotBalanceStore.readLedger(ACCOUNT_NUMBER, 2))
+                .willReturn(List.of());
+        given(accountRepository.findByAccountNumber(ACCOUNT_NUMBER))
+                .willReturn(Optional.of(account));
+        given(hotBalanceStore.load(ACCOUNT_NUMBER, 12L, 10000L, 3L))
+                .willReturn(true);
+
+        // when
+        boolean reloaded = hotBalancePersister.reconcile(ACCOUNT_NUMBER);
+
+        // then
+        assertTrue(reloaded);
+        assertEquals(1.0, meterRegistry.get("hot.balance.reconciled")
+                .tag("result", "reloaded").counter().count());
+    }
+
+    @Test
+    @DisplayName("STANDARD 로 돌아간 계좌는 Redis 에 올리지 않음")
+    void reconcileIgnoresStandardAccount() {
+        // given
+        account.setBalanceMode(BalanceMode.STANDARD);
+        given(hotBalanceStore.readLedger(ACCOUNT_NUMBER, 2))
+                .willReturn(List.of());
+        given(accountRepository.findByAccountNumber(ACCOUNT_NUMBER))
+                .willReturn(Optional.of(account));
+
+        // when
+        boolean reloaded = hotBalancePersister.reconcile(ACCOUNT_NUMBER);
+
+        // then
+        assertFalse(reloaded);
+        verify(hotBalanceStore, never()).load(any(), any(), anyLong(), anyLong());
+    }
+
+    private static HotBalanceStore.LedgerEntry entry(
+            long seq, TransactionType transactionType,
+            long amount, long balanceAfter) {
+        return new HotBalanceStore.LedgerEntry(seq, "tx" + seq, transactionType, amount,
+                balanceAfter, LocalDateTime.now());
+    }
+}
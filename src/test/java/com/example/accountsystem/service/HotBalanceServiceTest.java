@@ -0,0 +1,199 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.dto.TransactionDto;
+import com.example.accountsystem.dto.UseBalance;
+import com.example.accountsystem.dto.UseBalanceBatch;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.repository.AccountUserRepository;
+import com.example.accountsystem.type.ErrorCode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.example.accountsystem.service.HotBalanceStore.MutationStatus.*;
+import static com.example.accountsystem.type.TransactionResultType.S;
+import static com.example.accountsystem.type.TransactionType.CANCEL;
+import static com.example.accountsystem.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class HotBalanceServiceTest {
+    @Mock
+    private HotBalanceStore hotBalanceStore;
+    @Mock
+    private BalanceModeRegistry balanceModeRegistry;
+    @Mock
+    private AccountUserRepository accountUserRepository;
+    @Mock
+    private TransactionService transactionService;
+    @Mock
+    private TransactionIdGenerator transactionIdGenerator;
+    @Mock
+    private TransactionRecordCache transactionRecordCache;
+    @Mock
+    private AccountListCache accountListCache;
+    @Mock
+    private FailedTransactionWriter failedTransactionWriter;
+    @Mock
+    private BalanceJournal balanceJournal;
+    @InjectMocks
+    private HotBalanceService hotBalanceService;
+
+    @Test
+    void useBalanceDebitsRedis() {
+        // given
+        given(transactionIdGenerator.nextId())
+                .willReturn("transactionId");
+        given(hotBalanceStore.debit(eq("1000000012"), eq(12L), eq(1000L), eq("transactionId"),
+                eq(USE), any()))
+                .willReturn(new HotBalanceStore.MutationResult(OK, 9000L, 12L));
+        ArgumentCaptor<TransactionDto> captor = ArgumentCaptor.forClass(TransactionDto.class);
+
+        // when
+        TransactionDto transactionDto = hotBalanceService.useBalance(12L, "1000000012", 1000L);
+
+        // then
+        assertEquals(S, transactionDto.getTransactionResultType());
+        assertEquals(9000L, transactionDto.getBalanceSnapshot());
+        assertEquals("transactionId", transactionDto.getTransactionId());
+        verify(transactionRecordCache).putAfterCommit(captor.capture());
+        assertEquals("transactionId", captor.getValue().getTransactionId());
+        verify(accountListCache).evictAfterCommit(12L);
+    }
+
+    @Test
+    @DisplayName("잔액 부족")
+    void useBalance_insufficient() {
+        // given
+        given(transactionIdGenerator.nextId())
+                .willReturn("transactionId");
+        given(hotBalanceStore.debit(anyString(), anyLong(), anyLong(), anyString(), any(), any()))
+                .willReturn(new HotBalanceStore.MutationResult(INSUFFICIENT_BALANCE, 500L, 12L));
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> hotBalanceService.useBalance(12L, "1000000012", 1000L));
+
+        // then
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, exception.getErrorCode());
+        verify(transactionRecordCache, never()).putAfterCommit(any());
+    }
+
+    @Test
+    @DisplayName("소유주가 다르면 사용자 존재 여부로 오류 코드를 고름")
+    void useBalance_userUnMatch() {
+        // given
+        given(transactionIdGenerator.nextId())
+                .willReturn("transactionId");
+        given(hotBalanceStore.debit(anyString(), anyLong(), anyLong(), anyString(), any(), any()))
+                .willReturn(new HotBalanceStore.MutationResult(USER_UN_MATCH, 0L, 12L));
+        given(accountUserRepository.existsById(13L))
+                .willReturn(true);
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> hotBalanceService.useBalance(13L, "1000000012", 1000L));
+
+        // then
+        assertEquals(ErrorCode.USER_ACCOUNT_UN_MATCH, exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("Redis 에 잔액이 없으면 (모드 전환 중) 재시도")
+    void useBalance_notLoaded() {
+        // given
+        given(transactionIdGenerator.nextId())
+                .willReturn("transactionId");
+        given(hotBalanceStore.debit(anyString(), anyLong(), anyLong(), anyString(), any(), any()))
+                .willReturn(new HotBalanceStore.MutationResult(NOT_LOADED, 0L, 0L));
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> hotBalanceService.useBalance(12L, "1000000012", 1000L));
+
+        // then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+    }
+
+    @Test
+    void useBalancesRecordsFailedItems() {
+        // given
+        UseBalance.Request first = new UseBalance.Request(12L, "1000000012", 1000L);
+        UseBalance.Request second = new UseBalance.Request(12L, "1000000012", 9000L);
+        given(transactionIdGenerator.nextId())
+                .willReturn("first", "second");
+        given(hotBalanceStore.debit(anyString(), anyLong(), eq(1000L), anyString(), any(), any()))
+                .willReturn(new HotBalanceStore.MutationResult(OK, 500L, 12L));
+        given(hotBalanceStore.debit(anyString(), anyLong(), eq(9000L), anyString(), any(), any()))
+                .willReturn(new HotBalanceStore.MutationResult(INSUFFICIENT_BALANCE, 500L, 12L));
+
+        // when
+        List<UseBalanceBatch.Item> items = hotBalanceService.useBalances(
+                "1000000012", List.of(first, second));
+
+        // then
+        assertEquals("first", items.get(0).getResult().getTransactionId());
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, items.get(1).getError().getErrorCode());
+        verify(failedTransactionWriter).record(USE, "1000000012", 9000L);
+    }
+
+    @Test
+    void cancelBalanceCreditsRedis() {
+        // given
+        given(transactionService.queryTransaction("original"))
+                .willReturn(TransactionDto.builder()
+                        .accountNumber("1000000012")
+                        .transactionType(USE)
+                        .transactionResultType(S)
+                        .transactionId("original")
+                        .amount(1000L)
+                        .transactedAt(LocalDateTime.now())
+                        .build());
+        given(transactionIdGenerator.nextId())
+                .willReturn("cancel");
+        given(hotBalanceStore.credit(eq("1000000012"), eq(1000L), eq("cancel"), eq(CANCEL), any()))
+                .willReturn(new HotBalanceStore.MutationResult(OK, 10000L, 12L));
+
+        // when
+        TransactionDto transactionDto = hotBalanceService.cancelBalance(
+                "original", "1000000012", 1000L);
+
+        // then
+        assertEquals(CANCEL, transactionDto.getTransactionType());
+        assertEquals(10000L, transactionDto.getBalanceSnapshot());
+        verify(accountListCache).evictAfterCommit(12L);
+    }
+
+    @Test
+    @DisplayName("부분 취소는 Redis 를 건드리지 않고 실패")
+    void cancelBalance_partial() {
+        // given
+        given(transactionService.queryTransaction("original"))
+                .willReturn(TransactionDto.builder()
+                        .accountNumber("1000000012")
+                        .transactionType(USE)
+                        .transactionId("original")
+                        .amount(1000L)
+                        .transactedAt(LocalDateTime.now())
+                        .build());
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> hotBalanceService.cancelBalance("original", "1000000012", 500L));
+
+        // then
+        assertEquals(ErrorCode.CANCEL_MUST_FULLY, exception.getErrorCode());
+        verify(hotBalanceStore, never()).credit(anyString(), anyLong(), anyString(), any(), any());
+    }
+}
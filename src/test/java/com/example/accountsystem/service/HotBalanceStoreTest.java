@@ -0,0 +1,196 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.dto.TransactionDto;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.example.accountsystem.service.HotBalanceStore.MutationStatus.*;
+import static com.example.accountsystem.type.TransactionResultType.S;
+import static com.example.accountsystem.type.TransactionType.CANCEL;
+import static com.example.accountsystem.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lua 스크립트를 실제 Redis(embedded) 에서 실행해 확인
+ */
+class HotBalanceStoreTest {
+    private static final String ACCOUNT_NUMBER = "1000000012";
+
+    private static RedisServer redisServer;
+    private static RedissonClient redissonClient;
+    private HotBalanceStore hotBalanceStore;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        Config config = new Config();
+        config.useSingleServer().setAddress("redis://127.0.0.1:" + port);
+        redissonClient = Redisson.create(config);
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redissonClient.shutdown();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redissonClient.getKeys().flushall();
+        hotBalanceStore = new HotBalanceStore(redissonClient);
+    }
+
+    @Test
+    void debitAndCreditAppendLedger() {
+        // given
+        hotBalanceStore.load(ACCOUNT_NUMBER, 12L, 10000L, 3L);
+        LocalDateTime transactedAt = LocalDateTime.of(2022, 7, 1, 12, 0, 0, 123_000_000);
+
+        // when
+        HotBalanceStore.MutationResult debit = hotBalanceStore.debit(
+                ACCOUNT_NUMBER, 12L, 1000L, "tx4", USE, transactedAt);
+        HotBalanceStore.MutationResult credit = hotBalanceStore.credit(
+                ACCOUNT_NUMBER, 1000L, "tx5", CANCEL, transactedAt);
+
+        // then
+        assertEquals(OK, debit.getStatus());
+        assertEquals(9000L, debit.getBalance());
+        assertEquals(12L, debit.getUserId());
+        assertEquals(10000L, credit.getBalance());
+        List<HotBalanceStore.LedgerEntry> ledger = hotBalanceStore.readLedger(ACCOUNT_NUMBER, 10);
+        assertEquals(2, ledger.size());
+        assertEquals(4L, ledger.get(0).getSeq());
+        assertEquals("tx4", ledger.get(0).getTransactionId());
+        assertEquals(USE, ledger.get(0).getTransactionType());
+        assertEquals(1000L, ledger.get(0).getAmount());
+        assertEquals(9000L, ledger.get(0).getBalanceAfter());
+        assertEquals(transactedAt, ledger.get(0).getTransactedAt());
+        assertEquals(5L, ledger.get(1).getSeq());
+        assertEquals(5L, hotBalanceStore.getState(ACCOUNT_NUMBER).get().getSeq());
+    }
+
+    @Test
+    @DisplayName("DB 반영 전 거래는 다른 인스턴스(노드) 에서도 ID 로 찾고, 반영 후 색인을 지우면 없음")
+    void unflushedTransactionIsFoundById() {
+        // given
+        hotBalanceStore.load(ACCOUNT_NUMBER, 12L, 10000L, 0L);
+        LocalDateTime transactedAt = LocalDateTime.of(2022, 7, 1, 12, 0);
+        hotBalanceStore.debit(ACCOUNT_NUMBER, 12L, 1000L, "tx1", USE, transactedAt);
+        hotBalanceStore.debit(ACCOUNT_NUMBER, 12L, 100L, "tx2", USE, transactedAt);
+        HotBalanceStore otherNode = new HotBalanceStore(redissonClient);
+
+        // when
+        TransactionDto found = otherNode.findTransaction("tx1").get();
+        otherNode.removeTransactions(List.of("tx1"));
+
+        // then
+        assertEquals(ACCOUNT_NUMBER, found.getAccountNumber());
+        assertEquals("tx1", found.getTransactionId());
+        assertEquals(USE, found.getTransactionType());
+        assertEquals(S, found.getTransactionResultType());
+        assertEquals(1000L, found.getAmount());
+        assertEquals(9000L, found.getBalanceSnapshot());
+        assertEquals(transactedAt, found.getTransactedAt());
+        assertEquals(-1L, redissonClient.getBucket("ACHOTTX:tx2").remainTimeToLive());
+        assertFalse(hotBalanceStore.findTransaction("tx1").isPresent());
+        assertTrue(hotBalanceStore.findTransaction("tx2").isPresent());
+        assertFalse(hotBalanceStore.findTransaction("tx3").isPresent());
+    }
+
+    @Test
+    @DisplayName("잔액 부족, 소유주 불일치, 미적재는 잔액과 원장을 바꾸지 않음")
+    void rejectedMutationsLeaveNoTrace() {
+        // given
+        hotBalanceStore.load(ACCOUNT_NUMBER, 12L, 500L, 0L);
+
+        // when
+        HotBalanceStore.MutationResult insufficient = hotBalanceStore.debit(
+                ACCOUNT_NUMBER, 12L, 1000L, "tx1", USE, LocalDateTime.now());
+        HotBalanceStore.MutationResult unMatch = hotBalanceStore.debit(
+                ACCOUNT_NUMBER, 13L, 100L, "tx2", USE, LocalDateTime.now());
+        HotBalanceStore.MutationResult notLoaded = hotBalanceStore.debit(
+                "2000000000", 12L, 100L, "tx3", USE, LocalDateTime.now());
+
+        // then
+        assertEquals(INSUFFICIENT_BALANCE, insufficient.getStatus());
+        assertEquals(USER_UN_MATCH, unMatch.getStatus());
+        assertEquals(NOT_LOADED, notLoaded.getStatus());
+        assertEquals(500L, hotBalanceStore.getState(ACCOUNT_NUMBER).get().getBalance());
+        assertTrue(hotBalanceStore.readLedger(ACCOUNT_NUMBER, 10).isEmpty());
+        assertFalse(hotBalanceStore.findTransaction("tx1").isPresent());
+    }
+
+    @Test
+    @DisplayName("Redis 가 DB 보다 최신이면 load 는 덮어쓰지 않음")
+    void loadKeepsNewerState() {
+        // given
+        hotBalanceStore.load(ACCOUNT_NUMBER, 12L, 10000L, 3L);
+        hotBalanceStore.debit(ACCOUNT_NUMBER, 12L, 1000L, "tx4", USE, LocalDateTime.now());
+
+        // when
+        boolean reloadedWithOlder = hotBalanceStore.load(ACCOUNT_NUMBER, 12L, 10000L, 3L);
+        boolean reloadedWithNewer = hotBalanceStore.load(ACCOUNT_NUMBER, 12L, 7000L, 6L);
+
+        // then
+        assertFalse(reloadedWithOlder);
+        assertTrue(reloadedWithNewer);
+        HotBalanceStore.State state = hotBalanceStore.getState(ACCOUNT_NUMBER).get();
+        assertEquals(7000L, state.getBalance());
+        assertEquals(6L, state.getSeq());
+        assertTrue(hotBalanceStore.readLedger(ACCOUNT_NUMBER, 10).isEmpty());
+    }
+
+    @Test
+    void trimRemovesUpToSeqOnce() {
+        // given
+        hotBalanceStore.load(ACCOUNT_NUMBER, 12L, 10000L, 0L);
+        for (int i = 1; i <= 3; i++) {
+            hotBalanceStore.debit(ACCOUNT_NUMBER, 12L, 100L, "tx" + i, USE, LocalDateTime.now());
+        }
+
+        // when
+        hotBalanceStore.trimLedger(ACCOUNT_NUMBER, 2L);
+        hotBalanceStore.trimLedger(ACCOUNT_NUMBER, 2L);
+
+        // then
+        List<HotBalanceStore.LedgerEntry> ledger = hotBalanceStore.readLedger(ACCOUNT_NUMBER, 10);
+        assertEquals(1, ledger.size());
+        assertEquals(3L, ledger.get(0).getSeq());
+    }
+
+    @Test
+    void unloadStopsMutationsAndKeepsLedger() {
+        // given
+        hotBalanceStore.load(ACCOUNT_NUMBER, 12L, 10000L, 0L);
+        hotBalanceStore.debit(ACCOUNT_NUMBER, 12L, 1000L, "tx1", USE, LocalDateTime.now());
+
+        // when
+        HotBalanceStore.State state = hotBalanceStore.unload(ACCOUNT_NUMBER).get();
+        HotBalanceStore.MutationResult afterUnload = hotBalanceStore.debit(
+                ACCOUNT_NUMBER, 12L, 1000L, "tx2", USE, LocalDateTime.now());
+
+        // then
+        assertEquals(9000L, state.getBalance());
+        assertEquals(1L, state.getSeq());
+        assertEquals(NOT_LOADED, afterUnload.getStatus());
+        assertEquals(1, hotBalanceStore.readLedger(ACCOUNT_NUMBER, 10).size());
+        assertFalse(hotBalanceStore.unload(ACCOUNT_NUMBER).isPresent());
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.aop.Idempotent;
+import com.example.accountsystem.controller.TransactionController;
+import com.example.accountsystem.dto.UseBalance;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.type.ErrorCode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static com.example.accountsystem.type.TransactionResultType.S;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyAspectTest {
+    private static final LocalDateTime TRANSACTED_AT = LocalDateTime.of(2022, 7, 1, 12, 30, 15);
+
+    @Mock
+    private IdempotencyStore idempotencyStore;
+
+    @Mock
+    private ProceedingJoinPoint proceedingJoinPoint;
+
+    @Mock
+    private MethodSignature methodSignature;
+
+    @Mock
+    private Idempotent idempotent;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final MockHttpServletRequest servletRequest = new MockHttpServletRequest();
+    private final UseBalance.Request request = new UseBalance.Request(12L, "1000000012", 1000L);
+    private IdempotencyAspect idempotencyAspect;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyAspect = new IdempotencyAspect(idempotencyStore, objectMapper);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(servletRequest));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    @DisplayName("Idempotency-Key 헤더가 없으면 저장소를 거치지 않고 실행")
+    void proceedsWithoutHeader() throws Throwable {
+        // given
+        CompletableFuture<UseBalance.Response> response =
+                CompletableFuture.completedFuture(response("transactionId"));
+        given(proceedingJoinPoint.proceed())
+                .willReturn(response);
+
+        // when
+        Object result = idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent, request);
+
+        // then
+        assertSame(response, result);
+        verifyNoInteractions(idempotencyStore);
+    }
+
+    @Test
+    @DisplayName("빈 키나 255 자를 넘는 키는 실행하지 않고 INVALID_REQUEST")
+    void rejectsBlankOrTooLongKey() throws Throwable {
+        // given
+        given(idempotencyStore.isEnabled())
+                .willReturn(true);
+
+        // when
+        servletRequest.addHeader(Idempotent.HEADER, "  ");
+        AccountException blank = assertThrows(AccountException.class,
+                () -> idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent, request));
+        MockHttpServletRequest longKeyRequest = new MockHttpServletRequest();
+        longKeyRequest.addHeader(Idempotent.HEADER, "k".repeat(256));
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(longKeyRequest));
+        AccountException tooLong = assertThrows(AccountException.class,
+                () -> idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent, request));
+
+        // then
+        assertEquals(ErrorCode.INVALID_REQUEST, blank.getErrorCode());
+        assertEquals(ErrorCode.INVALID_REQUEST, tooLong.getErrorCode());
+        verify(idempotencyStore, never()).execute(anyString(), anyString(), any());
+        verify(proceedingJoinPoint, never()).proceed();
+    }
+
+    @Test
+    @DisplayName("저장된 응답은 실행하지 않고 메서드의 CompletableFuture<T> 의 T 로 읽어 돌려줌")
+    void replaysStoredResponseAsDeclaredType() throws Throwable {
+        // given
+        servletRequest.addHeader(Idempotent.HEADER, "key-1");
+        given(idempotencyStore.isEnabled())
+                .willReturn(true);
+        given(idempotent.value())
+                .willReturn("use");
+        givenUseBalanceSignature();
+        given(idempotencyStore.execute(eq("use:key-1"), anyString(), any()))
+                .willReturn(CompletableFuture.completedFuture(
+                        objectMapper.writeValueAsString(response("stored"))));
+
+        // when
+        Object result = idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent, request);
+
+        // then
+        UseBalance.Response response =
+                (UseBalance.Response) ((CompletableFuture<?>) result).join();
+        assertEquals("stored", response.getTransactionId());
+        assertEquals(S, response.getTransactionResult());
+        assertEquals(TRANSACTED_AT, response.getTransactedAt());
+        verify(proceedingJoinPoint, never()).proceed();
+    }
+
+    @Test
+    @DisplayName("처음 요청은 실행한 응답을 JSON 으로 저장소에 넘기고, 같은 요청은 같은 지문")
+    @SuppressWarnings("unchecked")
+    void storesFirstResponseWithRequestFingerprint() throws Throwable {
+        // given
+        servletRequest.addHeader(Idempotent.HEADER, "key-1");
+        given(idempotencyStore.isEnabled())
+                .willReturn(true);
+        given(idempotent.value())
+                .willReturn("use");
+        givenUseBalanceSignature();
+        given(proceedingJoinPoint.proceed())
+                .willReturn(CompletableFuture.completedFuture(response("transactionId")));
+        given(idempotencyStore.execute(eq("use:key-1"), anyString(), any()))
+                .willAnswer(invocation ->
+                        ((Supplier<CompletableFuture<String>>) invocation.getArgument(2)).get());
+        ArgumentCaptor<String> fingerprints = ArgumentCaptor.forClass(String.class);
+
+        // when
+        Object first = idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent, request);
+        idempotencyAspect.aroundMethod(proceedingJoinPoint, idempotent,
+                new UseBalance.Request(12L, "1000000012", 1000L));
+
+        // then
+        UseBalance.Response response =
+                (UseBalance.Response) ((CompletableFuture<?>) first).join();
+        assertEquals("transactionId", response.getTransactionId());
+        assertEquals(TRANSACTED_AT, response.getTransactedAt());
+        verify(idempotencyStore, times(2)).execute(eq("use:key-1"), fingerprints.capture(), any());
+        assertEquals(fingerprints.getAllValues().get(0), fingerprints.getAllValues().get(1));
+    }
+
+    private void givenUseBalanceSignature() throws NoSuchMethodException {
+        given(proceedingJoinPoint.getSignature())
+                .willReturn(methodSignature);
+        given(methodSignature.getMethod())
+                .willReturn(TransactionController.class.getMethod(
+                        "useBalance", UseBalance.Request.class));
+    }
+
+    private static UseBalance.Response response(String transactionId) {
+        return UseBalance.Response.builder()
+                .accountNumber("1000000012")
+                .transactionResult(S)
+                .transactionId(transactionId)
+                .amount(1000L)
+                .transactedAt(TRANSACTED_AT)
+                .build();
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.type.ErrorCode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 두 IdempotencyStore 를 두 노드처럼 같은 Redis(embedded) 에 붙여 확인
+ */
+class IdempotencyStoreTest {
+    private static RedisServer redisServer;
+    private static RedissonClient redissonClient;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger executions = new AtomicInteger();
+    private IdempotencyStore node1;
+    private IdempotencyStore node2;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+        Config config = new Config();
+        config.useSingleServer().setAddress("redis://127.0.0.1:" + port);
+        redissonClient = Redisson.create(config);
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redissonClient.shutdown();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redissonClient.getKeys().flushall();
+        TransactionProperties transactionProperties = new TransactionProperties();
+        transactionProperties.getIdempotency().setWaitTimeout(Duration.ofMillis(500));
+        transactionProperties.getIdempotency().setPollInterval(Duration.ofMillis(10));
+        node1 = new IdempotencyStore(redissonClient, transactionProperties, meterRegistry);
+        node2 = new IdempotencyStore(redissonClient, transactionProperties, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("같은 키의 재시도는 같은 노드든 다른 노드든 처음 응답을 받음")
+    void replaysStoredResponse() {
+        // given
+        assertEquals("response", node1.execute("use:key", "fp", () -> respond("response")).join());
+
+        // when
+        String local = node1.execute("use:key", "fp", () -> respond("other")).join();
+        String remote = node2.execute("use:key", "fp", () -> respond("other")).join();
+
+        // then
+        assertEquals("response", local);
+        assertEquals("response", remote);
+        assertEquals(1, executions.get());
+        assertEquals(1.0, meterRegistry.counter("idempotency.replayed", "level", "local").count());
+        assertEquals(1.0, meterRegistry.counter("idempotency.replayed", "level", "redis").count());
+    }
+
+    @Test
+    @DisplayName("처리 중인 키의 중복 요청은 처음 실행의 결과를 기다림")
+    void duplicatesWaitForInFlightExecution() {
+        // given
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> original = node1.execute("use:key", "fp", () -> {
+            executions.incrementAndGet();
+            return first;
+        });
+
+        // when
+        CompletableFuture<String> sameNode = node1.execute("use:key", "fp", () -> respond("other"));
+        CompletableFuture<String> otherNode = node2.execute("use:key", "fp", () -> respond("other"));
+        assertFalse(sameNode.isDone());
+        first.complete("response");
+
+        // then
+        assertEquals("response", original.join());
+        assertEquals("response", sameNode.join());
+        assertEquals("response", otherNode.join());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    @DisplayName("같은 키에 다른 요청 - IDEMPOTENCY_KEY_REUSED")
+    void rejectsDifferentRequestWithSameKey() {
+        // given
+        node1.execute("use:key", "fp", () -> respond("response")).join();
+
+        // when
+        CompletionException local = assertThrows(CompletionException.class,
+                () -> node1.execute("use:key", "other-fp", () -> respond("other")).join());
+        CompletionException remote = assertThrows(CompletionException.class,
+                () -> node2.execute("use:key", "other-fp", () -> respond("other")).join());
+
+        // then
+        assertEquals(ErrorCode.IDEMPOTENCY_KEY_REUSED, errorCodeOf(local));
+        assertEquals(ErrorCode.IDEMPOTENCY_KEY_REUSED, errorCodeOf(remote));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    @DisplayName("잔액을 바꾸기 전에 거절된 요청은 남기지 않아 재시도가 다시 실행됨")
+    void failureReleasesKey() {
+        // given
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> node1.execute("use:key", "fp", () -> CompletableFuture.failedFuture(
+                        new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK))).join());
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, errorCodeOf(exception));
+
+        // when
+        String local = node1.execute("use:key", "fp", () -> respond("response")).join();
+
+        // then
+        assertEquals("response", local);
+        assertEquals("response", node2.execute("use:key", "fp", () -> respond("other")).join());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    @DisplayName("이미 반영되었을 수 있는 실패는 남겨서 재시도가 다시 실행되지 않고 같은 오류를 받음")
+    void unknownOutcomeKeepsKey() {
+        // given
+        assertThrows(CompletionException.class,
+                () -> node1.execute("use:key", "fp", () -> CompletableFuture.failedFuture(
+                        new AccountException(ErrorCode.INTERVAL_SERVER_ERROR))).join());
+        assertThrows(CompletionException.class,
+                () -> node1.execute("use:other", "fp", () -> CompletableFuture.failedFuture(
+                        new IllegalStateException("commit failed"))).join());
+
+        // when
+        CompletionException local = assertThrows(CompletionException.class,
+                () -> node1.execute("use:key", "fp", () -> respond("response")).join());
+        CompletionException remote = assertThrows(CompletionException.class,
+                () -> node2.execute("use:key", "fp", () -> respond("response")).join());
+        CompletionException unknown = assertThrows(CompletionException.class,
+                () -> node2.execute("use:other", "fp", () -> respond("response")).join());
+
+        // then
+        assertEquals(ErrorCode.INTERVAL_SERVER_ERROR, errorCodeOf(local));
+        assertEquals(ErrorCode.INTERVAL_SERVER_ERROR, errorCodeOf(remote));
+        assertEquals(ErrorCode.INTERVAL_SERVER_ERROR, errorCodeOf(unknown));
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    @DisplayName("다른 노드의 처리가 waitTimeout 안에 끝나지 않으면 IDEMPOTENCY_KEY_IN_PROGRESS")
+    void inFlightTimeout() {
+        // given
+        node1.execute("use:key", "fp", CompletableFuture::new);
+
+        // when
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> node2.execute("use:key", "fp", () -> respond("other")).join());
+
+        // then
+        assertEquals(ErrorCode.IDEMPOTENCY_KEY_IN_PROGRESS, errorCodeOf(exception));
+        assertEquals(0, executions.get());
+    }
+
+    private CompletableFuture<String> respond(String response) {
+        executions.incrementAndGet();
+        return CompletableFuture.completedFuture(response);
+    }
+
+    private static ErrorCode errorCodeOf(CompletionException exception) {
+        return ((AccountException) exception.getCause()).getErrorCode();
+    }
+}
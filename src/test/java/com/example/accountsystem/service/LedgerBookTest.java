@@ -0,0 +1,193 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.type.AccountStatus;
+import com.example.accountsystem.type.BalanceMode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.accountsystem.type.ErrorCode.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerBookTest {
+    private final Map<String, LedgerBook.AccountState> stored = new HashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private LedgerBook ledgerBook;
+
+    @BeforeEach
+    void setUp() {
+        stored.put("1000000012", state(1L, 12L, "1000000012", AccountStatus.IN_USE,
+                BalanceMode.STANDARD, 10000L));
+        stored.put("1000000013", state(2L, 13L, "1000000013", AccountStatus.IN_USE,
+                BalanceMode.STANDARD, 0L));
+        ledgerBook = new LedgerBook(accountNumber -> {
+            loads.incrementAndGet();
+            return Optional.ofNullable(stored.get(accountNumber));
+        }, accountNumber -> Optional.ofNullable(stored.get(accountNumber)));
+    }
+
+    @Test
+    void useLoadsOnceAndKeepsBalanceInMemory() {
+        // when
+        LedgerEvent first = apply(use(12L, "1000000012", 1000L));
+        LedgerEvent second = apply(use(12L, "1000000012", 2000L));
+
+        // then
+        assertNull(first.errorCode);
+        assertEquals(9000L, first.balanceAfter);
+        assertEquals(7000L, second.balanceAfter);
+        assertEquals(1L, second.account.getId());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    @DisplayName("validateUseBalance 와 같은 순서로 검증하고, 실패하면 잔액을 바꾸지 않음")
+    void rejectedUseLeavesBalance() {
+        // given
+        stored.put("1000000014", state(3L, 12L, "1000000014", AccountStatus.UNREGISTERED,
+                BalanceMode.STANDARD, 10000L));
+        stored.put("1000000015", state(4L, 12L, "1000000015", AccountStatus.IN_USE,
+                BalanceMode.STRIPED, 0L));
+
+        // when
+        LedgerEvent unMatch = apply(use(13L, "1000000012", 1000L));
+        LedgerEvent unregistered = apply(use(12L, "1000000014", 1000L));
+        LedgerEvent striped = apply(use(12L, "1000000015", 1000L));
+        LedgerEvent exceed = apply(use(12L, "1000000012", 10001L));
+        LedgerEvent notFound = apply(use(12L, "9999999999", 1000L));
+
+        // then
+        assertEquals(USER_ACCOUNT_UN_MATCH, unMatch.errorCode);
+        assertTrue(unMatch.userUnMatch);
+        assertEquals(ACCOUNT_ALREADY_UNREGISTERED, unregistered.errorCode);
+        assertEquals(BALANCE_MODE_NOT_SUPPORTED, striped.errorCode);
+        assertEquals(AMOUNT_EXCEED_BALANCE, exceed.errorCode);
+        assertEquals(ACCOUNT_NOT_FOUND, notFound.errorCode);
+        assertFalse(exceed.isApplied());
+        assertEquals(10000L, apply(use(12L, "1000000012", 0L)).balanceAfter);
+    }
+
+    @Test
+    void cancelCreditsBalance() {
+        // given
+        LedgerEvent event = new LedgerEvent();
+        event.command = LedgerEvent.Command.CANCEL;
+        event.accountNumber = "1000000012";
+        event.amount = 1000L;
+
+        // when
+        apply(event);
+
+        // then
+        assertNull(event.errorCode);
+        assertEquals(11000L, event.balanceAfter);
+    }
+
+    @Test
+    void transferMovesBothBalances() {
+        // given
+        LedgerEvent event = transfer(12L, "1000000012", "1000000013", 3000L);
+
+        // when
+        apply(event);
+
+        // then
+        assertNull(event.errorCode);
+        assertEquals(7000L, event.balanceAfter);
+        assertEquals(3000L, event.counterpartBalanceAfter);
+        assertEquals(2L, event.counterpart.getId());
+    }
+
+    @Test
+    @DisplayName("잔액을 바꾼 명령만 계좌의 원장 순번을 하나씩 올림")
+    void appliedCommandsTakeNextLedgerSeq() {
+        // given
+        ledgerBook.preload(Map.of("1000000012", new LedgerBook.AccountState(1L, 12L,
+                "1000000012", AccountStatus.IN_USE, BalanceMode.STANDARD, 10000L, 7L, 0)));
+
+        // when
+        LedgerEvent use = apply(use(12L, "1000000012", 1000L));
+        LedgerEvent exceed = apply(use(12L, "1000000012", 100000L));
+        LedgerEvent transfer = apply(transfer(12L, "1000000012", "1000000013", 1000L));
+
+        // then
+        assertEquals(8L, use.ledgerSeq);
+        assertEquals(0L, exceed.ledgerSeq);
+        assertEquals(9L, transfer.ledgerSeq);
+        assertEquals(1L, transfer.counterpartLedgerSeq);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    @DisplayName("입금 계좌가 해지되었으면 출금하지 않음")
+    void transferToUnregisteredAccount() {
+        // given
+        stored.put("1000000014", state(3L, 14L, "1000000014", AccountStatus.UNREGISTERED,
+                BalanceMode.STANDARD, 0L));
+
+        // when
+        LedgerEvent event = apply(transfer(12L, "1000000012", "1000000014", 3000L));
+
+        // then
+        assertEquals(ACCOUNT_ALREADY_UNREGISTERED, event.errorCode);
+        assertEquals(10000L, apply(use(12L, "1000000012", 0L)).balanceAfter);
+    }
+
+    @Test
+    @DisplayName("REFRESH 는 계좌 상태만 다시 읽고 DB 에 아직 없는 메모리 잔액은 유지")
+    void refreshKeepsInMemoryBalance() {
+        // given
+        apply(use(12L, "1000000012", 1000L));
+        stored.put("1000000012", state(1L, 12L, "1000000012", AccountStatus.UNREGISTERED,
+                BalanceMode.STANDARD, 10000L));
+        LedgerEvent refresh = new LedgerEvent();
+        refresh.command = LedgerEvent.Command.REFRESH;
+        refresh.accountNumber = "1000000012";
+
+        // when
+        apply(refresh);
+        LedgerEvent afterRefresh = apply(use(12L, "1000000012", 1000L));
+        stored.put("1000000012", state(1L, 12L, "1000000012", AccountStatus.IN_USE,
+                BalanceMode.STANDARD, 10000L));
+        apply(refresh);
+
+        // then
+        assertFalse(refresh.isApplied());
+        assertEquals(ACCOUNT_ALREADY_UNREGISTERED, afterRefresh.errorCode);
+        assertEquals(8000L, apply(use(12L, "1000000012", 1000L)).balanceAfter);
+        assertEquals(1, loads.get());
+    }
+
+    private LedgerEvent apply(LedgerEvent event) {
+        ledgerBook.apply(event);
+        return event;
+    }
+
+    private static LedgerEvent use(Long userId, String accountNumber, long amount) {
+        LedgerEvent event = new LedgerEvent();
+        event.command = LedgerEvent.Command.USE;
+        event.userId = userId;
+        event.accountNumber = accountNumber;
+        event.amount = amount;
+        return event;
+    }
+
+    private static LedgerEvent transfer(Long userId, String from, String to, long amount) {
+        LedgerEvent event = use(userId, from, amount);
+        event.command = LedgerEvent.Command.TRANSFER;
+        event.counterpartAccountNumber = to;
+        return event;
+    }
+
+    private static LedgerBook.AccountState state(Long id, Long ownerId, String accountNumber,
+                                                 AccountStatus accountStatus,
+                                                 BalanceMode balanceMode, long balance) {
+        return new LedgerBook.AccountState(id, ownerId, accountNumber, accountStatus,
+                balanceMode, balance);
+    }
+}
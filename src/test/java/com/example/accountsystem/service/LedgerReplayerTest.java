@@ -0,0 +1,180 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.domain.Account;
+import com.example.accountsystem.domain.AccountUser;
+import com.example.accountsystem.domain.BalanceSnapshot;
+import com.example.accountsystem.dto.LedgerEntry;
+import com.example.accountsystem.repository.AccountRepository;
+import com.example.accountsystem.repository.BalanceSnapshotRepository;
+import com.example.accountsystem.repository.TransactionRepository;
+import com.example.accountsystem.type.BalanceMode;
+import com.example.accountsystem.type.TransactionType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.example.accountsystem.type.AccountStatus.IN_USE;
+import static com.example.accountsystem.type.TransactionType.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerReplayerTest {
+    @Mock
+    private AccountRepository accountRepository;
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private LedgerReplayer ledgerReplayer;
+
+    @BeforeEach
+    void setUp() {
+        TransactionProperties transactionProperties = new TransactionProperties();
+        transactionProperties.getEventSourcing().setSnapshotInterval(2);
+        transactionProperties.getEventSourcing().setReplayThreads(2);
+        transactionProperties.getEventSourcing().setReplayChunkSize(1);
+        ledgerReplayer = new LedgerReplayer(transactionProperties, accountRepository,
+                transactionRepository, balanceSnapshotRepository, transactionTemplate,
+                meterRegistry);
+        given(transactionTemplate.execute(any()))
+                .willAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0))
+                        .doInTransaction(null));
+    }
+
+    @Test
+    @DisplayName("청크마다 스냅샷 이후 거래만 재생하고, 스냅샷이 없는 계좌는 첫 스냅샷을 만듦")
+    @SuppressWarnings("unchecked")
+    void replayAllFromSnapshotAndTail() {
+        // given
+        Account replayed = account(1L, "1000000012", BalanceMode.STANDARD, 9500L);
+        Account fresh = account(2L, "1000000013", null, 3000L);
+        given(accountRepository.findAllIds()).willReturn(List.of(1L, 2L));
+        given(accountRepository.findAllById(List.of(1L))).willReturn(List.of(replayed));
+        given(accountRepository.findAllById(List.of(2L))).willReturn(List.of(fresh));
+        given(balanceSnapshotRepository.findByAccountIds(Set.of(1L)))
+                .willReturn(List.of(snapshot(replayed, 10000L, 3L)));
+        given(transactionRepository.findLedgerTails(Set.of(1L)))
+                .willReturn(List.of(entry(1L, 4L, USE, 1000L, 9000L)));
+        given(transactionRepository.findMaxLedgerSeqs(List.of(2L)))
+                .willReturn(List.of(new LedgerEntry(2L, 7L)));
+        given(balanceSnapshotRepository.saveAll(any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+        ArgumentCaptor<List<BalanceSnapshot>> captor = ArgumentCaptor.forClass(List.class);
+
+        // when
+        Map<String, LedgerBook.AccountState> states = ledgerReplayer.replayAll();
+
+        // then
+        LedgerBook.AccountState first = states.get("1000000012");
+        assertEquals(9000L, first.getBalance());
+        assertEquals(4L, first.getLedgerSeq());
+        assertEquals(1, first.getReplayedEvents());
+        LedgerBook.AccountState second = states.get("1000000013");
+        assertEquals(3000L, second.getBalance());
+        assertEquals(7L, second.getLedgerSeq());
+        assertEquals(BalanceMode.STANDARD, second.getBalanceMode());
+        verify(balanceSnapshotRepository).saveAll(captor.capture());
+        assertEquals(3000L, captor.getValue().get(0).getBalance());
+        assertEquals(7L, captor.getValue().get(0).getLedgerSeq());
+        // 9500 -> 원장 값 9000 으로 고침
+        verify(accountRepository).updateBalance(1L, 9000L);
+        verify(accountRepository, never()).updateBalance(eq(2L), anyLong());
+        assertEquals(1.0, meterRegistry.counter("ledger.replay.mismatches").count());
+        assertEquals(2.0, meterRegistry.counter("ledger.replay.accounts").count());
+    }
+
+    @Test
+    @DisplayName("꼬리가 snapshotInterval 이상이면 재생한 잔액으로 스냅샷을 다시 씀")
+    void longTailRewritesSnapshot() {
+        // given
+        Account account = account(1L, "1000000012", BalanceMode.STANDARD, 11000L);
+        given(accountRepository.findByAccountNumber("1000000012"))
+                .willReturn(Optional.of(account));
+        given(balanceSnapshotRepository.findByAccountIds(Set.of(1L)))
+                .willReturn(List.of(snapshot(account, 10000L, 3L)));
+        given(transactionRepository.findLedgerTails(Set.of(1L)))
+                .willReturn(List.of(
+                        entry(1L, 4L, TRANSFER_IN, 3000L, 13000L),
+                        entry(1L, 5L, TRANSFER_OUT, 1000L, 12000L),
+                        entry(1L, 6L, CANCEL, 1000L, 13000L)));
+
+        // when
+        LedgerBook.AccountState state = ledgerReplayer.replay("1000000012").orElseThrow();
+
+        // then
+        assertEquals(13000L, state.getBalance());
+        assertEquals(6L, state.getLedgerSeq());
+        assertEquals(0, state.getReplayedEvents());
+        verify(balanceSnapshotRepository).updateSnapshot(eq(1L), eq(13000L), eq(6L), any());
+        verify(accountRepository).updateBalance(1L, 13000L);
+        assertEquals(3.0, meterRegistry.counter("ledger.replay.events").count());
+    }
+
+    @Test
+    @DisplayName("STRIPED/HOT 계좌는 재생하지 않고 그대로 올림")
+    void nonStandardAccountIsNotReplayed() {
+        // given
+        given(accountRepository.findByAccountNumber("1000000012"))
+                .willReturn(Optional.of(account(1L, "1000000012", BalanceMode.STRIPED, 0L)));
+
+        // when
+        LedgerBook.AccountState state = ledgerReplayer.replay("1000000012").orElseThrow();
+
+        // then
+        assertEquals(BalanceMode.STRIPED, state.getBalanceMode());
+        verify(balanceSnapshotRepository, never()).findByAccountIds(anyCollection());
+        verify(transactionRepository, never()).findLedgerTails(anyCollection());
+    }
+
+    private static Account account(Long id, String accountNumber, BalanceMode balanceMode,
+                                   long balance) {
+        AccountUser user = AccountUser.builder().name("Pobi").build();
+        user.setId(12L);
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountNumber(accountNumber)
+                .accountStatus(IN_USE)
+                .balanceMode(balanceMode)
+                .balance(balance)
+                .build();
+        account.setId(id);
+        return account;
+    }
+
+    private static BalanceSnapshot snapshot(Account account, long balance, long ledgerSeq) {
+        return BalanceSnapshot.builder()
+                .account(account)
+                .balance(balance)
+                .ledgerSeq(ledgerSeq)
+                .build();
+    }
+
+    private static LedgerEntry entry(Long accountId, long ledgerSeq,
+                                     TransactionType transactionType, long amount,
+                                     long balanceSnapshot) {
+        return new LedgerEntry(accountId, ledgerSeq, transactionType, amount, balanceSnapshot);
+    }
+}
@@ -0,0 +1,418 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.domain.Account;
+import com.example.accountsystem.domain.AccountUser;
+import com.example.accountsystem.domain.BalanceSnapshot;
+import com.example.accountsystem.domain.Transaction;
+import com.example.accountsystem.dto.TransactionDto;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.repository.AccountRepository;
+import com.example.accountsystem.repository.AccountUserRepository;
+import com.example.accountsystem.repository.BalanceSnapshotRepository;
+import com.example.accountsystem.repository.TransactionRepository;
+import com.example.accountsystem.type.AccountStatus;
+import com.example.accountsystem.type.BalanceMode;
+import com.example.accountsystem.type.ErrorCode;
+import com.example.accountsystem.type.ExecutionMode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.example.accountsystem.type.AccountStatus.IN_USE;
+import static com.example.accountsystem.type.TransactionResultType.S;
+import static com.example.accountsystem.type.TransactionType.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerSequencerTest {
+    @Mock
+    private AccountRepository accountRepository;
+    @Mock
+    private AccountUserRepository accountUserRepository;
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private TransactionRecordCache transactionRecordCache;
+    @Mock
+    private AccountListCache accountListCache;
+    @Mock
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+    @Mock
+    private TransactionService transactionService;
+    @Mock
+    private LedgerReplayer ledgerReplayer;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong ids = new AtomicLong();
+    private final TransactionProperties transactionProperties = new TransactionProperties();
+    private LedgerSequencer ledgerSequencer;
+
+    @BeforeEach
+    void setUp() {
+        transactionProperties.setMode(ExecutionMode.SEQUENCED);
+        transactionProperties.getSequencer().setBufferSize(8);
+        transactionProperties.getSequencer().setBatchSize(4);
+        transactionProperties.getSequencer().setRetryBackoff(Duration.ofMillis(10));
+        ledgerSequencer = startSequencer();
+    }
+
+    private LedgerSequencer startSequencer() {
+        LedgerPersister ledgerPersister = new LedgerPersister(accountRepository,
+                accountUserRepository, transactionRepository, transactionTemplate,
+                transactionRecordCache, accountListCache, balanceSnapshotRepository,
+                transactionProperties, new BalanceJournal(transactionProperties, meterRegistry));
+        LedgerSequencer sequencer = new LedgerSequencer(transactionProperties, accountRepository,
+                transactionService, () -> "tx" + ids.incrementAndGet(), ledgerPersister,
+                ledgerReplayer, meterRegistry);
+        sequencer.start();
+        return sequencer;
+    }
+
+    @AfterEach
+    void tearDown() {
+        ledgerSequencer.shutdown();
+    }
+
+    @Test
+    void useBalanceIsAppliedInMemoryAndPersisted() {
+        // given
+        givenAccount(1L, "1000000012", 12L, 10000L);
+        givenTransactionTemplate();
+
+        // when
+        TransactionDto first = ledgerSequencer.useBalance(12L, "1000000012", 1000L).join();
+        TransactionDto second = ledgerSequencer.useBalance(12L, "1000000012", 2000L).join();
+
+        // then
+        assertEquals(9000L, first.getBalanceSnapshot());
+        assertEquals(7000L, second.getBalanceSnapshot());
+        assertEquals(S, second.getTransactionResultType());
+        assertEquals("tx2", second.getTransactionId());
+        verify(accountRepository, times(1)).findByAccountNumber("1000000012");
+        verify(accountRepository).updateBalance(1L, 7000L);
+        verify(transactionRecordCache, times(2)).putAfterCommit(any());
+        verify(accountListCache, times(2)).evictAfterCommit(12L);
+    }
+
+    @Test
+    @DisplayName("잔액 부족은 DB 에 쓰지 않고 실패")
+    void useBalance_exceedBalance() {
+        // given
+        givenAccount(1L, "1000000012", 12L, 500L);
+        givenTransactionTemplate();
+
+        // when
+        CompletableFuture<TransactionDto> future =
+                ledgerSequencer.useBalance(12L, "1000000012", 1000L);
+
+        // then
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, errorCodeOf(future));
+        verify(transactionRepository, never()).saveAll(any());
+    }
+
+    @Test
+    @DisplayName("소유주가 다르면 반영 단계에서 사용자 존재 여부로 오류 코드를 고름")
+    void useBalance_userNotFound() {
+        // given
+        givenAccount(1L, "1000000012", 12L, 10000L);
+        givenTransactionTemplate();
+        given(accountUserRepository.existsById(13L))
+                .willReturn(false);
+
+        // when
+        CompletableFuture<TransactionDto> future =
+                ledgerSequencer.useBalance(13L, "1000000012", 1000L);
+
+        // then
+        assertEquals(ErrorCode.USER_NOT_FOUND, errorCodeOf(future));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void transferMovesBothBalances() {
+        // given
+        givenAccount(1L, "1000000012", 12L, 10000L);
+        givenAccount(2L, "1000000013", 13L, 0L);
+        givenTransactionTemplate();
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
+
+        // when
+        TransactionDto withdrawal = ledgerSequencer.transferBalance(
+                12L, "1000000012", "1000000013", 3000L).join();
+
+        // then
+        assertEquals(TRANSFER_OUT, withdrawal.getTransactionType());
+        assertEquals(7000L, withdrawal.getBalanceSnapshot());
+        verify(transactionRepository).saveAll(captor.capture());
+        assertEquals(2, captor.getValue().size());
+        assertEquals(TRANSFER_IN, captor.getValue().get(1).getTransactionType());
+        assertEquals(3000L, captor.getValue().get(1).getBalanceSnapshot());
+        verify(accountRepository).updateBalance(1L, 7000L);
+        verify(accountRepository).updateBalance(2L, 3000L);
+        verify(accountListCache).evictAfterCommit(13L);
+    }
+
+    @Test
+    @DisplayName("원거래 검증은 요청 스레드에서 끝내고 실패하면 링 버퍼에 넣지 않음")
+    void cancelBalance_partial() {
+        // given
+        given(transactionService.queryTransaction("original"))
+                .willReturn(TransactionDto.builder()
+                        .accountNumber("1000000012")
+                        .transactionType(USE)
+                        .transactionId("original")
+                        .amount(1000L)
+                        .transactedAt(LocalDateTime.now())
+                        .build());
+
+        // when
+        CompletableFuture<TransactionDto> future =
+                ledgerSequencer.cancelBalance("original", "1000000012", 500L);
+
+        // then
+        assertEquals(ErrorCode.CANCEL_MUST_FULLY, errorCodeOf(future));
+        verify(accountRepository, never()).findByAccountNumber(anyString());
+    }
+
+    @Test
+    @DisplayName("여러 스레드가 동시에 써도 잔액 이상으로 쓰지 않음 (링 버퍼가 차면 재시도)")
+    void concurrentUsesNeverOverdraw() throws Exception {
+        // given
+        givenAccount(1L, "1000000012", 12L, 5000L);
+        givenTransactionTemplate();
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger exceeded = new AtomicInteger();
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+
+        // when
+        Future<?>[] futures = new Future<?>[8];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = callers.submit(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    ErrorCode errorCode;
+                    do {
+                        errorCode = errorCodeOf(ledgerSequencer.useBalance(12L, "1000000012", 1L));
+                    } while (errorCode == ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+                    if (errorCode == null) {
+                        succeeded.incrementAndGet();
+                    } else if (errorCode == ErrorCode.AMOUNT_EXCEED_BALANCE) {
+                        exceeded.incrementAndGet();
+                    }
+                }
+            });
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        callers.shutdown();
+
+        // then
+        assertEquals(5000, succeeded.get());
+        assertEquals(3000, exceeded.get());
+        assertEquals(5000.0, meterRegistry.counter("ledger.sequencer.applied").count());
+        verify(accountRepository, atLeastOnce()).updateBalance(1L, 0L);
+        verify(accountRepository, never()).updateBalance(eq(1L), longThat(balance -> balance < 0));
+    }
+
+    @Test
+    @DisplayName("DB 반영이 실패하면 같은 배치를 다시 쓰고, 그 뒤에 응답")
+    void persistFailureIsRetried() {
+        // given
+        givenAccount(1L, "1000000012", 12L, 10000L);
+        given(transactionTemplate.execute(any()))
+                .willThrow(new IllegalStateException("db down"))
+                .willAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0))
+                        .doInTransaction(null));
+
+        // when
+        TransactionDto transactionDto =
+                ledgerSequencer.useBalance(12L, "1000000012", 1000L).join();
+
+        // then
+        assertEquals(9000L, transactionDto.getBalanceSnapshot());
+        assertEquals(1.0, meterRegistry.counter("ledger.sequencer.persist.failures").count());
+        verify(transactionRepository).existsByTransactionId(transactionDto.getTransactionId());
+        verify(transactionRepository).saveAll(any());
+    }
+
+    @Test
+    @DisplayName("maxRetries 번 다시 써도 실패하면 INTERVAL_SERVER_ERROR 로 끝내고 멈춤")
+    void persistFailureHaltsAfterMaxRetries() {
+        // given
+        ledgerSequencer.shutdown();
+        transactionProperties.getSequencer().setMaxRetries(1);
+        givenAccount(1L, "1000000012", 12L, 10000L);
+        given(transactionTemplate.execute(any()))
+                .willThrow(new IllegalStateException("db down"));
+        ledgerSequencer = startSequencer();
+
+        // when
+        CompletableFuture<TransactionDto> failed =
+                ledgerSequencer.useBalance(12L, "1000000012", 1000L);
+        ErrorCode errorCode = errorCodeOf(failed);
+        CompletableFuture<TransactionDto> rejected =
+                ledgerSequencer.useBalance(12L, "1000000012", 1000L);
+
+        // then
+        assertEquals(ErrorCode.INTERVAL_SERVER_ERROR, errorCode);
+        assertEquals(ErrorCode.INTERVAL_SERVER_ERROR, errorCodeOf(rejected));
+        assertTrue(ledgerSequencer.isHalted());
+        assertEquals(2.0, meterRegistry.counter("ledger.sequencer.persist.failures").count());
+        assertEquals(1.0, meterRegistry.counter("ledger.sequencer.persist.abandoned").count());
+        assertEquals(Status.DOWN,
+                new LedgerSequencerHealthIndicator(ledgerSequencer).health().getStatus());
+        verify(transactionRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void refreshReloadsAccountStatus() {
+        // given
+        givenAccount(1L, "1000000012", 12L, 10000L);
+        givenTransactionTemplate();
+        ledgerSequencer.useBalance(12L, "1000000012", 1000L).join();
+
+        // when
+        ledgerSequencer.refreshAfterCommit("1000000012");
+        ledgerSequencer.useBalance(12L, "1000000012", 1000L).join();
+
+        // then
+        verify(accountRepository, times(2)).findByAccountNumber("1000000012");
+    }
+
+    @Test
+    @DisplayName("이벤트 소싱 - 재생한 잔액으로 시작하고 원장 순번을 적으며 snapshotInterval 마다 스냅샷")
+    @SuppressWarnings("unchecked")
+    void eventSourcedStartsFromReplayAndTakesSnapshots() {
+        // given
+        ledgerSequencer.shutdown();
+        transactionProperties.getEventSourcing().setEnabled(true);
+        transactionProperties.getEventSourcing().setSnapshotInterval(2);
+        given(ledgerReplayer.replayAll())
+                .willReturn(Map.of("1000000012", new LedgerBook.AccountState(1L, 12L,
+                        "1000000012", AccountStatus.IN_USE, BalanceMode.STANDARD,
+                        10000L, 5L, 1)));
+        givenTransactionTemplate();
+        given(balanceSnapshotRepository.updateSnapshot(eq(1L), eq(9000L), eq(6L), any()))
+                .willReturn(1);
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
+        ledgerSequencer = startSequencer();
+
+        // when
+        TransactionDto transactionDto =
+                ledgerSequencer.useBalance(12L, "1000000012", 1000L).join();
+
+        // then
+        assertEquals(9000L, transactionDto.getBalanceSnapshot());
+        verify(accountRepository, never()).findByAccountNumber(anyString());
+        verify(transactionRepository).saveAll(captor.capture());
+        assertEquals(6L, captor.getValue().get(0).getLedgerSeq());
+        verify(balanceSnapshotRepository).updateSnapshot(eq(1L), eq(9000L), eq(6L), any());
+        verify(balanceSnapshotRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("이벤트 소싱 - 롤백된 배치는 스냅샷 주기에 세지 않음")
+    void rolledBackBatchIsNotCountedTowardsSnapshot() {
+        // given
+        ledgerSequencer.shutdown();
+        transactionProperties.getEventSourcing().setEnabled(true);
+        transactionProperties.getEventSourcing().setSnapshotInterval(3);
+        given(ledgerReplayer.replayAll())
+                .willReturn(Map.of("1000000012", new LedgerBook.AccountState(1L, 12L,
+                        "1000000012", AccountStatus.IN_USE, BalanceMode.STANDARD,
+                        10000L, 5L, 1)));
+        given(transactionTemplate.execute(any()))
+                .willAnswer(invocation -> {
+                    ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null);
+                    throw new IllegalStateException("commit failed");
+                })
+                .willAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0))
+                        .doInTransaction(null));
+        ArgumentCaptor<BalanceSnapshot> captor = ArgumentCaptor.forClass(BalanceSnapshot.class);
+        ledgerSequencer = startSequencer();
+
+        // when
+        ledgerSequencer.useBalance(12L, "1000000012", 1000L).join();
+        verify(balanceSnapshotRepository, never()).save(any());
+        ledgerSequencer.useBalance(12L, "1000000012", 1000L).join();
+
+        // then
+        verify(balanceSnapshotRepository).save(captor.capture());
+        assertEquals(8000L, captor.getValue().getBalance());
+        assertEquals(7L, captor.getValue().getLedgerSeq());
+    }
+
+    @Test
+    @DisplayName("멈춘 뒤에는 받지 않음")
+    void rejectAfterShutdown() {
+        // given
+        ledgerSequencer.shutdown();
+
+        // when
+        CompletableFuture<TransactionDto> future =
+                ledgerSequencer.useBalance(12L, "1000000012", 1000L);
+
+        // then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, errorCodeOf(future));
+    }
+
+    private void givenAccount(Long id, String accountNumber, Long ownerId, long balance) {
+        AccountUser user = AccountUser.builder().name("Pobi").build();
+        user.setId(ownerId);
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountNumber(accountNumber)
+                .accountStatus(IN_USE)
+                .balanceMode(BalanceMode.STANDARD)
+                .balance(balance)
+                .build();
+        account.setId(id);
+        given(accountRepository.findByAccountNumber(accountNumber))
+                .willReturn(Optional.of(account));
+    }
+
+    private void givenTransactionTemplate() {
+        given(transactionTemplate.execute(any()))
+                .willAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0))
+                        .doInTransaction(null));
+    }
+
+    private static ErrorCode errorCodeOf(CompletableFuture<TransactionDto> future) {
+        try {
+            future.join();
+            return null;
+        } catch (CompletionException e) {
+            return ((AccountException) e.getCause()).getErrorCode();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.LockProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalAccountLockTest {
+    private static final List<String> ACCOUNT = List.of("1000000000");
+
+    private LocalAccountLock localAccountLock;
+
+    @BeforeEach
+    void setUp() {
+        LockProperties lockProperties = new LockProperties();
+        lockProperties.getLocal().setStripes(16);
+        localAccountLock = new LocalAccountLock(lockProperties);
+    }
+
+    @Test
+    @DisplayName("비동기 대기자는 스레드 없이 기다리다 다른 스레드의 unlock 으로 허가를 넘겨받음")
+    void asyncWaiterIsHandedOffOnUnlock() throws Exception {
+        // given
+        assertTrue(localAccountLock.tryLockAsync(ACCOUNT, 0L).join());
+
+        // when
+        CompletableFuture<Boolean> waiter = localAccountLock.tryLockAsync(ACCOUNT, 5000L);
+        assertFalse(waiter.isDone());
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        other.submit(() -> localAccountLock.unlock(ACCOUNT)).get();
+        other.shutdown();
+
+        // then
+        assertTrue(waiter.join());
+        assertFalse(localAccountLock.tryLockAsync(ACCOUNT, 0L).join());
+    }
+
+    @Test
+    @DisplayName("동기 요청과 비동기 요청이 같은 줄에 섬")
+    void syncAndAsyncShareStripes() throws Exception {
+        // given
+        assertTrue(localAccountLock.tryLockAsync(ACCOUNT, 0L).join());
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+
+        // when
+        Future<Boolean> timedOut = caller.submit(() -> localAccountLock.tryLock(ACCOUNT, 50L));
+        boolean syncWhileHeld = timedOut.get();
+        Future<Boolean> waiting = caller.submit(() -> localAccountLock.tryLock(ACCOUNT, 5000L));
+        Thread.sleep(50L);
+        localAccountLock.unlock(ACCOUNT);
+
+        // then
+        assertFalse(syncWhileHeld);
+        assertTrue(waiting.get());
+        caller.shutdown();
+    }
+
+    @Test
+    @DisplayName("시간이 지난 대기자는 허가를 가져가지 않고, 여러 계좌는 하나라도 못 잡으면 모두 돌려줌")
+    void timedOutWaiterDoesNotLeakPermits() {
+        // given
+        List<String> accounts = List.of("1000000000", "1000000001");
+        assertTrue(localAccountLock.tryLockAsync(List.of("1000000001"), 0L).join());
+
+        // when
+        boolean multi = localAccountLock.tryLockAsync(accounts, 50L).join();
+        localAccountLock.unlock(List.of("1000000001"));
+
+        // then
+        assertFalse(multi);
+        assertTrue(localAccountLock.tryLockAsync(accounts, 0L).join());
+    }
+
+    @Test
+    @DisplayName("줄 길이는 잡은 요청과 기다리는 요청 수, 여러 계좌면 스트라이프마다 더함")
+    void queueDepthCountsHolderAndWaiters() {
+        // given
+        assertEquals(0, localAccountLock.queueDepth(ACCOUNT));
+        assertTrue(localAccountLock.tryLockAsync(ACCOUNT, 0L).join());
+        CompletableFuture<Boolean> waiter = localAccountLock.tryLockAsync(ACCOUNT, 5000L);
+        assertTrue(localAccountLock.tryLockAsync(List.of("1000000001"), 0L).join());
+
+        // when
+        int single = localAccountLock.queueDepth(ACCOUNT);
+        int multi = localAccountLock.queueDepth(List.of("1000000000", "1000000001"));
+        localAccountLock.unlock(ACCOUNT);
+
+        // then
+        assertEquals(2, single);
+        assertEquals(3, multi);
+        assertTrue(waiter.join());
+        assertEquals(1, localAccountLock.queueDepth(ACCOUNT));
+    }
+}
@@ -1,9 +1,13 @@
 package com.example.accountsystem.service;
 
+import com.example.accountsystem.aop.AccountLock;
+import com.example.accountsystem.aop.LockPolicy;
+import com.example.accountsystem.dto.TransferBalance;
 import com.example.accountsystem.dto.UseBalance;
 import com.example.accountsystem.exception.AccountException;
 import com.example.accountsystem.type.ErrorCode;
 import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -11,67 +15,293 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 import static com.example.accountsystem.type.ErrorCode.ACCOUNT_NOT_FOUND;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @ExtendWith(MockitoExtension.class)
 class LockAopAspectTest {
+    private static final LockPolicy USE_POLICY = new LockPolicy("use", 300L, 5000L);
+
     @Mock
     private LockService lockService;
 
+    @Mock
+    private LockPolicyResolver lockPolicyResolver;
+
+    @Mock
+    private BalanceMutationExecutor balanceMutationExecutor;
+
+    @Mock
+    private BalanceModeRegistry balanceModeRegistry;
+
+    @Mock
+    private LockMetrics lockMetrics;
+
     @Mock
     private ProceedingJoinPoint proceedingJoinPoint;
 
+    @Mock
+    private MethodSignature methodSignature;
+
+    @Mock
+    private AccountLock accountLock;
+
     @InjectMocks
     private LockAopAspect lockAopAspect;
 
     @Test
+    @SuppressWarnings("unchecked")
     void lockAndUnlock() throws Throwable {
         // given
-        ArgumentCaptor<String> lockArgumentCaptor =
-                ArgumentCaptor.forClass(String.class);
-        ArgumentCaptor<String> unLockArgumentCaptor =
-                ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<List<String>> lockArgumentCaptor =
+                ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<String>> unLockArgumentCaptor =
+                ArgumentCaptor.forClass(List.class);
         UseBalance.Request request =
                 new UseBalance.Request(123L, "1234567890", 1000L);
+        given(balanceMutationExecutor.isLockRequired())
+                .willReturn(true);
+        given(lockPolicyResolver.resolve(any(AccountLock.class), anyCollection()))
+                .willReturn(USE_POLICY);
+        given(proceedingJoinPoint.getSignature())
+                .willReturn(methodSignature);
+        given(methodSignature.getReturnType())
+                .willReturn(Object.class);
 
         // when
-        lockAopAspect.aroundMethod(proceedingJoinPoint, request);
+        lockAopAspect.aroundMethod(proceedingJoinPoint, accountLock, request);
 
         // then
         verify(lockService, times(1))
-                .lock(lockArgumentCaptor.capture());
+                .lock(lockArgumentCaptor.capture(), eq(USE_POLICY));
         verify(lockService, times(1))
                 .unlock(unLockArgumentCaptor.capture());
-        assertEquals("1234567890", lockArgumentCaptor.getValue());
-        assertEquals("1234567890", unLockArgumentCaptor.getValue());
+        verify(lockPolicyResolver, times(1))
+                .recordHoldTime(eq(USE_POLICY), anyLong());
+        assertEquals(List.of("1234567890"), lockArgumentCaptor.getValue());
+        assertEquals(List.of("1234567890"), unLockArgumentCaptor.getValue());
     }
 
     @Test
+    @SuppressWarnings("unchecked")
     void lockAndUnlock_evenIfThrow() throws Throwable {
         // given
-        ArgumentCaptor<String> lockArgumentCaptor =
-                ArgumentCaptor.forClass(String.class);
-        ArgumentCaptor<String> unLockArgumentCaptor =
-                ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<List<String>> lockArgumentCaptor =
+                ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<String>> unLockArgumentCaptor =
+                ArgumentCaptor.forClass(List.class);
         UseBalance.Request request =
                 new UseBalance.Request(123L, "1234567890", 1000L);
+        given(balanceMutationExecutor.isLockRequired())
+                .willReturn(true);
+        given(lockPolicyResolver.resolve(any(AccountLock.class), anyCollection()))
+                .willReturn(USE_POLICY);
+        given(proceedingJoinPoint.getSignature())
+                .willReturn(methodSignature);
+        given(methodSignature.getReturnType())
+                .willReturn(Object.class);
         given(proceedingJoinPoint.proceed())
                 .willThrow(new AccountException(ACCOUNT_NOT_FOUND));
 
         // when
         assertThrows(AccountException.class, () ->
-                lockAopAspect.aroundMethod(proceedingJoinPoint, request));
+                lockAopAspect.aroundMethod(proceedingJoinPoint, accountLock, request));
 
         // then
         verify(lockService, times(1))
-                .lock(lockArgumentCaptor.capture());
+                .lock(lockArgumentCaptor.capture(), eq(USE_POLICY));
         verify(lockService, times(1))
                 .unlock(unLockArgumentCaptor.capture());
-        assertEquals("1234567890", lockArgumentCaptor.getValue());
-        assertEquals("1234567890", unLockArgumentCaptor.getValue());
+        assertEquals(List.of("1234567890"), lockArgumentCaptor.getValue());
+        assertEquals(List.of("1234567890"), unLockArgumentCaptor.getValue());
+    }
+
+    @Test
+    void noLockInPartitionedMode() throws Throwable {
+        // given
+        UseBalance.Request request =
+                new UseBalance.Request(123L, "1234567890", 1000L);
+        given(balanceMutationExecutor.isLockRequired())
+                .willReturn(false);
+
+        // when
+        lockAopAspect.aroundMethod(proceedingJoinPoint, accountLock, request);
+
+        // then
+        verify(proceedingJoinPoint, times(1)).proceed();
+        verify(lockService, never()).unlock(anyList());
+        verifyNoInteractions(lockPolicyResolver);
+    }
+
+    @Test
+    void noLockForLockFreeAccount() throws Throwable {
+        // given
+        UseBalance.Request request =
+                new UseBalance.Request(123L, "1234567890", 1000L);
+        given(balanceMutationExecutor.isLockRequired())
+                .willReturn(true);
+        given(balanceModeRegistry.isLockFree("1234567890"))
+                .willReturn(true);
+
+        // when
+        lockAopAspect.aroundMethod(proceedingJoinPoint, accountLock, request);
+
+        // then
+        verify(proceedingJoinPoint, times(1)).proceed();
+        verifyNoInteractions(lockService);
+    }
+
+    @Test
+    void lockBothAccountsOfTransfer() throws Throwable {
+        // given
+        TransferBalance.Request request = new TransferBalance.Request(
+                123L, "2000000000", "1000000000", 1000L);
+        given(balanceMutationExecutor.isLockRequired())
+                .willReturn(true);
+        given(lockPolicyResolver.resolve(any(AccountLock.class), anyCollection()))
+                .willReturn(USE_POLICY);
+        given(proceedingJoinPoint.getSignature())
+                .willReturn(methodSignature);
+        given(methodSignature.getReturnType())
+                .willReturn(Object.class);
+
+        // when
+        lockAopAspect.aroundMethod(proceedingJoinPoint, accountLock, request);
+
+        // then
+        verify(lockService, times(1))
+                .lock(List.of("2000000000", "1000000000"), USE_POLICY);
+        verify(lockService, times(1))
+                .unlock(List.of("2000000000", "1000000000"));
+    }
+
+    @Test
+    void lockAsyncAndUnlockWhenFutureCompletes() throws Throwable {
+        // given
+        UseBalance.Request request =
+                new UseBalance.Request(123L, "1234567890", 1000L);
+        CompletableFuture<Object> proceeded = new CompletableFuture<>();
+        given(balanceMutationExecutor.isLockRequired())
+                .willReturn(true);
+        given(lockPolicyResolver.resolve(any(AccountLock.class), anyCollection()))
+                .willReturn(USE_POLICY);
+        given(proceedingJoinPoint.getSignature())
+                .willReturn(methodSignature);
+        given(methodSignature.getReturnType())
+                .willReturn(CompletableFuture.class);
+        given(lockService.lockAsync(List.of("1234567890"), USE_POLICY))
+                .willReturn(CompletableFuture.completedFuture(-1L));
+        given(proceedingJoinPoint.proceed())
+                .willReturn(proceeded);
+
+        // when
+        CompletableFuture<?> result = (CompletableFuture<?>)
+                lockAopAspect.aroundMethod(proceedingJoinPoint, accountLock, request);
+
+        // then
+        verify(lockService, never()).lock(anyList(), any());
+        verify(lockService, never()).unlockAsync(anyList(), anyLong());
+        proceeded.complete("done");
+        assertEquals("done", result.join());
+        verify(lockService, times(1)).unlockAsync(List.of("1234567890"), -1L);
+    }
+
+    @Test
+    void asyncLockFailureSkipsProceed() throws Throwable {
+        // given
+        UseBalance.Request request =
+                new UseBalance.Request(123L, "1234567890", 1000L);
+        given(balanceMutationExecutor.isLockRequired())
+                .willReturn(true);
+        given(lockPolicyResolver.resolve(any(AccountLock.class), anyCollection()))
+                .willReturn(USE_POLICY);
+        given(proceedingJoinPoint.getSignature())
+                .willReturn(methodSignature);
+        given(methodSignature.getReturnType())
+                .willReturn(CompletableFuture.class);
+        given(lockService.lockAsync(anyList(), any()))
+                .willReturn(CompletableFuture.failedFuture(
+                        new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK)));
+
+        // when
+        CompletableFuture<?> result = (CompletableFuture<?>)
+                lockAopAspect.aroundMethod(proceedingJoinPoint, accountLock, request);
+
+        // then
+        CompletionException exception = assertThrows(CompletionException.class, result::join);
+        assertTrue(exception.getCause() instanceof AccountException);
+        verify(proceedingJoinPoint, never()).proceed();
+        verify(lockService, never()).unlockAsync(anyList(), anyLong());
+    }
+
+    @Test
+    void recordWaitAndHoldTime() throws Throwable {
+        // given
+        UseBalance.Request request =
+                new UseBalance.Request(123L, "1234567890", 1000L);
+        given(balanceMutationExecutor.isLockRequired())
+                .willReturn(true);
+        given(lockPolicyResolver.resolve(any(AccountLock.class), anyCollection()))
+                .willReturn(USE_POLICY);
+        given(proceedingJoinPoint.getSignature())
+                .willReturn(methodSignature);
+        given(methodSignature.toShortString())
+                .willReturn("TransactionController.useBalance(..)");
+        given(methodSignature.getReturnType())
+                .willReturn(Object.class);
+
+        // when
+        lockAopAspect.aroundMethod(proceedingJoinPoint, accountLock, request);
+
+        // then
+        verify(lockMetrics, times(1)).recordAcquired(
+                eq("TransactionController.useBalance(..)"), eq(List.of("1234567890")), anyLong());
+        verify(lockMetrics, times(1)).recordHold(
+                eq("TransactionController.useBalance(..)"), eq(List.of("1234567890")), anyLong());
+        verify(lockMetrics, never()).recordFailure(any(), anyList(), anyLong());
+    }
+
+    @Test
+    void recordLockFailure() throws Throwable {
+        // given
+        UseBalance.Request request =
+                new UseBalance.Request(123L, "1234567890", 1000L);
+        given(balanceMutationExecutor.isLockRequired())
+                .willReturn(true);
+        given(lockPolicyResolver.resolve(any(AccountLock.class), anyCollection()))
+                .willReturn(USE_POLICY);
+        given(proceedingJoinPoint.getSignature())
+                .willReturn(methodSignature);
+        given(methodSignature.toShortString())
+                .willReturn("TransactionController.useBalance(..)");
+        given(methodSignature.getReturnType())
+                .willReturn(Object.class);
+        willThrow(new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK))
+                .given(lockService).lock(anyList(), any());
+
+        // when
+        assertThrows(AccountException.class, () ->
+                lockAopAspect.aroundMethod(proceedingJoinPoint, accountLock, request));
+
+        // then
+        verify(lockMetrics, times(1)).recordFailure(
+                eq("TransactionController.useBalance(..)"), eq(List.of("1234567890")), anyLong());
+        verify(proceedingJoinPoint, never()).proceed();
+        verify(lockService, never()).unlock(anyList());
     }
-}
\ No newline at end of file
+}
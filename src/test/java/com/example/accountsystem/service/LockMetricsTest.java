@@ -0,0 +1,96 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.LockProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LockMetricsTest {
+    private static final String ENDPOINT = "TransactionController.useBalance(..)";
+
+    private SimpleMeterRegistry meterRegistry;
+    private LockMetrics lockMetrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        LockProperties lockProperties = new LockProperties();
+        lockProperties.getMetrics().setTrackedAccounts(2);
+        lockMetrics = new LockMetrics(meterRegistry, lockProperties);
+    }
+
+    @Test
+    void recordTimersAndCounters() {
+        // when
+        lockMetrics.recordAcquired(ENDPOINT, List.of("1000000000"), millis(5));
+        lockMetrics.recordFailure(ENDPOINT, List.of("1000000000"), millis(300));
+        lockMetrics.recordHold(ENDPOINT, List.of("1000000000"), millis(2));
+        lockMetrics.recordRedisError("lock");
+
+        // then
+        assertEquals(1, meterRegistry.get("account.lock.wait")
+                .tags("endpoint", ENDPOINT, "outcome", "acquired").timer().count());
+        assertEquals(1, meterRegistry.get("account.lock.wait")
+                .tags("endpoint", ENDPOINT, "outcome", "failed").timer().count());
+        assertEquals(1, meterRegistry.get("account.lock.hold")
+                .tag("endpoint", ENDPOINT).timer().count());
+        assertEquals(1.0, meterRegistry.get("account.lock.failures")
+                .tag("endpoint", ENDPOINT).counter().count());
+        assertEquals(1.0, meterRegistry.get("account.lock.redis.errors")
+                .tag("operation", "lock").counter().count());
+    }
+
+    @Test
+    void accountStatistics() {
+        // when
+        lockMetrics.recordAcquired(ENDPOINT, List.of("1000000000"), millis(10));
+        lockMetrics.recordAcquired(ENDPOINT, List.of("1000000000"), millis(30));
+        lockMetrics.recordFailure(ENDPOINT, List.of("1000000000"), millis(300));
+        lockMetrics.recordHold(ENDPOINT, List.of("1000000000"), millis(4));
+
+        // then
+        LockMetrics.AccountLockStatistics statistics =
+                lockMetrics.statisticsOf("1000000000").orElseThrow();
+        assertEquals(2, statistics.getContendedCount());
+        assertEquals(1, statistics.getFailureCount());
+        assertEquals(340, statistics.getTotalWaitMillis());
+        assertEquals(300, statistics.getMaxWaitMillis());
+        assertEquals(4000, statistics.getAverageHoldMicros());
+    }
+
+    @Test
+    @DisplayName("경합 기준 미만의 대기는 계좌 통계에 남기지 않음")
+    void uncontendedAcquisitionIsNotTracked() {
+        // when
+        lockMetrics.recordAcquired(ENDPOINT, List.of("1000000000"), 1000L);
+        lockMetrics.recordHold(ENDPOINT, List.of("1000000000"), millis(1));
+
+        // then
+        assertTrue(lockMetrics.statisticsOf("1000000000").isEmpty());
+        assertEquals(0, lockMetrics.trackedAccountCount());
+    }
+
+    @Test
+    @DisplayName("추적 한도를 넘는 계좌는 기록하지 않음")
+    void trackedAccountsAreBounded() {
+        // when
+        lockMetrics.recordAcquired(ENDPOINT, List.of("1000000000"), millis(10));
+        lockMetrics.recordAcquired(ENDPOINT, List.of("1000000001"), millis(20));
+        lockMetrics.recordAcquired(ENDPOINT, List.of("1000000002"), millis(30));
+
+        // then
+        assertEquals(2, lockMetrics.trackedAccountCount());
+        assertEquals(1, lockMetrics.untrackedCount());
+        assertEquals("1000000001", lockMetrics.topContended(1).get(0).getAccountNumber());
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.aop.AccountLock;
+import com.example.accountsystem.aop.LockPolicy;
+import com.example.accountsystem.config.LockProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LockPolicyResolverTest {
+    private static final List<String> ACCOUNT = List.of("1000000000");
+
+    private LockProperties lockProperties;
+    private LocalAccountLock localAccountLock;
+    private LockPolicyResolver lockPolicyResolver;
+
+    @BeforeEach
+    void setUp() {
+        lockProperties = new LockProperties();
+        localAccountLock = new LocalAccountLock(lockProperties);
+        lockPolicyResolver = new LockPolicyResolver(lockProperties, localAccountLock);
+    }
+
+    @Test
+    @DisplayName("프로필 설정이 없으면 어노테이션 값을 사용")
+    void annotationValues() throws NoSuchMethodException {
+        // when
+        LockPolicy lockPolicy = lockPolicyResolver.resolve(accountLockOf("annotated"), ACCOUNT);
+
+        // then
+        assertEquals("use", lockPolicy.getProfile());
+        assertEquals(700L, lockPolicy.getWaitMillis());
+        assertEquals(3000L, lockPolicy.getLeaseMillis());
+    }
+
+    @Test
+    @DisplayName("프로필 설정이 어노테이션 값보다 우선")
+    void profileOverridesAnnotation() throws NoSuchMethodException {
+        // given
+        LockProperties.Profile profile = new LockProperties.Profile();
+        profile.setWaitTime(Duration.ofMillis(200));
+        lockProperties.getProfiles().put("use", profile);
+
+        // when
+        LockPolicy lockPolicy = lockPolicyResolver.resolve(accountLockOf("annotated"), ACCOUNT);
+
+        // then
+        assertEquals(200L, lockPolicy.getWaitMillis());
+        assertEquals(3000L, lockPolicy.getLeaseMillis());
+    }
+
+    @Test
+    @DisplayName("관측된 점유 시간에 맞춰 대기 시간 축소")
+    void adaptiveWaitFollowsHoldTime() throws NoSuchMethodException {
+        // given
+        lockProperties.getAdaptive().setEnabled(true);
+        lockProperties.getAdaptive().setWarmupSamples(10);
+        lockProperties.getAdaptive().setMinWaitTime(Duration.ofMillis(10));
+        AccountLock accountLock = accountLockOf("annotated");
+        LockPolicy initial = lockPolicyResolver.resolve(accountLock, ACCOUNT);
+        for (int i = 0; i < 40; i++) {
+            lockPolicyResolver.recordHoldTime(initial, TimeUnit.MILLISECONDS.toNanos(20));
+        }
+
+        // when
+        LockPolicy adapted = lockPolicyResolver.resolve(accountLock, ACCOUNT);
+
+        // then
+        assertEquals(700L, initial.getWaitMillis());
+        assertEquals(20L, adapted.getWaitMillis());
+    }
+
+    @Test
+    @DisplayName("대기 시간은 최소값 아래로 줄지 않음")
+    void adaptiveWaitHasFloor() throws NoSuchMethodException {
+        // given
+        lockProperties.getAdaptive().setEnabled(true);
+        lockProperties.getAdaptive().setWarmupSamples(1);
+        lockProperties.getAdaptive().setMinWaitTime(Duration.ofMillis(50));
+        AccountLock accountLock = accountLockOf("annotated");
+        lockPolicyResolver.recordHoldTime(
+                lockPolicyResolver.resolve(accountLock, ACCOUNT), TimeUnit.MICROSECONDS.toNanos(100));
+
+        // when
+        LockPolicy adapted = lockPolicyResolver.resolve(accountLock, ACCOUNT);
+
+        // then
+        assertEquals(50L, adapted.getWaitMillis());
+    }
+
+    @Test
+    @DisplayName("앞에 선 요청 수만큼 대기 시간을 늘리되 설정값을 넘지 않음")
+    void adaptiveWaitScalesWithQueueDepth() throws NoSuchMethodException {
+        // given
+        lockProperties.getAdaptive().setEnabled(true);
+        lockProperties.getAdaptive().setWarmupSamples(10);
+        lockProperties.getAdaptive().setMinWaitTime(Duration.ofMillis(10));
+        AccountLock accountLock = accountLockOf("annotated");
+        for (int i = 0; i < 40; i++) {
+            lockPolicyResolver.recordHoldTime(
+                    lockPolicyResolver.resolve(accountLock, ACCOUNT), TimeUnit.MILLISECONDS.toNanos(20));
+        }
+        assertTrue(localAccountLock.tryLockAsync(ACCOUNT, 0L).join());
+        localAccountLock.tryLockAsync(ACCOUNT, 5000L);
+        localAccountLock.tryLockAsync(ACCOUNT, 5000L);
+
+        // when
+        LockPolicy queued = lockPolicyResolver.resolve(accountLock, ACCOUNT);
+        for (int i = 0; i < 40; i++) {
+            localAccountLock.tryLockAsync(ACCOUNT, 5000L);
+        }
+        LockPolicy crowded = lockPolicyResolver.resolve(accountLock, ACCOUNT);
+
+        // then
+        assertEquals(60L, queued.getWaitMillis());
+        assertEquals(700L, crowded.getWaitMillis());
+    }
+
+    private AccountLock accountLockOf(String methodName) throws NoSuchMethodException {
+        return getClass().getDeclaredMethod(methodName).getAnnotation(AccountLock.class);
+    }
+
+    @AccountLock(profile = "use", tryLockTime = 700L, leaseTime = 3000L)
+    void annotated() {
+    }
+}
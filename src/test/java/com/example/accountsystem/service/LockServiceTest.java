@@ -2,32 +2,50 @@ package com.example.accountsystem.service;
 
 import com.example.accountsystem.exception.AccountException;
 import com.example.accountsystem.type.ErrorCode;
+import com.example.accountsystem.aop.LockPolicy;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
+import org.redisson.misc.CompletableFutureWrapper;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class LockServiceTest {
     @Mock
     private RedissonClient redissonClient;
 
+    @Mock
+    private LocalAccountLock localAccountLock;
+
     @Mock
     private RLock rLock;
 
+    @Mock
+    private LockMetrics lockMetrics;
+
     @InjectMocks
     private LockService lockService;
 
     @Test
     void successGetLock() throws InterruptedException {
         // given
+        given(localAccountLock.tryLock(anyCollection(), anyLong()))
+                .willReturn(true);
         given(redissonClient.getLock(anyString()))
                 .willReturn(rLock);
         given(rLock.tryLock(anyLong(), anyLong(), any()))
@@ -41,6 +59,8 @@ class LockServiceTest {
     @Test
     void failGetLock() throws InterruptedException {
         // given
+        given(localAccountLock.tryLock(anyCollection(), anyLong()))
+                .willReturn(true);
         given(redissonClient.getLock(anyString()))
                 .willReturn(rLock);
         given(rLock.tryLock(anyLong(), anyLong(), any()))
@@ -51,5 +71,147 @@ class LockServiceTest {
                 () -> lockService.lock("123"));
         // then
         assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        verify(localAccountLock, times(1)).unlock(List.of("123"));
+    }
+
+    @Test
+    void failGetLocalLock_withoutRedis() throws InterruptedException {
+        // given
+        given(localAccountLock.tryLock(anyCollection(), anyLong()))
+                .willReturn(false);
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> lockService.lock("123"));
+        // then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        verify(redissonClient, never()).getLock(anyString());
+    }
+
+    @Test
+    void unlockReleasesLocalLock() {
+        // given
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+
+        // when
+        lockService.unlock("123");
+
+        // then
+        verify(rLock, times(1)).unlock();
+        verify(localAccountLock, times(1)).unlock(List.of("123"));
+    }
+
+    @Test
+    void multiLockInAccountNumberOrder() throws InterruptedException {
+        // given
+        RLock multiLock = mock(RLock.class);
+        given(localAccountLock.tryLock(anyCollection(), anyLong()))
+                .willReturn(true);
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(redissonClient.getMultiLock(any(), any()))
+                .willReturn(multiLock);
+        given(multiLock.tryLock(anyLong(), anyLong(), any()))
+                .willReturn(true);
+
+        // when
+        lockService.lock(Arrays.asList("2000000000", "1000000000"), LockPolicy.DEFAULT);
+
+        // then
+        InOrder inOrder = inOrder(redissonClient);
+        inOrder.verify(redissonClient).getLock("ACLK:1000000000");
+        inOrder.verify(redissonClient).getLock("ACLK:2000000000");
+        verify(localAccountLock, times(1))
+                .tryLock(eq(List.of("1000000000", "2000000000")), anyLong());
+    }
+
+    @Test
+    void successGetLockAsync() {
+        // given
+        given(localAccountLock.tryLockAsync(anyCollection(), anyLong()))
+                .willReturn(CompletableFuture.completedFuture(true));
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.tryLockAsync(anyLong(), anyLong(), any(), anyLong()))
+                .willReturn(new CompletableFutureWrapper<>(true));
+
+        // when
+        Long ownerId = lockService.lockAsync(List.of("123"), LockPolicy.DEFAULT).join();
+
+        // then
+        assertTrue(ownerId < 0);
+        verify(localAccountLock, times(1)).tryLockAsync(List.of("123"), 1000L);
+        verify(rLock, times(1)).tryLockAsync(longThat(waitMillis -> waitMillis <= 1000L),
+                eq(15000L), eq(TimeUnit.MILLISECONDS), eq(ownerId));
+    }
+
+    @Test
+    void failGetLockAsync() {
+        // given
+        given(localAccountLock.tryLockAsync(anyCollection(), anyLong()))
+                .willReturn(CompletableFuture.completedFuture(true));
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.tryLockAsync(anyLong(), anyLong(), any(), anyLong()))
+                .willReturn(new CompletableFutureWrapper<>(false));
+
+        // when
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> lockService.lockAsync(List.of("123"), LockPolicy.DEFAULT).join());
+
+        // then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK,
+                ((AccountException) exception.getCause()).getErrorCode());
+        verify(localAccountLock, times(1)).unlock(List.of("123"));
+    }
+
+    @Test
+    void failGetLocalLockAsync_withoutRedis() {
+        // given
+        given(localAccountLock.tryLockAsync(anyCollection(), anyLong()))
+                .willReturn(CompletableFuture.completedFuture(false));
+
+        // when
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> lockService.lockAsync(List.of("123"), LockPolicy.DEFAULT).join());
+
+        // then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK,
+                ((AccountException) exception.getCause()).getErrorCode());
+        verify(redissonClient, never()).getLock(anyString());
+    }
+
+    @Test
+    void unlockAsyncWithOwnerId() {
+        // given
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.unlockAsync(anyLong()))
+                .willReturn(new CompletableFutureWrapper<>((Void) null));
+
+        // when
+        lockService.unlockAsync(List.of("123"), -7L).join();
+
+        // then
+        verify(rLock, times(1)).unlockAsync(-7L);
+        verify(localAccountLock, times(1)).unlock(List.of("123"));
+    }
+
+    @Test
+    void redisErrorIsCounted() throws InterruptedException {
+        // given
+        given(localAccountLock.tryLock(anyCollection(), anyLong()))
+                .willReturn(true);
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.tryLock(anyLong(), anyLong(), any()))
+                .willThrow(new IllegalStateException("connection refused"));
+
+        // when
+        lockService.lock("123");
+
+        // then
+        verify(lockMetrics, times(1)).recordRedisError("lock");
     }
-}
\ No newline at end of file
+}
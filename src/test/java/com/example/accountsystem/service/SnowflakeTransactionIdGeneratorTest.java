@@ -0,0 +1,79 @@
+package com.example.accountsystem.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowflakeTransactionIdGeneratorTest {
+
+    @Test
+    @DisplayName("고정 길이이며 생성 순서대로 정렬됨")
+    void orderedFixedLength() {
+        // given
+        SnowflakeTransactionIdGenerator generator = new SnowflakeTransactionIdGenerator(7);
+
+        // when
+        String previous = generator.nextId();
+        for (int i = 0; i < 100_000; i++) {
+            String next = generator.nextId();
+
+            // then
+            assertEquals(13, next.length());
+            assertTrue(next.compareTo(previous) > 0, previous + " >= " + next);
+            previous = next;
+        }
+    }
+
+    @Test
+    @DisplayName("여러 스레드에서 동시에 만들어도 중복 없음")
+    void uniqueAcrossThreads() throws Exception {
+        // given
+        SnowflakeTransactionIdGenerator generator = new SnowflakeTransactionIdGenerator(1);
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // when
+        Future<?>[] futures = new Future<?>[8];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = executor.submit(() -> {
+                for (int j = 0; j < 50_000; j++) {
+                    ids.add(generator.nextId());
+                }
+            });
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // then
+        assertEquals(400_000, ids.size());
+    }
+
+    @Test
+    void timestampOfId() {
+        // given
+        SnowflakeTransactionIdGenerator generator = new SnowflakeTransactionIdGenerator(1023);
+        long before = System.currentTimeMillis();
+
+        // when
+        long timestamp = SnowflakeTransactionIdGenerator.timestampOf(generator.nextId());
+
+        // then
+        assertTrue(timestamp >= before && timestamp <= System.currentTimeMillis() + 1000L);
+        assertEquals(-1L, SnowflakeTransactionIdGenerator.timestampOf("a1b2c3d4e5f6a7b8c9d0e1f2a3b4c5d6"));
+    }
+
+    @Test
+    void invalidNodeId() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new SnowflakeTransactionIdGenerator(1024));
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.aop.LockPolicy;
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.dto.TransactionDto;
+import com.example.accountsystem.dto.UseBalance;
+import com.example.accountsystem.dto.UseBalanceBatch;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.type.ErrorCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.example.accountsystem.type.TransactionResultType.S;
+import static com.example.accountsystem.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionBatchServiceTest {
+    private static final LockPolicy BATCH_POLICY = new LockPolicy("use-batch", 1000L, 30000L);
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private LockService lockService;
+
+    @Mock
+    private LockPolicyResolver lockPolicyResolver;
+
+    @Mock
+    private BalanceModeRegistry balanceModeRegistry;
+
+    @Mock
+    private FailedTransactionWriter failedTransactionWriter;
+
+    @Mock
+    private HotBalanceService hotBalanceService;
+
+    @Mock
+    private LedgerSequencer ledgerSequencer;
+
+    private BalanceMutationExecutor balanceMutationExecutor;
+    private TransactionBatchService transactionBatchService;
+
+    @BeforeEach
+    void setUp() {
+        balanceMutationExecutor = new BalanceMutationExecutor(new TransactionProperties());
+        transactionBatchService = new TransactionBatchService(transactionService, lockService,
+                lockPolicyResolver, balanceMutationExecutor, balanceModeRegistry,
+                failedTransactionWriter, hotBalanceService, ledgerSequencer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        balanceMutationExecutor.shutdown();
+    }
+
+    @Test
+    void groupByAccountAndLockOnce() {
+        // given
+        UseBalance.Request first = new UseBalance.Request(1L, "1000000000", 1000L);
+        UseBalance.Request second = new UseBalance.Request(1L, "2000000000", 2000L);
+        UseBalance.Request third = new UseBalance.Request(1L, "1000000000", 3000L);
+        given(lockPolicyResolver.resolve(eq("use-batch"), anyCollection()))
+                .willReturn(BATCH_POLICY);
+        given(transactionService.useBalances("1000000000", Arrays.asList(first, third)))
+                .willReturn(Arrays.asList(success("1000000000", 1000L), success("1000000000", 3000L)));
+        given(transactionService.useBalances("2000000000", List.of(second)))
+                .willReturn(List.of(success("2000000000", 2000L)));
+
+        // when
+        UseBalanceBatch.Response response = transactionBatchService
+                .useBalances(Arrays.asList(first, second, third)).join();
+
+        // then
+        verify(lockService, times(1)).lock("1000000000", BATCH_POLICY);
+        verify(lockService, times(1)).lock("2000000000", BATCH_POLICY);
+        verify(lockService, times(1)).unlock("1000000000");
+        verify(lockService, times(1)).unlock("2000000000");
+        assertEquals(3, response.getSuccessCount());
+        assertEquals(0, response.getFailureCount());
+        List<UseBalanceBatch.Item> items = response.getItems();
+        assertEquals(0, items.get(0).getIndex());
+        assertEquals(1000L, items.get(0).getResult().getAmount());
+        assertEquals(1, items.get(1).getIndex());
+        assertEquals("2000000000", items.get(1).getResult().getAccountNumber());
+        assertEquals(2, items.get(2).getIndex());
+        assertEquals(3000L, items.get(2).getResult().getAmount());
+    }
+
+    @Test
+    void lockFailureFailsOnlyThatAccount() {
+        // given
+        UseBalance.Request first = new UseBalance.Request(1L, "1000000000", 1000L);
+        UseBalance.Request second = new UseBalance.Request(1L, "2000000000", 2000L);
+        given(lockPolicyResolver.resolve(eq("use-batch"), anyCollection()))
+                .willReturn(BATCH_POLICY);
+        given(transactionService.useBalances("1000000000", List.of(first)))
+                .willReturn(List.of(success("1000000000", 1000L)));
+        willThrow(new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK))
+                .given(lockService).lock("2000000000", BATCH_POLICY);
+
+        // when
+        UseBalanceBatch.Response response = transactionBatchService
+                .useBalances(Arrays.asList(first, second)).join();
+
+        // then
+        assertEquals(1, response.getSuccessCount());
+        assertEquals(1, response.getFailureCount());
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK,
+                response.getItems().get(1).getError().getErrorCode());
+        verify(transactionService, never()).useBalances(eq("2000000000"), any());
+        verify(failedTransactionWriter, times(1))
+                .record(USE, "2000000000", List.of(2000L));
+        verify(lockService, never()).unlock("2000000000");
+    }
+
+    @Test
+    void noLockForLockFreeAccount() {
+        // given
+        UseBalance.Request request = new UseBalance.Request(1L, "1000000000", 1000L);
+        given(balanceModeRegistry.isLockFree(anyString()))
+                .willReturn(true);
+        given(transactionService.useBalances("1000000000", List.of(request)))
+                .willReturn(List.of(success("1000000000", 1000L)));
+
+        // when
+        UseBalanceBatch.Response response = transactionBatchService
+                .useBalances(List.of(request)).join();
+
+        // then
+        assertEquals(1, response.getSuccessCount());
+        verify(lockService, never()).lock(anyString(), any());
+    }
+
+    @Test
+    void hotAccountGoesToRedisWithoutLock() {
+        // given
+        UseBalance.Request request = new UseBalance.Request(1L, "1000000000", 1000L);
+        given(balanceModeRegistry.isHot("1000000000"))
+                .willReturn(true);
+        given(hotBalanceService.useBalances("1000000000", List.of(request)))
+                .willReturn(List.of(success("1000000000", 1000L)));
+
+        // when
+        UseBalanceBatch.Response response = transactionBatchService
+                .useBalances(List.of(request)).join();
+
+        // then
+        assertEquals(1, response.getSuccessCount());
+        verify(lockService, never()).lock(anyString(), any());
+        verify(transactionService, never()).useBalances(anyString(), any());
+    }
+
+    @Test
+    void sequencedModeSubmitsEachItem() {
+        // given
+        UseBalance.Request first = new UseBalance.Request(1L, "1000000000", 1000L);
+        UseBalance.Request second = new UseBalance.Request(1L, "1000000000", 9000L);
+        given(ledgerSequencer.isEnabled())
+                .willReturn(true);
+        given(ledgerSequencer.useBalance(1L, "1000000000", 1000L))
+                .willReturn(CompletableFuture.completedFuture(TransactionDto.builder()
+                        .accountNumber("1000000000")
+                        .amount(1000L)
+                        .transactionResultType(S)
+                        .build()));
+        given(ledgerSequencer.useBalance(1L, "1000000000", 9000L))
+                .willReturn(CompletableFuture.failedFuture(
+                        new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE)));
+
+        // when
+        UseBalanceBatch.Response response = transactionBatchService
+                .useBalances(Arrays.asList(first, second)).join();
+
+        // then
+        assertEquals(1, response.getSuccessCount());
+        assertEquals(1, response.getItems().get(1).getIndex());
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE,
+                response.getItems().get(1).getError().getErrorCode());
+        verify(failedTransactionWriter).record(USE, "1000000000", 9000L);
+        verify(lockService, never()).lock(anyString(), any());
+        verify(transactionService, never()).useBalances(anyString(), any());
+    }
+
+    private static UseBalanceBatch.Item success(String accountNumber, Long amount) {
+        return UseBalanceBatch.Item.success(TransactionDto.builder()
+                .accountNumber(accountNumber)
+                .amount(amount)
+                .transactionResultType(S)
+                .build());
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.domain.Account;
+import com.example.accountsystem.domain.AccountUser;
+import com.example.accountsystem.domain.Transaction;
+import com.example.accountsystem.exception.AccountException;
+import com.example.accountsystem.repository.AccountRepository;
+import com.example.accountsystem.type.AccountStatus;
+import com.example.accountsystem.type.BalanceMode;
+import com.example.accountsystem.type.ErrorCode;
+import com.example.accountsystem.type.ExportFormat;
+import com.example.accountsystem.type.TransactionResultType;
+import com.example.accountsystem.type.TransactionType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * fetchSize 보다 많은 행을 H2 에서 실제 JDBC 커서로 내보내 확인
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.show_sql=false")
+class TransactionLedgerExporterTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2022, 7, 1, 12, 0);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    private TransactionLedgerExporter exporter;
+
+    @BeforeEach
+    void setUp() {
+        TransactionProperties transactionProperties = new TransactionProperties();
+        transactionProperties.getExport().setFetchSize(2);
+        exporter = new TransactionLedgerExporter(jdbcTemplate, accountRepository,
+                transactionProperties, new ObjectMapper());
+
+        AccountUser user = testEntityManager.persist(AccountUser.builder()
+                .name("Pobi").build());
+        Account account = persistAccount(user, "1000000001");
+        Account other = persistAccount(user, "1000000002");
+        for (int i = 0; i < 5; i++) {
+            persistTransaction(account, "t" + i, BASE.plusDays(i));
+        }
+        persistTransaction(other, "other", BASE.plusDays(1));
+        testEntityManager.flush();
+        testEntityManager.clear();
+    }
+
+    @Test
+    @DisplayName("NDJSON - 계좌, 기간 [from, to) 조건의 거래를 id 순으로 한 줄에 하나씩")
+    void exportNdjson() throws Exception {
+        // given
+        StringWriter writer = new StringWriter();
+
+        // when
+        long rows = exporter.export(exporter.prepare(ExportFormat.NDJSON, "1000000001",
+                BASE.plusDays(1), BASE.plusDays(4)), writer);
+
+        // then
+        String[] lines = writer.toString().split("\n");
+        assertEquals(3, rows);
+        assertEquals(3, lines.length);
+        JsonNode first = new ObjectMapper().readTree(lines[0]);
+        assertEquals("t1", first.get("transactionId").asText());
+        assertEquals("1000000001", first.get("accountNumber").asText());
+        assertEquals("USE", first.get("transactionType").asText());
+        assertEquals("S", first.get("transactionResultType").asText());
+        assertEquals(100L, first.get("amount").asLong());
+        assertEquals(BASE.plusDays(1).toString(), first.get("transactedAt").asText());
+        assertEquals("t3", new ObjectMapper().readTree(lines[2]).get("transactionId").asText());
+    }
+
+    @Test
+    @DisplayName("CSV - 헤더 다음에 조건 없는 전체 거래")
+    void exportCsv() throws Exception {
+        // given
+        StringWriter writer = new StringWriter();
+
+        // when
+        long rows = exporter.export(exporter.prepare(ExportFormat.CSV, null, null, null), writer);
+
+        // then
+        String[] lines = writer.toString().split("\r\n");
+        assertEquals(6, rows);
+        assertEquals(7, lines.length);
+        assertEquals("transactionId,accountNumber,transactionType,transactionResultType,"
+                + "amount,balanceSnapshot,transactedAt", lines[0]);
+        assertEquals("t0,1000000001,USE,S,100,10000," + BASE, lines[1]);
+    }
+
+    @Test
+    @DisplayName("없는 계좌나 잘못된 기간은 쓰기 전에 거절")
+    void prepareRejectsInvalidRequest() {
+        // when
+        AccountException unknownAccount = assertThrows(AccountException.class,
+                () -> exporter.prepare(ExportFormat.CSV, "9999999999", null, null));
+        AccountException invalidRange = assertThrows(AccountException.class,
+                () -> exporter.prepare(ExportFormat.CSV, null, BASE, BASE));
+
+        // then
+        assertEquals(ErrorCode.ACCOUNT_NOT_FOUND, unknownAccount.getErrorCode());
+        assertEquals(ErrorCode.INVALID_REQUEST, invalidRange.getErrorCode());
+    }
+
+    private Account persistAccount(AccountUser user, String accountNumber) {
+        return testEntityManager.persist(Account.builder()
+                .accountUser(user)
+                .accountNumber(accountNumber)
+                .accountStatus(AccountStatus.IN_USE)
+                .balanceMode(BalanceMode.STANDARD)
+                .balance(10000L)
+                .build());
+    }
+
+    private void persistTransaction(Account account, String transactionId,
+                                    LocalDateTime transactedAt) {
+        testEntityManager.persist(Transaction.builder()
+                .transactionType(TransactionType.USE)
+                .transactionResultType(TransactionResultType.S)
+                .account(account)
+                .amount(100L)
+                .balanceSnapshot(10000L)
+                .transactionId(transactionId)
+                .transactedAt(transactedAt)
+                .build());
+    }
+}
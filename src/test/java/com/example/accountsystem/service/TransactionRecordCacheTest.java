@@ -0,0 +1,160 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.config.TransactionProperties;
+import com.example.accountsystem.dto.TransactionDto;
+import com.example.accountsystem.repository.TransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionRecordCacheTest {
+    private static final long NOW = SnowflakeTransactionIdGenerator.EPOCH_MILLIS
+            + Duration.ofDays(100).toMillis();
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TransactionProperties transactionProperties;
+    private TransactionRecordCache transactionRecordCache;
+
+    @BeforeEach
+    void setUp() {
+        transactionProperties = new TransactionProperties();
+        transactionProperties.getRecordCache().setExpectedInsertions(1000);
+        transactionProperties.getRecordCache().setSafetyMargin(Duration.ofMinutes(1));
+        transactionRecordCache = new TransactionRecordCache(transactionRepository,
+                transactionManager, transactionProperties, meterRegistry, () -> NOW);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("filter 를 만들기 전에는 거르지 않음")
+    void notRejectedBeforeRebuild() {
+        // then
+        assertFalse(transactionRecordCache.isKnownAbsent(idAt(NOW - 3_600_000L, 1)));
+    }
+
+    @Test
+    @DisplayName("DB 에 있는 거래는 거르지 않고, 없는 과거 거래는 거름")
+    void rejectUnknownOldId() {
+        // given
+        String stored = idAt(NOW - 3_600_000L, 1);
+        givenStoredIds(stored);
+
+        // when
+        transactionRecordCache.rebuild();
+
+        // then
+        assertFalse(transactionRecordCache.isKnownAbsent(stored));
+        assertTrue(transactionRecordCache.isKnownAbsent(idAt(NOW - 3_600_000L, 2)));
+        assertEquals(1.0, meterRegistry.counter("transaction.lookup.rejected").count());
+    }
+
+    @Test
+    @DisplayName("filter 를 만든 시각 - safetyMargin 이후의 ID 는 다른 노드가 만들었을 수 있어 DB 조회")
+    void notRejectedAfterCoveredUntil() {
+        // given
+        givenStoredIds();
+        transactionRecordCache.rebuild();
+
+        // then
+        assertFalse(transactionRecordCache.isKnownAbsent(idAt(NOW - 30_000L, 1)));
+        assertFalse(transactionRecordCache.isKnownAbsent(idAt(NOW + 1000L, 1)));
+        assertTrue(transactionRecordCache.isKnownAbsent(idAt(NOW - 90_000L, 1)));
+    }
+
+    @Test
+    @DisplayName("시각을 알 수 없는 형식의 ID 는 DB 조회")
+    void notRejectedForUnknownFormat() {
+        // given
+        givenStoredIds();
+        transactionRecordCache.rebuild();
+
+        // then
+        assertFalse(transactionRecordCache.isKnownAbsent("a1b2c3d4e5f6"));
+    }
+
+    @Test
+    @DisplayName("이 노드에서 저장한 거래는 filter 에 바로, 캐시에는 커밋 후에 들어감")
+    void putAfterCommit() {
+        // given
+        givenStoredIds();
+        transactionRecordCache.rebuild();
+        String transactionId = idAt(NOW - 3_600_000L, 7);
+        TransactionSynchronizationManager.initSynchronization();
+
+        // when
+        transactionRecordCache.putAfterCommit(transactionDto(transactionId));
+        boolean cachedBeforeCommit = transactionRecordCache.get(transactionId).isPresent();
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(TransactionSynchronization::afterCommit);
+
+        // then
+        assertFalse(transactionRecordCache.isKnownAbsent(transactionId));
+        assertFalse(cachedBeforeCommit);
+        assertEquals(1000L, transactionRecordCache.get(transactionId).get().getAmount());
+    }
+
+    @Test
+    @DisplayName("꺼져 있으면 캐시와 filter 모두 사용하지 않음")
+    void disabled() {
+        // given
+        transactionProperties.getRecordCache().setEnabled(false);
+        String transactionId = idAt(NOW - 3_600_000L, 1);
+
+        // when
+        transactionRecordCache.put(transactionDto(transactionId));
+
+        // then
+        assertFalse(transactionRecordCache.get(transactionId).isPresent());
+        assertFalse(transactionRecordCache.isKnownAbsent(idAt(NOW - 3_600_000L, 2)));
+    }
+
+    private void givenStoredIds(String... transactionIds) {
+        given(transactionRepository.count())
+                .willReturn((long) transactionIds.length);
+        given(transactionRepository.streamAllTransactionIds())
+                .willReturn(Stream.of(transactionIds));
+    }
+
+    private static String idAt(long epochMillis, int sequence) {
+        long millis = epochMillis - SnowflakeTransactionIdGenerator.EPOCH_MILLIS;
+        return SnowflakeTransactionIdGenerator.encode(
+                millis << (SnowflakeTransactionIdGenerator.NODE_BITS
+                        + SnowflakeTransactionIdGenerator.SEQUENCE_BITS) | sequence);
+    }
+
+    private static TransactionDto transactionDto(String transactionId) {
+        return TransactionDto.builder()
+                .transactionId(transactionId)
+                .accountNumber("1000000012")
+                .amount(1000L)
+                .build();
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.accountsystem.service;
+
+import com.example.accountsystem.domain.Account;
+import com.example.accountsystem.domain.AccountUser;
+import com.example.accountsystem.dto.TransactionDto;
+import com.example.accountsystem.repository.AccountRepository;
+import com.example.accountsystem.repository.AccountUserRepository;
+import com.example.accountsystem.type.AccountStatus;
+import com.example.accountsystem.type.BalanceMode;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+
+/**
+ * 거래 사용/취소/조회가 실행하는 SQL 수 고정
+ * (id 시퀀스 호출이 섞이지 않도록 측정 전에 거래를 한 건 만들어 둔다)
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.show_sql=false"
+})
+@Import({TransactionService.class, BalanceSlotService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TransactionServiceQueryCountTest {
+    private static final AtomicLong ACCOUNT_NUMBER = new AtomicLong(3000000000L);
+
+    @MockBean
+    private BalanceModeRegistry balanceModeRegistry;
+
+    @MockBean
+    private TransactionIdGenerator transactionIdGenerator;
+
+    @MockBean
+    private AccountListCache accountListCache;
+
+    @MockBean
+    private TransactionRecordCache transactionRecordCache;
+
+    @MockBean
+    private HotBalanceStore hotBalanceStore;
+
+    @MockBean
+    private BalanceJournal balanceJournal;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private AccountUser user;
+    private Account account;
+
+    @BeforeEach
+    void setUp() {
+        given(transactionIdGenerator.nextId())
+                .willAnswer(invocation -> UUID.randomUUID().toString());
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        user = accountUserRepository.save(AccountUser.builder()
+                .name("Pobi").build());
+        account = accountRepository.save(Account.builder()
+                .accountUser(user)
+                .accountNumber(String.valueOf(ACCOUNT_NUMBER.incrementAndGet()))
+                .accountStatus(AccountStatus.IN_USE)
+                .balanceMode(BalanceMode.STANDARD)
+                .balance(100000L)
+                .registeredAt(LocalDateTime.now())
+                .build());
+        transactionService.useBalance(user.getId(), account.getAccountNumber(), 1L);
+        statistics.clear();
+    }
+
+    @Test
+    @DisplayName("잔액 사용 - 계좌 조회, 거래 insert, 계좌 update")
+    void useBalance() {
+        // when
+        transactionService.useBalance(user.getId(), account.getAccountNumber(), 1000L);
+
+        // then
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    @DisplayName("잔액 사용 취소 - 거래+계좌 join 조회, 거래 insert, 계좌 update")
+    void cancelBalance() {
+        // given
+        TransactionDto used = transactionService.useBalance(
+                user.getId(), account.getAccountNumber(), 1000L);
+        statistics.clear();
+
+        // when
+        transactionService.cancelBalance(used.getTransactionId(),
+                account.getAccountNumber(), 1000L);
+
+        // then
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(2, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    @DisplayName("거래 조회 - 거래+계좌 join 조회 한 번")
+    void queryTransaction() {
+        // given
+        TransactionDto used = transactionService.useBalance(
+                user.getId(), account.getAccountNumber(), 1000L);
+        statistics.clear();
+
+        // when
+        TransactionDto transactionDto = transactionService.queryTransaction(used.getTransactionId());
+
+        // then
+        assertEquals(account.getAccountNumber(), transactionDto.getAccountNumber());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(2, statistics.getEntityLoadCount());
+    }
+}
@@ -3,12 +3,19 @@ package com.example.accountsystem.service;
 import com.example.accountsystem.domain.Account;
 import com.example.accountsystem.domain.AccountUser;
 import com.example.accountsystem.domain.Transaction;
+import com.example.accountsystem.dto.BalanceMutation;
+import com.example.accountsystem.dto.FailedTransaction;
 import com.example.accountsystem.dto.TransactionDto;
+import com.example.accountsystem.dto.TransactionHistory;
+import com.example.accountsystem.dto.TransactionHistoryItem;
+import com.example.accountsystem.dto.UseBalance;
+import com.example.accountsystem.dto.UseBalanceBatch;
 import com.example.accountsystem.exception.AccountException;
 import com.example.accountsystem.repository.AccountRepository;
 import com.example.accountsystem.repository.AccountUserRepository;
 import com.example.accountsystem.repository.TransactionRepository;
 import com.example.accountsystem.type.AccountStatus;
+import com.example.accountsystem.type.BalanceMode;
 import com.example.accountsystem.type.ErrorCode;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -17,21 +24,26 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static com.example.accountsystem.type.AccountStatus.IN_USE;
 import static com.example.accountsystem.type.TransactionResultType.F;
 import static com.example.accountsystem.type.TransactionResultType.S;
-import static com.example.accountsystem.type.TransactionType.CANCEL;
-import static com.example.accountsystem.type.TransactionType.USE;
+import static com.example.accountsystem.type.TransactionType.*;
 import static java.time.LocalDateTime.now;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @ExtendWith(MockitoExtension.class)
 class TransactionServiceTest {
@@ -45,6 +57,27 @@ class TransactionServiceTest {
     @Mock
     private AccountUserRepository accountUserRepository;
 
+    @Mock
+    private BalanceSlotService balanceSlotService;
+
+    @Mock
+    private BalanceModeRegistry balanceModeRegistry;
+
+    @Mock
+    private TransactionIdGenerator transactionIdGenerator;
+
+    @Mock
+    private AccountListCache accountListCache;
+
+    @Mock
+    private TransactionRecordCache transactionRecordCache;
+
+    @Mock
+    private HotBalanceStore hotBalanceStore;
+
+    @Mock
+    private BalanceJournal balanceJournal;
+
     @InjectMocks
     private TransactionService transactionService;
 
@@ -59,8 +92,6 @@ class TransactionServiceTest {
                 .accountStatus(IN_USE)
                 .balance(100000L)
                 .accountNumber("1000000012").build();
-        given(accountUserRepository.findById(anyLong()))
-                .willReturn(Optional.of(user));
         given(accountRepository.findByAccountNumber(anyString()))
                 .willReturn(Optional.of(account));
         given(transactionRepository.save(any()))
@@ -76,7 +107,7 @@ class TransactionServiceTest {
         ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
 
         // when
-        TransactionDto transactionDto = transactionService.useBalance(1L,
+        TransactionDto transactionDto = transactionService.useBalance(12L,
                 "1000000000", 1000L);
         // then
         verify(transactionRepository, times(1)).save(captor.capture());
@@ -88,16 +119,270 @@ class TransactionServiceTest {
         assertEquals(1000L, transactionDto.getAmount());
     }
 
+    @Test
+    @DisplayName("분할 잔액 계좌는 슬롯에서 차감")
+    void successUseBalance_striped() {
+        // given
+        AccountUser user = AccountUser.builder()
+                .name("Pobi").build();
+        user.setId(12L);
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .balanceMode(BalanceMode.STRIPED)
+                .balanceSlotCount(4)
+                .balance(0L)
+                .accountNumber("1000000012").build();
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        given(balanceSlotService.debit(any(), anyLong()))
+                .willReturn(99000L);
+        given(transactionRepository.save(any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+
+        // when
+        TransactionDto transactionDto = transactionService.useBalance(12L,
+                "1000000012", 1000L);
+
+        // then
+        verify(balanceSlotService, times(1)).debit(account, 1000L);
+        verify(transactionRepository, times(1)).save(captor.capture());
+        assertEquals(99000L, captor.getValue().getBalanceSnapshot());
+        assertEquals(0L, account.getBalance());
+        assertEquals(S, transactionDto.getTransactionResultType());
+    }
+
+    @Test
+    @DisplayName("락 없이 들어온 요청이 STANDARD 계좌를 만나면 실패")
+    void useBalance_lockSkippedForStandardAccount() {
+        // given
+        AccountUser user = AccountUser.builder()
+                .name("Pobi").build();
+        user.setId(12L);
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .balance(100000L)
+                .accountNumber("1000000012").build();
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        given(balanceModeRegistry.isLockFree(anyString()))
+                .willReturn(true);
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.useBalance(12L, "1000000012", 1000L));
+
+        // then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, exception.getErrorCode());
+        assertEquals(100000L, account.getBalance());
+        verify(transactionRepository, times(0)).save(any());
+    }
+
+    @Test
+    void successTransferBalance() {
+        // given
+        AccountUser user = AccountUser.builder()
+                .name("Pobi").build();
+        user.setId(12L);
+        Account fromAccount = Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .balance(10000L)
+                .accountNumber("1000000012").build();
+        Account toAccount = Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .balance(500L)
+                .accountNumber("1000000013").build();
+        given(accountRepository.findByAccountNumber("1000000012"))
+                .willReturn(Optional.of(fromAccount));
+        given(accountRepository.findByAccountNumber("1000000013"))
+                .willReturn(Optional.of(toAccount));
+        given(transactionRepository.save(any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+
+        // when
+        TransactionDto transactionDto = transactionService.transferBalance(12L,
+                "1000000012", "1000000013", 1000L);
+
+        // then
+        verify(transactionRepository, times(2)).save(captor.capture());
+        assertEquals(TRANSFER_OUT, captor.getAllValues().get(0).getTransactionType());
+        assertEquals(9000L, captor.getAllValues().get(0).getBalanceSnapshot());
+        assertEquals(TRANSFER_IN, captor.getAllValues().get(1).getTransactionType());
+        assertEquals(1500L, captor.getAllValues().get(1).getBalanceSnapshot());
+        assertEquals(9000L, fromAccount.getBalance());
+        assertEquals(1500L, toAccount.getBalance());
+        assertEquals(TRANSFER_OUT, transactionDto.getTransactionType());
+        assertEquals("1000000012", transactionDto.getAccountNumber());
+    }
+
+    @Test
+    @DisplayName("같은 계좌로 이체 불가")
+    void transferBalance_sameAccount() {
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.transferBalance(12L, "1000000012", "1000000012", 1000L));
+
+        // then
+        assertEquals(ErrorCode.INVALID_REQUEST, exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("잔액 부족 - 이체 실패, 입금 계좌 변화 없음")
+    void transferBalance_exceedBalance() {
+        // given
+        AccountUser user = AccountUser.builder()
+                .name("Pobi").build();
+        user.setId(12L);
+        Account fromAccount = Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .balance(100L)
+                .accountNumber("1000000012").build();
+        Account toAccount = Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .balance(500L)
+                .accountNumber("1000000013").build();
+        given(accountRepository.findByAccountNumber("1000000012"))
+                .willReturn(Optional.of(fromAccount));
+        given(accountRepository.findByAccountNumber("1000000013"))
+                .willReturn(Optional.of(toAccount));
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.transferBalance(12L, "1000000012", "1000000013", 1000L));
+
+        // then
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, exception.getErrorCode());
+        assertEquals(500L, toAccount.getBalance());
+        verify(transactionRepository, times(0)).save(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("일괄 잔액 사용 - 실패 항목만 F 로 남기고 나머지는 처리")
+    void useBalances_partialFailure() {
+        // given
+        AccountUser user = AccountUser.builder()
+                .name("Pobi").build();
+        user.setId(12L);
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .balance(10000L)
+                .accountNumber("1000000012").build();
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
+
+        // when
+        List<UseBalanceBatch.Item> items = transactionService.useBalances("1000000012",
+                Arrays.asList(
+                        new UseBalance.Request(12L, "1000000012", 3000L),
+                        new UseBalance.Request(12L, "1000000012", 50000L),
+                        new UseBalance.Request(12L, "1000000012", 2000L)));
+
+        // then
+        verify(accountUserRepository, times(0)).findById(anyLong());
+        verify(transactionRepository, times(1)).saveAll(captor.capture());
+        verify(transactionRepository, times(0)).save(any());
+        List<Transaction> saved = captor.getValue();
+        assertEquals(3, saved.size());
+        assertEquals(S, saved.get(0).getTransactionResultType());
+        assertEquals(7000L, saved.get(0).getBalanceSnapshot());
+        assertEquals(F, saved.get(1).getTransactionResultType());
+        assertEquals(7000L, saved.get(1).getBalanceSnapshot());
+        assertEquals(S, saved.get(2).getTransactionResultType());
+        assertEquals(5000L, saved.get(2).getBalanceSnapshot());
+        assertEquals(5000L, account.getBalance());
+        assertNull(items.get(0).getError());
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, items.get(1).getError().getErrorCode());
+        assertEquals(2000L, items.get(2).getResult().getAmount());
+        // 성공 항목만 저널에 남김
+        verify(balanceJournal, times(2)).appendAfterCommit(any(TransactionDto.class));
+    }
+
+    @Test
+    @DisplayName("여러 계좌 사용/취소를 한 번에 - 실패 항목은 잔액을 바꾸지 않고 나머지만 저장")
+    @SuppressWarnings("unchecked")
+    void applyMutations_isolatesFailures() {
+        // given
+        AccountUser pobi = AccountUser.builder()
+                .name("Pobi").build();
+        pobi.setId(12L);
+        AccountUser crong = AccountUser.builder()
+                .name("Crong").build();
+        crong.setId(13L);
+        Account first = Account.builder()
+                .accountUser(pobi)
+                .accountStatus(IN_USE)
+                .balance(10000L)
+                .accountNumber("1000000012").build();
+        Account second = Account.builder()
+                .accountUser(crong)
+                .accountStatus(IN_USE)
+                .balance(1000L)
+                .accountNumber("1000000013").build();
+        given(accountRepository.findByAccountNumberIn(anyCollection()))
+                .willReturn(List.of(first, second));
+        given(transactionRecordCache.get("transactionId"))
+                .willReturn(Optional.of(TransactionDto.builder()
+                        .accountNumber("1000000013")
+                        .transactionType(USE)
+                        .transactionResultType(S)
+                        .transactionId("transactionId")
+                        .transactedAt(now())
+                        .amount(500L)
+                        .balanceSnapshot(1000L)
+                        .build()));
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
+
+        // when
+        List<BalanceMutation.Result> results = transactionService.applyMutations(Arrays.asList(
+                BalanceMutation.use(12L, "1000000012", 3000L),
+                BalanceMutation.use(13L, "1000000013", 5000L),
+                BalanceMutation.cancel("transactionId", "1000000013", 500L),
+                BalanceMutation.use(12L, "9999999999", 1000L)));
+
+        // then
+        verify(transactionRepository, times(1)).saveAll(captor.capture());
+        verify(transactionRepository, times(0)).save(any());
+        assertEquals(2, captor.getValue().size());
+        assertEquals(7000L, results.get(0).getTransaction().getBalanceSnapshot());
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, results.get(1).getError().getErrorCode());
+        assertEquals(CANCEL, results.get(2).getTransaction().getTransactionType());
+        assertEquals(1500L, results.get(2).getTransaction().getBalanceSnapshot());
+        assertEquals(ErrorCode.ACCOUNT_NOT_FOUND, results.get(3).getError().getErrorCode());
+        assertEquals(7000L, first.getBalance());
+        assertEquals(1500L, second.getBalance());
+        verify(balanceJournal, times(0)).appendAfterCommit(any(TransactionDto.class));
+        verify(accountListCache, times(2)).evictAfterCommit(anyLong());
+    }
+
     @Test
     @DisplayName("해당 유저 없음 - 잔액 사용 실패")
     void useBalance_userNotFound() {
-        // given=
-        given(accountUserRepository.findById(anyLong()))
-                .willReturn(Optional.empty());
+        // given
+        AccountUser user = AccountUser.builder()
+                .name("Pobi").build();
+        user.setId(12L);
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(Account.builder()
+                        .accountUser(user)
+                        .accountStatus(IN_USE)
+                        .balance(10000L)
+                        .accountNumber("1000000012").build()));
+        given(accountUserRepository.existsById(anyLong()))
+                .willReturn(false);
 
         // when
         AccountException exception = assertThrows(AccountException.class,
-                () -> transactionService.useBalance(1L, "1000000000", 1000L));
+                () -> transactionService.useBalance(12L, "1000000000", 1000L));
 
         // then
         assertEquals(ErrorCode.USER_NOT_FOUND, exception.getErrorCode());
@@ -110,14 +395,12 @@ class TransactionServiceTest {
         AccountUser user = AccountUser.builder()
                 .name("Pobi").build();
         user.setId(12L);
-        given(accountUserRepository.findById(anyLong()))
-                .willReturn(Optional.of(user));
         given(accountRepository.findByAccountNumber(anyString()))
                 .willReturn(Optional.empty());
 
         // when
         AccountException exception = assertThrows(AccountException.class,
-                () -> transactionService.useBalance(1L, "1000000000", 1000L));
+                () -> transactionService.useBalance(12L, "1000000000", 1000L));
 
         // then
         assertEquals(ErrorCode.ACCOUNT_NOT_FOUND, exception.getErrorCode());
@@ -133,8 +416,8 @@ class TransactionServiceTest {
         AccountUser harry = AccountUser.builder()
                 .name("Harry").build();
         harry.setId(13L);
-        given(accountUserRepository.findById(anyLong()))
-                .willReturn(Optional.of(pobi));
+        given(accountUserRepository.existsById(anyLong()))
+                .willReturn(true);
         given(accountRepository.findByAccountNumber(anyString()))
                 .willReturn(Optional.of(Account.builder()
                         .accountUser(harry)
@@ -143,7 +426,7 @@ class TransactionServiceTest {
 
         // when
         AccountException exception = assertThrows(AccountException.class,
-                () -> transactionService.useBalance(1L, "1000000000", 1000L));
+                () -> transactionService.useBalance(12L, "1000000000", 1000L));
 
         // then
         assertEquals(ErrorCode.USER_ACCOUNT_UN_MATCH, exception.getErrorCode());
@@ -156,8 +439,6 @@ class TransactionServiceTest {
         AccountUser pobi = AccountUser.builder()
                 .name("Pobi").build();
         pobi.setId(12L);
-        given(accountUserRepository.findById(anyLong()))
-                .willReturn(Optional.of(pobi));
         given(accountRepository.findByAccountNumber(anyString()))
                 .willReturn(Optional.of(Account.builder()
                         .accountUser(pobi)
@@ -167,7 +448,7 @@ class TransactionServiceTest {
 
         // when
         AccountException exception = assertThrows(AccountException.class,
-                () -> transactionService.useBalance(1L, "1000000000", 1000L));
+                () -> transactionService.useBalance(12L, "1000000000", 1000L));
 
         // then
         assertEquals(ErrorCode.ACCOUNT_ALREADY_UNREGISTERED, exception.getErrorCode());
@@ -185,14 +466,12 @@ class TransactionServiceTest {
                 .accountStatus(IN_USE)
                 .balance(100L)
                 .accountNumber("1000000012").build();
-        given(accountUserRepository.findById(anyLong()))
-                .willReturn(Optional.of(user));
         given(accountRepository.findByAccountNumber(anyString()))
                 .willReturn(Optional.of(account));
 
         // when
         AccountException exception = assertThrows(AccountException.class,
-                () -> transactionService.useBalance(1L, "1000000000", 1000L));
+                () -> transactionService.useBalance(12L, "1000000000", 1000L));
 
         // then
         assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, exception.getErrorCode());
@@ -200,8 +479,9 @@ class TransactionServiceTest {
     }
 
     @Test
-    @DisplayName("실패 트랜잭션 저장 성공")
-    void saveFailedUseTransaction() {
+    @SuppressWarnings("unchecked")
+    @DisplayName("실패 트랜잭션 일괄 저장 - 계좌는 한 번에 조회, 없는 계좌는 버림")
+    void saveFailedTransactions() {
         // given
         AccountUser user = AccountUser.builder()
                 .name("Pobi").build();
@@ -211,27 +491,29 @@ class TransactionServiceTest {
                 .accountStatus(IN_USE)
                 .balance(100000L)
                 .accountNumber("1000000012").build();
-        given(accountRepository.findByAccountNumber(anyString()))
-                .willReturn(Optional.of(account));
-        given(transactionRepository.save(any()))
-                .willReturn(Transaction.builder()
-                        .account(account)
-                        .transactionType(USE)
-                        .transactionResultType(S)
-                        .transactionId("transactionId")
-                        .transactedAt(now())
-                        .amount(1000L)
-                        .balanceSnapshot(99000L)
-                        .build());
-        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+        LocalDateTime failedAt = LocalDateTime.of(2022, 7, 1, 12, 0);
+        given(accountRepository.findByAccountNumberIn(anyCollection()))
+                .willReturn(List.of(account));
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
 
         // when
-        transactionService.saveFailedUseTransaction("1000000000", 1000L);
+        transactionService.saveFailedTransactions(Arrays.asList(
+                new FailedTransaction(USE, "1000000012", 1000L, failedAt),
+                new FailedTransaction(CANCEL, "1000000012", 2000L, failedAt),
+                new FailedTransaction(USE, "9999999999", 3000L, failedAt)));
+
         // then
-        verify(transactionRepository, times(1)).save(captor.capture());
-        assertEquals(1000L, captor.getValue().getAmount());
-        assertEquals(100000L, captor.getValue().getBalanceSnapshot());
-        assertEquals(F, captor.getValue().getTransactionResultType());
+        verify(accountRepository, times(1)).findByAccountNumberIn(anyCollection());
+        verify(accountRepository, times(0)).findByAccountNumber(anyString());
+        verify(transactionRepository, times(1)).saveAll(captor.capture());
+        List<Transaction> saved = captor.getValue();
+        assertEquals(2, saved.size());
+        assertEquals(USE, saved.get(0).getTransactionType());
+        assertEquals(1000L, saved.get(0).getAmount());
+        assertEquals(CANCEL, saved.get(1).getTransactionType());
+        assertEquals(100000L, saved.get(1).getBalanceSnapshot());
+        assertEquals(F, saved.get(1).getTransactionResultType());
+        assertEquals(failedAt, saved.get(1).getTransactedAt());
     }
 
     @Test
@@ -255,7 +537,7 @@ class TransactionServiceTest {
                 .balanceSnapshot(9900L)
                 .build();
 
-        given(transactionRepository.findByTransactionId(anyString()))
+        given(transactionRepository.findWithAccountByTransactionId(anyString()))
                 .willReturn(Optional.of(transaction));
         given(accountRepository.findByAccountNumber(anyString()))
                 .willReturn(Optional.of(account));
@@ -288,8 +570,11 @@ class TransactionServiceTest {
     @DisplayName("해당 계좌 없음 - 잔액 사용 취소 실패")
     void cancelTransaction_accountNotFound() {
         // given
-        given(transactionRepository.findByTransactionId(anyString()))
-                .willReturn(Optional.of(Transaction.builder().build()));
+        given(transactionRepository.findWithAccountByTransactionId(anyString()))
+                .willReturn(Optional.of(Transaction.builder()
+                        .account(Account.builder()
+                                .accountNumber("1000000012").build())
+                        .build()));
         given(accountRepository.findByAccountNumber(anyString()))
                 .willReturn(Optional.empty());
 
@@ -305,7 +590,7 @@ class TransactionServiceTest {
     @DisplayName("해당 거래 없음 - 잔액 사용 취소 실패")
     void cancelTransaction_transactionNotFound() {
         // given
-        given(transactionRepository.findByTransactionId(anyString()))
+        given(transactionRepository.findWithAccountByTransactionId(anyString()))
                 .willReturn(Optional.empty());
 
         // when
@@ -345,7 +630,7 @@ class TransactionServiceTest {
                 .balanceSnapshot(9000L)
                 .build();
 
-        given(transactionRepository.findByTransactionId(anyString()))
+        given(transactionRepository.findWithAccountByTransactionId(anyString()))
                 .willReturn(Optional.of(transaction));
         given(accountRepository.findByAccountNumber(anyString()))
                 .willReturn(Optional.of(accountNotUse));
@@ -380,7 +665,7 @@ class TransactionServiceTest {
                 .balanceSnapshot(9000L)
                 .build();
 
-        given(transactionRepository.findByTransactionId(anyString()))
+        given(transactionRepository.findWithAccountByTransactionId(anyString()))
                 .willReturn(Optional.of(transaction));
         given(accountRepository.findByAccountNumber(anyString()))
                 .willReturn(Optional.of(account));
@@ -415,7 +700,7 @@ class TransactionServiceTest {
                 .balanceSnapshot(9000L)
                 .build();
 
-        given(transactionRepository.findByTransactionId(anyString()))
+        given(transactionRepository.findWithAccountByTransactionId(anyString()))
                 .willReturn(Optional.of(transaction));
         given(accountRepository.findByAccountNumber(anyString()))
                 .willReturn(Optional.of(account));
@@ -451,7 +736,7 @@ class TransactionServiceTest {
                 .balanceSnapshot(9000L)
                 .build();
 
-        given(transactionRepository.findByTransactionId(anyString()))
+        given(transactionRepository.findWithAccountByTransactionId(anyString()))
                 .willReturn(Optional.of(transaction));
 
         // when
@@ -468,7 +753,162 @@ class TransactionServiceTest {
     @DisplayName("원거래 없음 - 거래 조회 실패")
     void queryTransaction_TransactionNotFound() {
         // given
-        given(transactionRepository.findByTransactionId(anyString()))
+        given(transactionRepository.findWithAccountByTransactionId(anyString()))
+                .willReturn(Optional.empty());
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.queryTransaction("transactionId"));
+
+        // then
+        assertEquals(ErrorCode.TRANSACTION_NOT_FOUND, exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("이체 거래는 취소 불가")
+    void cancelTransaction_transferNotAllowed() {
+        // given
+        AccountUser user = AccountUser.builder()
+                .name("Pobi").build();
+        user.setId(12L);
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .balance(10000L)
+                .accountNumber("1000000012").build();
+        account.setId(1L);
+        Transaction transaction = Transaction.builder()
+                .account(account)
+                .transactionType(TRANSFER_OUT)
+                .transactionResultType(S)
+                .transactionId("transactionId")
+                .transactedAt(now())
+                .amount(1000L)
+                .balanceSnapshot(9000L)
+                .build();
+        given(transactionRepository.findWithAccountByTransactionId(anyString()))
+                .willReturn(Optional.of(transaction));
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.cancelBalance("transactionId", "1000000012", 1000L));
+
+        // then
+        assertEquals(ErrorCode.TRANSFER_CANCEL_NOT_ALLOWED, exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("캐시된 원거래로 취소 - 원거래는 DB 에서 읽지 않음")
+    void cancelBalance_cachedOriginal() {
+        // given
+        AccountUser user = AccountUser.builder()
+                .name("Pobi").build();
+        user.setId(12L);
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .balance(10000L)
+                .accountNumber("1000000012").build();
+        given(transactionRecordCache.get("transactionId"))
+                .willReturn(Optional.of(TransactionDto.builder()
+                        .accountNumber("1000000012")
+                        .transactionType(USE)
+                        .transactionResultType(S)
+                        .transactionId("transactionId")
+                        .transactedAt(now())
+                        .amount(1000L)
+                        .balanceSnapshot(9000L)
+                        .build()));
+        given(accountRepository.findByAccountNumber("1000000012"))
+                .willReturn(Optional.of(account));
+        given(transactionRepository.save(any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        // when
+        TransactionDto transactionDto = transactionService.cancelBalance("transactionId",
+                "1000000012", 1000L);
+
+        // then
+        verify(transactionRepository, times(0)).findWithAccountByTransactionId(anyString());
+        verify(transactionRecordCache, times(1)).putAfterCommit(any());
+        assertEquals(CANCEL, transactionDto.getTransactionType());
+        assertEquals(11000L, account.getBalance());
+    }
+
+    @Test
+    @DisplayName("Bloom filter 에 없는 거래 - DB 조회 없이 실패")
+    void queryTransaction_knownAbsent() {
+        // given
+        given(transactionRecordCache.isKnownAbsent(anyString()))
+                .willReturn(true);
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.queryTransaction("transactionId"));
+
+        // then
+        assertEquals(ErrorCode.TRANSACTION_NOT_FOUND, exception.getErrorCode());
+        verify(transactionRepository, times(0)).findWithAccountByTransactionId(anyString());
+        verifyNoInteractions(hotBalanceStore);
+    }
+
+    @Test
+    @DisplayName("DB 에서 읽은 거래는 캐시에 넣음")
+    void queryTransaction_cachesResult() {
+        // given
+        Account account = Account.builder()
+                .accountNumber("1000000012").build();
+        given(transactionRepository.findWithAccountByTransactionId(anyString()))
+                .willReturn(Optional.of(Transaction.builder()
+                        .account(account)
+                        .transactionType(USE)
+                        .transactionResultType(S)
+                        .transactionId("transactionId")
+                        .amount(1000L)
+                        .build()));
+        ArgumentCaptor<TransactionDto> captor = ArgumentCaptor.forClass(TransactionDto.class);
+
+        // when
+        transactionService.queryTransaction("transactionId");
+
+        // then
+        verify(transactionRecordCache, times(1)).put(captor.capture());
+        assertEquals("transactionId", captor.getValue().getTransactionId());
+        assertEquals("1000000012", captor.getValue().getAccountNumber());
+    }
+
+    @Test
+    @DisplayName("캐시에 없는 DB 반영 전 HOT 거래는 Redis 색인에서 찾음")
+    void queryTransaction_unflushedHotTransaction() {
+        // given
+        given(balanceModeRegistry.hasHotAccounts())
+                .willReturn(true);
+        given(hotBalanceStore.findTransaction("transactionId"))
+                .willReturn(Optional.of(TransactionDto.builder()
+                        .accountNumber("1000000012")
+                        .transactionId("transactionId")
+                        .transactionType(USE)
+                        .transactionResultType(S)
+                        .amount(1000L)
+                        .build()));
+
+        // when
+        TransactionDto transactionDto = transactionService.queryTransaction("transactionId");
+
+        // then
+        assertEquals("1000000012", transactionDto.getAccountNumber());
+        verify(transactionRepository, times(0)).findWithAccountByTransactionId(anyString());
+    }
+
+    @Test
+    @DisplayName("HOT 계좌가 없으면 Redis 색인은 보지 않음")
+    void queryTransaction_noHotAccounts() {
+        // given
+        given(balanceModeRegistry.hasHotAccounts())
+                .willReturn(false);
+        given(transactionRepository.findWithAccountByTransactionId(anyString()))
                 .willReturn(Optional.empty());
 
         // when
@@ -477,5 +917,98 @@ class TransactionServiceTest {
 
         // then
         assertEquals(ErrorCode.TRANSACTION_NOT_FOUND, exception.getErrorCode());
+        verifyNoInteractions(hotBalanceStore);
+    }
+
+    @Test
+    @DisplayName("HOT 계좌와의 이체는 지원하지 않음")
+    void transferBalance_hotAccount() {
+        // given
+        AccountUser user = AccountUser.builder()
+                .name("Pobi").build();
+        user.setId(12L);
+        given(accountRepository.findByAccountNumber("1000000012"))
+                .willReturn(Optional.of(Account.builder()
+                        .accountUser(user)
+                        .accountStatus(IN_USE)
+                        .balanceMode(BalanceMode.STANDARD)
+                        .balance(10000L)
+                        .accountNumber("1000000012").build()));
+        given(accountRepository.findByAccountNumber("1000000013"))
+                .willReturn(Optional.of(Account.builder()
+                        .accountUser(user)
+                        .accountStatus(IN_USE)
+                        .balanceMode(BalanceMode.HOT)
+                        .balance(0L)
+                        .accountNumber("1000000013").build()));
+
+        // when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.transferBalance(12L, "1000000012", "1000000013", 1000L));
+
+        // then
+        assertEquals(ErrorCode.BALANCE_MODE_NOT_SUPPORTED, exception.getErrorCode());
+        verify(transactionRepository, times(0)).save(any());
+    }
+
+    @Test
+    @DisplayName("거래 내역 - size + 1 건을 읽어 다음 페이지가 있으면 마지막 거래를 커서로")
+    void getTransactionHistory_nextCursor() {
+        // given
+        LocalDateTime transactedAt = LocalDateTime.of(2022, 7, 1, 12, 0);
+        given(accountRepository.findIdByAccountNumber("1000000012"))
+                .willReturn(Optional.of(1L));
+        given(transactionRepository.findHistory(1L, USE, null, PageRequest.of(0, 3)))
+                .willReturn(Arrays.asList(
+                        historyItem(30L, "t3", transactedAt.plusMinutes(2)),
+                        historyItem(20L, "t2", transactedAt.plusMinutes(1)),
+                        historyItem(10L, "t1", transactedAt)));
+        given(transactionRepository.findHistoryBefore(1L, USE, null,
+                transactedAt.plusMinutes(1), 20L, PageRequest.of(0, 3)))
+                .willReturn(List.of(historyItem(10L, "t1", transactedAt)));
+
+        // when
+        TransactionHistory first = transactionService.getTransactionHistory(
+                "1000000012", USE, null, null, 2);
+        TransactionHistory next = transactionService.getTransactionHistory(
+                "1000000012", USE, null, first.getNextCursor(), 2);
+
+        // then
+        assertEquals(2, first.getItems().size());
+        assertEquals("t2", first.getItems().get(1).getTransactionId());
+        assertEquals(1, next.getItems().size());
+        assertNull(next.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("거래 내역 - 잘못된 페이지 크기나 커서는 INVALID_REQUEST")
+    void getTransactionHistory_invalidRequest() {
+        // given
+        given(accountRepository.findIdByAccountNumber("1000000012"))
+                .willReturn(Optional.of(1L));
+
+        // when
+        AccountException tooLarge = assertThrows(AccountException.class,
+                () -> transactionService.getTransactionHistory("1000000012", null, null, null,
+                        TransactionService.MAX_HISTORY_PAGE_SIZE + 1));
+        AccountException badCursor = assertThrows(AccountException.class,
+                () -> transactionService.getTransactionHistory("1000000012", null, null,
+                        "not-a-cursor", 20));
+
+        // then
+        assertEquals(ErrorCode.INVALID_REQUEST, tooLarge.getErrorCode());
+        assertEquals(ErrorCode.INVALID_REQUEST, badCursor.getErrorCode());
+    }
+
+    private static TransactionHistoryItem historyItem(Long id, String transactionId,
+                                                      LocalDateTime transactedAt) {
+        return TransactionHistoryItem.builder()
+                .id(id)
+                .transactionId(transactionId)
+                .transactionType(USE)
+                .transactionResult(S)
+                .amount(1000L)
+                .transactedAt(transactedAt)
+                .build();
     }
-}
\ No newline at end of file
+}